@@ -36,6 +36,7 @@ import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.IsFactorNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
@@ -72,6 +73,76 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         return Double.isNaN(v);
     }
 
+    /*
+     * The column pairs are independent of each other, so for large inputs they are distributed
+     * over several threads (see RParallel). Each pair is computed exactly as in the sequential
+     * code, which means that the results do not depend on the number of threads. Below
+     * PARALLEL_THRESHOLD element operations everything runs on the calling thread.
+     */
+    private static final long PARALLEL_THRESHOLD = 1L << 20;
+
+    @FunctionalInterface
+    private interface ColumnBody {
+        void compute(int i);
+    }
+
+    @FunctionalInterface
+    private interface PairBody {
+        void compute(int i, int j);
+    }
+
+    /**
+     * Calls {@code body} for every column {@code 0 <= i < nc}.
+     */
+    private static void forColumns(int nc, int threads, ColumnBody body) {
+        RParallel.forRange(nc, threads, 1, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                body.compute(i);
+            }
+        });
+    }
+
+    /**
+     * Calls {@code body} for every pair {@code 0 <= i < ncx, 0 <= j < ncy}. The pairs are split
+     * in the order of the result matrix, so that the threads write to separate parts of it.
+     */
+    private static void forAllPairs(int ncx, int ncy, int threads, PairBody body) {
+        RParallel.forRange(ncx * ncy, threads, 1, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                body.compute(p % ncx, p / ncx);
+            }
+        });
+    }
+
+    /**
+     * Calls {@code body} for every pair {@code 0 <= j <= i < nc}. Row {@code i} has {@code i + 1}
+     * pairs, so the rows are split at square roots to give every thread about the same number of
+     * pairs.
+     */
+    private static void forLowerTriangle(int nc, int threads, PairBody body) {
+        int parts = Math.max(1, Math.min(threads, nc));
+        RParallel.forRange(parts, parts, 1, (fromPart, toPart) -> {
+            int from = (int) (nc * Math.sqrt((double) fromPart / parts));
+            int to = toPart == parts ? nc : (int) (nc * Math.sqrt((double) toPart / parts));
+            for (int i = from; i < to; i++) {
+                for (int j = 0; j <= i; j++) {
+                    body.compute(i, j);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of threads to use for {@code ncx * ncy} column pairs of length {@code n}.
+     */
+    private static int getThreadCount(int n, int ncx, int ncy, boolean kendall) {
+        long work = (long) ncx * ncy * n;
+        if (kendall) {
+            work *= n;
+        }
+        return work < PARALLEL_THRESHOLD ? 1 : RParallel.getThreads();
+    }
+
     /*
      * Note that "if (kendall)" and "if (cor)" are used inside a double for() loop; which makes the
      * code better readable -- and is hopefully dealt with by a smartly optimizing compiler
@@ -159,29 +230,25 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     }
 
     @TruffleBoundary
-    private static void cov_pairwise1(int n, int ncx, double[] x, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
+    private static void cov_pairwise1(int n, int ncx, double[] x, double[] ans, boolean[] sd_0, boolean cor, boolean kendall, int threads) {
+        forLowerTriangle(ncx, threads, (i, j) -> {
             int xx = i * n;
-            for (int j = 0; j <= i; j++) {
-                int yy = j * n;
+            int yy = j * n;
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
+            COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
 
-                ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
-            }
-        }
+            ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
+        });
     }
 
     @TruffleBoundary
-    private static void cov_pairwise2(int n, int ncx, int ncy, double[] x, double[] y, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
+    private static void cov_pairwise2(int n, int ncx, int ncy, double[] x, double[] y, double[] ans, boolean[] sd_0, boolean cor, boolean kendall, int threads) {
+        forAllPairs(ncx, ncy, threads, (i, j) -> {
             int xx = i * n;
-            for (int j = 0; j < ncy; j++) {
-                int yy = j * n;
+            int yy = j * n;
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
-            }
-        }
+            COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
+        });
     }
 
     /*
@@ -189,9 +256,9 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
      */
 
     /* This uses two passes for better accuracy */
-    private static void MEAN(int n, int ncx, double[] x, double[] xm, boolean[] ind, int nobs) {
+    private static void MEAN(int n, int ncx, double[] x, double[] xm, boolean[] ind, int nobs, int threads) {
         /* variable means */
-        for (int i = 0; i < ncx; i++) {
+        forColumns(ncx, threads, i -> {
             int xx = i * n;
             double sum = 0;
             for (int k = 0; k < n; k++) {
@@ -210,13 +277,13 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
                 tmp = tmp + sum / nobs;
             }
             xm[i] = tmp;
-        }
+        });
     }
 
     /* This uses two passes for better accuracy */
-    private static void MEAN_(int n, int ncx, double[] x, double[] xm, boolean[] has_na) {
+    private static void MEAN_(int n, int ncx, double[] x, double[] xm, boolean[] has_na, int threads) {
         /* variable means (has_na) */
-        for (int i = 0; i < ncx; i++) {
+        forColumns(ncx, threads, i -> {
             double tmp;
             if (has_na[i]) {
                 tmp = RRuntime.DOUBLE_NA;
@@ -236,12 +303,10 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
                 }
             }
             xm[i] = tmp;
-        }
+        });
     }
 
-    private static void cov_complete1(int n, int ncx, double[] x, double[] xm, boolean[] ind, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        int n1 = -1;
-
+    private static void cov_complete1(int n, int ncx, double[] x, double[] xm, boolean[] ind, double[] ans, boolean[] sd_0, boolean cor, boolean kendall, int threads) {
         /* total number of complete observations */
         int nobs = 0;
         for (int k = 0; k < n; k++) {
@@ -259,45 +324,39 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
 
         if (!kendall) {
-            MEAN(n, ncx, x, xm, ind, nobs); /* -> xm[] */
-            n1 = nobs - 1;
+            MEAN(n, ncx, x, xm, ind, nobs, threads); /* -> xm[] */
         }
-        for (int i = 0; i < ncx; i++) {
+        int n1 = nobs - 1;
+        forLowerTriangle(ncx, threads, (i, j) -> {
             int xx = i * n;
-
+            int yy = j * n;
             if (!kendall) {
                 double xxm = xm[i];
-                for (int j = 0; j <= i; j++) {
-                    int yy = j * n;
-                    double yym = xm[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                        }
+                double yym = xm[j];
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    if (ind[k]) {
+                        sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
                     }
-                    double result = sum / n1;
-                    ANS(ans, ncx, j, i, result);
-                    ANS(ans, ncx, i, j, result);
                 }
+                double result = sum / n1;
+                ANS(ans, ncx, j, i, result);
+                ANS(ans, ncx, i, j, result);
             } else { /* Kendall's tau */
-                for (int j = 0; j <= i; j++) {
-                    int yy = j * n;
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            for (n1 = 0; n1 < n; n1++) {
-                                if (ind[n1]) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(x[yy + k] - x[yy + n1]);
-                                }
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    if (ind[k]) {
+                        for (int l = 0; l < n; l++) {
+                            if (ind[l]) {
+                                sum += RMath.sign(x[xx + k] - x[xx + l]) * RMath.sign(x[yy + k] - x[yy + l]);
                             }
                         }
                     }
-                    ANS(ans, ncx, j, i, sum);
-                    ANS(ans, ncx, i, j, sum);
                 }
+                ANS(ans, ncx, j, i, sum);
+                ANS(ans, ncx, i, j, sum);
             }
-        }
+        });
 
         if (cor) {
             for (int i = 0; i < ncx; i++) {
@@ -325,8 +384,7 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
     }
 
-    private static void cov_na_1(int n, int ncx, double[] x, double[] xm, boolean[] has_na, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        int n1 = -1;
+    private static void cov_na_1(int n, int ncx, double[] x, double[] xm, boolean[] has_na, double[] ans, boolean[] sd_0, boolean cor, boolean kendall, int threads) {
         if (n <= 1) { /* too many missing */
             for (int i = 0; i < ncx; i++) {
                 for (int j = 0; j < ncx; j++) {
@@ -337,56 +395,38 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
 
         if (!kendall) {
-            MEAN_(n, ncx, x, xm, has_na);/* -> xm[] */
-            n1 = n - 1;
+            MEAN_(n, ncx, x, xm, has_na, threads);/* -> xm[] */
         }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na[i]) {
-                for (int j = 0; j <= i; j++) {
-                    ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
+        int n1 = n - 1;
+        forLowerTriangle(ncx, threads, (i, j) -> {
+            if (has_na[i] || has_na[j]) {
+                ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
+                ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
             } else {
                 int xx = i * n;
-
+                int yy = j * n;
                 if (!kendall) {
                     double xxm = xm[i];
-                    for (int j = 0; j <= i; j++) {
-                        if (has_na[j]) {
-                            ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = xm[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                            }
-                            double result = sum / n1;
-                            ANS(ans, ncx, j, i, result);
-                            ANS(ans, ncx, i, j, result);
-                        }
+                    double yym = xm[j];
+                    double sum = 0;
+                    for (int k = 0; k < n; k++) {
+                        sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
                     }
+                    double result = sum / n1;
+                    ANS(ans, ncx, j, i, result);
+                    ANS(ans, ncx, i, j, result);
                 } else { /* Kendall's tau */
-                    for (int j = 0; j <= i; j++) {
-                        if (has_na[j]) {
-                            ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                for (n1 = 0; n1 < n; n1++) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(x[yy + k] - x[yy + n1]);
-                                }
-                            }
-                            ANS(ans, ncx, j, i, sum);
-                            ANS(ans, ncx, i, j, sum);
+                    double sum = 0;
+                    for (int k = 0; k < n; k++) {
+                        for (int l = 0; l < n; l++) {
+                            sum += RMath.sign(x[xx + k] - x[xx + l]) * RMath.sign(x[yy + k] - x[yy + l]);
                         }
                     }
+                    ANS(ans, ncx, j, i, sum);
+                    ANS(ans, ncx, i, j, sum);
                 }
             }
-        }
+        });
 
         if (cor) {
             for (int i = 0; i < ncx; i++) {
@@ -418,8 +458,8 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
     }
 
-    private static void COV_SDEV1(int n, int n1, int nc, double[] array, double[] m, boolean[] ind, boolean kendall) {
-        for (int i = 0; i < nc; i++) { /* Var(X[i]) */
+    private static void COV_SDEV1(int n, int n1, int nc, double[] array, double[] m, boolean[] ind, boolean kendall, int threads) {
+        forColumns(nc, threads, i -> { /* Var(X[i]) */
             int xx = i * n;
             double sum = 0;
             if (!kendall) {
@@ -442,12 +482,11 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
                 }
             }
             m[i] = Math.sqrt(sum);
-        }
+        });
     }
 
-    private static void cov_complete2(int n, int ncx, int ncy, double[] x, double[] y, double[] xm, double[] ym, boolean[] ind, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        int n1 = -1;
-
+    private static void cov_complete2(int n, int ncx, int ncy, double[] x, double[] y, double[] xm, double[] ym, boolean[] ind, double[] ans, boolean[] sd_0, boolean cor, boolean kendall,
+                    int threads) {
         /* total number of complete observations */
         int nobs = 0;
         for (int k = 0; k < n; k++) {
@@ -465,47 +504,42 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
 
         if (!kendall) {
-            MEAN(n, ncx, x, xm, ind, nobs);/* -> xm[] */
-            MEAN(n, ncy, y, ym, ind, nobs);/* -> ym[] */
-            n1 = nobs - 1;
+            MEAN(n, ncx, x, xm, ind, nobs, threads);/* -> xm[] */
+            MEAN(n, ncy, y, ym, ind, nobs, threads);/* -> ym[] */
         }
-        for (int i = 0; i < ncx; i++) {
+        int n1 = nobs - 1;
+        forAllPairs(ncx, ncy, threads, (i, j) -> {
             int xx = i * n;
+            int yy = j * n;
             if (!kendall) {
                 double xxm = xm[i];
-                for (int j = 0; j < ncy; j++) {
-                    int yy = j * n;
-                    double yym = ym[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                        }
+                double yym = ym[j];
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    if (ind[k]) {
+                        sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
                     }
-                    ANS(ans, ncx, i, j, sum / n1);
                 }
+                ANS(ans, ncx, i, j, sum / n1);
             } else { /* Kendall's tau */
-                for (int j = 0; j < ncy; j++) {
-                    int yy = j * n;
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            for (n1 = 0; n1 < n; n1++) {
-                                if (ind[n1]) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
-                                }
+                double sum = 0;
+                for (int k = 0; k < n; k++) {
+                    if (ind[k]) {
+                        for (int l = 0; l < n; l++) {
+                            if (ind[l]) {
+                                sum += RMath.sign(x[xx + k] - x[xx + l]) * RMath.sign(y[yy + k] - y[yy + l]);
                             }
                         }
                     }
-                    ANS(ans, ncx, i, j, sum);
                 }
+                ANS(ans, ncx, i, j, sum);
             }
-        }
+        });
 
         if (cor) {
 
-            COV_SDEV1(n, n1, ncx, x, xm, ind, kendall); /* -> xm[.] */
-            COV_SDEV1(n, n1, ncy, y, ym, ind, kendall); /* -> ym[.] */
+            COV_SDEV1(n, n1, ncx, x, xm, ind, kendall, threads); /* -> xm[.] */
+            COV_SDEV1(n, n1, ncy, y, ym, ind, kendall, threads); /* -> ym[.] */
 
             for (int i = 0; i < ncx; i++) {
                 for (int j = 0; j < ncy; j++) {
@@ -527,8 +561,8 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
     }
 
-    private static void COV_SDEV2(int n, int n1, int nc, double[] array, double[] m, boolean[] has_na, boolean kendall) {
-        for (int i = 0; i < nc; i++) {
+    private static void COV_SDEV2(int n, int n1, int nc, double[] array, double[] m, boolean[] has_na, boolean kendall, int threads) {
+        forColumns(nc, threads, i -> {
             if (!has_na[i]) { /* Var(X[j]) */
                 int xx = i * n;
                 double sum = 0;
@@ -549,12 +583,11 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
                 }
                 m[i] = Math.sqrt(sum);
             }
-        }
+        });
     }
 
     private static void cov_na_2(int n, int ncx, int ncy, double[] x, double[] y, double[] xm, double[] ym, boolean[] has_na_x, boolean[] has_na_y, double[] ans, boolean[] sd_0, boolean cor,
-                    boolean kendall) {
-        int n1 = -1;
+                    boolean kendall, int threads) {
         if (n <= 1) {/* too many missing */
             for (int i = 0; i < ncx; i++) {
                 for (int j = 0; j < ncy; j++) {
@@ -565,55 +598,40 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
 
         if (!kendall) {
-            MEAN_(n, ncx, x, xm, has_na_x);/* -> xm[] */
-            MEAN_(n, ncy, y, ym, has_na_y);/* -> ym[] */
-            n1 = n - 1;
+            MEAN_(n, ncx, x, xm, has_na_x, threads);/* -> xm[] */
+            MEAN_(n, ncy, y, ym, has_na_y, threads);/* -> ym[] */
         }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na_x[i]) {
-                for (int j = 0; j < ncy; j++) {
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
+        int n1 = n - 1;
+        forAllPairs(ncx, ncy, threads, (i, j) -> {
+            if (has_na_x[i] || has_na_y[j]) {
+                ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
             } else {
                 int xx = i * n;
+                int yy = j * n;
                 if (!kendall) {
                     double xxm = xm[i];
-                    for (int j = 0; j < ncy; j++) {
-                        if (has_na_y[j]) {
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = ym[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                            }
-                            ANS(ans, ncx, i, j, sum / n1);
-                        }
+                    double yym = ym[j];
+                    double sum = 0;
+                    for (int k = 0; k < n; k++) {
+                        sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
                     }
+                    ANS(ans, ncx, i, j, sum / n1);
                 } else { /* Kendall's tau */
-                    for (int j = 0; j < ncy; j++) {
-                        if (has_na_y[j]) {
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                for (n1 = 0; n1 < n; n1++) {
-                                    sum += RMath.sign(x[xx + k] - x[xx + n1]) * RMath.sign(y[yy + k] - y[yy + n1]);
-                                }
-                            }
-                            ANS(ans, ncx, i, j, sum);
+                    double sum = 0;
+                    for (int k = 0; k < n; k++) {
+                        for (int l = 0; l < n; l++) {
+                            sum += RMath.sign(x[xx + k] - x[xx + l]) * RMath.sign(y[yy + k] - y[yy + l]);
                         }
                     }
+                    ANS(ans, ncx, i, j, sum);
                 }
             }
-        }
+        });
 
         if (cor) {
 
-            COV_SDEV2(n, n1, ncx, x, xm, has_na_x, kendall); /* -> xm[.] */
-            COV_SDEV2(n, n1, ncy, y, ym, has_na_y, kendall); /* -> ym[.] */
+            COV_SDEV2(n, n1, ncx, x, xm, has_na_x, kendall, threads); /* -> xm[.] */
+            COV_SDEV2(n, n1, ncy, y, ym, has_na_y, kendall, threads); /* -> ym[.] */
 
             for (int i = 0; i < ncx; i++) {
                 if (!has_na_x[i]) {
@@ -781,7 +799,8 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         double[] ans = new double[ncx * ncy];
         boolean[] sd_0 = new boolean[1];
 
-        evaluate(y, kendall, isCor, n, ncx, ncy, na_fail, everything, empty_err, pair, xData, ans, sd_0);
+        int threads = getThreadCount(n, ncx, ncy, kendall);
+        evaluate(y, kendall, isCor, n, ncx, ncy, na_fail, everything, empty_err, pair, xData, ans, sd_0, threads);
 
         if (sd_0[0]) { /* only in cor() */
             warning(RError.Message.SD_ZERO);
@@ -835,34 +854,34 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     }
 
     private void evaluate(RDoubleVector y, boolean kendall, boolean cor, int n, int ncx, int ncy, boolean na_fail, boolean everything, boolean empty_err, boolean pair, double[] xData,
-                    double[] ans, boolean[] sd_0) {
+                    double[] ans, boolean[] sd_0, int threads) {
         if (y == null) {
-            evaluateXOnly(kendall, cor, n, ncx, na_fail, everything, empty_err, pair, xData, ans, sd_0);
+            evaluateXOnly(kendall, cor, n, ncx, na_fail, everything, empty_err, pair, xData, ans, sd_0, threads);
         } else { /* Co[vr] (x, y) */
-            evaluateWithY(y, kendall, cor, n, ncx, ncy, na_fail, everything, empty_err, pair, xData, ans, sd_0);
+            evaluateWithY(y, kendall, cor, n, ncx, ncy, na_fail, everything, empty_err, pair, xData, ans, sd_0, threads);
         }
     }
 
     private void evaluateWithY(RDoubleVector y, boolean kendall, boolean cor, int n, int ncx, int ncy, boolean na_fail, boolean everything, boolean empty_err, boolean pair, double[] xData,
-                    double[] ans, boolean[] sd_0) {
+                    double[] ans, boolean[] sd_0, int threads) {
         double[] yData = getReadonlyDataNode.execute(y);
         if (everything) {
-            evaluateWithYEverything(kendall, cor, n, ncx, ncy, xData, ans, sd_0, yData);
+            evaluateWithYEverything(kendall, cor, n, ncx, ncy, xData, ans, sd_0, yData, threads);
         } else if (!pair) { /* all | complete */
-            evaluateWithYAllOrComplete(kendall, cor, n, ncx, ncy, na_fail, empty_err, xData, ans, sd_0, yData);
+            evaluateWithYAllOrComplete(kendall, cor, n, ncx, ncy, na_fail, empty_err, xData, ans, sd_0, yData, threads);
         } else { /* pairwise */
-            cov_pairwise2(n, ncx, ncy, xData, yData, ans, sd_0, cor, kendall);
+            cov_pairwise2(n, ncx, ncy, xData, yData, ans, sd_0, cor, kendall, threads);
         }
     }
 
     @TruffleBoundary
     private static void evaluateWithYAllOrComplete(boolean kendall, boolean cor, int n, int ncx, int ncy, boolean na_fail, boolean empty_err, double[] xData, double[] ans, boolean[] sd_0,
-                    double[] yData) {
+                    double[] yData, int threads) {
         double[] xm = new double[ncx];
         double[] ym = new double[ncy];
         boolean[] ind = new boolean[n];
         complete2(n, ncx, ncy, xData, yData, ind, na_fail);
-        cov_complete2(n, ncx, ncy, xData, yData, xm, ym, ind, ans, sd_0, cor, kendall);
+        cov_complete2(n, ncx, ncy, xData, yData, xm, ym, ind, ans, sd_0, cor, kendall, threads);
         if (empty_err) {
             boolean indany = false;
             for (int i = 0; i < n; i++) {
@@ -878,32 +897,32 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     }
 
     @TruffleBoundary
-    private static void evaluateWithYEverything(boolean kendall, boolean cor, int n, int ncx, int ncy, double[] xData, double[] ans, boolean[] sd_0, double[] yData) {
+    private static void evaluateWithYEverything(boolean kendall, boolean cor, int n, int ncx, int ncy, double[] xData, double[] ans, boolean[] sd_0, double[] yData, int threads) {
         double[] xm = new double[ncx];
         double[] ym = new double[ncy];
         boolean[] ind = new boolean[ncx];
         boolean[] has_na_y = new boolean[ncy];
         find_na_2(n, ncx, ncy, xData, yData, ind, has_na_y);
-        cov_na_2(n, ncx, ncy, xData, yData, xm, ym, ind, has_na_y, ans, sd_0, cor, kendall);
+        cov_na_2(n, ncx, ncy, xData, yData, xm, ym, ind, has_na_y, ans, sd_0, cor, kendall, threads);
     }
 
     private static void evaluateXOnly(boolean kendall, boolean cor, int n, int ncx, boolean na_fail, boolean everything, boolean empty_err, boolean pair, double[] xData, double[] ans,
-                    boolean[] sd_0) {
+                    boolean[] sd_0, int threads) {
         if (everything) { /* NA's are propagated */
-            evaluateXOnlyEverything(kendall, cor, n, ncx, xData, ans, sd_0);
+            evaluateXOnlyEverything(kendall, cor, n, ncx, xData, ans, sd_0, threads);
         } else if (!pair) { /* all | complete "var" */
-            evaluateXOnlyAllOrComplete(kendall, cor, n, ncx, na_fail, empty_err, xData, ans, sd_0);
+            evaluateXOnlyAllOrComplete(kendall, cor, n, ncx, na_fail, empty_err, xData, ans, sd_0, threads);
         } else { /* pairwise "var" */
-            cov_pairwise1(n, ncx, xData, ans, sd_0, cor, kendall);
+            cov_pairwise1(n, ncx, xData, ans, sd_0, cor, kendall, threads);
         }
     }
 
     @TruffleBoundary
-    private static void evaluateXOnlyAllOrComplete(boolean kendall, boolean cor, int n, int ncx, boolean na_fail, boolean empty_err, double[] xData, double[] ans, boolean[] sd_0) {
+    private static void evaluateXOnlyAllOrComplete(boolean kendall, boolean cor, int n, int ncx, boolean na_fail, boolean empty_err, double[] xData, double[] ans, boolean[] sd_0, int threads) {
         double[] xm = new double[ncx];
         boolean[] ind = new boolean[n];
         complete1(n, ncx, xData, ind, na_fail);
-        cov_complete1(n, ncx, xData, xm, ind, ans, sd_0, cor, kendall);
+        cov_complete1(n, ncx, xData, xm, ind, ans, sd_0, cor, kendall, threads);
         if (empty_err) {
             boolean indany = false;
             for (int i = 0; i < n; i++) {
@@ -919,11 +938,11 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
     }
 
     @TruffleBoundary
-    private static void evaluateXOnlyEverything(boolean kendall, boolean cor, int n, int ncx, double[] xData, double[] ans, boolean[] sd_0) {
+    private static void evaluateXOnlyEverything(boolean kendall, boolean cor, int n, int ncx, double[] xData, double[] ans, boolean[] sd_0, int threads) {
         double[] xm = new double[ncx];
         boolean[] ind = new boolean[ncx];
         find_na_1(n, ncx, xData, /* --> has_na[] = */ ind);
-        cov_na_1(n, ncx, xData, xm, ind, ans, sd_0, cor, kendall);
+        cov_na_1(n, ncx, xData, xm, ind, ans, sd_0, cor, kendall, threads);
     }
 
     private final boolean isCor;
@@ -29,33 +29,31 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
-import java.util.function.Function;
+import java.util.Map;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleLanguage;
 import com.oracle.truffle.api.dsl.CachedContext;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.api.frame.Frame;
-import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.EventBinding;
 import com.oracle.truffle.api.instrumentation.EventContext;
-import com.oracle.truffle.api.instrumentation.ExecutionEventListener;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNodeFactory;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.nodes.RootNode;
-import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
 import com.oracle.truffle.r.nodes.instrumentation.RInstrumentation;
-import com.oracle.truffle.r.runtime.RArguments;
-import com.oracle.truffle.r.runtime.RCaller;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RSource;
 import com.oracle.truffle.r.runtime.SuppressFBWarnings;
-import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.context.TruffleRLanguage;
 import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
@@ -66,8 +64,6 @@ import com.oracle.truffle.r.runtime.data.RObjectSize;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.instrument.InstrumentationState;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
-import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
-import java.nio.file.StandardOpenOption;
 
 /**
  * Implements the {@code Rprof} external.
@@ -84,9 +80,21 @@ import java.nio.file.StandardOpenOption;
  * and then the {@code N} is used in line number references of the form {@code N#L},which precede
  * the function name.
  *
+ * The stacks are sampled asynchronously. While profiling, the profiled thread maintains a
+ * {@link ShadowStack} of the R functions it is executing, which is pushed and popped by event nodes
+ * attached to function roots (and, if line profiling, updated by event nodes attached to
+ * statements). A {@link Sampler} thread wakes up at each interval, takes a snapshot of the shadow
+ * stack and writes it to the output, so the profiled code never has to check for a pending sample
+ * and is not instrumented at all when profiling is off.
+ *
+ * If the R option {@value #COLLAPSED_OPTION} names a file when profiling is started, the samples
+ * are also aggregated into the collapsed stack format ({@code outer;...;inner count} per line) that
+ * is understood by flame graph tools, and written to that file when profiling ends.
  */
 public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryCopyTracer.Listener {
 
+    public static final String COLLAPSED_OPTION = "fastr.rprof.collapsed";
+
     static {
         Casts casts = new Casts(Rprof.class);
         casts.arg(0, "filename").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
@@ -116,27 +124,42 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
             if (profState != null && profState.out() != null) {
                 endProfiling();
             }
+            RContext context = ctxRef.get();
+            PrintStream out;
             try {
-                PrintStream out = new PrintStream(
-                                ctxRef.get().getSafeTruffleFile(filename).newOutputStream(append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
-                if (gcProfiling) {
-                    warning(RError.Message.GENERIC, "Rprof: gc profiling not supported");
-                }
-                if (memProfiling) {
-                    RDataFactory.addListener(LISTENER);
-                    MemoryCopyTracer.addListener(this);
-                    MemoryCopyTracer.setTracingState(true);
-                }
-                // interval is in seconds, we convert to millis
-                long intervalInMillis = (long) (1E3 * intervalD);
-                StatementListener statementListener = new StatementListener();
-                ProfileThread profileThread = new ProfileThread(intervalInMillis, statementListener);
-                profileThread.setDaemon(true);
-                profState.initialize(out, profileThread, statementListener, intervalInMillis, lineProfiling, memProfiling);
-                profileThread.start();
+                out = new PrintStream(context.getSafeTruffleFile(filename).newOutputStream(append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
             } catch (IOException ex) {
                 throw error(RError.Message.GENERIC, String.format("Rprof: cannot open profile file '%s'", filename));
             }
+            PrintStream collapsedOut = null;
+            Object collapsedOption = context.stateROptions.getValue(COLLAPSED_OPTION);
+            if (collapsedOption != null && collapsedOption != RNull.instance) {
+                String collapsedFile = RRuntime.asString(collapsedOption);
+                if (collapsedFile != null && !RRuntime.isNA(collapsedFile) && collapsedFile.length() > 0) {
+                    try {
+                        collapsedOut = new PrintStream(context.getSafeTruffleFile(collapsedFile).newOutputStream(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
+                    } catch (IOException ex) {
+                        out.close();
+                        throw error(RError.Message.GENERIC, String.format("Rprof: cannot open collapsed stack file '%s'", collapsedFile));
+                    }
+                }
+            }
+            if (gcProfiling) {
+                warning(RError.Message.GENERIC, "Rprof: gc profiling not supported");
+            }
+            if (memProfiling) {
+                RDataFactory.addListener(LISTENER);
+                MemoryCopyTracer.addListener(this);
+                MemoryCopyTracer.setTracingState(true);
+            }
+            // interval is in seconds, the output (and the sampler) use microseconds
+            long intervalInMicros = Math.max(1, Math.round(1E6 * intervalD));
+            ShadowStack stack = new ShadowStack(Thread.currentThread(), lineProfiling);
+            Sampler sampler = new Sampler(stack, intervalInMicros, out, collapsedOut);
+            profState.initialize(out, sampler, lineProfiling, memProfiling);
+            sampler.writeHeader();
+            profState.attach(stack);
+            sampler.start();
         }
         return RNull.instance;
     }
@@ -166,7 +189,9 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
     @TruffleBoundary
     public void reportCopying(RAbstractVector source, RAbstractVector dest) {
         RprofState profState = RprofState.get();
-        profState.memoryQuad.copied += RObjectSize.getObjectSize(source);
+        if (profState.memoryQuad != null) {
+            profState.memoryQuad.copied += RObjectSize.getObjectSize(source);
+        }
     }
 
     private static void endProfiling() {
@@ -176,97 +201,252 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
         }
     }
 
-    private static String getPath(RSyntaxElement node) {
-        Source source = node.getSourceSection().getSource();
-        return RSource.getPath(source);
+    private static FunctionDefinitionNode getFunction(EventContext context) {
+        RootNode rootNode = context.getInstrumentedNode().getRootNode();
+        return rootNode instanceof FunctionDefinitionNode ? (FunctionDefinitionNode) rootNode : null;
     }
 
-    private static final class ProfileThread extends Thread {
-        private final long interval;
-        private final StatementListener statementListener;
-        private volatile boolean running = true;
+    /**
+     * The stack of R functions executed by the profiled thread. It is only ever written by that
+     * thread and read by the {@link Sampler} without synchronization: a sample taken while a call is
+     * being entered or left may see the stack either before or after the change, which is as good
+     * as a sample taken a moment earlier or later.
+     */
+    private static final class ShadowStack {
+        private static final int INITIAL_DEPTH = 64;
+
+        private final Thread owner;
+        private FunctionDefinitionNode[] functions = new FunctionDefinitionNode[INITIAL_DEPTH];
+        /** The statement currently executed by each function, only used if line profiling. */
+        private RSyntaxElement[] statements;
+        private int depth;
+
+        private ShadowStack(Thread owner, boolean lineProfiling) {
+            this.owner = owner;
+            this.statements = lineProfiling ? new RSyntaxElement[INITIAL_DEPTH] : null;
+        }
 
-        private ProfileThread(long interval, StatementListener statementListener) {
-            this.interval = interval;
-            this.statementListener = statementListener;
+        private boolean isOwner() {
+            return Thread.currentThread() == owner;
+        }
+
+        private void push(FunctionDefinitionNode function) {
+            if (depth == functions.length) {
+                grow();
+            }
+            functions[depth] = function;
+            if (statements != null) {
+                statements[depth] = null;
+            }
+            depth++;
+        }
+
+        private void pop() {
+            if (depth > 0) {
+                depth--;
+            }
+        }
+
+        private void setStatement(FunctionDefinitionNode function, RSyntaxElement statement) {
+            int top = depth - 1;
+            // statements of promises evaluated on behalf of a callee must not be attributed to it
+            if (top >= 0 && functions[top] == function) {
+                statements[top] = statement;
+            }
+        }
+
+        @TruffleBoundary
+        private void grow() {
+            int newLength = functions.length * 2;
+            FunctionDefinitionNode[] newFunctions = new FunctionDefinitionNode[newLength];
+            System.arraycopy(functions, 0, newFunctions, 0, depth);
+            if (statements != null) {
+                RSyntaxElement[] newStatements = new RSyntaxElement[newLength];
+                System.arraycopy(statements, 0, newStatements, 0, depth);
+                statements = newStatements;
+            }
+            functions = newFunctions;
+        }
+    }
+
+    private static final class FunctionEventNode extends ExecutionEventNode {
+        private final ShadowStack stack;
+        private final FunctionDefinitionNode function;
+
+        private FunctionEventNode(ShadowStack stack, FunctionDefinitionNode function) {
+            this.stack = stack;
+            this.function = function;
         }
 
         @Override
-        public void run() {
-            while (running) {
-                try {
-                    Thread.sleep(interval);
-                    statementListener.intervalElapsed();
-                } catch (InterruptedException ex) {
+        protected void onEnter(VirtualFrame frame) {
+            if (stack.isOwner()) {
+                stack.push(function);
+            }
+        }
 
-                }
+        @Override
+        protected void onReturnValue(VirtualFrame frame, Object result) {
+            if (stack.isOwner()) {
+                stack.pop();
+            }
+        }
+
+        @Override
+        protected void onReturnExceptional(VirtualFrame frame, Throwable exception) {
+            if (stack.isOwner()) {
+                stack.pop();
+            }
+        }
+    }
+
+    private static final class StatementEventNode extends ExecutionEventNode {
+        private final ShadowStack stack;
+        private final FunctionDefinitionNode function;
+        private final RSyntaxElement statement;
+
+        private StatementEventNode(ShadowStack stack, FunctionDefinitionNode function, RSyntaxElement statement) {
+            this.stack = stack;
+            this.function = function;
+            this.statement = statement;
+        }
+
+        @Override
+        protected void onEnter(VirtualFrame frame) {
+            if (stack.isOwner()) {
+                stack.setStatement(function, statement);
             }
         }
     }
 
     /**
-     * Emulates a sampling timer by checking when the sample interval rolls over and at that point
-     * collects the stack of functions.
+     * Wakes up at each sample interval and writes a snapshot of the {@link ShadowStack}, innermost
+     * function first. Samples taken while no R function is executing are not written, the memory
+     * used in that interval is attributed to the next sample.
      */
-    private final class StatementListener implements ExecutionEventListener {
-        private final ArrayList<ArrayList<RSyntaxElement>> intervalStacks = new ArrayList<>();
-        private final ArrayList<RprofState.MemoryQuad> intervalMemory = new ArrayList<>();
-        private volatile boolean newInterval;
-
-        private StatementListener() {
-            SourceSectionFilter.Builder builder = SourceSectionFilter.newBuilder();
-            builder.tagIs(StandardTags.StatementTag.class);
-            SourceSectionFilter filter = builder.build();
-            RInstrumentation.getInstrumenter().attachExecutionEventListener(filter, this);
+    private static final class Sampler extends Thread {
+        private final ShadowStack stack;
+        private final long intervalInMicros;
+        private final PrintStream out;
+        private final PrintStream collapsedOut;
+        private final HashMap<String, Integer> fileMap = new HashMap<>();
+        private final HashMap<String, Integer> collapsedCounts = new HashMap<>();
+        private RprofState.MemoryQuad memoryQuad;
+        private volatile boolean running = true;
+
+        private Sampler(ShadowStack stack, long intervalInMicros, PrintStream out, PrintStream collapsedOut) {
+            super("Rprof sampler");
+            this.stack = stack;
+            this.intervalInMicros = intervalInMicros;
+            this.out = out;
+            this.collapsedOut = collapsedOut;
+            setDaemon(true);
         }
 
-        private void intervalElapsed() {
-            newInterval = true;
+        private void writeHeader() {
+            if (memoryQuad != null) {
+                out.print("memory profiling: ");
+            }
+            if (stack.statements != null) {
+                out.print("line profiling: ");
+            }
+            out.printf("sample.interval=%d\n", intervalInMicros);
         }
 
         @Override
-        public void onEnter(EventContext context, VirtualFrame frame) {
-            if (newInterval) {
-                onEnter(context);
-                newInterval = false;
+        public void run() {
+            long millis = intervalInMicros / 1000;
+            int nanos = (int) (intervalInMicros % 1000) * 1000;
+            while (running) {
+                try {
+                    Thread.sleep(millis, nanos);
+                } catch (InterruptedException ex) {
+                    // woken up to terminate
+                }
+                if (running) {
+                    sample();
+                }
             }
         }
 
-        @TruffleBoundary
-        private void onEnter(EventContext context) {
-            /* context tells here we are now, frame provides callers. */
-            ArrayList<RSyntaxElement> stack = new ArrayList<>();
-            stack.add((RSyntaxElement) context.getInstrumentedNode());
-            collectStack(stack);
-            intervalStacks.add(stack);
-            RprofState profState = RprofState.get();
-            if (profState.memoryProfiling) {
-                intervalMemory.add(profState.memoryQuad.copyAndClear());
+        private void stop() {
+            running = false;
+            interrupt();
+            try {
+                join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
             }
         }
 
-        @TruffleBoundary
-        private void collectStack(final ArrayList<RSyntaxElement> stack) {
-            Utils.iterateRFrames(FrameAccess.READ_ONLY, new Function<Frame, Object>() {
-
-                @Override
-                public Object apply(Frame fIn) {
-                    Frame f = RArguments.unwrap(fIn);
-                    RCaller call = RCaller.unwrapPromiseCaller(RArguments.getCall(f));
-                    if (RCaller.isValidCaller(call)) {
-                        stack.add(call.getSyntaxNode());
+        private void sample() {
+            FunctionDefinitionNode[] functions = stack.functions;
+            RSyntaxElement[] statements = stack.statements;
+            int depth = Math.min(stack.depth, functions.length);
+            if (statements != null) {
+                depth = Math.min(depth, statements.length);
+            }
+            if (depth == 0) {
+                return;
+            }
+            StringBuilder line = new StringBuilder();
+            if (memoryQuad != null) {
+                RprofState.MemoryQuad mq = memoryQuad.copyAndClear();
+                line.append(':').append(mq.largeV).append(':').append(mq.smallV).append(':').append(mq.nodes).append(':').append(mq.copied).append(':');
+            }
+            for (int i = depth - 1; i >= 0; i--) {
+                FunctionDefinitionNode function = functions[i];
+                if (function == null) {
+                    continue;
+                }
+                if (statements != null) {
+                    appendLine(line, statements[i]);
+                }
+                line.append('"').append(function.getName()).append("\" ");
+            }
+            out.println(line);
+            if (collapsedOut != null) {
+                StringBuilder key = new StringBuilder();
+                for (int i = 0; i < depth; i++) {
+                    FunctionDefinitionNode function = functions[i];
+                    if (function != null) {
+                        if (key.length() > 0) {
+                            key.append(';');
+                        }
+                        key.append(function.getName());
                     }
-                    return null;
                 }
-            });
+                collapsedCounts.merge(key.toString(), 1, Integer::sum);
+            }
         }
 
-        @Override
-        public void onReturnValue(EventContext context, VirtualFrame frame, Object result) {
+        private void appendLine(StringBuilder line, RSyntaxElement statement) {
+            SourceSection section = statement == null ? null : statement.getSourceSection();
+            if (section == null) {
+                return;
+            }
+            String path = RSource.getPath(section.getSource());
+            if (path == null) {
+                return;
+            }
+            Integer fileIndex = fileMap.get(path);
+            if (fileIndex == null) {
+                fileIndex = fileMap.size() + 1;
+                fileMap.put(path, fileIndex);
+                out.printf("#File %d: %s\n", fileIndex, path);
+            }
+            line.append(fileIndex).append('#').append(section.getStartLine()).append(' ');
         }
 
-        @Override
-        public void onReturnExceptional(EventContext context, VirtualFrame frame, Throwable exception) {
+        private void writeCollapsed() {
+            if (collapsedOut != null) {
+                for (Map.Entry<String, Integer> entry : collapsedCounts.entrySet()) {
+                    collapsedOut.print(entry.getKey());
+                    collapsedOut.print(' ');
+                    collapsedOut.println(entry.getValue());
+                }
+                collapsedOut.close();
+            }
         }
     }
 
@@ -275,13 +455,18 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
      *
      */
     private static final class RprofState extends InstrumentationState.RprofState {
-        private ProfileThread profileThread;
-        private StatementListener statementListener;
-        private long intervalInMillis;
+        private Sampler sampler;
+        private EventBinding<?> functionBinding;
+        private EventBinding<?> statementBinding;
         private boolean lineProfiling;
         private boolean memoryProfiling;
         private MemoryQuad memoryQuad;
 
+        /**
+         * Allocation counters of the current interval. They are updated by the profiled thread and
+         * read and cleared by the sampler without synchronization, so an allocation reported while a
+         * sample is taken may be lost or attributed to the next interval.
+         */
         public static final class MemoryQuad {
             public long smallV;
             public long largeV;
@@ -311,70 +496,61 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
             return state;
         }
 
-        public void initialize(PrintStream outA, ProfileThread profileThreadA, StatementListener statementListenerA, long intervalInMillisA,
-                        boolean lineProfilingA, boolean memoryProfilingA) {
+        public void initialize(PrintStream outA, Sampler samplerA, boolean lineProfilingA, boolean memoryProfilingA) {
             setOut(outA);
-            this.profileThread = profileThreadA;
-            this.statementListener = statementListenerA;
-            this.intervalInMillis = intervalInMillisA;
+            this.sampler = samplerA;
             this.lineProfiling = lineProfilingA;
             this.memoryProfiling = memoryProfilingA;
             this.memoryQuad = memoryProfilingA ? new MemoryQuad() : null;
+            samplerA.memoryQuad = this.memoryQuad;
+        }
+
+        private void attach(ShadowStack stack) {
+            functionBinding = RInstrumentation.getInstrumenter().attachExecutionEventFactory(SourceSectionFilter.newBuilder().tagIs(StandardTags.RootTag.class).build(),
+                            new ExecutionEventNodeFactory() {
+                                @Override
+                                public ExecutionEventNode create(EventContext context) {
+                                    FunctionDefinitionNode function = getFunction(context);
+                                    return function == null ? null : new FunctionEventNode(stack, function);
+                                }
+                            });
+            if (lineProfiling) {
+                statementBinding = RInstrumentation.getInstrumenter().attachExecutionEventFactory(SourceSectionFilter.newBuilder().tagIs(StandardTags.StatementTag.class).build(),
+                                new ExecutionEventNodeFactory() {
+                                    @Override
+                                    public ExecutionEventNode create(EventContext context) {
+                                        FunctionDefinitionNode function = getFunction(context);
+                                        Node node = context.getInstrumentedNode();
+                                        if (function == null || !(node instanceof RSyntaxElement)) {
+                                            return null;
+                                        }
+                                        return new StatementEventNode(stack, function, (RSyntaxElement) node);
+                                    }
+                                });
+            }
         }
 
         @Override
         public void cleanup(int status) {
-            profileThread.running = false;
-            HashMap<String, Integer> fileMap = null;
-            PrintStream out = this.out();
-            if (this.memoryProfiling) {
-                out.print("memory profiling: ");
+            if (out() == null) {
+                // not profiling, e.g. at exit after Rprof(NULL)
+                return;
             }
-            if (this.lineProfiling) {
-                out.print("line profiling: ");
+            if (functionBinding != null) {
+                functionBinding.dispose();
+                functionBinding = null;
             }
-            out.printf("sample.interval=%d\n", this.intervalInMillis * 1000);
-            if (this.lineProfiling) {
-                // scan stacks to find files
-                fileMap = new HashMap<>();
-                int fileIndex = 0;
-                for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
-                    for (RSyntaxElement node : intervalStack) {
-                        String path = getPath(node);
-                        if (path != null && fileMap.get(path) == null) {
-                            fileMap.put(path, ++fileIndex);
-                            out.printf("#File %d: %s\n", fileIndex, path);
-                        }
-                    }
-                }
-            }
-            int index = 0;
-            for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
-                if (this.memoryProfiling) {
-                    RprofState.MemoryQuad mq = statementListener.intervalMemory.get(index);
-                    out.printf(":%d:%d:%d:%d:", mq.largeV, mq.smallV, mq.nodes, mq.copied);
-                }
-                for (RSyntaxElement node : intervalStack) {
-                    RootNode rootNode = ((RSyntaxNode) node).asRNode().getRootNode();
-                    if (rootNode instanceof FunctionDefinitionNode) {
-                        String name = rootNode.getName();
-                        if (this.lineProfiling) {
-                            Integer fileIndex = fileMap.get(getPath(node));
-                            if (fileIndex != null) {
-                                out.printf("%d#%d ", fileIndex, node.getSourceSection().getStartLine());
-                            }
-                        }
-                        out.printf("\"%s\" ", name);
-                    }
-                }
-                out.println();
-                index++;
+            if (statementBinding != null) {
+                statementBinding.dispose();
+                statementBinding = null;
             }
-            out.close();
-            this.setOut(null);
+            sampler.stop();
+            sampler.writeCollapsed();
+            closeAndResetOut();
             if (this.memoryProfiling) {
                 RDataFactory.removeListener(LISTENER);
                 MemoryCopyTracer.setTracingState(false);
+                this.memoryQuad = null;
             }
         }
     }
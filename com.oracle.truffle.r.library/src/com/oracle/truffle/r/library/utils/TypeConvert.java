@@ -34,20 +34,23 @@ import static com.oracle.truffle.r.runtime.RError.Message.FIRST_ARGUMENT_MUST_BE
 import static com.oracle.truffle.r.runtime.RError.Message.INVALID_ARG;
 import static com.oracle.truffle.r.runtime.RRuntime.LOGICAL_FALSE;
 
+import java.text.NumberFormat;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.TreeSet;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.data.nodes.attributes.SetFixedAttributeNode;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RLocale;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
-import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
-import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.RBaseNode;
@@ -70,13 +73,13 @@ public abstract class TypeConvert extends RExternalBuiltinNode.Arg5 {
         return RError.SHOW_CALLER;
     }
 
-    private static boolean isNA(String s, RStringVector naStrings) {
+    private static boolean isNA(String s, String[] naStrings) {
         // naStrings are in addition to NA_character_
         if (RRuntime.isNA(s) || s.isEmpty()) { // Blank treated as NA too
             return true;
         }
-        for (int i = 0; i < naStrings.getLength(); i++) {
-            if (s.equals(naStrings.getDataAt(i))) {
+        for (int i = 0; i < naStrings.length; i++) {
+            if (s.equals(naStrings[i])) {
                 return true;
             }
         }
@@ -84,57 +87,119 @@ public abstract class TypeConvert extends RExternalBuiltinNode.Arg5 {
     }
 
     /*
-     * In the next three methods, firstPos is the index of the first element in the vector that is
-     * not isNA(elem, naStrings). However, there may be isNA values after that.
+     * The conversion is done in two passes over the input, both of which are split into parts that
+     * run in parallel for long vectors. The first pass classifies the elements and determines the
+     * result type, the second one converts them. The result type is decided by the first element
+     * that is not isNA(elem, naStrings): e.g. the vector is converted to integers if the first
+     * element can be parsed as an integer and all the others by RRuntime.parseInt. Since these
+     * checks differ for the first element and the others, each part records the flags of its first
+     * element separately.
      */
 
-    private static RIntVector readIntVector(RStringVector x, int firstPos, int firstVal, RStringVector naStrings) {
-        int[] data = new int[x.getLength()];
-        Arrays.fill(data, 0, firstPos, RRuntime.INT_NA);
-        boolean complete = canBeComplete(firstPos);
-        data[firstPos] = firstVal;
-        for (int i = firstPos + 1; i < data.length; i++) {
-            String s = x.getDataAt(i);
-            if (isNA(s, naStrings)) {
-                data[i] = RRuntime.INT_NA;
-                complete = false;
-            } else {
-                int result = RRuntime.parseInt(s);
-                if (result == RRuntime.INT_NA) {
-                    throw new NumberFormatException();
+    private static final int PARALLEL_GRAIN = 1 << 14;
+
+    /** The first element can be converted with {@link RRuntime#string2intNoCheck}. */
+    private static final int INT_FIRST = 1;
+    /** The element can be converted with {@link RRuntime#parseInt}. */
+    private static final int INT = 2;
+    private static final int DOUBLE = 4;
+    private static final int LOGICAL = 8;
+    private static final int HEX = 16;
+    private static final int ALL_REST = INT | DOUBLE | LOGICAL;
+
+    private static final class PartSummary {
+        private int first = -1;
+        private int firstFlags;
+        private int restFlags = ALL_REST;
+    }
+
+    private static int classify(String s, int wanted, NumberFormat format) {
+        int flags = 0;
+        if ((wanted & HEX) != 0 && RRuntime.hasHexPrefix(s)) {
+            flags |= HEX;
+        }
+        if ((wanted & INT_FIRST) != 0 && (flags & HEX) == 0) {
+            try {
+                RRuntime.string2intNoCheck(s, true);
+                flags |= INT_FIRST;
+            } catch (NumberFormatException e) {
+                // not an integer
+            }
+        }
+        if ((wanted & INT) != 0) {
+            try {
+                if (RRuntime.parseInt(s) != RRuntime.INT_NA) {
+                    // a plain decimal integer is also a valid double and never a logical
+                    return flags | INT | (wanted & DOUBLE);
                 }
-                data[i] = result;
+            } catch (NumberFormatException e) {
+                // not an integer
+            }
+        }
+        if ((wanted & DOUBLE) != 0) {
+            try {
+                RRuntime.string2doubleNoCheck(s, true, format);
+                return flags | DOUBLE;
+            } catch (NumberFormatException e) {
+                // not a double
+            }
+        }
+        if ((wanted & LOGICAL) != 0) {
+            try {
+                RRuntime.string2logicalNoCheck(s, true);
+                flags |= LOGICAL;
+            } catch (NumberFormatException e) {
+                // not a logical
+            }
+        }
+        return flags;
+    }
+
+    private static void classifyPart(String[] x, int from, int to, String[] naStrings, NumberFormat format, PartSummary summary) {
+        int i = from;
+        while (i < to && isNA(x[i], naStrings)) {
+            i++;
+        }
+        if (i == to) {
+            return;
+        }
+        summary.first = i;
+        summary.firstFlags = classify(x[i], INT_FIRST | ALL_REST | HEX, format);
+        int rest = ALL_REST;
+        for (i++; i < to && rest != 0; i++) {
+            if (!isNA(x[i], naStrings)) {
+                rest &= classify(x[i], rest, format);
             }
         }
-        return RDataFactory.createIntVector(data, complete);
+        summary.restFlags = rest;
     }
 
-    private static RDoubleVector readDoubleVector(RStringVector x, int firstPos, double firstVal, RStringVector naStrings) {
-        double[] data = new double[x.getLength()];
-        Arrays.fill(data, 0, firstPos, RRuntime.DOUBLE_NA);
-        boolean complete = canBeComplete(firstPos);
-        data[firstPos] = firstVal;
-        for (int i = firstPos + 1; i < data.length; i++) {
-            String s = x.getDataAt(i);
-            boolean isNA = isNA(s, naStrings);
-            data[i] = isNA ? RRuntime.DOUBLE_NA : RRuntime.string2doubleNoCheck(s, true, true);
-            complete = complete && !isNA;
-        }
-        return RDataFactory.createDoubleVector(data, complete);
+    /**
+     * Returns the result type ({@link #INT}, {@link #DOUBLE}, {@link #LOGICAL} or {@code 0} if the
+     * vector must be kept as strings) given the flags of the first element and the flags common to
+     * all other elements.
+     */
+    private static int resultType(int firstFlags, int restFlags) {
+        if ((firstFlags & HEX) != 0) {
+            // double takes precedence even if s is a hexadecimal integer
+            return (firstFlags & restFlags & DOUBLE) != 0 ? DOUBLE : 0;
+        } else if ((firstFlags & INT_FIRST) != 0 && (restFlags & INT) != 0) {
+            return INT;
+        } else if ((firstFlags & DOUBLE) != 0) {
+            // a failed conversion of the other elements to double does not fall back to logical
+            return (restFlags & DOUBLE) != 0 ? DOUBLE : 0;
+        } else if ((firstFlags & LOGICAL) != 0 && (restFlags & LOGICAL) != 0) {
+            return LOGICAL;
+        }
+        return 0;
     }
 
-    private static RLogicalVector readLogicalVector(RStringVector x, int firstPos, byte firstVal, RStringVector naStrings) {
-        byte[] data = new byte[x.getLength()];
-        Arrays.fill(data, 0, firstPos, RRuntime.LOGICAL_NA);
-        boolean complete = canBeComplete(firstPos);
-        data[firstPos] = firstVal;
-        for (int i = firstPos + 1; i < data.length; i++) {
-            String s = x.getDataAt(i);
-            boolean isNA = isNA(s, naStrings);
-            data[i] = isNA ? RRuntime.LOGICAL_NA : RRuntime.string2logicalNoCheck(s, true);
-            complete = complete && !isNA;
-        }
-        return RDataFactory.createLogicalVector(data, complete);
+    private static int[] partBounds(int length, int parts) {
+        int[] bounds = new int[parts + 1];
+        for (int p = 0; p <= parts; p++) {
+            bounds[p] = (int) ((long) length * p / parts);
+        }
+        return bounds;
     }
 
     private static boolean canBeComplete(int firstNonNAPos) {
@@ -143,92 +208,162 @@ public abstract class TypeConvert extends RExternalBuiltinNode.Arg5 {
 
     @Specialization
     @TruffleBoundary
-    protected Object typeConvert(RStringVector x, RStringVector naStrings, boolean asIs, @SuppressWarnings("unused") Object dec, @SuppressWarnings("unused") Object numeral) {
-        if (x.getLength() == 0) {
+    protected Object typeConvert(RStringVector x, RStringVector naStringsVec, boolean asIs, @SuppressWarnings("unused") Object dec, @SuppressWarnings("unused") Object numeral) {
+        int length = x.getLength();
+        if (length == 0) {
             return RDataFactory.createEmptyLogicalVector();
         }
+        String[] data = x.getReadonlyStringData();
+        String[] naStrings = naStringsVec.getReadonlyStringData();
 
-        int i = 0;
-        while (i < x.getLength() && (x.getDataAt(i).isEmpty() || isNA(x.getDataAt(i), naStrings))) {
-            i++;
+        int parts = length < 2 * PARALLEL_GRAIN ? 1 : Math.min(RParallel.getThreads(), length / PARALLEL_GRAIN);
+        int[] bounds = partBounds(length, parts);
+        NumberFormat format = NumberFormat.getInstance(RContext.getInstance().stateRLocale.getLocale(RLocale.NUMERIC));
+        NumberFormat[] formats = new NumberFormat[parts];
+        PartSummary[] summaries = new PartSummary[parts];
+        for (int p = 0; p < parts; p++) {
+            formats[p] = (NumberFormat) format.clone();
+            summaries[p] = new PartSummary();
         }
+        RParallel.forRange(parts, parts, 1, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                classifyPart(data, bounds[p], bounds[p + 1], naStrings, formats[p], summaries[p]);
+            }
+        });
 
-        if (i == x.getLength()) {
+        int first = -1;
+        int firstFlags = 0;
+        int restFlags = ALL_REST;
+        for (PartSummary summary : summaries) {
+            if (summary.first == -1) {
+                continue;
+            }
+            if (first == -1) {
+                first = summary.first;
+                firstFlags = summary.firstFlags;
+            } else {
+                restFlags &= summary.firstFlags;
+            }
+            restFlags &= summary.restFlags;
+        }
+
+        if (first == -1) {
             // all NAs
-            byte[] data = new byte[i];
-            Arrays.fill(data, RRuntime.LOGICAL_NA);
-            return RDataFactory.createLogicalVector(data, RDataFactory.INCOMPLETE_VECTOR);
+            byte[] result = new byte[length];
+            Arrays.fill(result, RRuntime.LOGICAL_NA);
+            return RDataFactory.createLogicalVector(result, RDataFactory.INCOMPLETE_VECTOR);
         }
 
-        String s = x.getDataAt(i);
-        if (RRuntime.hasHexPrefix(s)) {
-            // this is a mess
-            // double takes precedence even if s is a hexadecimal integer
-            try {
-                double doubleVal = RRuntime.string2doubleNoCheck(s, true, true);
-                return readDoubleVector(x, i, doubleVal, naStrings);
-            } catch (NumberFormatException ix) {
-                // fall through
+        int firstPos = first;
+        boolean[] sawNA = new boolean[parts];
+        switch (resultType(firstFlags, restFlags)) {
+            case INT: {
+                int[] result = new int[length];
+                RParallel.forRange(parts, parts, 1, (from, to) -> {
+                    for (int p = from; p < to; p++) {
+                        for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                            if (i == firstPos) {
+                                result[i] = RRuntime.string2intNoCheck(data[i], true);
+                            } else if (isNA(data[i], naStrings)) {
+                                result[i] = RRuntime.INT_NA;
+                                sawNA[p] = true;
+                            } else {
+                                result[i] = RRuntime.parseInt(data[i]);
+                            }
+                        }
+                    }
+                });
+                return RDataFactory.createIntVector(result, canBeComplete(firstPos) && !any(sawNA));
             }
-        } else {
-            try {
-                int intVal = RRuntime.string2intNoCheck(s, true);
-                return readIntVector(x, i, intVal, naStrings);
-            } catch (NumberFormatException ix) {
-                try {
-                    double doubleVal = RRuntime.string2doubleNoCheck(s, true, true);
-                    try {
-                        return readDoubleVector(x, i, doubleVal, naStrings);
-                    } catch (NumberFormatException lx) {
-                        // fall through
+            case DOUBLE: {
+                double[] result = new double[length];
+                RParallel.forRange(parts, parts, 1, (from, to) -> {
+                    for (int p = from; p < to; p++) {
+                        for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                            if (isNA(data[i], naStrings)) {
+                                result[i] = RRuntime.DOUBLE_NA;
+                                sawNA[p] = true;
+                            } else {
+                                result[i] = RRuntime.string2doubleNoCheck(data[i], true, formats[p]);
+                            }
+                        }
                     }
-                } catch (NumberFormatException dx) {
-                    try {
-                        byte logicalVal = RRuntime.string2logicalNoCheck(s, true);
-                        try {
-                            return readLogicalVector(x, i, logicalVal, naStrings);
-                        } catch (NumberFormatException lx) {
-                            // fall through
+                });
+                return RDataFactory.createDoubleVector(result, canBeComplete(firstPos) && !any(sawNA));
+            }
+            case LOGICAL: {
+                byte[] result = new byte[length];
+                RParallel.forRange(parts, parts, 1, (from, to) -> {
+                    for (int p = from; p < to; p++) {
+                        for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                            if (isNA(data[i], naStrings)) {
+                                result[i] = RRuntime.LOGICAL_NA;
+                                sawNA[p] = true;
+                            } else {
+                                result[i] = RRuntime.string2logicalNoCheck(data[i], true);
+                            }
                         }
-                    } catch (NumberFormatException lx) {
-                        // fall through
                     }
-                }
+                });
+                return RDataFactory.createLogicalVector(result, canBeComplete(firstPos) && !any(sawNA));
             }
+            default:
+                // conversion to int, double or logical failed
+                return asIs ? x : createFactor(data, naStrings, bounds);
         }
-        // fall through target - conversion to int, double or logical failed
-
-        if (asIs) {
-            return x;
-        } else {
-            // collect levels for a factor result
-            TreeMap<String, Integer> levels = new TreeMap<>();
-            for (int j = 0; j < x.getLength(); j++) {
-                s = x.getDataAt(j);
-                if (!isNA(s, naStrings)) {
-                    levels.put(s, 0);
-                }
-            }
-            // assign levels IDs
-            int pos = 1;
-            for (Map.Entry<String, Integer> entry : levels.entrySet()) {
-                entry.setValue(pos++);
+    }
+
+    private static boolean any(boolean[] values) {
+        for (boolean value : values) {
+            if (value) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            int[] data = new int[x.getLength()];
-            boolean complete = true;
-            for (int j = 0; j < data.length; j++) {
-                s = x.getDataAt(j);
-                if (!isNA(s, naStrings)) {
-                    data[j] = levels.get(s);
-                } else {
-                    data[j] = RRuntime.INT_NA;
-                    complete = false;
+    private Object createFactor(String[] data, String[] naStrings, int[] bounds) {
+        // collect levels for a factor result
+        int parts = bounds.length - 1;
+        @SuppressWarnings("unchecked")
+        HashSet<String>[] partLevels = new HashSet[parts];
+        RParallel.forRange(parts, parts, 1, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                HashSet<String> set = new HashSet<>();
+                for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                    if (!isNA(data[i], naStrings)) {
+                        set.add(data[i]);
+                    }
                 }
+                partLevels[p] = set;
             }
-            RIntVector res = RDataFactory.createIntVector(data, complete);
-            setLevelsAttrNode.setAttr(res, RDataFactory.createStringVector(levels.keySet().toArray(new String[0]), RDataFactory.COMPLETE_VECTOR));
-            return RAbstractVector.setVectorClassAttr(res, RDataFactory.createStringVector("factor"));
+        });
+        TreeSet<String> sorted = new TreeSet<>();
+        for (HashSet<String> set : partLevels) {
+            sorted.addAll(set);
         }
+        // assign levels IDs
+        HashMap<String, Integer> levels = new HashMap<>();
+        for (String level : sorted) {
+            levels.put(level, levels.size() + 1);
+        }
+
+        int[] result = new int[data.length];
+        boolean[] sawNA = new boolean[parts];
+        RParallel.forRange(parts, parts, 1, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                for (int i = bounds[p]; i < bounds[p + 1]; i++) {
+                    if (!isNA(data[i], naStrings)) {
+                        result[i] = levels.get(data[i]);
+                    } else {
+                        result[i] = RRuntime.INT_NA;
+                        sawNA[p] = true;
+                    }
+                }
+            }
+        });
+        RIntVector res = RDataFactory.createIntVector(result, !any(sawNA));
+        setLevelsAttrNode.setAttr(res, RDataFactory.createStringVector(sorted.toArray(new String[0]), RDataFactory.COMPLETE_VECTOR));
+        return RAbstractVector.setVectorClassAttr(res, RDataFactory.createStringVector("factor"));
     }
 }
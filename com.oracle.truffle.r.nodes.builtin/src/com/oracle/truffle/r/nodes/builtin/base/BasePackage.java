@@ -101,12 +101,16 @@ import com.oracle.truffle.r.nodes.builtin.base.infix.WhileBuiltin;
 import com.oracle.truffle.r.nodes.builtin.base.infix.WhileBuiltinNodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.system.SystemFunction;
 import com.oracle.truffle.r.nodes.builtin.base.system.SystemFunctionNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRCharSXPStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRCharSXPStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRContext;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRContextFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDebug;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDebugNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDispatchNativeHandlers;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRGetExecutor;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRGroupedAggregate;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRGroupedAggregateNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRHelp.FastRAddHelpPath;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRHelp.FastRHelpPath;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRHelp.FastRHelpRd;
@@ -129,6 +133,8 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory.FastRInterop
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory.FastRInteropGetExceptionNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory.FastRInteropTryNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRJavaGDResize;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRLazyLoadCacheStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRLazyLoadCacheStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRLibPaths;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRLibPathsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastROptionBuiltin;
@@ -140,8 +146,12 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRPrintError;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPrintErrorNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfo;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfoNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegExpCacheStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegExpCacheStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctions;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctionsNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRScanStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRScanStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSetConsoleHandler;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSetConsoleHandlerNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSetToolchain;
@@ -484,12 +494,14 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRRegisterFunctions.class, FastRRegisterFunctionsNodeGen::create);
         add(FastrDqrls.class, FastrDqrlsNodeGen::create);
         add(FastRDebug.class, FastRDebugNodeGen::create);
+        add(FastRCharSXPStats.class, FastRCharSXPStatsNodeGen::create);
         add(FastRPatchPackage.class, FastRPatchPackageNodeGen::create);
         add(FastRDispatchNativeHandlers.class, FastRDispatchNativeHandlers::new);
         add(FastRInitEventLoop.class, FastRInitEventLoopNodeGen::create);
         add(FastRJavaGDResize.class, FastRJavaGDResize::new);
         add(FastRSetBreakpoint.class, FastRSetBreakpointNodeGen::create);
         add(FastRAddHelpPath.class, FastRAddHelpPath::create);
+        add(FastRGroupedAggregate.class, FastRGroupedAggregateNodeGen::create);
         add(FastRHelpPath.class, FastRHelpPathNodeGen::create);
         add(FastRHelpRd.class, FastRHelpRdNodeGen::create);
         add(FastRIdentity.class, FastRIdentityNodeGen::create);
@@ -519,6 +531,9 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRInterop.ToLong.class, FastRInteropFactory.ToLongNodeGen::create);
         add(FastRInterop.ToShort.class, FastRInteropFactory.ToShortNodeGen::create);
         add(FastRRefCountInfo.class, FastRRefCountInfoNodeGen::create);
+        add(FastRRegExpCacheStats.class, FastRRegExpCacheStatsNodeGen::create);
+        add(FastRScanStats.class, FastRScanStatsNodeGen::create);
+        add(FastRLazyLoadCacheStats.class, FastRLazyLoadCacheStatsNodeGen::create);
         add(FastRPkgSource.class, FastRPkgSourceNodeGen::create);
         add(FastRPrintError.class, FastRPrintErrorNodeGen::create);
         add(FastRSourceInfo.class, FastRSourceInfoNodeGen::create);
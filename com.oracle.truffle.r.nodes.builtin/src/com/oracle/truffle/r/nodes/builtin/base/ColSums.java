@@ -36,6 +36,7 @@ import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
@@ -64,12 +65,16 @@ public abstract class ColSums extends ColSumsBase {
         RandomAccessIterator xIt = xDataLib.randomAccessIterator(xData);
         NACheck naCheck = xDataLib.getNACheck(xData);
         nextCol: for (int c = 0; c < colNum; c++) {
+            // accumulated with extended precision like in GNU R
             double sum = 0;
+            double error = 0;
             for (int i = 0; i < rowNum; i++) {
                 final double el = xDataLib.getDouble(xData, xIt, pos++);
                 if (rna) {
                     if (!naCheck.check(el) && !Double.isNaN(el)) {
-                        sum = add.op(sum, el);
+                        double newSum = sum + el;
+                        error += AccurateSum.error(sum, el, newSum);
+                        sum = newSum;
                     }
                 } else {
                     if (naCheck.check(el)) {
@@ -83,10 +88,12 @@ public abstract class ColSums extends ColSumsBase {
                         pos += rowNum - i - 1;
                         continue nextCol;
                     }
-                    sum = add.op(sum, el);
+                    double newSum = sum + el;
+                    error += AccurateSum.error(sum, el, newSum);
+                    sum = newSum;
                 }
             }
-            result[c] = sum;
+            result[c] = AccurateSum.round(sum, error);
         }
         return RDataFactory.createDoubleVector(result, isComplete);
     }
@@ -197,7 +197,8 @@ public abstract class ConnectionFunctions {
         }
 
         private static void n(Casts casts) {
-            casts.arg("n").asIntegerVector().findFirst().mustBe(gte(0));
+            // a double, as in GnuR 'n' may exceed the int range
+            casts.arg("n").asDoubleVector().findFirst().mustBe(gte(0.0));
         }
 
         private static void size(Casts casts) {
@@ -870,6 +871,10 @@ public abstract class ConnectionFunctions {
     @RBuiltin(name = "readBin", kind = INTERNAL, parameterNames = {"con", "what", "n", "size", "signed", "swap"}, behavior = IO)
     public abstract static class ReadBin extends RBuiltinNode.Arg6 {
 
+        /** The largest buffer, and thus byte vector, that can be allocated. */
+        static final int MAX_READ_BYTES = Integer.MAX_VALUE - 8;
+        private static final int INITIAL_READ_BYTES = 64 * 1024;
+
         static {
             Casts casts = new Casts(ReadBin.class);
             casts.arg("con").defaultError(Message.INVALID_CONNECTION).mustNotBeNull().returnIf(rawValue()).asIntegerVector().findFirst();
@@ -883,7 +888,8 @@ public abstract class ConnectionFunctions {
         @SuppressWarnings("unused")
         @Specialization
         @TruffleBoundary
-        protected Object readBin(RRawVector vec, String what, int n, int sizeInput, boolean signed, boolean swap) {
+        protected Object readBin(RRawVector vec, String what, double nArg, int sizeInput, boolean signed, boolean swap) {
+            int n = (int) Math.min(nArg, Integer.MAX_VALUE);
             Object result;
             switch (what) {
                 case "character":
@@ -914,8 +920,9 @@ public abstract class ConnectionFunctions {
 
         @Specialization
         @TruffleBoundary
-        protected Object readBin(int con, String what, int n, int sizeInput, boolean signed, boolean swap) {
+        protected Object readBin(int con, String what, double nArg, int sizeInput, boolean signed, boolean swap) {
             RAbstractVector result;
+            int elementSize;
             BaseRConnection connection = RConnection.fromIndex(con);
             try (RConnection openConn = connection.forceOpen("rb")) {
                 if (getBaseConnection(openConn).isTextMode()) {
@@ -929,26 +936,32 @@ public abstract class ConnectionFunctions {
                             size = 4;
                         }
                         if (size == 1 || size == 4 || size == 2) {
-                            result = readInteger(connection, n, size, swap, signed);
+                            elementSize = size;
+                            result = readInteger(connection, recordCount(nArg, elementSize), size, swap, signed);
                         } else {
                             throw RError.nyi(RError.SHOW_CALLER, "readBin \"int\" size not implemented");
                         }
                         break;
                     case "double":
                     case "numeric":
-                        result = readDouble(connection, n, swap);
+                        elementSize = 8;
+                        result = readDouble(connection, recordCount(nArg, elementSize), swap);
                         break;
                     case "complex":
-                        result = readComplex(connection, n, swap);
+                        elementSize = 16;
+                        result = readComplex(connection, recordCount(nArg, elementSize), swap);
                         break;
                     case "character":
-                        result = readString(connection, n);
+                        elementSize = 1;
+                        result = readString(connection, recordCount(nArg, elementSize));
                         break;
                     case "logical":
-                        result = readLogical(connection, n, swap);
+                        elementSize = 4;
+                        result = readLogical(connection, recordCount(nArg, elementSize), swap);
                         break;
                     case "raw":
-                        result = readRaw(connection, n);
+                        elementSize = 1;
+                        result = readRaw(connection, recordCount(nArg, elementSize));
                         break;
                     default:
                         throw RInternalError.shouldNotReachHere();
@@ -956,18 +969,40 @@ public abstract class ConnectionFunctions {
             } catch (IOException x) {
                 throw error(RError.Message.ERROR_READING_CONNECTION, x.getMessage());
             }
+            if (nArg > result.getLength() && result.getLength() == recordCount(nArg, elementSize)) {
+                // there may be more data than a vector can hold
+                // TODO long vector support, needs vector storage with long lengths and indices
+                throw error(RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+            }
             return result;
         }
 
+        /**
+         * Returns the number of records of {@code elementSize} bytes to read for the requested
+         * {@code n}, bounded by what a single buffer, and thus a vector, can hold.
+         */
+        private static int recordCount(double n, int elementSize) {
+            return (int) Math.min(n, MAX_READ_BYTES / elementSize);
+        }
+
         private static ByteBuffer fillBuffer(RConnection con, boolean swap, int bytes) throws IOException {
-            ByteBuffer buffer = ByteBuffer.allocate(bytes);
-            // read at least one element
-            do {
+            // 'n' is often just an upper bound, so the buffer grows as the data arrives
+            ByteBuffer buffer = ByteBuffer.allocate(Math.min(bytes, INITIAL_READ_BYTES));
+            while (true) {
                 int bytesRead = con.readBin(buffer);
-                if (bytesRead == 0) {
+                if (bytesRead <= 0) {
                     break;
                 }
-            } while (buffer.hasRemaining());
+                if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() == bytes) {
+                        break;
+                    }
+                    ByteBuffer larger = ByteBuffer.allocate((int) Math.min(bytes, 2L * buffer.capacity()));
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
             buffer.flip();
             checkOrder(buffer, swap);
             return buffer;
@@ -1038,7 +1073,7 @@ public abstract class ConnectionFunctions {
         }
 
         private static RStringVector readString(RConnection con, int n) throws IOException {
-            ArrayList<String> strings = new ArrayList<>(n);
+            ArrayList<String> strings = new ArrayList<>(Math.min(n, 1024));
             int s = 0;
             while (s < n) {
                 byte[] chars = con.readBinChars();
@@ -1122,8 +1157,13 @@ public abstract class ConnectionFunctions {
         }
 
         @TruffleBoundary
-        private static ByteBuffer allocate(int capacity, boolean swap) {
-            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        private ByteBuffer allocate(long capacity, boolean swap) {
+            if (capacity > ReadBin.MAX_READ_BYTES) {
+                // the result would have to be a long raw vector
+                // TODO long vector support, needs vector storage with long lengths and indices
+                throw error(RError.Message.LONG_VECTORS_NOT_SUPPORTED);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) capacity);
             checkOrder(buffer, swap);
             return buffer;
         }
@@ -1143,19 +1183,19 @@ public abstract class ConnectionFunctions {
                 switch (objectAccess.getType()) {
                     case Integer:
                     case Logical:
-                        buffer = allocate(4 * length, swap);
+                        buffer = allocate(4L * length, swap);
                         while (objectAccess.next(iter)) {
                             buffer.putInt(objectAccess.getInt(iter));
                         }
                         return buffer;
                     case Double:
-                        buffer = allocate(8 * length, swap);
+                        buffer = allocate(8L * length, swap);
                         while (objectAccess.next(iter)) {
                             buffer.putDouble(objectAccess.getDouble(iter));
                         }
                         return buffer;
                     case Complex:
-                        buffer = allocate(16 * length, swap);
+                        buffer = allocate(16L * length, swap);
                         while (objectAccess.next(iter)) {
                             buffer.putDouble(objectAccess.getComplexR(iter));
                             buffer.putDouble(objectAccess.getComplexI(iter));
@@ -1163,7 +1203,7 @@ public abstract class ConnectionFunctions {
                         return buffer;
                     case Character:
                         byte[][] data = new byte[length][];
-                        int totalLength = 0;
+                        long totalLength = 0;
                         while (objectAccess.next(iter)) {
                             // There is no special encoding for NA_character_
                             data[iter.getIndex()] = encodeString(objectAccess.getString(iter));
@@ -56,6 +56,7 @@ import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.WarningInfo;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
@@ -141,7 +142,9 @@ public abstract class CumSum extends RBuiltinNode.Arg1 {
         naCheck.enable(xDataLib, xData);
         SeqIterator iter = xDataLib.iterator(xData);
         double[] array = new double[iter.getLength()];
+        // accumulated with extended precision like in GNU R
         double prev = 0;
+        double error = 0;
         while (xDataLib.nextLoopCondition(xData, iter)) {
             double value = xDataLib.getNextDouble(xData, iter);
             if (naCheck.check(value)) {
@@ -152,9 +155,11 @@ public abstract class CumSum extends RBuiltinNode.Arg1 {
                 Arrays.fill(array, iter.getIndex(), array.length, Double.NaN);
                 break;
             }
-            prev = add.op(prev, value);
+            double sum = prev + value;
+            error += AccurateSum.error(prev, value, sum);
+            prev = sum;
             assert !RRuntime.isNA(prev) : "double addition should not introduce NAs";
-            array[iter.getIndex()] = prev;
+            array[iter.getIndex()] = AccurateSum.round(prev, error);
         }
         return RDataFactory.createDoubleVector(array, naCheck.neverSeenNA(), extractNamesNode.execute(x));
     }
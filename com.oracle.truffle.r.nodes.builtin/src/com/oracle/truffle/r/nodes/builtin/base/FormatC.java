@@ -112,10 +112,10 @@ public abstract class FormatC extends RBuiltinNode.Arg7 {
 
         String[] result = new String[x.getLength()];
         if ("d".equals(format)) {
-            String form = "%" + flag + width + "d";
+            SprintfPlan plan = SprintfPlan.get(this, "%" + flag + width + "d");
             if (type == RType.Integer) {
                 for (int i = 0; i < x.getLength(); i++) {
-                    result[i] = String.format(form, x.getDataAtAsObject(i));
+                    result[i] = plan.format(this, x.getDataAtAsObject(i));
                 }
             } else {
                 throw error(Message.GENERIC, "'type' must be \"integer\" for  \"d\"-format");
@@ -147,7 +147,7 @@ public abstract class FormatC extends RBuiltinNode.Arg7 {
                             if (iex < -4) {
                                 /* "g" would result in 'e-' representation: */
                                 String form = "%" + flag + "." + (dig - 1 + -iex) + "f";
-                                String str = String.format(form, xx);
+                                String str = SprintfPlan.get(this, form).format(this, xx);
                                 /* Remove trailing "0"s __ IFF flag has no '#': */
                                 if (rmTrailing0) {
                                     int j = str.length();
@@ -162,17 +162,14 @@ public abstract class FormatC extends RBuiltinNode.Arg7 {
                             } else { /* iex >= -4: NOT "e-" */
                                 /* if iex >= dig, would have "e+" representation */
                                 String formatString = "%" + flag + width + "." + ((iex >= dig) ? (iex + 1) : dig) + "g";
-                                result[i] = trimZero(String.format(formatString, xx));
+                                result[i] = SprintfPlan.get(this, formatString).format(this, xx);
                             }
                         } /* xx != 0 */
                     } /* if(do_fg) for(i..) */
                 } else {
-                    String form = "%" + flag + width + "." + dig + format;
-                    String form2 = "%" + width + "s";
+                    SprintfPlan plan = SprintfPlan.get(this, "%" + flag + width + "." + dig + format);
                     for (int i = 0; i < x.getLength(); i++) {
-                        String str = String.format(form, x.getDataAtAsObject(i));
-                        str = ("g".equals(format) || "f".equals(format)) ? trimZero(str) : str;
-                        result[i] = String.format(form2, str);
+                        result[i] = plan.format(this, x.getDataAtAsObject(i));
                     }
                 }
             } else {
@@ -181,35 +178,4 @@ public abstract class FormatC extends RBuiltinNode.Arg7 {
         }
         return result;
     }
-
-    private static String trimZero(String str) {
-        int e = str.indexOf('e');
-        int i = e < 0 ? str.length() : e;
-        while (i > 0 && str.charAt(i - 1) == '0') {
-            i--;
-        }
-        if (i > 0 && str.charAt(i - 1) == '.') {
-            i--;
-            String s = str.substring(0, i);
-            if (e < 0) {
-                return s;
-            } else {
-                StringBuilder sb = new StringBuilder(s);
-                sb.append(str.substring(e));
-                return sb.toString();
-            }
-        }
-        if (i == str.length()) {
-            return str;
-        }
-        // need to check whether we're after the decimal point:
-        int j = i;
-        while (j > 0 && str.charAt(j - 1) >= '0' && str.charAt(j) <= '9') {
-            j--;
-        }
-        if (j > 0 && str.charAt(j - 1) == '.') {
-            return str.substring(0, i);
-        }
-        return str;
-    }
 }
@@ -55,7 +55,9 @@ import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RegExp;
+import com.oracle.truffle.r.runtime.RegExpCache;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
@@ -137,6 +139,12 @@ public class GrepFunctions {
         @Child protected PCRERFFI.MaketablesNode maketablesNode = RFFIFactory.getPCRERFFI().createMaketablesNode();
         @Child protected PCRERFFI.CompileNode compileNode = RFFIFactory.getPCRERFFI().createCompileNode();
 
+        /**
+         * The pattern last compiled at this call site. The pattern argument is usually a literal,
+         * so this saves the lookup in the context-wide {@link RegExpCache}.
+         */
+        private CompiledPattern lastPattern;
+
         /**
          * Temporary method that handles the check for the arguments that are common to the majority
          * of the functions, that we don't yet implement. If any of the arguments are {@code true},
@@ -223,14 +231,63 @@ public class GrepFunctions {
 
         protected PCRERFFI.Result compilePerlPattern(String pattern, boolean ignoreCase) {
             int cflags = ignoreCase ? PCRERFFI.CASELESS : 0;
-            long tables = maketablesNode.execute();
-            PCRERFFI.Result pcre = compileNode.execute(pattern, cflags, tables);
-            if (pcre.result == 0) {
-                // TODO output warning if pcre.errorMessage not NULL
-                throw error(RError.Message.INVALID_REGEXP, pattern);
-            }
+            RegExpCache cache = RContext.getInstance().regExpCache;
+            CompiledPattern last = lastPattern;
+            if (last != null && last.matches(cache, pattern, cflags, true)) {
+                cache.countHit();
+                return (PCRERFFI.Result) last.compiled;
+            }
+            PCRERFFI.Result pcre = cache.getPerl(pattern, cflags);
+            if (pcre == null) {
+                long tables = cache.getPCRETables();
+                if (tables == 0) {
+                    tables = maketablesNode.execute();
+                    cache.setPCRETables(tables);
+                }
+                pcre = compileNode.execute(pattern, cflags, tables);
+                if (pcre.result == 0) {
+                    // TODO output warning if pcre.errorMessage not NULL
+                    throw error(RError.Message.INVALID_REGEXP, pattern);
+                }
+                cache.putPerl(pattern, cflags, pcre);
+            }
+            lastPattern = new CompiledPattern(cache, pattern, cflags, true, pcre);
             return pcre;
         }
+
+        @TruffleBoundary
+        protected Pattern compilePattern(String pattern, int flags) {
+            RegExpCache cache = RContext.getInstance().regExpCache;
+            CompiledPattern last = lastPattern;
+            if (last != null && last.matches(cache, pattern, flags, false)) {
+                cache.countHit();
+                return (Pattern) last.compiled;
+            }
+            Pattern result = cache.getPattern(pattern, flags);
+            lastPattern = new CompiledPattern(cache, pattern, flags, false, result);
+            return result;
+        }
+    }
+
+    private static final class CompiledPattern {
+        private final RegExpCache cache;
+        private final String pattern;
+        private final int flags;
+        private final boolean perl;
+        private final Object compiled;
+
+        CompiledPattern(RegExpCache cache, String pattern, int flags, boolean perl, Object compiled) {
+            this.cache = cache;
+            this.pattern = pattern;
+            this.flags = flags;
+            this.perl = perl;
+            this.compiled = compiled;
+        }
+
+        boolean matches(RegExpCache currentCache, String otherPattern, int otherFlags, boolean otherPerl) {
+            // compiled PCRE patterns belong to the context that created them
+            return cache == currentCache && flags == otherFlags && perl == otherPerl && pattern.equals(otherPattern);
+        }
     }
 
     protected static final class GrepCommonCodeNode extends CommonCodeNode {
@@ -320,7 +377,7 @@ public class GrepFunctions {
             }
         }
 
-        protected static void findAllMatches(boolean[] result, String pattern, RStringVector vector, boolean fixed, boolean ignoreCase) {
+        protected void findAllMatches(boolean[] result, String pattern, RStringVector vector, boolean fixed, boolean ignoreCase) {
             for (int i = 0; i < result.length; i++) {
                 String text = vector.getDataAt(i);
                 if (!RRuntime.isNA(text)) {
@@ -333,8 +390,8 @@ public class GrepFunctions {
             }
         }
 
-        protected static boolean findMatch(String pattern, String text, boolean ignoreCase) {
-            Matcher m = Regexpr.getPatternMatcher(pattern, text, ignoreCase);
+        protected boolean findMatch(String pattern, String text, boolean ignoreCase) {
+            Matcher m = Regexpr.getPatternMatcher(this, pattern, text, ignoreCase);
             return m.find();
         }
     }
@@ -488,6 +545,7 @@ public class GrepFunctions {
                     pattern = RegExp.checkPreDefinedClasses(pattern);
                 }
                 String preparedReplacement = null;
+                Pattern javaPattern = null;
                 String[] result = new String[len];
                 for (int i = 0; i < len; i++) {
                     String input = vector.getDataAt(i);
@@ -503,7 +561,10 @@ public class GrepFunctions {
                                 preparedReplacement = replacement.replace("$", "\\$");
                                 preparedReplacement = convertGroups(preparedReplacement, 0);
                             }
-                            value = Pattern.compile(pattern, Pattern.LITERAL).matcher(input).replaceAll(preparedReplacement);
+                            if (javaPattern == null) {
+                                javaPattern = compilePattern(pattern, Pattern.LITERAL);
+                            }
+                            value = javaPattern.matcher(input).replaceAll(preparedReplacement);
                         } else {
                             int ix = input.indexOf(pattern);
                             if (preparedReplacement == null) {
@@ -571,7 +632,10 @@ public class GrepFunctions {
                             value = sb.toString();
                         }
                     } else {
-                        Matcher matcher = Pattern.compile(pattern, Pattern.DOTALL).matcher(input);
+                        if (javaPattern == null) {
+                            javaPattern = compilePattern(pattern, Pattern.DOTALL);
+                        }
+                        Matcher matcher = javaPattern.matcher(input);
                         if (preparedReplacement == null) {
                             preparedReplacement = replacement.replace("$", "\\$");
                             // matcher.groupCount() only depends on the pattern (not on the input)
@@ -1029,7 +1093,7 @@ public class GrepFunctions {
                     list.add(new Info(-1, -1, null, null, captureNames));
                 }
             } else {
-                Matcher m = getPatternMatcher(pattern, text, ignoreCase);
+                Matcher m = getPatternMatcher(common, pattern, text, ignoreCase);
                 while (m.find()) {
                     // R starts counting at index 1
                     list.add(new Info(m.start() + 1, m.end() - m.start(), null, null, null));
@@ -1043,7 +1107,7 @@ public class GrepFunctions {
         }
 
         @TruffleBoundary
-        private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
+        private static Matcher getPatternMatcher(CommonCodeNode common, String pattern, String text, boolean ignoreCase) {
             String actualPattern = pattern;
 
             // If a pattern starts with a '*', GnuR virtually prepends an empty string literal to
@@ -1051,7 +1115,7 @@ public class GrepFunctions {
             if (pattern.length() > 0 && pattern.charAt(0) == '*') {
                 actualPattern = pattern.substring(1);
             }
-            return Pattern.compile(actualPattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+            return common.compilePattern(actualPattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
         }
     }
 
@@ -1122,7 +1186,7 @@ public class GrepFunctions {
                         matchPos = new int[]{1};
                         matchLength = new int[]{0};
                     } else {
-                        Info[] res = getInfo(pattern, vector.getDataAt(i), ignoreCase, fixed);
+                        Info[] res = getInfo(common, pattern, vector.getDataAt(i), ignoreCase, fixed);
                         matchPos = new int[res.length];
                         matchLength = new int[res.length];
                         for (int j = 0; j < res.length; j++) {
@@ -1144,7 +1208,7 @@ public class GrepFunctions {
             }
         }
 
-        protected Info[] getInfo(String pattern, String text, boolean ignoreCase, boolean fixed) {
+        protected Info[] getInfo(CommonCodeNode common, String pattern, String text, boolean ignoreCase, boolean fixed) {
             Info[] result = null;
             if (fixed) {
                 int index;
@@ -1157,7 +1221,7 @@ public class GrepFunctions {
                     result = new Info[]{new Info(index + 1, pattern.length(), null, null, null)};
                 }
             } else {
-                Matcher m = getPatternMatcher(pattern, text, ignoreCase);
+                Matcher m = getPatternMatcher(common, pattern, text, ignoreCase);
                 if (find(m)) {
                     result = new Info[m.groupCount() + 1];
                     for (int i = 0; i <= m.groupCount(); i++) {
@@ -1177,8 +1241,8 @@ public class GrepFunctions {
         }
 
         @TruffleBoundary
-        private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
-            return Pattern.compile(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+        private static Matcher getPatternMatcher(CommonCodeNode common, String pattern, String text, boolean ignoreCase) {
+            return common.compilePattern(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
         }
     }
 
@@ -1518,7 +1582,6 @@ public class GrepFunctions {
             // treat split = NULL as split = ""
             RStringVector split = splitArg.getLength() == 0 ? RDataFactory.createStringVectorFromScalar("") : splitArg;
             String[] splits = new String[split.getLength()];
-            long pcreTables = perl ? common.maketablesNode.execute() : 0;
             PCRERFFI.Result[] pcreSplits = perl ? new PCRERFFI.Result[splits.length] : null;
 
             na.enable(x);
@@ -1527,11 +1590,7 @@ public class GrepFunctions {
                 splits[i] = fixed || perl ? split.getDataAt(i) : RegExp.checkPreDefinedClasses(split.getDataAt(i));
                 if (perl) {
                     if (!currentSplit.isEmpty()) {
-                        pcreSplits[i] = common.compileNode.execute(currentSplit, 0, pcreTables);
-                        if (pcreSplits[i].result == 0) {
-                            // TODO output warning if pcre.errorMessage not NULL
-                            throw error(RError.Message.INVALID_REGEXP, currentSplit);
-                        }
+                        pcreSplits[i] = common.compilePerlPattern(currentSplit, false);
                         // TODO pcre_study for vectors > 10 ? (cf GnuR)
                     }
                 }
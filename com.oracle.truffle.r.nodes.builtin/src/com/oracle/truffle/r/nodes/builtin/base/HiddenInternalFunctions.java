@@ -53,6 +53,7 @@ import com.oracle.truffle.r.nodes.function.call.CallRFunctionCachedNode;
 import com.oracle.truffle.r.nodes.function.call.CallRFunctionCachedNodeGen;
 import com.oracle.truffle.r.runtime.data.nodes.ShareObjectNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
+import com.oracle.truffle.r.runtime.LazyDBCache;
 import com.oracle.truffle.r.runtime.RCaller;
 import com.oracle.truffle.r.runtime.RCompression;
 import com.oracle.truffle.r.runtime.RError;
@@ -243,14 +244,13 @@ public class HiddenInternalFunctions {
                         CallRFunctionCachedNode callCache) {
             String dbPath = datafile.getDataAt(0);
             String packageName = context.getSafeTruffleFile(dbPath).getName();
-            byte[] dbData = RContext.getInstance().stateLazyDBCache.getData(context, dbPath);
+            LazyDBCache.DB db = context.stateLazyDBCache.getData(context, dbPath);
             int dotIndex;
             if ((dotIndex = packageName.lastIndexOf('.')) > 0) {
                 packageName = packageName.substring(0, dotIndex);
             }
             int offset = key.getDataAt(0);
             int length = key.getDataAt(1);
-            int outlen = getOutlen(dbData, offset); // length of uncompressed data
             byte[] udata = null;
             boolean rc = true;
             /*
@@ -261,24 +261,23 @@ public class HiddenInternalFunctions {
              * compression=2 and compression=3 is that type='Z' is only possible for the latter.
              */
             if (compression == 0) {
-                udata = new byte[length];
-                System.arraycopy(dbData, offset, udata, 0, length);
-            } else {
+                udata = db.getBytes(offset, length);
+            } else if ((udata = db.getPayload(offset)) == null) {
+                int outlen = db.getInt(offset); // length of uncompressed data
                 udata = new byte[outlen];
                 if (compression == 2 || compression == 3) {
-                    RCompression.Type type = RCompression.Type.fromTypeChar(dbData[4]);
+                    RCompression.Type type = RCompression.Type.fromTypeChar(db.getByte(offset + 4));
                     if (type == null) {
                         warning(RError.Message.GENERIC, "unknown compression type");
                         return RNull.instance;
                     }
-                    byte[] data = new byte[length - 5];
-                    System.arraycopy(dbData, offset + 5, data, 0, data.length);
-                    rc = RCompression.uncompress(type, udata, data);
+                    rc = RCompression.uncompress(type, udata, db.getBytes(offset + 5, length - 5));
                 } else {
                     // GnuR treats any other value as 1
-                    byte[] data = new byte[length - 4];
-                    System.arraycopy(dbData, offset + 4, data, 0, data.length);
-                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, data);
+                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, db.getBytes(offset + 4, length - 4));
+                }
+                if (rc) {
+                    db.putPayload(offset, udata);
                 }
             }
             if (!rc) {
@@ -310,13 +309,6 @@ public class HiddenInternalFunctions {
             }
         }
 
-        private static int getOutlen(byte[] dbData, int offset) {
-            ByteBuffer dataLengthBuf = ByteBuffer.allocate(4);
-            dataLengthBuf.put(dbData, offset, 4);
-            dataLengthBuf.position(0);
-            return dataLengthBuf.getInt();
-        }
-
         private static final class EvaluateAndSharePromiseNode extends Node {
             @Child private PromiseHelperNode promiseHelperNode;
             @Child private ShareObjectNode shareObjectNode;
@@ -44,9 +44,11 @@ import com.oracle.truffle.r.nodes.binary.BinaryMapArithmeticFunctionNode;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.control.RLengthNode;
 import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -54,6 +56,7 @@ import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.ffi.LapackRFFI;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
@@ -626,19 +629,27 @@ public abstract class MatMult extends RBuiltinNode.Arg2 {
 
         private static final int BLOCK_SIZE = 64;
 
+        /**
+         * Products with fewer multiplications than this are always computed on the calling thread.
+         */
+        private static final long PARALLEL_THRESHOLD = 1L << 21;
+
         private final boolean promoteDimNames;
 
         private final ConditionProfile bigProfile = ConditionProfile.createBinaryProfile();
+        private final ConditionProfile blasProfile = ConditionProfile.createBinaryProfile();
+        private final ConditionProfile parallelProfile = ConditionProfile.createBinaryProfile();
         private final BranchProfile incompleteProfile = BranchProfile.create();
         @CompilationFinal private boolean seenLargeMatrix;
 
-        private final LoopConditionProfile mainLoopProfile = LoopConditionProfile.createCountingProfile();
         private final LoopConditionProfile remainingLoopProfile = LoopConditionProfile.createCountingProfile();
         private final ConditionProfile noDimAttributes = ConditionProfile.createBinaryProfile();
 
         @Child private SetDimNamesAttributeNode setDimNamesNode = SetDimNamesAttributeNode.create();
         @Child private GetDimNamesAttributeNode getADimNamesNode = GetDimNamesAttributeNode.create();
         @Child private GetDimNamesAttributeNode getBDimNamesNode = GetDimNamesAttributeNode.create();
+        @Child private LapackRFFI.DgemmNode dgemmNode;
+        @Child private LapackRFFI.DsyrkNode dsyrkNode;
 
         public MatMultAsDouble(boolean promoteDimNames) {
             this.promoteDimNames = promoteDimNames;
@@ -798,7 +809,11 @@ public abstract class MatMult extends RBuiltinNode.Arg2 {
                 CompilerDirectives.transferToInterpreterAndInvalidate();
                 seenLargeMatrix = true;
             }
-            if (seenLargeMatrix) {
+            if (blasProfile.profile(useBlas() && (aRowStride == 1 || aColStride == 1) && (bRowStride == 1 || bColStride == 1))) {
+                multiplyBlas(dataA, dataB, result, aRows, aCols, bCols, aRowStride, aColStride, bRowStride, bColStride, mirrored);
+            } else if (seenLargeMatrix && parallelProfile.profile((long) aRows * aCols * bCols >= PARALLEL_THRESHOLD)) {
+                multiplyParallel(dataA, dataB, result, aRows, aCols, bCols, aRowStride, aColStride, bRowStride, bColStride, mirrored);
+            } else if (seenLargeMatrix) {
                 for (int row = 0; row < aRows; row += BLOCK_SIZE) {
                     for (int col = mirrored ? row : 0; col < bCols; col += BLOCK_SIZE) {
                         for (int k = 0; k < aCols; k += BLOCK_SIZE) {
@@ -809,7 +824,7 @@ public abstract class MatMult extends RBuiltinNode.Arg2 {
                                 remainingK = aCols - k;
                             }
                             if (bigProfile.profile(remainingCols == BLOCK_SIZE && remainingRows == BLOCK_SIZE && remainingK == BLOCK_SIZE)) {
-                                multiplyBlock(dataA, dataB, aRows, result, row, col, k, aRowStride, aColStride, bRowStride, bColStride, BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE, mainLoopProfile);
+                                multiplyFullBlock(dataA, dataB, aRows, result, row, col, k, aRowStride, aColStride, bRowStride, bColStride);
                             } else {
                                 multiplyBlock(dataA, dataB, aRows, result, row, col, k, aRowStride, aColStride, bRowStride, bColStride, remainingCols, remainingRows, remainingK, remainingLoopProfile);
                             }
@@ -861,6 +876,111 @@ public abstract class MatMult extends RBuiltinNode.Arg2 {
             return resultVec;
         }
 
+        /**
+         * Returns {@code true} if the {@code matprod} option asks for the BLAS implementation.
+         */
+        @TruffleBoundary
+        private static boolean useBlas() {
+            return "blas".equals(RContext.getInstance().stateROptions.getValue("matprod"));
+        }
+
+        /**
+         * Computes the product with BLAS {@code dgemm}, or with {@code dsyrk} if only the upper
+         * triangle of a symmetric product is needed. Either input has to be stored by columns or by
+         * rows, which is what the strides used by {@code %*%}, {@code crossprod} and
+         * {@code tcrossprod} amount to.
+         */
+        private void multiplyBlas(double[] dataA, double[] dataB, double[] result, int aRows, int aCols, int bCols, int aRowStride, int aColStride, int bRowStride, int bColStride,
+                        boolean mirrored) {
+            if (aRows == 0 || bCols == 0 || aCols == 0) {
+                return;
+            }
+            String transA = aRowStride == 1 ? "N" : "T";
+            int lda = Math.max(1, aRowStride == 1 ? aColStride : aRowStride);
+            if (mirrored) {
+                if (dsyrkNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    dsyrkNode = insert(LapackRFFI.DsyrkNode.create());
+                }
+                dsyrkNode.execute("U", transA, aRows, aCols, 1.0, dataA, lda, 0.0, result, aRows);
+            } else {
+                if (dgemmNode == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    dgemmNode = insert(LapackRFFI.DgemmNode.create());
+                }
+                String transB = bRowStride == 1 ? "N" : "T";
+                int ldb = Math.max(1, bRowStride == 1 ? bColStride : bRowStride);
+                dgemmNode.execute(transA, transB, aRows, bCols, aCols, 1.0, dataA, lda, dataB, ldb, 0.0, result, aRows);
+            }
+        }
+
+        /**
+         * Splits the result into column blocks that are computed concurrently, each task owns the
+         * result columns of its blocks. Every result element is accumulated in the same order as
+         * in the sequential loop, so the result does not depend on the number of threads.
+         */
+        @TruffleBoundary
+        private static void multiplyParallel(double[] dataA, double[] dataB, double[] result, int aRows, int aCols, int bCols, int aRowStride, int aColStride, int bRowStride, int bColStride,
+                        boolean mirrored) {
+            int colBlocks = (bCols + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            RParallel.forRange(colBlocks, RParallel.getThreads(), 1, (from, to) -> {
+                LoopConditionProfile loopProfile = LoopConditionProfile.createCountingProfile();
+                for (int col = from * BLOCK_SIZE; col < bCols && col < to * BLOCK_SIZE; col += BLOCK_SIZE) {
+                    int remainingCols = Math.min(BLOCK_SIZE, bCols - col);
+                    for (int row = 0; row < aRows && (!mirrored || row <= col); row += BLOCK_SIZE) {
+                        int remainingRows = Math.min(BLOCK_SIZE, aRows - row);
+                        for (int k = 0; k < aCols; k += BLOCK_SIZE) {
+                            int remainingK = Math.min(BLOCK_SIZE, aCols - k);
+                            if (remainingCols == BLOCK_SIZE && remainingRows == BLOCK_SIZE && remainingK == BLOCK_SIZE) {
+                                multiplyFullBlock(dataA, dataB, aRows, result, row, col, k, aRowStride, aColStride, bRowStride, bColStride);
+                            } else {
+                                multiplyBlock(dataA, dataB, aRows, result, row, col, k, aRowStride, aColStride, bRowStride, bColStride, remainingCols, remainingRows, remainingK, loopProfile);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        /**
+         * Register blocked variant of {@link MatMult#multiplyBlock} for a full block: two rows of
+         * two result columns are computed at once, so that every loaded element of a and b is used
+         * twice. The summation order of each result element is the same.
+         */
+        private static void multiplyFullBlock(double[] a, double[] b, int aRows, double[] result, int row, int col, int k, int aRowStride, int aColStride, int bRowStride, int bColStride) {
+            for (int innerCol = 0; innerCol < BLOCK_SIZE; innerCol += 2) {
+                for (int innerRow = 0; innerRow < BLOCK_SIZE; innerRow += 2) {
+                    int bIndex0 = (col + innerCol) * bColStride + k * bRowStride;
+                    int bIndex1 = bIndex0 + bColStride;
+                    int aIndex0 = k * aColStride + (row + innerRow) * aRowStride;
+                    int aIndex1 = aIndex0 + aRowStride;
+                    double x00 = 0.0;
+                    double x01 = 0.0;
+                    double x10 = 0.0;
+                    double x11 = 0.0;
+                    for (int innerK = 0; innerK < BLOCK_SIZE; innerK++) {
+                        double a0 = a[aIndex0];
+                        double a1 = a[aIndex1];
+                        double b0 = b[bIndex0];
+                        double b1 = b[bIndex1];
+                        x00 += a0 * b0;
+                        x10 += a1 * b0;
+                        x01 += a0 * b1;
+                        x11 += a1 * b1;
+                        aIndex0 += aColStride;
+                        aIndex1 += aColStride;
+                        bIndex0 += bRowStride;
+                        bIndex1 += bRowStride;
+                    }
+                    int resultIndex = (col + innerCol) * aRows + row + innerRow;
+                    result[resultIndex] += x00;
+                    result[resultIndex + 1] += x10;
+                    result[resultIndex + aRows] += x01;
+                    result[resultIndex + aRows + 1] += x11;
+                }
+            }
+        }
+
         private static void fixNARows(double[] dataA, int aRows, int aCols, int bCols, int aRowStride, int aColStride, double[] result) {
             // NA's in a cause the whole row to be NA in the result
             outer: for (int row = 0; row < aRows; row++) {
@@ -26,17 +26,21 @@ import static com.oracle.truffle.r.runtime.RDispatch.INTERNAL_GENERIC;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE_SUMMARY;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
 import com.oracle.truffle.r.runtime.data.nodes.VectorAccess.SequentialIterator;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 
 @ImportStatic(RType.class)
 @RBuiltin(name = "mean", kind = INTERNAL, parameterNames = {"x"}, dispatch = INTERNAL_GENERIC, behavior = PURE_SUMMARY)
@@ -46,30 +50,93 @@ public abstract class Mean extends RBuiltinNode.Arg1 {
         Casts.noCasts(Mean.class);
     }
 
+    /**
+     * Like in GNU R, the sum is accumulated with extended precision (see {@link AccurateSum}) and
+     * for double vectors the mean is refined by a second pass that sums the deviations from it.
+     */
     @Specialization(guards = {"access.supports(x)", "access.getType() != Complex"})
     protected double meanDoubleCached(RAbstractVector x,
                     @Cached("x.access()") VectorAccess access,
-                    @Cached("createBinaryProfile()") ConditionProfile emptyProfile) {
+                    @Cached("createBinaryProfile()") ConditionProfile emptyProfile,
+                    @Cached("createBinaryProfile()") ConditionProfile largeProfile) {
+        double mean;
+        int length;
         try (SequentialIterator iter = access.access(x)) {
             if (emptyProfile.profile(!access.next(iter))) {
                 return Double.NaN;
             }
-            double sum = 0;
+            length = access.getLength(iter);
+            if (largeProfile.profile(length > AccurateSum.BLOCK_SIZE)) {
+                double[] data = getDoubleArray(x);
+                if (data != null) {
+                    return meanLarge(data);
+                }
+            }
+            double hi = 0;
+            double lo = 0;
             do {
                 double value = access.getDouble(iter);
                 if (access.na.checkNAorNaN(value)) {
                     return value;
                 }
-                sum += value;
+                double sum = hi + value;
+                lo += AccurateSum.error(hi, value, sum);
+                hi = sum;
             } while (access.next(iter));
-            return sum / access.getLength(iter);
+            mean = AccurateSum.round(hi, lo) / length;
+        }
+        if (access.getType() == RType.Double && RRuntime.isFinite(mean)) {
+            try (SequentialIterator iter = access.access(x)) {
+                double hi = 0;
+                double lo = 0;
+                while (access.next(iter)) {
+                    double value = access.getDouble(iter) - mean;
+                    double sum = hi + value;
+                    lo += AccurateSum.error(hi, value, sum);
+                    hi = sum;
+                }
+                mean += AccurateSum.round(hi, lo) / length;
+            }
+        }
+        return mean;
+    }
+
+    /**
+     * Returns the array of a long double vector, or {@code null} if it would have to be
+     * materialized first.
+     */
+    @TruffleBoundary
+    private static double[] getDoubleArray(RAbstractVector x) {
+        if (x instanceof RDoubleVector && x.isMaterialized()) {
+            return ((RDoubleVector) x).getReadonlyData();
         }
+        return null;
+    }
+
+    @TruffleBoundary
+    private static double meanLarge(double[] data) {
+        double sum = AccurateSum.sum(data, false);
+        if (Double.isNaN(sum)) {
+            // the result is the first NA or NaN, if any
+            for (double value : data) {
+                if (Double.isNaN(value)) {
+                    return value;
+                }
+            }
+            return sum;
+        }
+        double mean = sum / data.length;
+        if (RRuntime.isFinite(mean)) {
+            mean += AccurateSum.sumDeviations(data, mean) / data.length;
+        }
+        return mean;
     }
 
     @Specialization(replaces = "meanDoubleCached", guards = "x.getRType() != Complex")
     protected double meanDoubleGeneric(RAbstractVector x,
-                    @Cached("createBinaryProfile()") ConditionProfile emptyProfile) {
-        return meanDoubleCached(x, x.slowPathAccess(), emptyProfile);
+                    @Cached("createBinaryProfile()") ConditionProfile emptyProfile,
+                    @Cached("createBinaryProfile()") ConditionProfile largeProfile) {
+        return meanDoubleCached(x, x.slowPathAccess(), emptyProfile, largeProfile);
     }
 
     @Specialization(guards = {"access.supports(x)", "access.getType() == Complex"})
@@ -42,7 +42,6 @@ import com.oracle.truffle.r.nodes.builtin.RPrecedenceBuiltinNode;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.CmpNodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.IsAtomicNANodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.OrderVector1NodeGen;
-import com.oracle.truffle.r.nodes.builtin.base.SortFunctions.RadixSort;
 import com.oracle.truffle.r.runtime.nodes.unary.CastToVectorNode;
 import com.oracle.truffle.r.runtime.nodes.unary.CastToVectorNodeGen;
 import com.oracle.truffle.r.runtime.RError;
@@ -77,17 +76,15 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     private final ConditionProfile notRemoveNAs = ConditionProfile.createBinaryProfile();
     private final ValueProfile vectorProfile = ValueProfile.createClassProfile();
 
-    /**
-     * For use by {@link RadixSort}.
-     */
-    public abstract Object execute(byte naLast, boolean decreasing, RArgsValuesAndNames args);
-
     private static final int[] SINCS = {1073790977, 268460033, 67121153, 16783361, 4197377, 1050113, 262913, 65921, 16577, 4193, 1073, 281, 77, 23, 8, 1, 0};
 
     private RIntVector executeOrderVector1(RAbstractVector vIn, byte naLast, boolean dec) {
         RAbstractVector v = vectorProfile.profile(vIn);
         int n = v.getLength();
         reportWork(n);
+        if (v instanceof RIntVector || v instanceof RDoubleVector) {
+            return radixOrder(new Object[]{v}, n, naLast, dec);
+        }
 
         int[] indx = createIndexes(v, n, naLast);
         initOrderVector1().execute(indx, v, naLast, dec, true);
@@ -256,6 +253,34 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         return n;
     }
 
+    /**
+     * Numeric and logical keys are ordered by {@link RadixSortEngine}, which is stable and treats
+     * {@code NA} and {@code NaN} the same way as the comparison based sort.
+     */
+    @TruffleBoundary
+    private static RIntVector radixOrder(Object[] vectors, int n, byte naLast, boolean decreasing) {
+        RadixSortEngine engine = new RadixSortEngine(n, naLast, true);
+        for (Object v : vectors) {
+            if (v instanceof RIntVector) {
+                engine.addIntKey(((RIntVector) v).getReadonlyData(), decreasing);
+            } else if (v instanceof RDoubleVector) {
+                engine.addDoubleKey(((RDoubleVector) v).getReadonlyData(), decreasing);
+            } else {
+                engine.addLogicalKey(((RLogicalVector) v).getReadonlyData(), decreasing);
+            }
+        }
+        return RDataFactory.createIntVector(engine.sort(), RDataFactory.COMPLETE_VECTOR);
+    }
+
+    private static boolean allRadixSortable(Object[] vectors) {
+        for (Object v : vectors) {
+            if (!(v instanceof RIntVector || v instanceof RDoubleVector || v instanceof RLogicalVector)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /*
      * TODO: multi-element order does not honor string collation.
      */
@@ -263,6 +288,9 @@ public abstract class Order extends RPrecedenceBuiltinNode {
     Object orderMulti(byte naLast, boolean decreasing, RArgsValuesAndNames args,
                     @Cached("createEqualityProfile()") ValueProfile lengthProfile) {
         int n = preprocessVectors(args, lengthProfile);
+        if (allRadixSortable(args.getArguments())) {
+            return radixOrder(args.getArguments(), n, naLast, decreasing);
+        }
 
         int[] indx = new int[n];
         for (int i = 0; i < indx.length; i++) {
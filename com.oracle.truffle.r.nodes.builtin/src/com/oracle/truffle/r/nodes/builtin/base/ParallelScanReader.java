@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.nodes.builtin.base.Scan.GetQuotedItemsResult;
+import com.oracle.truffle.r.nodes.builtin.base.Scan.LocalData;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.conn.ConnectionSupport.BaseRConnection;
+import com.oracle.truffle.r.runtime.conn.RConnection.SeekMode;
+import com.oracle.truffle.r.runtime.conn.RConnection.SeekRWMode;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Reads the remainder of a file connection for {@link Scan} in parallel. The file is read in
+ * windows that are split at line ends into chunks, and the chunks are tokenized and converted
+ * into typed column arrays concurrently. The chunk results are then appended in order, so that the
+ * outcome is the same as if the lines were read one by one.
+ *
+ * Only lines that form whole records are handled here, i.e. lines with exactly as many items as
+ * there are columns (or a multiple of that), lines with fewer items if {@code fill} is set and
+ * lines with more items if {@code flush} is set. Reading stops before the first line that does not
+ * qualify, or that contains a NUL, an unterminated quote or an item that cannot be converted, and
+ * {@link Scan} continues from there. This covers both the errors and the unusual inputs.
+ */
+final class ParallelScanReader {
+
+    /** Files with fewer remaining bytes are read by {@link Scan} alone. */
+    private static final int MIN_SIZE = 1 << 16;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int WINDOW_SIZE = 1 << 26;
+
+    private static final String[] EMPTY_LINE = new String[]{""};
+
+    private final LocalData data;
+    private final Charset encoding;
+    private final RType[] types;
+    private final boolean records;
+    private final boolean fill;
+    private final boolean flush;
+    private final boolean blSkip;
+
+    private int count;
+    private int lines;
+
+    private ParallelScanReader(LocalData data, Charset encoding, RType[] types, boolean records, boolean fill, boolean flush, boolean blSkip) {
+        this.data = data;
+        this.encoding = encoding;
+        this.types = types;
+        this.records = records;
+        this.fill = fill;
+        this.flush = flush;
+        this.blSkip = blSkip;
+    }
+
+    /**
+     * Creates a reader for vectors of the given types, or returns {@code null} if the connection
+     * or the types are not supported. If {@code records} is set, each type describes one field of
+     * a record, otherwise there is a single type and the items are read one after another.
+     */
+    static ParallelScanReader create(LocalData data, RType[] types, boolean records, boolean fill, boolean flush, boolean blSkip) {
+        for (RType type : types) {
+            if (type != RType.Logical && type != RType.Integer && type != RType.Double && type != RType.Character) {
+                return null;
+            }
+        }
+        BaseRConnection con = data.con;
+        Charset encoding = con.getEncoding();
+        if (!con.isBlocking() || !(encoding == StandardCharsets.UTF_8 || encoding == StandardCharsets.US_ASCII || encoding == StandardCharsets.ISO_8859_1)) {
+            // with these encodings the line terminators, separators and quotes are single bytes
+            return null;
+        }
+        return new ParallelScanReader(data, encoding, types, records, fill, flush, blSkip);
+    }
+
+    /**
+     * Returns the total number of records or items in the vectors returned by {@link #read}.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of lines consumed by {@link #read}, not counting skipped blank lines.
+     */
+    int getLines() {
+        return lines;
+    }
+
+    /**
+     * Reads as much of the remainder of the connection as possible and appends it to the first
+     * {@code length} elements of {@code vectors}. Returns the new vectors, or {@code null} if
+     * nothing was appended, e.g. because the connection cannot read ahead, in which case the caller
+     * reads sequentially. Must be called when the push back of the connection is empty.
+     */
+    @TruffleBoundary
+    RAbstractVector[] read(RAbstractVector[] vectors, int length) throws IOException {
+        BaseRConnection con = data.con;
+        assert con.pushBackLength() == 0;
+        ByteBuffer window = con.readAhead(WINDOW_SIZE);
+        if (window == null || window.limit() < MIN_SIZE) {
+            return null;
+        }
+        Column[] columns = new Column[types.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(types[i], data);
+            columns[i].init(vectors[i], length);
+        }
+        int threads = RParallel.getThreads();
+        while (window != null) {
+            int size = window.limit();
+            boolean eof = size < WINDOW_SIZE;
+            int end = eof ? size : lastLineEnd(window, size);
+            if (end == 0) {
+                // a line longer than the window
+                break;
+            }
+            int parts = Math.max(1, Math.min(threads, end / MIN_CHUNK_SIZE));
+            int[] bounds = chunkBounds(window, end, parts);
+            Chunk[] chunks = new Chunk[parts];
+            ByteBuffer chunkWindow = window;
+            RParallel.forRange(parts, parts, 1, (from, to) -> {
+                for (int p = from; p < to; p++) {
+                    chunks[p] = readChunk(chunkWindow, bounds[p], bounds[p + 1]);
+                }
+            });
+            RContext.getInstance().stateRConnection.recordParallelScan(parts);
+            int consumed = 0;
+            boolean complete = true;
+            for (int p = 0; p < parts; p++) {
+                Chunk chunk = chunks[p];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i].append(chunk.columns[i]);
+                }
+                lines += chunk.lines;
+                consumed = chunk.end;
+                if (consumed < bounds[p + 1]) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (consumed > 0) {
+                con.seek(consumed, SeekMode.CURRENT, SeekRWMode.READ);
+            }
+            if (!complete || eof) {
+                break;
+            }
+            window = con.readAhead(WINDOW_SIZE);
+        }
+        count = columns[0].length;
+        if (count == length) {
+            return null;
+        }
+        RAbstractVector[] result = new RAbstractVector[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            result[i] = columns[i].toVector();
+        }
+        return result;
+    }
+
+    private static int lastLineEnd(ByteBuffer window, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Splits {@code [0, end)} into {@code parts} ranges that start at the beginning of a line.
+     */
+    private static int[] chunkBounds(ByteBuffer window, int end, int parts) {
+        int[] bounds = new int[parts + 1];
+        bounds[parts] = end;
+        for (int p = 1; p < parts; p++) {
+            int pos = Math.max(bounds[p - 1], (int) ((long) end * p / parts));
+            while (pos < end && window.get(pos) != '\n') {
+                pos++;
+            }
+            bounds[p] = Math.min(pos + 1, end);
+        }
+        return bounds;
+    }
+
+    private static final class Chunk {
+        final Column[] columns;
+        /** The offset after the last line that was read. */
+        int end;
+        int lines;
+
+        Chunk(Column[] columns, int start) {
+            this.columns = columns;
+            this.end = start;
+        }
+    }
+
+    /**
+     * Reads the lines in {@code [from, to)} of the window. Runs on a worker thread.
+     */
+    private Chunk readChunk(ByteBuffer window, int from, int to) {
+        Column[] columns = new Column[types.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(types[i], data);
+        }
+        Chunk chunk = new Chunk(columns, from);
+        byte[] bytes = new byte[to - from];
+        ByteBuffer source = window.duplicate();
+        source.position(from);
+        source.get(bytes);
+        int pos = 0;
+        while (pos < bytes.length) {
+            int start = pos;
+            int nonAscii = 0;
+            while (pos < bytes.length) {
+                byte b = bytes[pos];
+                if (b == '\n' || b == '\r' || b == 0) {
+                    break;
+                }
+                nonAscii |= b;
+                pos++;
+            }
+            int lineEnd = pos;
+            if (pos < bytes.length) {
+                if (bytes[pos] == 0) {
+                    // embedded NULs are reported by Scan
+                    break;
+                }
+                if (bytes[pos++] == '\r' && pos < bytes.length && bytes[pos] == '\n') {
+                    pos++;
+                }
+            }
+            // the sign bit is set only if some byte was outside of the ASCII range
+            String line = new String(bytes, start, lineEnd - start, nonAscii >= 0 ? StandardCharsets.ISO_8859_1 : encoding);
+            int read = readLine(line, columns);
+            if (read < 0) {
+                break;
+            }
+            chunk.lines += read;
+            chunk.end = from + pos;
+        }
+        return chunk;
+    }
+
+    /**
+     * Appends the items of one line to the columns. Returns {@code 1} if the line was read,
+     * {@code 0} if it was a skipped blank line and {@code -1} if it must be left to {@link Scan}.
+     */
+    private int readLine(String line, Column[] columns) {
+        GetQuotedItemsResult tokens = Scan.tokenize(data, 0, line);
+        if (tokens == null) {
+            return -1;
+        }
+        String[] items = tokens.items;
+        if (items.length == 0) {
+            if (blSkip) {
+                return 0;
+            }
+            items = EMPTY_LINE;
+        }
+        int nc = columns.length;
+        int start = columns[0].length;
+        try {
+            if (!records) {
+                for (String item : items) {
+                    columns[0].add(item);
+                }
+            } else if (items.length == nc || (items.length > nc && flush)) {
+                for (int i = 0; i < nc; i++) {
+                    columns[i].add(items[i]);
+                }
+            } else if (items.length < nc) {
+                if (!fill) {
+                    return -1;
+                }
+                for (int i = 0; i < nc; i++) {
+                    columns[i].add(i < items.length ? items[i] : "");
+                }
+            } else if (items.length % nc == 0) {
+                for (int i = 0; i < items.length; i++) {
+                    columns[i % nc].add(items[i]);
+                }
+            } else {
+                // a record would continue on the next line
+                return -1;
+            }
+        } catch (NumberFormatException e) {
+            for (Column column : columns) {
+                column.length = start;
+            }
+            return -1;
+        }
+        return 1;
+    }
+
+    /**
+     * The values of one column read so far, converted the same way as by
+     * {@code Scan.extractItem}.
+     */
+    private static final class Column {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final RType type;
+        private final LocalData data;
+        private final HashMap<String, String> stringTable;
+        private Object array;
+        private int capacity;
+        private int length;
+        private boolean complete = true;
+
+        Column(RType type, LocalData data) {
+            this.type = type;
+            this.data = data;
+            this.stringTable = type == RType.Character ? new HashMap<>() : null;
+            resize(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Starts the column with the first {@code n} elements of {@code vector}.
+         */
+        void init(RAbstractVector vector, int n) {
+            if (n == 0) {
+                return;
+            }
+            Object source;
+            switch (type) {
+                case Logical:
+                    source = ((RLogicalVector) vector).getReadonlyData();
+                    break;
+                case Integer:
+                    source = ((RIntVector) vector).getReadonlyData();
+                    break;
+                case Double:
+                    source = ((RDoubleVector) vector).getReadonlyData();
+                    break;
+                case Character:
+                    source = ((RStringVector) vector).getReadonlyStringData();
+                    break;
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+            resize(Math.max(n * 2, INITIAL_CAPACITY));
+            System.arraycopy(source, 0, array, 0, n);
+            length = n;
+            complete = vector.isComplete();
+        }
+
+        private void resize(int newCapacity) {
+            switch (type) {
+                case Logical:
+                    array = array == null ? new byte[newCapacity] : Arrays.copyOf((byte[]) array, newCapacity);
+                    break;
+                case Integer:
+                    array = array == null ? new int[newCapacity] : Arrays.copyOf((int[]) array, newCapacity);
+                    break;
+                case Double:
+                    array = array == null ? new double[newCapacity] : Arrays.copyOf((double[]) array, newCapacity);
+                    break;
+                case Character:
+                    array = array == null ? new String[newCapacity] : Arrays.copyOf((String[]) array, newCapacity);
+                    break;
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+            capacity = newCapacity;
+        }
+
+        private void ensureCapacity(int minCapacity) {
+            if (minCapacity > capacity) {
+                resize((int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity, 2L * capacity)));
+            }
+        }
+
+        /**
+         * Converts and appends one item, throws {@link NumberFormatException} if it is not a valid
+         * integer.
+         */
+        void add(String item) {
+            ensureCapacity(length + 1);
+            switch (type) {
+                case Logical: {
+                    byte value = Scan.isNaString(item, 0, data) ? RRuntime.LOGICAL_NA : RRuntime.string2logicalNoCheck(item);
+                    complete &= !RRuntime.isNA(value);
+                    ((byte[]) array)[length] = value;
+                    break;
+                }
+                case Integer: {
+                    int value = Scan.isNaString(item, 0, data) ? RRuntime.INT_NA : RRuntime.parseInt(item);
+                    complete &= !RRuntime.isNA(value);
+                    ((int[]) array)[length] = value;
+                    break;
+                }
+                case Double: {
+                    double value = Scan.isNaString(item, 0, data) ? RRuntime.DOUBLE_NA : RRuntime.string2doubleNoCheck(item);
+                    complete &= !RRuntime.isNA(value);
+                    ((double[]) array)[length] = value;
+                    break;
+                }
+                case Character: {
+                    String value;
+                    if (Scan.isNaString(item, 1, data)) {
+                        value = RRuntime.STRING_NA;
+                        complete = false;
+                    } else {
+                        String oldEntry = stringTable.putIfAbsent(item, item);
+                        value = oldEntry == null ? item : oldEntry;
+                    }
+                    ((String[]) array)[length] = value;
+                    break;
+                }
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+            length++;
+        }
+
+        void append(Column other) {
+            if (other.length == 0) {
+                return;
+            }
+            ensureCapacity(length + other.length);
+            System.arraycopy(other.array, 0, array, length, other.length);
+            length += other.length;
+            complete &= other.complete;
+        }
+
+        RAbstractVector toVector() {
+            if (capacity != length) {
+                resize(length);
+            }
+            Object values = array;
+            switch (type) {
+                case Logical:
+                    return RDataFactory.createLogicalVector((byte[]) values, complete);
+                case Integer:
+                    return RDataFactory.createIntVector((int[]) values, complete);
+                case Double:
+                    return RDataFactory.createDoubleVector((double[]) values, complete);
+                case Character:
+                    return RDataFactory.createStringVector((String[]) values, complete);
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * A stable LSD radix sort over one or more keys, used by {@code radixsort}, {@code order} and
+ * {@code rank}. Every key is first transformed into a non-negative integer whose natural ordering is
+ * the required ordering of the key (taking {@code decreasing} and {@code na.last} into account),
+ * compressed to the range actually used by the data. Keys are then sorted from the last to the
+ * first, each with a stable counting sort (small ranges) or with 11-bit digit passes, skipping
+ * digits that are constant over the whole key.
+ *
+ * Doubles use the usual IEEE bit twiddling, {@code NA} and {@code NaN} are treated as the same
+ * value, as are {@code -0.0} and {@code 0.0}. Strings are ranked in a separate pass, either by code
+ * point order (i.e. the C locale as in GnuR) or, if {@code sortstr} is {@code FALSE}, by order of
+ * first appearance.
+ *
+ * The instance is single-use: add the keys, then call {@link #sort()}.
+ */
+public final class RadixSortEngine {
+
+    private static final int DIGIT_BITS = 11;
+    private static final int DIGIT_SIZE = 1 << DIGIT_BITS;
+    private static final int DIGIT_MASK = DIGIT_SIZE - 1;
+    /**
+     * Counting sort is used if the range of the keys is at most {@link #COUNTING_SORT_FACTOR} times
+     * the number of rows (or one radix digit), as long as it stays below this limit. A range below
+     * the number of rows always qualifies.
+     */
+    private static final int COUNTING_SORT_LIMIT = 1 << 20;
+    private static final int COUNTING_SORT_FACTOR = 8;
+
+    private final int n;
+    private final byte naLast;
+    private final boolean sortStr;
+    private final ArrayList<Key> keys = new ArrayList<>();
+
+    /**
+     * Rows that contain {@code NA} in any key, only tracked if {@code na.last = NA}.
+     */
+    private boolean[] naRows;
+
+    /**
+     * @param n the number of rows, all keys must have this length
+     * @param naLast {@code TRUE}, {@code FALSE} or {@code NA}, the latter removes rows with
+     *            {@code NA} in any key from the result
+     * @param sortStr if {@code false}, strings are only grouped (by order of first appearance)
+     */
+    public RadixSortEngine(int n, byte naLast, boolean sortStr) {
+        this.n = n;
+        this.naLast = naLast;
+        this.sortStr = sortStr;
+    }
+
+    private boolean removeNAs() {
+        return RRuntime.isNA(naLast);
+    }
+
+    private boolean naFirst() {
+        return naLast != RRuntime.LOGICAL_TRUE;
+    }
+
+    private void markNA(int row) {
+        if (naRows == null) {
+            naRows = new boolean[n];
+        }
+        naRows[row] = true;
+    }
+
+    /**
+     * Adds an integer key, {@link RRuntime#INT_NA} is treated as {@code NA}.
+     */
+    @TruffleBoundary
+    public void addIntKey(int[] data, boolean decreasing) {
+        assert data.length >= n;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int v = data[i];
+            if (v != RRuntime.INT_NA) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        if (min > max) {
+            // all NA
+            min = max = 0;
+        }
+        long range = (long) max - min;
+        long naValue = naFirst() ? 0 : range + 1;
+        int offset = naFirst() ? 1 : 0;
+        if (range + 2 <= Integer.MAX_VALUE) {
+            int[] values = new int[n];
+            for (int i = 0; i < n; i++) {
+                int v = data[i];
+                if (v == RRuntime.INT_NA) {
+                    values[i] = (int) naValue;
+                    if (removeNAs()) {
+                        markNA(i);
+                    }
+                } else {
+                    values[i] = (decreasing ? max - v : v - min) + offset;
+                }
+            }
+            keys.add(new IntKey(values, (int) (range + 1)));
+        } else {
+            long[] values = new long[n];
+            for (int i = 0; i < n; i++) {
+                int v = data[i];
+                if (v == RRuntime.INT_NA) {
+                    values[i] = naValue;
+                    if (removeNAs()) {
+                        markNA(i);
+                    }
+                } else {
+                    values[i] = (decreasing ? (long) max - v : (long) v - min) + offset;
+                }
+            }
+            keys.add(new LongKey(values, range + 1));
+        }
+    }
+
+    /**
+     * Adds a logical key.
+     */
+    @TruffleBoundary
+    public void addLogicalKey(byte[] data, boolean decreasing) {
+        assert data.length >= n;
+        int[] values = new int[n];
+        int naValue = naFirst() ? 0 : 2;
+        int offset = naFirst() ? 1 : 0;
+        for (int i = 0; i < n; i++) {
+            byte v = data[i];
+            if (RRuntime.isNA(v)) {
+                values[i] = naValue;
+                if (removeNAs()) {
+                    markNA(i);
+                }
+            } else {
+                int bit = v == RRuntime.LOGICAL_TRUE ? 1 : 0;
+                values[i] = (decreasing ? 1 - bit : bit) + offset;
+            }
+        }
+        keys.add(new IntKey(values, 2));
+    }
+
+    /**
+     * Maps a double to a long whose unsigned ordering is the numeric ordering of the double.
+     */
+    private static long twiddle(double d) {
+        long bits = Double.doubleToRawLongBits(d == 0.0 ? 0.0 : d);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a double key, both {@code NA} and {@code NaN} are treated as {@code NA}. Like in GNU R,
+     * {@code NA} is ordered before {@code NaN} regardless of {@code decreasing}.
+     */
+    @TruffleBoundary
+    public void addDoubleKey(double[] data, boolean decreasing) {
+        assert data.length >= n;
+        long min = -1L;
+        long max = 0L;
+        for (int i = 0; i < n; i++) {
+            double d = data[i];
+            if (!Double.isNaN(d)) {
+                long t = twiddle(d);
+                if (Long.compareUnsigned(t, min) < 0) {
+                    min = t;
+                }
+                if (Long.compareUnsigned(t, max) > 0) {
+                    max = t;
+                }
+            }
+        }
+        if (Long.compareUnsigned(min, max) > 0) {
+            // all NA
+            min = max = 0;
+        }
+        // the twiddled values of non-NaN doubles never span the whole unsigned range
+        long range = max - min;
+        long naValue = naFirst() ? 0 : range + 1;
+        int offset = naFirst() ? 2 : 0;
+        long[] values = new long[n];
+        for (int i = 0; i < n; i++) {
+            double d = data[i];
+            if (Double.isNaN(d)) {
+                values[i] = RRuntime.isNA(d) ? naValue : naValue + 1;
+                if (removeNAs()) {
+                    markNA(i);
+                }
+            } else {
+                long t = twiddle(d);
+                values[i] = (decreasing ? max - t : t - min) + offset;
+            }
+        }
+        if (range + 3 > 0 && range + 3 <= Integer.MAX_VALUE) {
+            int[] intValues = new int[n];
+            for (int i = 0; i < n; i++) {
+                intValues[i] = (int) values[i];
+            }
+            keys.add(new IntKey(intValues, (int) (range + 2)));
+        } else {
+            keys.add(new LongKey(values, range + 2));
+        }
+    }
+
+    /**
+     * Adds a string key. The strings are first ranked, {@link RRuntime#STRING_NA} is treated as
+     * {@code NA}.
+     */
+    @TruffleBoundary
+    public void addStringKey(String[] data, boolean decreasing) {
+        assert data.length >= n;
+        HashMap<String, Integer> ids = new HashMap<>();
+        ArrayList<String> distinct = new ArrayList<>();
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            String s = data[i];
+            if (RRuntime.isNA(s)) {
+                values[i] = -1;
+            } else {
+                Integer id = ids.get(s);
+                if (id == null) {
+                    id = distinct.size();
+                    ids.put(s, id);
+                    distinct.add(s);
+                }
+                values[i] = id;
+            }
+        }
+        int d = distinct.size();
+        int[] rank = new int[d];
+        if (sortStr) {
+            Integer[] byValue = new Integer[d];
+            for (int i = 0; i < d; i++) {
+                byValue[i] = i;
+            }
+            Arrays.sort(byValue, (a, b) -> compareCodePoints(distinct.get(a), distinct.get(b)));
+            for (int i = 0; i < d; i++) {
+                rank[byValue[i]] = i;
+            }
+        } else {
+            for (int i = 0; i < d; i++) {
+                rank[i] = i;
+            }
+        }
+        int naValue = naFirst() ? 0 : d;
+        int offset = naFirst() ? 1 : 0;
+        for (int i = 0; i < n; i++) {
+            int id = values[i];
+            if (id == -1) {
+                values[i] = naValue;
+                if (removeNAs()) {
+                    markNA(i);
+                }
+            } else {
+                values[i] = (decreasing ? d - 1 - rank[id] : rank[id]) + offset;
+            }
+        }
+        keys.add(new IntKey(values, d));
+    }
+
+    /**
+     * Compares strings by code points, which gives the same result as comparing their UTF-8
+     * encodings byte-wise.
+     */
+    private static int compareCodePoints(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        int i = 0;
+        int j = 0;
+        while (i < la && j < lb) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca < cb ? -1 : 1;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return (la - i) - (lb - j);
+    }
+
+    /**
+     * Sorts the rows by all keys added so far and returns the 1-based ordering permutation. If
+     * {@code na.last = NA}, rows with {@code NA} in any key are not part of the result.
+     */
+    @TruffleBoundary
+    public int[] sort() {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        if (n > 1) {
+            int[] tmpPerm = new int[n];
+            for (int k = keys.size() - 1; k >= 0; k--) {
+                keys.get(k).sort(perm, tmpPerm);
+            }
+        }
+        int m = n;
+        if (naRows != null) {
+            m = 0;
+            for (int i = 0; i < n; i++) {
+                if (!naRows[perm[i]]) {
+                    perm[m++] = perm[i];
+                }
+            }
+        }
+        int[] result = m == n ? perm : Arrays.copyOf(perm, m);
+        for (int i = 0; i < m; i++) {
+            result[i]++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the (1-based, inclusive) end positions of the groups of equal rows in the given
+     * result of {@link #sort()}.
+     */
+    @TruffleBoundary
+    public int[] getGroupEnds(int[] order) {
+        int m = order.length;
+        int[] ends = new int[m];
+        int count = 0;
+        for (int i = 1; i < m; i++) {
+            int prev = order[i - 1] - 1;
+            int cur = order[i] - 1;
+            for (int k = 0; k < keys.size(); k++) {
+                if (!keys.get(k).same(prev, cur)) {
+                    ends[count++] = i;
+                    break;
+                }
+            }
+        }
+        if (m > 0) {
+            ends[count++] = m;
+        }
+        return count == m ? ends : Arrays.copyOf(ends, count);
+    }
+
+    private abstract static class Key {
+        abstract void sort(int[] perm, int[] tmpPerm);
+
+        abstract boolean same(int row1, int row2);
+    }
+
+    private static final class IntKey extends Key {
+        private final int[] values;
+        /**
+         * All values are in the interval {@code [0, maxValue]}.
+         */
+        private final int maxValue;
+
+        IntKey(int[] values, int maxValue) {
+            this.values = values;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean same(int row1, int row2) {
+            return values[row1] == values[row2];
+        }
+
+        @Override
+        void sort(int[] perm, int[] tmpPerm) {
+            int n = perm.length;
+            int[] keys = new int[n];
+            boolean sorted = true;
+            int prev = 0;
+            for (int i = 0; i < n; i++) {
+                int v = values[perm[i]];
+                keys[i] = v;
+                sorted &= v >= prev;
+                prev = v;
+            }
+            if (sorted) {
+                return;
+            }
+            if (useCountingSort(maxValue, n)) {
+                countingSort(keys, perm, tmpPerm);
+                return;
+            }
+            int[] tmpKeys = new int[n];
+            int digits = (32 - Integer.numberOfLeadingZeros(maxValue) + DIGIT_BITS - 1) / DIGIT_BITS;
+            int[][] counts = new int[digits][DIGIT_SIZE];
+            for (int i = 0; i < n; i++) {
+                int v = keys[i];
+                for (int d = 0; d < digits; d++) {
+                    counts[d][(v >>> (d * DIGIT_BITS)) & DIGIT_MASK]++;
+                }
+            }
+            int[] srcKeys = keys;
+            int[] dstKeys = tmpKeys;
+            int[] srcPerm = perm;
+            int[] dstPerm = tmpPerm;
+            for (int d = 0; d < digits; d++) {
+                int[] count = counts[d];
+                if (prefixSums(count, n)) {
+                    continue;
+                }
+                int shift = d * DIGIT_BITS;
+                for (int i = 0; i < n; i++) {
+                    int v = srcKeys[i];
+                    int pos = count[(v >>> shift) & DIGIT_MASK]++;
+                    dstKeys[pos] = v;
+                    dstPerm[pos] = srcPerm[i];
+                }
+                int[] t = srcKeys;
+                srcKeys = dstKeys;
+                dstKeys = t;
+                t = srcPerm;
+                srcPerm = dstPerm;
+                dstPerm = t;
+            }
+            if (srcPerm != perm) {
+                System.arraycopy(srcPerm, 0, perm, 0, n);
+            }
+        }
+
+        private static boolean useCountingSort(int range, int n) {
+            if (range < n) {
+                return true;
+            }
+            return range < COUNTING_SORT_LIMIT && range < Math.max((long) n * COUNTING_SORT_FACTOR, DIGIT_SIZE);
+        }
+
+        private void countingSort(int[] keys, int[] perm, int[] tmpPerm) {
+            int n = perm.length;
+            int[] count = new int[maxValue + 1];
+            for (int i = 0; i < n; i++) {
+                count[keys[i]]++;
+            }
+            if (prefixSums(count, n)) {
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                tmpPerm[count[keys[i]]++] = perm[i];
+            }
+            System.arraycopy(tmpPerm, 0, perm, 0, n);
+        }
+    }
+
+    private static final class LongKey extends Key {
+        private final long[] values;
+        /**
+         * All values are in the unsigned interval {@code [0, maxValue]}.
+         */
+        private final long maxValue;
+
+        LongKey(long[] values, long maxValue) {
+            this.values = values;
+            this.maxValue = maxValue;
+        }
+
+        @Override
+        boolean same(int row1, int row2) {
+            return values[row1] == values[row2];
+        }
+
+        @Override
+        void sort(int[] perm, int[] tmpPerm) {
+            int n = perm.length;
+            long[] keys = new long[n];
+            boolean sorted = true;
+            long prev = 0;
+            for (int i = 0; i < n; i++) {
+                long v = values[perm[i]];
+                keys[i] = v;
+                sorted &= Long.compareUnsigned(v, prev) >= 0;
+                prev = v;
+            }
+            if (sorted) {
+                return;
+            }
+            long[] tmpKeys = new long[n];
+            int digits = (64 - Long.numberOfLeadingZeros(maxValue) + DIGIT_BITS - 1) / DIGIT_BITS;
+            int[][] counts = new int[digits][DIGIT_SIZE];
+            for (int i = 0; i < n; i++) {
+                long v = keys[i];
+                for (int d = 0; d < digits; d++) {
+                    counts[d][(int) (v >>> (d * DIGIT_BITS)) & DIGIT_MASK]++;
+                }
+            }
+            long[] srcKeys = keys;
+            long[] dstKeys = tmpKeys;
+            int[] srcPerm = perm;
+            int[] dstPerm = tmpPerm;
+            for (int d = 0; d < digits; d++) {
+                int[] count = counts[d];
+                if (prefixSums(count, n)) {
+                    continue;
+                }
+                int shift = d * DIGIT_BITS;
+                for (int i = 0; i < n; i++) {
+                    long v = srcKeys[i];
+                    int pos = count[(int) (v >>> shift) & DIGIT_MASK]++;
+                    dstKeys[pos] = v;
+                    dstPerm[pos] = srcPerm[i];
+                }
+                long[] t = srcKeys;
+                srcKeys = dstKeys;
+                dstKeys = t;
+                int[] tp = srcPerm;
+                srcPerm = dstPerm;
+                dstPerm = tp;
+            }
+            if (srcPerm != perm) {
+                System.arraycopy(srcPerm, 0, perm, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Turns the histogram into start offsets. Returns {@code true} if all {@code n} elements fall
+     * into a single bucket, in which case the corresponding pass can be skipped.
+     */
+    private static boolean prefixSums(int[] count, int n) {
+        int sum = 0;
+        for (int i = 0; i < count.length; i++) {
+            int c = count[i];
+            if (c == n) {
+                return true;
+            }
+            count[i] = sum;
+            sum += c;
+        }
+        return false;
+    }
+}
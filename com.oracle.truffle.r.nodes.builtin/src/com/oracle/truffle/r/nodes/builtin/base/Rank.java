@@ -38,18 +38,18 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 import java.util.function.Function;
 
 import com.oracle.truffle.api.CompilerDirectives;
-import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.BranchProfile;
-import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.CmpNodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.OrderVector1NodeGen;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
-import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
@@ -96,16 +96,18 @@ public abstract class Rank extends RBuiltinNode.Arg3 {
     }
 
     @Specialization
-    protected Object rank(RAbstractVector xa, int inN, String tiesMethod,
-                    @Cached("createBinaryProfile()") ConditionProfile isNAProfile) {
+    protected Object rank(RAbstractVector x, int inN, String tiesMethod) {
         int n = inN;
-        if (n > xa.getLength()) {
+        if (n > x.getLength()) {
             errorProfile.enter();
-            n = xa.getLength();
+            n = x.getLength();
             warning(RANK_LARGE_N);
         }
 
         TiesKind tiesKind = getTiesKind(tiesMethod);
+        if (x instanceof RIntVector || x instanceof RDoubleVector || x instanceof RLogicalVector) {
+            return radixRank(x, n, tiesKind);
+        }
         int[] ik = null;
         double[] rk = null;
         if (tiesKind == TiesKind.AVERAGE) {
@@ -117,7 +119,6 @@ public abstract class Rank extends RBuiltinNode.Arg3 {
         for (int i = 0; i < n; i++) {
             indx[i] = i;
         }
-        RAbstractVector x = xa instanceof RLogicalVector ? xa.castSafe(RType.Integer, isNAProfile) : xa;
         initOrderVector1().execute(indx, x, RRuntime.LOGICAL_TRUE, false, false);
         initOrderCmp();
         int j;
@@ -151,6 +152,50 @@ public abstract class Rank extends RBuiltinNode.Arg3 {
         }
     }
 
+    /**
+     * Ranks numeric and logical vectors using the groups of equal values computed by
+     * {@link RadixSortEngine}.
+     */
+    @TruffleBoundary
+    private static Object radixRank(RAbstractVector x, int n, TiesKind tiesKind) {
+        RadixSortEngine engine = new RadixSortEngine(n, RRuntime.LOGICAL_TRUE, true);
+        if (x instanceof RIntVector) {
+            engine.addIntKey(((RIntVector) x).getReadonlyData(), false);
+        } else if (x instanceof RDoubleVector) {
+            engine.addDoubleKey(((RDoubleVector) x).getReadonlyData(), false);
+        } else {
+            engine.addLogicalKey(((RLogicalVector) x).getReadonlyData(), false);
+        }
+        int[] indx = engine.sort();
+        int[] ends = engine.getGroupEnds(indx);
+        double[] rk = tiesKind == TiesKind.AVERAGE ? new double[n] : null;
+        int[] ik = tiesKind == TiesKind.AVERAGE ? null : new int[n];
+        int i = 0;
+        for (int g = 0; g < ends.length; g++) {
+            int j = ends[g] - 1;
+            for (int k = i; k <= j; k++) {
+                int pos = indx[k] - 1;
+                switch (tiesKind) {
+                    case AVERAGE:
+                        rk[pos] = (i + j + 2) / 2.;
+                        break;
+                    case MAX:
+                        ik[pos] = j + 1;
+                        break;
+                    case MIN:
+                        ik[pos] = i + 1;
+                        break;
+                }
+            }
+            i = j + 1;
+        }
+        if (tiesKind == TiesKind.AVERAGE) {
+            return RDataFactory.createDoubleVector(rk, RDataFactory.COMPLETE_VECTOR);
+        } else {
+            return RDataFactory.createIntVector(ik, RDataFactory.COMPLETE_VECTOR);
+        }
+    }
+
     private TiesKind getTiesKind(String tiesMethod) {
         switch (tiesMethod) {
             case "average":
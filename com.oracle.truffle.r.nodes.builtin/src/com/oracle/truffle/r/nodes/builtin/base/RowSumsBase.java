@@ -29,11 +29,12 @@ import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
-import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 /**
- * Implements a skeleton of an algorithm that traverses rows and accumulates their values.
+ * Implements a skeleton of an algorithm that traverses rows and accumulates their values. Like in
+ * GNU R, the sums are accumulated with extended precision, see {@link AccurateSum}.
  */
 public abstract class RowSumsBase extends ColSumsBase {
 
@@ -43,8 +44,6 @@ public abstract class RowSumsBase extends ColSumsBase {
      */
     private static final int UNROLL = 8;
 
-    @Child private BinaryArithmetic add = BinaryArithmetic.ADD.createOperation();
-
     private final ConditionProfile remainderProfile = ConditionProfile.createBinaryProfile();
     private final LoopConditionProfile outerProfile = LoopConditionProfile.createCountingProfile();
     private final LoopConditionProfile innerProfile = LoopConditionProfile.createCountingProfile();
@@ -65,15 +64,19 @@ public abstract class RowSumsBase extends ColSumsBase {
         if (!na.isEnabled()) {
             while (outerProfile.inject(i <= rowNum - UNROLL)) {
                 double[] sum = new double[UNROLL];
+                double[] error = new double[UNROLL];
                 int pos = i;
                 for (int c = 0; innerProfile.inject(c < colNum); c++) {
                     for (int unroll = 0; unroll < UNROLL; unroll++) {
-                        sum[unroll] = add.op(sum[unroll], dataLib.getDouble(data, it, pos + unroll));
+                        double el = dataLib.getDouble(data, it, pos + unroll);
+                        double newSum = sum[unroll] + el;
+                        error[unroll] += AccurateSum.error(sum[unroll], el, newSum);
+                        sum[unroll] = newSum;
                     }
                     pos += rowNum;
                 }
                 for (int unroll = 0; unroll < UNROLL; unroll++) {
-                    result[i + unroll] = finalTransform.get(sum[unroll], colNum);
+                    result[i + unroll] = finalTransform.get(AccurateSum.round(sum[unroll], error[unroll]), colNum);
                 }
                 i += UNROLL;
             }
@@ -81,6 +84,7 @@ public abstract class RowSumsBase extends ColSumsBase {
         if (remainderProfile.profile(i < rowNum)) {
             while (i < rowNum) {
                 double sum = 0;
+                double error = 0;
                 int pos = i;
                 int notNACount = 0;
                 for (int c = 0; innerProfile.inject(c < colNum); c++) {
@@ -97,11 +101,13 @@ public abstract class RowSumsBase extends ColSumsBase {
                             break;
                         }
                     } else {
-                        sum = add.op(sum, el);
+                        double newSum = sum + el;
+                        error += AccurateSum.error(sum, el, newSum);
+                        sum = newSum;
                         notNACount++;
                     }
                 }
-                result[i] = finalTransform.get(sum, notNACount);
+                result[i] = finalTransform.get(AccurateSum.round(sum, error), notNACount);
                 i++;
             }
         }
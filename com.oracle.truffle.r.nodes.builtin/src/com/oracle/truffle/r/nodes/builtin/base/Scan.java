@@ -51,7 +51,9 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.conn.ConnectionSupport.BaseRConnection;
 import com.oracle.truffle.r.runtime.conn.RConnection;
 import com.oracle.truffle.r.runtime.conn.RConnection.ReadLineWarning;
 import com.oracle.truffle.r.runtime.conn.StdConnections;
@@ -86,9 +88,9 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
     }
 
     @SuppressWarnings("unused")
-    private static class LocalData {
+    static class LocalData {
         final HashMap<String, String> stringTable = new HashMap<>();
-        RStringVector naStrings = null;
+        String[] naStrings = null;
         boolean quiet = false;
         char sepchar = 0; // 0 means any whitespace
         char decchar = '.';
@@ -96,7 +98,7 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         int comchar = NO_COMCHAR;
         // connection-related (currently not supported)
         // int ttyflag = 0;
-        RConnection con = null;
+        BaseRConnection con = null;
         // connection-related (currently not supported)
         // boolean wasopen = false;
         boolean escapes = false;
@@ -108,7 +110,7 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         boolean skipNull = false;
     }
 
-    private static class GetQuotedItemsResult {
+    static class GetQuotedItemsResult {
         final String[] items;
         final int pos;
 
@@ -179,7 +181,7 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         // TODO: some sort of character translation happens here?
         data.quoteset = quotes.toCharArray();
 
-        data.naStrings = naStringsVec;
+        data.naStrings = naStringsVec.getReadonlyStringData();
 
         if (stripVec.getLength() != 1 && stripVec.getLength() != what.getLength()) {
             throw error(RError.Message.INVALID_LENGTH, "strip.white");
@@ -238,6 +240,18 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
     }
 
     private static GetQuotedItemsResult getQuotedItems(LocalData data, int maxItems, String s) {
+        GetQuotedItemsResult result = tokenize(data, maxItems, s);
+        if (result == null) {
+            throw RError.error(RError.SHOW_CALLER, Message.INCOMPLETE_FINAL_LINE, s);
+        }
+        return result;
+    }
+
+    /**
+     * Splits a line into items, returns {@code null} if the line ends within a quoted item. Does
+     * not touch the R context, so that it can be used by {@link ParallelScanReader}.
+     */
+    static GetQuotedItemsResult tokenize(LocalData data, int maxItems, String s) {
         ArrayList<String> items = new ArrayList<>();
 
         char sepchar = data.sepchar;
@@ -264,12 +278,15 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
                 pos++;
                 items.add(str.toString());
                 str.setLength(0);
+            } else if (ch == data.comchar) {
+                // the rest of the line is a comment
+                pos = length;
             } else if (str.length() == 0 && isInSet(ch, quoteset)) {
                 char quoteStart = ch;
                 pos++;
                 while (true) {
                     if (pos == length) {
-                        throw RError.error(RError.SHOW_CALLER, Message.INCOMPLETE_FINAL_LINE, s);
+                        return null;
                     }
                     ch = s.charAt(pos++);
                     if (ch == quoteStart) {
@@ -354,8 +371,22 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         int n = 0;
         int lines = 0;
         int records = 0;
+        ParallelScanReader reader = maxRecords == 0 && maxLines == 0 ? ParallelScanReader.create(data, getTypes(list), true, fill, flush, blSkip) : null;
         while (true) {
-            // TODO: does not do any fancy stuff, like handling comments
+            if (reader != null && n == 0 && data.con.pushBackLength() == 0) {
+                // the rest of a file is read in parallel, starting at a record boundary
+                RAbstractVector[] columns = reader.read(getColumns(list), records);
+                if (columns != null) {
+                    for (int i = 0; i < nc; i++) {
+                        list.updateDataAt(i, columns[i], null);
+                    }
+                    records = reader.getCount();
+                    blockSize = records;
+                }
+                lines += reader.getLines();
+                reader = null;
+            }
+            // TODO: does not do any fancy stuff
             String[] strItems = getItems(data, maxRecords, blSkip);
             if (strItems == null) {
                 break;
@@ -451,8 +482,20 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
 
         int n = 0;
         int lines = 0;
+        ParallelScanReader reader = maxItems == 0 && maxLines == 0 ? ParallelScanReader.create(data, new RType[]{what.getRType()}, false, false, false, blSkip) : null;
         while (true) {
-            // TODO: does not do any fancy stuff, like handling comments
+            if (reader != null && data.con.pushBackLength() == 0) {
+                // the rest of a file is read in parallel
+                RAbstractVector[] items = reader.read(new RAbstractVector[]{vec}, n);
+                if (items != null) {
+                    vec = items[0];
+                    n = reader.getCount();
+                    blockSize = n;
+                }
+                lines += reader.getLines();
+                reader = null;
+            }
+            // TODO: does not do any fancy stuff
             String[] strItems = getItems(data, maxItems, blSkip);
             if (strItems == null) {
                 break;
@@ -492,17 +535,33 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         return vec.getLength() > n ? vec.copyResized(n, false) : vec;
     }
 
+    private static RType[] getTypes(RList list) {
+        RType[] types = new RType[list.getLength()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = ((RAbstractVector) list.getDataAt(i)).getRType();
+        }
+        return types;
+    }
+
+    private static RAbstractVector[] getColumns(RList list) {
+        RAbstractVector[] columns = new RAbstractVector[list.getLength()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = (RAbstractVector) list.getDataAt(i);
+        }
+        return columns;
+    }
+
     // If mode = 0 use for numeric fields where "" is NA
     // If mode = 1 use for character fields where "" is verbatim unless
     // na.strings includes ""
-    private static boolean isNaString(String buffer, int mode, LocalData data) {
+    static boolean isNaString(String buffer, int mode, LocalData data) {
         int i;
 
         if (mode == 0 && buffer.length() == 0) {
             return true;
         }
-        for (i = 0; i < data.naStrings.getLength(); i++) {
-            if (data.naStrings.getDataAt(i).equals(buffer)) {
+        for (i = 0; i < data.naStrings.length; i++) {
+            if (data.naStrings[i].equals(buffer)) {
                 return true;
             }
         }
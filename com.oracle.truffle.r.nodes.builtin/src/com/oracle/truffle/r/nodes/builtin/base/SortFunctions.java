@@ -54,6 +54,7 @@ import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 
@@ -260,12 +261,13 @@ public class SortFunctions {
     /**
      * This a helper function for the code in sort.R. It does NOT return the input vectors sorted,
      * but returns an {@link RIntVector} of indices (positions) indicating the sort order (Or
-     * {@link RNull#instance} if no vectors). In short it is a special variant of {@code order}. For
-     * now we delegate to {@code order} and do not implement the {@code retgrp} argument.
+     * {@link RNull#instance} if no vectors). In short it is a special variant of {@code order}
+     * that supports a {@code decreasing} value per vector and, if {@code retgrp} is {@code TRUE},
+     * reports the group boundaries in the {@code "ends"} and {@code "maxgrpn"} attributes. The
+     * actual sorting is done by {@link RadixSortEngine}.
      */
     @RBuiltin(name = "radixsort", kind = INTERNAL, parameterNames = {"na.last", "decreasing", "retgrp", "sortstr", "..."}, behavior = PURE)
     public abstract static class RadixSort extends RBuiltinNode.Arg5 {
-        @Child private Order orderNode = OrderNodeGen.create();
 
         static {
             Casts casts = new Casts(RadixSort.class);
@@ -275,14 +277,8 @@ public class SortFunctions {
             casts.arg("sortstr").asLogicalVector().findFirst().map(toBoolean());
         }
 
-        @SuppressWarnings("unused")
         @Specialization
         protected Object radixSort(byte naLast, RLogicalVector decreasingVec, boolean retgrp, boolean sortstr, RArgsValuesAndNames zz) {
-            // Partial implementation just to get startup to work
-            if (retgrp) {
-                // sortstr only has an effect when retrgrp == true
-                throw RError.nyi(this, "radixsort: retgrp == TRUE not implemented");
-            }
             int nargs = zz.getLength();
             if (nargs == 0) {
                 return RNull.instance;
@@ -290,25 +286,55 @@ public class SortFunctions {
             if (nargs != decreasingVec.getLength()) {
                 throw error(RError.Message.RADIX_SORT_DEC_MATCH);
             }
-            /*
-             * Order takes a single decreasing argument that applies to all the vectors. We
-             * potentially have a different value for each vector, so we have to process one by one.
-             * However, OrderNode can't yet handle that, so we abort if nargs > 1 and the decreasing
-             * values don't match.
-             */
-            byte lastdb = RRuntime.LOGICAL_NA;
             for (int i = 0; i < nargs; i++) {
-                byte db = decreasingVec.getDataAt(i);
-                if (RRuntime.isNA(db)) {
+                if (RRuntime.isNA(decreasingVec.getDataAt(i))) {
                     throw error(RError.Message.RADIX_SORT_DEC_NOT_LOGICAL);
                 }
-                if (lastdb != RRuntime.LOGICAL_NA && db != lastdb) {
-                    throw RError.nyi(this, "radixsort: args > 1 with differing 'decreasing' values not implemented");
+            }
+            return doRadixSort(naLast, decreasingVec, retgrp, sortstr, zz.getArguments());
+        }
+
+        @TruffleBoundary
+        private Object doRadixSort(byte naLast, RLogicalVector decreasingVec, boolean retgrp, boolean sortstr, Object[] args) {
+            int n = -1;
+            for (int i = 0; i < args.length; i++) {
+                int len = args[i] instanceof RNull ? 0 : args[i] instanceof RAbstractVector ? ((RAbstractVector) args[i]).getLength() : -1;
+                if (len == -1) {
+                    throw error(RError.Message.UNIMPLEMENTED_ARG_TYPE, i + 1);
+                }
+                if (n == -1) {
+                    n = len;
+                } else if (n != len) {
+                    throw error(RError.Message.ARGUMENT_LENGTHS_DIFFER);
+                }
+            }
+            RadixSortEngine engine = new RadixSortEngine(n, naLast, !retgrp || sortstr);
+            for (int i = 0; i < args.length; i++) {
+                boolean decreasing = RRuntime.fromLogical(decreasingVec.getDataAt(i));
+                Object arg = args[i];
+                if (arg instanceof RIntVector) {
+                    engine.addIntKey(((RIntVector) arg).getReadonlyData(), decreasing);
+                } else if (arg instanceof RDoubleVector) {
+                    engine.addDoubleKey(((RDoubleVector) arg).getReadonlyData(), decreasing);
+                } else if (arg instanceof RLogicalVector) {
+                    engine.addLogicalKey(((RLogicalVector) arg).getReadonlyData(), decreasing);
+                } else if (arg instanceof RStringVector) {
+                    engine.addStringKey(((RStringVector) arg).getReadonlyStringData(), decreasing);
+                } else if (!(arg instanceof RNull)) {
+                    throw error(RError.Message.UNIMPLEMENTED_ARG_TYPE, i + 1);
+                }
+            }
+            int[] order = engine.sort();
+            RIntVector result = RDataFactory.createIntVector(order, RDataFactory.COMPLETE_VECTOR);
+            if (retgrp) {
+                int[] ends = engine.getGroupEnds(order);
+                int maxgrpn = 0;
+                for (int i = 0; i < ends.length; i++) {
+                    maxgrpn = Math.max(maxgrpn, ends[i] - (i == 0 ? 0 : ends[i - 1]));
                 }
-                lastdb = db;
+                result.setAttr("ends", RDataFactory.createIntVector(ends, RDataFactory.COMPLETE_VECTOR));
+                result.setAttr("maxgrpn", maxgrpn);
             }
-            boolean decreasing = RRuntime.fromLogical(decreasingVec.getDataAt(0));
-            Object result = orderNode.execute(naLast, decreasing, zz);
             return result;
         }
     }
@@ -25,8 +25,6 @@ package com.oracle.truffle.r.nodes.builtin.base;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.Arrays;
-
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -38,6 +36,7 @@ import com.oracle.truffle.r.nodes.helpers.RFactorNodes;
 import com.oracle.truffle.r.runtime.DSLConfig;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.GroupIndex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RStringVector;
@@ -64,9 +63,6 @@ public abstract class Split extends RBuiltinNode.Arg2 {
     @Child private RFactorNodes.GetLevels getLevelNode = new RFactorNodes.GetLevels();
     @Child private GetSplitNames getSplitNames = GetSplitNamesNodeGen.create();
 
-    private static final int INITIAL_SIZE = 5;
-    private static final int SCALE_FACTOR = 2;
-
     static {
         Casts.noCasts(Split.class);
     }
@@ -78,13 +74,19 @@ public abstract class Split extends RBuiltinNode.Arg2 {
         try (SequentialIterator xIter = xAccess.access(x); SequentialIterator fIter = fAccess.access(f)) {
             RStringVector names = getLevelNode.execute(f);
             int nLevels = getNLevels(names);
+            // the group sizes are counted upfront, so the results are allocated with their final size
+            GroupIndex index = GroupIndex.getCached(f, nLevels);
+            int[] sizes = index != null ? index.getRecycledSizes(x.getLength()) : countLevels(f, fAccess, nLevels, x.getLength());
             int[] collectResultSize = new int[nLevels];
             Object[] results = new Object[nLevels];
 
             switch (xAccess.getType()) {
                 case Character: {
                     // Initialize result arrays
-                    String[][] collectResults = new String[nLevels][INITIAL_SIZE];
+                    String[][] collectResults = new String[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new String[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -92,24 +94,22 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            String[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getString(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getString(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createStringVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createStringVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Complex: {
                     // Initialize result arrays
-                    double[][] collectResults = new double[nLevels][INITIAL_SIZE * 2];
+                    double[][] collectResults = new double[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new double[sizes[i] * 2];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -117,26 +117,24 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            double[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex] * 2) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex] * 2] = xAccess.getComplexR(xIter);
-                            collect[collectResultSize[resultIndex] * 2 + 1] = xAccess.getComplexI(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex] * 2] = xAccess.getComplexR(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex] * 2 + 1] = xAccess.getComplexI(xIter);
                             collectResultSize[resultIndex]++;
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createComplexVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i] * 2), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createComplexVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Double: {
                     // Initialize result arrays
-                    double[][] collectResults = new double[nLevels][INITIAL_SIZE];
+                    double[][] collectResults = new double[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new double[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -144,24 +142,22 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            double[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getDouble(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getDouble(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createDoubleVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createDoubleVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Integer: {
                     // Initialize result arrays
-                    int[][] collectResults = new int[nLevels][INITIAL_SIZE];
+                    int[][] collectResults = new int[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new int[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -169,24 +165,22 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            int[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getInt(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getInt(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createIntVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createIntVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case List: {
                     // Initialize result arrays
-                    Object[][] collectResults = new Object[nLevels][INITIAL_SIZE];
+                    Object[][] collectResults = new Object[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new Object[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -194,24 +188,22 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            Object[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getListElement(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getListElement(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createList(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createList(collectResults[i], (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Logical: {
                     // Initialize result arrays
-                    byte[][] collectResults = new byte[nLevels][INITIAL_SIZE];
+                    byte[][] collectResults = new byte[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new byte[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -219,24 +211,22 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            byte[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getLogical(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getLogical(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createLogicalVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createLogicalVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Raw: {
                     // Initialize result arrays
-                    byte[][] collectResults = new byte[nLevels][INITIAL_SIZE];
+                    byte[][] collectResults = new byte[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new byte[sizes[i]];
+                    }
 
                     // perform split
                     while (xAccess.next(xIter)) {
@@ -244,18 +234,13 @@ public abstract class Split extends RBuiltinNode.Arg2 {
                         if (!fAccess.isNA(fIter)) {
                             // a factor is a 1-based int vector
                             int resultIndex = fAccess.getInt(fIter) - 1;
-                            byte[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getRaw(xIter);
+                            collectResults[resultIndex][collectResultSize[resultIndex]++] = xAccess.getRaw(xIter);
                         }
                     }
 
                     RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createRawVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createRawVector(collectResults[i], (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
@@ -315,6 +300,23 @@ public abstract class Split extends RBuiltinNode.Arg2 {
         }
     }
 
+    /**
+     * Counts the elements of every level when the factor is recycled (or truncated) to
+     * {@code length} elements.
+     */
+    private static int[] countLevels(RIntVector f, VectorAccess fAccess, int nLevels, int length) {
+        int[] sizes = new int[nLevels];
+        try (SequentialIterator fIter = fAccess.access(f)) {
+            for (int i = 0; i < length; i++) {
+                fAccess.nextWithWrap(fIter);
+                if (!fAccess.isNA(fIter)) {
+                    sizes[fAccess.getInt(fIter) - 1]++;
+                }
+            }
+        }
+        return sizes;
+    }
+
     private static int getNLevels(RStringVector levels) {
         return levels != null ? levels.getLength() : 0;
     }
@@ -26,18 +26,11 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.IllegalFormatException;
-import java.util.Locale;
-
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
-import com.oracle.truffle.r.runtime.RError;
-import com.oracle.truffle.r.runtime.RError.Message;
-import com.oracle.truffle.r.runtime.RInternalError;
-import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -74,8 +67,9 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     }
 
     @Specialization
+    @TruffleBoundary
     protected String sprintf(String fmt, @SuppressWarnings("unused") RMissing x) {
-        return fmt;
+        return format(fmt);
     }
 
     @Specialization(guards = "fmtLengthOne(fmt)")
@@ -105,9 +99,10 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     @Specialization
     @TruffleBoundary
     protected RStringVector sprintf(String fmt, RIntVector x) {
+        SprintfPlan plan = getPlan(fmt);
         String[] r = new String[x.getLength()];
         for (int k = 0; k < r.length; k++) {
-            r[k] = format(fmt, x.getDataAt(k));
+            r[k] = plan.format(this, x.getDataAt(k));
         }
         return RDataFactory.createStringVector(r, RDataFactory.COMPLETE_VECTOR);
     }
@@ -121,13 +116,6 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     @Specialization
     @TruffleBoundary
     protected String sprintf(String fmt, double x) {
-        char f = Character.toLowerCase(firstFormatChar(fmt));
-        if (f == 'x' || f == 'd') {
-            if (Math.floor(x) == x) {
-                return format(fmt, (long) x);
-            }
-            throw error(RError.Message.INVALID_FORMAT_DOUBLE, fmt);
-        }
         return format(fmt, x);
     }
 
@@ -140,9 +128,10 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     @Specialization
     @TruffleBoundary
     protected RStringVector sprintf(String fmt, RDoubleVector x) {
+        SprintfPlan plan = getPlan(fmt);
         String[] r = new String[x.getLength()];
         for (int k = 0; k < r.length; k++) {
-            r[k] = sprintf(fmt, x.getDataAt(k));
+            r[k] = plan.format(this, x.getDataAt(k));
         }
         return RDataFactory.createStringVector(r, RDataFactory.COMPLETE_VECTOR);
     }
@@ -168,9 +157,10 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     @Specialization
     @TruffleBoundary
     protected RStringVector sprintf(String fmt, RStringVector x) {
+        SprintfPlan plan = getPlan(fmt);
         String[] r = new String[x.getLength()];
         for (int k = 0; k < r.length; k++) {
-            r[k] = format(fmt, x.getDataAt(k));
+            r[k] = plan.format(this, x.getDataAt(k));
         }
         return RDataFactory.createStringVector(r, RDataFactory.COMPLETE_VECTOR);
     }
@@ -184,9 +174,10 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
     @Specialization
     @TruffleBoundary
     protected RStringVector sprintf(String fmt, RLogicalVector x) {
+        SprintfPlan plan = getPlan(fmt);
         String[] r = new String[x.getLength()];
         for (int k = 0; k < r.length; k++) {
-            r[k] = format(fmt, x.getDataAt(k));
+            r[k] = plan.format(this, x.getDataAt(k));
         }
         return RDataFactory.createStringVector(r, RDataFactory.COMPLETE_VECTOR);
     }
@@ -245,13 +236,14 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
             if (values.length > 0) {
                 return RDataFactory.createEmptyStringVector();
             } else {
-                return RDataFactory.createStringVector(fmt);
+                return RDataFactory.createStringVector(format(fmt));
             }
         } else {
+            SprintfPlan plan = getPlan(fmt);
             String[] r = new String[maxLength];
             for (int k = 0; k < r.length; k++) {
                 Object[] sprintfArgs = createSprintfArgs(values, k, maxLength);
-                r[k] = format(fmt, sprintfArgs);
+                r[k] = plan.format(this, sprintfArgs);
             }
             return RDataFactory.createStringVector(r, RDataFactory.COMPLETE_VECTOR);
 
@@ -311,424 +303,22 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
         }
     }
 
-    private String format(String fmt, Object... args) {
-        char[] conversions = new char[args.length];
-        String format = processFormat(fmt, args, conversions);
-        adjustValues(args, conversions);
-        return stringFormat(format, fmt, args);
-    }
-
-    private String processFormat(String fmt, Object[] args, char[] conversions) {
-        int i = 0;
-        char[] cs = fmt.toCharArray();
-        StringBuilder sb = new StringBuilder();
-        StringBuilder tmpSb = new StringBuilder();
-        int argc = 1;
-
-        while (i < cs.length) {
-            // skip up to and including next %
-            while (i < cs.length && cs[i] != '%') {
-                sb.append(cs[i++]);
-            }
-            if (i == cs.length) {
-                break;
-            }
-            sb.append(cs[i++]);
-
-            FormatInfo fi = extractFormatInfo(cs, i, argc);
-            argc = fi.argc;
-            if (fi.conversion != '%') {
-                if (fi.numArg > conversions.length) {
-                    throw error(Message.TOO_FEW_ARGUMENTS);
-                }
-                Object arg = args[fi.numArg - 1];
-                if (isNA(arg)) {
-                    fi.conversion = 's';
-                    fi.padZero = false;
-                    fi.alwaysSign = false;
-                    args[fi.numArg - 1] = "NA";
-                }
-                // which argument to print
-                sb.append(intString(fi.numArg)).append('$');
-                if (Character.toLowerCase(fi.conversion) == 'g' && arg instanceof Number && !(arg instanceof Double)) {
-                    // Only for g/G type and numeric value other than doubles (including logical)
-                    // the type is converted to 'd', which discards any decimal points even if
-                    // requested by the formatting command. Otherwise method 'adjustValues' takes
-                    // care of converting the value to Double (e.g. for 'f').
-                    fi.conversion = 'd';
-                }
-                if (Character.toLowerCase(fi.conversion) == 'g' && arg instanceof Double) {
-                    // C unlike Java removes trailing zeroes for g/G. To simulate this,
-                    // we convert the number to a string here like for NAs
-                    tmpSb.setLength(0);
-                    tmpSb.append('%');
-                    fi.appendFlags(args, tmpSb);
-                    tmpSb.append(fi.conversion);
-                    String formatted = String.format(tmpSb.toString(), arg);
-                    if (formatted.length() > 0) {
-                        int trailingZeroesIdx = formatted.length() - 1;
-                        boolean removedZeroes = false;
-                        while (trailingZeroesIdx >= 0 && formatted.charAt(trailingZeroesIdx) == '0') {
-                            trailingZeroesIdx--;
-                            removedZeroes = true;
-                        }
-                        if (removedZeroes && trailingZeroesIdx >= 0 && formatted.charAt(trailingZeroesIdx) == '.') {
-                            trailingZeroesIdx--;
-                        }
-                        formatted = formatted.substring(0, trailingZeroesIdx + 1);
-                    }
-                    fi.conversion = 's';
-                    args[fi.numArg - 1] = formatted;
-                } else {
-                    fi.appendFlags(args, sb);
-                    conversions[fi.numArg - 1] = fi.conversion;
-                }
-            }
-            sb.append(fi.conversion);
-            i = fi.nextChar;
-        }
-
-        return sb.toString();
-    }
-
-    private static boolean isNA(Object val) {
-        // TODO: not correct for raw value that happens to be logical NA
-        return (val instanceof Integer && RRuntime.isNA((Integer) val)) ||
-                        (val instanceof Double && RRuntime.isNA((Double) val)) ||
-                        (val instanceof String && RRuntime.isNA((String) val)) ||
-                        (val instanceof Byte && RRuntime.isNA((Byte) val));
-    }
-
-    private static int intValue(Object o) {
-        if (o instanceof Double) {
-            return ((Double) o).intValue();
-        } else if (o instanceof Integer) {
-            return ((Integer) o).intValue();
-        } else {
-            throw fail("unexpected type");
-        }
-    }
-
-    @TruffleBoundary
-    private static String intString(int x) {
-        return Integer.toString(x);
-    }
-
-    private static char firstFormatChar(String fmt) {
-        int pos = 0;
-        char f;
-        for (f = '\0'; f == '\0'; f = fmt.charAt(pos + 1)) {
-            pos = fmt.indexOf('%', pos);
-            if (pos == -1 || pos >= fmt.length() - 1) {
-                return '\0';
-            }
-            if (fmt.charAt(pos + 1) == '%') {
-                continue;
-            }
-            while (!Character.isLetter(fmt.charAt(pos + 1)) && pos < fmt.length() - 1) {
-                pos++;
-            }
-        }
-        return f;
-    }
-
-    @TruffleBoundary
-    private static String stringFormat(String format, String originalFormat, Object[] args) {
-        try {
-            return String.format((Locale) null, format, args);
-        } catch (IllegalFormatException ex) {
-            String message = String.format("Error in Java format String '%s', R format string was '%s'.", format, originalFormat);
-            throw RInternalError.shouldNotReachHere(ex, message);
-        }
-    }
-
-    private void adjustValues(Object[] args, char[] conversions) {
-        for (int i = 0; i < args.length; i++) {
-            if (conversions[i] == 0) {
-                continue;
-            }
-            boolean wrongConversion = false;
-            char c = conversions[i];
-            char lowerC = Character.toLowerCase(c);
-            if (c == 'd' || c == 'i' || c == 'o' || lowerC == 'x') {
-                if (args[i] instanceof Double) {
-                    double doubleVal = (Double) args[i];
-                    if (doubleVal == (int) doubleVal) {
-                        args[i] = (int) doubleVal;
-                    } else {
-                        wrongConversion = false;
-                    }
-                } else if (args[i] instanceof Byte) {
-                    args[i] = ((Byte) args[i]).intValue();
-                }
-            } else if (lowerC == 'f' || lowerC == 'g' || lowerC == 'e' || lowerC == 'a') {
-                if (args[i] instanceof Number) {
-                    args[i] = ((Number) args[i]).doubleValue();
-                } else {
-                    wrongConversion = true;
-                }
-            } else if (conversions[i] == 's') {
-                if (args[i] instanceof Byte) {
-                    // TODO: this will be wrong if the type was actually raw
-                    args[i] = RRuntime.logicalToString((Byte) args[i]);
-                } else if (args[i] instanceof Double) {
-                    double doubleVal = (Double) args[i];
-                    if (doubleVal == (int) doubleVal) {
-                        args[i] = Integer.toString((int) doubleVal);
-                    } else {
-                        args[i] = Double.toString(doubleVal);
-                    }
-                } else {
-                    args[i] = args[i].toString();
-                }
-            }
-            if (wrongConversion) {
-                if (args[i] instanceof Integer) {
-                    throw error(Message.INVALID_FORMAT_INTEGER, conversions[i]);
-                } else if (args[i] instanceof Double) {
-                    throw error(Message.INVALID_FORMAT_DOUBLE, conversions[i]);
-                } else if (args[i] instanceof Byte) {
-                    throw error(Message.INVALID_FORMAT_LOGICAL, conversions[i]);
-                } else if (args[i] instanceof String) {
-                    throw error(Message.INVALID_FORMAT_STRING, conversions[i]);
-                }
-            }
-        }
-    }
-
-    //
-    // format info parsing
-    //
-
-    private static class FormatInfo {
-        char conversion;
-        /**
-         * If set to non-negative value, gives the desired width.
-         */
-        int width = -1;
-        /**
-         * If set to non-negative value, gives the desired precision.
-         */
-        int precision = -1;
-        boolean adjustLeft;
-        boolean alwaysSign;
-        boolean spacePrefix;
-        boolean padZero;
-        boolean alternate;
-        int numArg;
-        boolean widthIsArg;
-        /**
-         * Indicates that the precision is not a constant, but determined by some other argument.
-         */
-        boolean precisionIsArg;
-        int nextChar;
-        int argc;
-
-        public void appendFlags(Object[] args, StringBuilder buffer) {
-            int w = 0;
-            int p = 0;
-            // take care of width/precision being defined by args
-            if (width >= 0 || widthIsArg) {
-                w = widthIsArg ? intValue(args[width - 1]) : width;
-            }
-            if (precision >= 0 || precisionIsArg) {
-                p = precisionIsArg ? intValue(args[precision - 1]) : precision;
-            }
-            if (adjustLeft) {
-                buffer.append('-');
-            }
-            if (alwaysSign) {
-                buffer.append('+');
-            }
-            if (alternate) {
-                buffer.append('#');
-            }
-            if (padZero) {
-                buffer.append('0');
-            }
-            if (spacePrefix) {
-                buffer.append(' ');
-            }
-            // width and precision
-            if (width >= 0 || widthIsArg) {
-                buffer.append(intString(w));
-            }
-            if (precision >= 0 || precisionIsArg) {
-                buffer.append('.').append(intString(p));
-            }
-        }
-    }
-
-    //@formatter:off
     /**
-     * The grammar understood by the format info extractor is as follows. Note that the
-     * leading {@code %} has already been consumed in the caller and is not given in the
-     * grammar.
-     *
-     * formatInfo        = '%'
-     *                   | arg? (widthAndPrecision | '-' | '+' | ' ' | '0' | '#')* conversion
-     * arg               = number '$'
-     * widthAndPrecision = oneWidth
-     *                   | number '.' number
-     *                   | number '.' argWidth
-     *                   | argWidth '.' number
-     * oneWidth          = number
-     *                   | argWidth
-     * argWidth          = '*' arg?
-     * conversion        = < one of the conversion characters, save % >
+     * The plan of the last format used by this call site, most call sites use a constant format.
      */
-    //@formatter:on
-    private static FormatInfo extractFormatInfo(char[] cs, int i, int argc) {
-        int j = i;
-        FormatInfo fi = new FormatInfo();
-        fi.argc = argc;
-        char c = cs[j];
-        // finished if % is the conversion
-        if (c != '%') {
-            // look ahead for a $ (indicates arg)
-            if (isNumeric(c) && lookahead(cs, j, '$')) {
-                fi.numArg = number(cs, j, fi);
-                j = fi.nextChar + 1; // advance past $
-                c = cs[j];
-            }
-            // now loop until the conversion is found
-            while (!isConversion(c)) {
-                switch (c) {
-                    case '-':
-                        fi.adjustLeft = true;
-                        j++;
-                        break;
-                    case '+':
-                        fi.alwaysSign = true;
-                        j++;
-                        break;
-                    case ' ':
-                        fi.spacePrefix = true;
-                        j++;
-                        break;
-                    case '0':
-                        fi.padZero = true;
-                        j++;
-                        break;
-                    case '#':
-                        fi.alternate = true;
-                        j++;
-                        break;
-                    case '*':
-                        widthAndPrecision(cs, j, fi);
-                        j = fi.nextChar;
-                        break;
-                    default:
-                        // it can still be a widthAndPrecision if a number is given
-                        if (isNumeric(c)) {
-                            widthAndPrecision(cs, j, fi);
-                            j = fi.nextChar;
-                        } else if (c == '.') {
-                            // apparently precision can be specified without width as well, but in
-                            // such case the '0' prefix if any should be interpreted as width...
-                            if (fi.padZero) {
-                                fi.padZero = false;
-                            }
-                            oneWidth(cs, j + 1, fi, false);
-                            j = fi.nextChar;
-                        } else {
-                            throw fail("problem with format expression");
-                        }
-                }
-                c = cs[j];
-            }
-        }
-        fi.conversion = c;
-        if (c == 'i') {
-            // they seem to be equivalent but 'i' is not handled correctly by the java formatter
-            fi.conversion = 'd';
-        }
-        // if precision specified for integer decimal, do instead zero padding
-        // e.g. '%.2d' -> '%02f'
-        if (fi.precision > 0 && fi.conversion == 'd') {
-            fi.padZero = true;
-            fi.width = fi.precision;
-            fi.precision = -1;
-        }
-        fi.nextChar = j + 1;
-        if (fi.numArg == 0 && c != '%') {
-            // no arg explicitly given, use args array
-            fi.numArg = fi.argc++;
-        }
-        return fi;
-    }
+    private SprintfPlan lastPlan;
 
-    private static void widthAndPrecision(char[] cs, int i, FormatInfo fi) {
-        int j = i;
-        oneWidth(cs, j, fi, true);
-        j = fi.nextChar;
-        if (cs[j] == '.') {
-            oneWidth(cs, j + 1, fi, false);
+    private SprintfPlan getPlan(String fmt) {
+        SprintfPlan plan = lastPlan;
+        if (plan == null || !plan.getFormat().equals(fmt)) {
+            plan = SprintfPlan.get(this, fmt);
+            lastPlan = plan;
         }
+        return plan;
     }
 
-    private static void oneWidth(char[] cs, int i, FormatInfo fi, boolean width) {
-        int j = i;
-        int n;
-        if (isNumeric(cs[j])) {
-            n = number(cs, j, fi);
-            j = fi.nextChar;
-        } else if (cs[j] == '*') {
-            assert cs[j] == '*';
-            if (width) {
-                fi.widthIsArg = true;
-            } else {
-                fi.precisionIsArg = true;
-            }
-            j++;
-            if (isNumeric(cs[j])) {
-                n = number(cs, j, fi);
-                j = fi.nextChar;
-                assert cs[j] == '$';
-                fi.nextChar = ++j;
-            } else {
-                n = fi.argc++;
-            }
-        } else {
-            if (!isConversion(cs[j])) {
-                throw RError.error(RError.NO_CALLER, Message.UNRECOGNIZED_FORMAT, new String(cs));
-            }
-            n = 0;
-        }
-        if (width) {
-            fi.width = n;
-        } else {
-            fi.precision = n;
-        }
-        fi.nextChar = j;
-    }
-
-    private static boolean isConversion(char c) {
-        return "aAdifeEgGosxX".indexOf(c) != -1;
-    }
-
-    private static boolean isNumeric(char c) {
-        return c >= 48 && c <= 57;
-    }
-
-    private static int number(char[] cs, int i, FormatInfo fi) {
-        int j = i;
-        int num = cs[j++] - '0';
-        while (isNumeric(cs[j])) {
-            num = 10 * num + (cs[j++] - '0');
-        }
-        fi.nextChar = j;
-        return num;
-    }
-
-    private static boolean lookahead(char[] cs, int i, char c) {
-        int j = i;
-        while (!isConversion(cs[j])) {
-            if (cs[j++] == c) {
-                return true;
-            }
-        }
-        return false;
+    private String format(String fmt, Object... args) {
+        return getPlan(fmt).format(this, args);
     }
 
     protected boolean fmtLengthOne(RStringVector fmt) {
@@ -748,9 +338,4 @@ public abstract class Sprintf extends RBuiltinNode.Arg2 {
 
         return false;
     }
-
-    @TruffleBoundary
-    private static IllegalStateException fail(String message) {
-        throw new IllegalStateException(message);
-    }
 }
@@ -0,0 +1,728 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.DoubleFormatter;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.nodes.RBaseNode;
+
+/**
+ * A parsed C style format string as used by {@code sprintf} and {@code formatC}. The format is
+ * parsed once into literal text and conversions, which are then applied to the arguments of every
+ * element without any further parsing and without {@link java.util.Formatter}. The conversions
+ * follow the C library (and therefore GNU R) rather than Java: floating point values are rounded
+ * exactly with ties to even, {@code %g} drops trailing zeros, {@code '-'} overrides {@code '0'}
+ * and {@code '+'} overrides {@code ' '}.
+ *
+ * The arguments are scalars: {@link Integer}, {@link Double}, {@link Byte} (logical) or
+ * {@link String}. They are coerced like in GNU R: integral doubles can be printed with
+ * {@code %d}, numbers and logicals with {@code %f}, anything with {@code %s} (using
+ * {@code as.character} semantics) and NA values print as {@code NA}.
+ *
+ * Plans are immutable. {@link #get} keeps the recently used ones in a bounded LRU cache shared by
+ * all contexts, callers with a constant format usually remember their last plan in addition.
+ */
+public final class SprintfPlan {
+
+    public static final int CACHE_SIZE = 256;
+
+    private static final LinkedHashMap<String, SprintfPlan> cache = new LinkedHashMap<String, SprintfPlan>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SprintfPlan> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String format;
+    /**
+     * The literal text preceding each conversion, the last element follows the last conversion.
+     */
+    private final String[] literals;
+    private final Conversion[] conversions;
+    /**
+     * The number of arguments the conversions refer to.
+     */
+    private final int argCount;
+
+    private SprintfPlan(String format, String[] literals, Conversion[] conversions, int argCount) {
+        this.format = format;
+        this.literals = literals;
+        this.conversions = conversions;
+        this.argCount = argCount;
+    }
+
+    /**
+     * Returns the plan for {@code format}, parsing it if it is not in the cache. Errors in the
+     * format are reported with {@code node} as the caller.
+     */
+    @TruffleBoundary
+    public static SprintfPlan get(RBaseNode node, String format) {
+        synchronized (cache) {
+            SprintfPlan plan = cache.get(format);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        SprintfPlan plan = new Parser(node, format).parse();
+        synchronized (cache) {
+            cache.put(format, plan);
+        }
+        return plan;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public int getArgCount() {
+        return argCount;
+    }
+
+    /**
+     * Formats one set of scalar arguments.
+     */
+    @TruffleBoundary
+    public String format(RBaseNode node, Object... args) {
+        if (argCount > args.length) {
+            throw node.error(Message.TOO_FEW_ARGUMENTS);
+        }
+        if (conversions.length == 0) {
+            return literals[0];
+        }
+        StringBuilder sb = new StringBuilder(format.length() + 8 * conversions.length);
+        for (int i = 0; i < conversions.length; i++) {
+            sb.append(literals[i]);
+            conversions[i].append(node, sb, args);
+        }
+        sb.append(literals[conversions.length]);
+        return sb.toString();
+    }
+
+    private static final class Conversion {
+        /**
+         * One of {@code aAdeEfgGosxX}, {@code %i} is stored as {@code 'd'}.
+         */
+        final char conversion;
+        /**
+         * The text of the conversion specification, used in error messages.
+         */
+        final String spec;
+        final int argIndex;
+        /**
+         * If non-negative, the desired width.
+         */
+        final int width;
+        /**
+         * If non-negative, the index of the argument that gives the width.
+         */
+        final int widthArg;
+        /**
+         * If non-negative, the desired precision.
+         */
+        final int precision;
+        /**
+         * If non-negative, the index of the argument that gives the precision.
+         */
+        final int precisionArg;
+        final boolean adjustLeft;
+        final boolean alwaysSign;
+        final boolean spacePrefix;
+        final boolean padZero;
+        final boolean alternate;
+
+        Conversion(char conversion, String spec, int argIndex, int width, int widthArg, int precision, int precisionArg, boolean adjustLeft, boolean alwaysSign, boolean spacePrefix,
+                        boolean padZero, boolean alternate) {
+            this.conversion = conversion;
+            this.spec = spec;
+            this.argIndex = argIndex;
+            this.width = width;
+            this.widthArg = widthArg;
+            this.precision = precision;
+            this.precisionArg = precisionArg;
+            this.adjustLeft = adjustLeft;
+            this.alwaysSign = alwaysSign;
+            this.spacePrefix = spacePrefix;
+            this.padZero = padZero;
+            this.alternate = alternate;
+        }
+
+        void append(RBaseNode node, StringBuilder sb, Object[] args) {
+            int w = width;
+            boolean left = adjustLeft;
+            if (widthArg >= 0) {
+                w = intArg(node, args[widthArg]);
+                if (w < 0) {
+                    // a negative width given by an argument means left adjustment
+                    left = true;
+                    w = -w;
+                }
+            }
+            int p = precisionArg >= 0 ? Math.max(-1, intArg(node, args[precisionArg])) : precision;
+            Object value = args[argIndex];
+            switch (conversion) {
+                case 's':
+                    appendString(sb, asString(value), w, left, p);
+                    break;
+                case 'd':
+                case 'o':
+                case 'x':
+                case 'X':
+                    appendInteger(node, sb, value, w, left, p);
+                    break;
+                default:
+                    appendDouble(node, sb, value, w, left, p);
+                    break;
+            }
+        }
+
+        private void appendInteger(RBaseNode node, StringBuilder sb, Object value, int w, boolean left, int p) {
+            int v;
+            if (value instanceof Integer) {
+                v = (Integer) value;
+                if (RRuntime.isNA(v)) {
+                    appendString(sb, RRuntime.STRING_NA, w, left, p);
+                    return;
+                }
+            } else if (value instanceof Double) {
+                double d = (Double) value;
+                if (!RRuntime.isFinite(d)) {
+                    // coerced to an integer NA
+                    appendString(sb, RRuntime.STRING_NA, w, left, p);
+                    return;
+                }
+                v = (int) d;
+                if (v != d) {
+                    throw node.error(Message.INVALID_FORMAT_DOUBLE, spec);
+                }
+            } else if (value instanceof Byte) {
+                if (conversion != 'd') {
+                    throw node.error(Message.INVALID_FORMAT_LOGICAL, spec);
+                }
+                byte b = (Byte) value;
+                if (RRuntime.isNA(b)) {
+                    appendString(sb, RRuntime.STRING_NA, w, left, p);
+                    return;
+                }
+                v = b;
+            } else if (value instanceof String) {
+                throw node.error(Message.INVALID_FORMAT_STRING, spec);
+            } else {
+                throw node.error(Message.UNSUPPORTED_TYPE);
+            }
+            String sign = "";
+            String digits;
+            switch (conversion) {
+                case 'd':
+                    digits = Long.toString(Math.abs((long) v));
+                    sign = v < 0 ? "-" : alwaysSign ? "+" : spacePrefix ? " " : "";
+                    break;
+                case 'o':
+                    digits = Long.toOctalString(v & 0xFFFFFFFFL);
+                    break;
+                default:
+                    digits = Long.toHexString(v & 0xFFFFFFFFL);
+                    if (conversion == 'X') {
+                        digits = digits.toUpperCase();
+                    }
+                    if (alternate && v != 0) {
+                        sign = conversion == 'X' ? "0X" : "0x";
+                    }
+                    break;
+            }
+            if (p >= 0) {
+                // the precision is the minimal number of digits
+                if (p == 0 && v == 0) {
+                    digits = "";
+                } else if (digits.length() < p) {
+                    digits = zeros(p - digits.length()) + digits;
+                }
+            }
+            if (conversion == 'o' && alternate && !digits.startsWith("0")) {
+                digits = "0" + digits;
+            }
+            appendNumber(sb, sign, digits, w, left, padZero && p < 0);
+        }
+
+        private void appendDouble(RBaseNode node, StringBuilder sb, Object value, int w, boolean left, int p) {
+            double d;
+            if (value instanceof Double) {
+                d = (Double) value;
+            } else if (value instanceof Integer) {
+                int i = (Integer) value;
+                d = RRuntime.isNA(i) ? RRuntime.DOUBLE_NA : i;
+            } else if (value instanceof Byte) {
+                byte b = (Byte) value;
+                d = RRuntime.isNA(b) ? RRuntime.DOUBLE_NA : b;
+            } else if (value instanceof String) {
+                throw node.error(Message.INVALID_FORMAT_STRING, spec);
+            } else {
+                throw node.error(Message.UNSUPPORTED_TYPE);
+            }
+            if (!RRuntime.isFinite(d)) {
+                // like GNU R, print the R representation with the width, but not the precision
+                String str;
+                if (RRuntime.isNA(d)) {
+                    str = spacePrefix ? " NA" : "NA";
+                } else if (Double.isNaN(d)) {
+                    str = spacePrefix ? " NaN" : "NaN";
+                } else if (d > 0) {
+                    str = alwaysSign ? "+Inf" : spacePrefix ? " Inf" : "Inf";
+                } else {
+                    str = "-Inf";
+                }
+                appendString(sb, str, w, left, -1);
+                return;
+            }
+            boolean negative = Double.doubleToRawLongBits(d) < 0;
+            String sign = negative ? "-" : alwaysSign ? "+" : spacePrefix ? " " : "";
+            double abs = Math.abs(d);
+            boolean upper = Character.isUpperCase(conversion);
+            String body;
+            switch (conversion) {
+                case 'f':
+                    body = formatFixed(abs, p < 0 ? 6 : p, alternate);
+                    break;
+                case 'e':
+                case 'E':
+                    body = formatExponent(abs, p < 0 ? 6 : p, alternate, upper);
+                    break;
+                case 'g':
+                case 'G':
+                    body = formatGeneral(abs, p < 0 ? 6 : p == 0 ? 1 : p, alternate, upper);
+                    break;
+                default:
+                    body = formatHex(abs, p, alternate, upper);
+                    sign += upper ? "0X" : "0x";
+                    break;
+            }
+            appendNumber(sb, sign, body, w, left, padZero);
+        }
+    }
+
+    private static int intArg(RBaseNode node, Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        } else if (value instanceof Double) {
+            return (int) (double) (Double) value;
+        }
+        throw node.error(Message.GENERIC, "argument for '*' conversion specification must be a number");
+    }
+
+    private static String asString(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        } else if (value instanceof Integer) {
+            int i = (Integer) value;
+            return RRuntime.isNA(i) ? RRuntime.STRING_NA : Integer.toString(i);
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            return RRuntime.isNA(d) ? RRuntime.STRING_NA : RContext.getRRuntimeASTAccess().encodeDouble(d);
+        } else if (value instanceof Byte) {
+            return RRuntime.logicalToString((Byte) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static void appendString(StringBuilder sb, String str, int width, boolean left, int precision) {
+        String s = precision >= 0 && str.length() > precision ? str.substring(0, precision) : str;
+        int pad = width - s.length();
+        if (pad <= 0) {
+            sb.append(s);
+        } else if (left) {
+            sb.append(s);
+            appendChars(sb, ' ', pad);
+        } else {
+            appendChars(sb, ' ', pad);
+            sb.append(s);
+        }
+    }
+
+    /**
+     * Appends a number consisting of a sign (including a radix prefix like {@code 0x}) and the
+     * digits, padded to {@code width}. Zero padding goes between the sign and the digits.
+     */
+    private static void appendNumber(StringBuilder sb, String sign, String digits, int width, boolean left, boolean zeroPad) {
+        int pad = width - sign.length() - digits.length();
+        if (pad <= 0) {
+            sb.append(sign).append(digits);
+        } else if (left) {
+            sb.append(sign).append(digits);
+            appendChars(sb, ' ', pad);
+        } else if (zeroPad) {
+            sb.append(sign);
+            appendChars(sb, '0', pad);
+            sb.append(digits);
+        } else {
+            appendChars(sb, ' ', pad);
+            sb.append(sign).append(digits);
+        }
+    }
+
+    private static void appendChars(StringBuilder sb, char c, int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+    }
+
+    private static String zeros(int count) {
+        StringBuilder sb = new StringBuilder(count);
+        appendChars(sb, '0', count);
+        return sb.toString();
+    }
+
+    //
+    // floating point conversions of non-negative finite values
+    //
+
+    /**
+     * {@code %f}: the exact binary value rounded to {@code precision} decimals, ties to even.
+     */
+    static String formatFixed(double abs, int precision, boolean alternate) {
+        DoubleFormatter fmt = DoubleFormatter.getInstance();
+        if (fmt.fixed(abs, precision)) {
+            fmt.clear().appendFixed(precision, '.');
+            if (precision == 0 && alternate) {
+                fmt.append('.');
+            }
+            return fmt.toString();
+        }
+        String result = new BigDecimal(abs).setScale(precision, RoundingMode.HALF_EVEN).toPlainString();
+        return precision == 0 && alternate ? result + '.' : result;
+    }
+
+    /**
+     * {@code %e}: one digit before the decimal point, {@code precision} after it and an exponent
+     * of at least two digits.
+     */
+    static String formatExponent(double abs, int precision, boolean alternate, boolean upper) {
+        DoubleFormatter fmt = DoubleFormatter.getInstance();
+        if (!(precision == 0 && alternate) && fmt.significant(abs, precision + 1)) {
+            return fmt.clear().appendScientific(precision, '.', upper ? 'E' : 'e').toString();
+        }
+        String digits;
+        int exponent;
+        if (abs == 0) {
+            digits = zeros(precision + 1);
+            exponent = 0;
+        } else {
+            BigDecimal rounded = new BigDecimal(abs).round(new MathContext(precision + 1, RoundingMode.HALF_EVEN));
+            digits = rounded.unscaledValue().toString();
+            exponent = digits.length() - 1 - rounded.scale();
+            if (digits.length() < precision + 1) {
+                digits = digits + zeros(precision + 1 - digits.length());
+            }
+        }
+        StringBuilder sb = new StringBuilder(precision + 6);
+        sb.append(digits.charAt(0));
+        if (precision > 0 || alternate) {
+            sb.append('.');
+        }
+        sb.append(digits, 1, precision + 1);
+        sb.append(upper ? 'E' : 'e').append(exponent < 0 ? '-' : '+');
+        int absExponent = Math.abs(exponent);
+        if (absExponent < 10) {
+            sb.append('0');
+        }
+        sb.append(absExponent);
+        return sb.toString();
+    }
+
+    /**
+     * {@code %g}: {@code %e} if the exponent is less than -4 or not less than the number of
+     * significant digits, {@code %f} otherwise. Trailing zeros are removed unless {@code alternate}.
+     */
+    static String formatGeneral(double abs, int significant, boolean alternate, boolean upper) {
+        int exponent = 0;
+        DoubleFormatter fmt = DoubleFormatter.getInstance();
+        if (fmt.significant(abs, significant)) {
+            exponent = fmt.getExponent();
+        } else if (abs != 0) {
+            BigDecimal rounded = new BigDecimal(abs).round(new MathContext(significant, RoundingMode.HALF_EVEN));
+            exponent = rounded.precision() - 1 - rounded.scale();
+        }
+        String result;
+        if (exponent < -4 || exponent >= significant) {
+            result = formatExponent(abs, significant - 1, alternate, upper);
+        } else {
+            result = formatFixed(abs, significant - 1 - exponent, alternate);
+        }
+        if (alternate) {
+            return result;
+        }
+        int end = result.indexOf(upper ? 'E' : 'e');
+        int mantissaEnd = end < 0 ? result.length() : end;
+        if (result.lastIndexOf('.', mantissaEnd) < 0) {
+            return result;
+        }
+        int i = mantissaEnd;
+        while (result.charAt(i - 1) == '0') {
+            i--;
+        }
+        if (result.charAt(i - 1) == '.') {
+            i--;
+        }
+        return i == mantissaEnd ? result : result.substring(0, i) + result.substring(mantissaEnd);
+    }
+
+    /**
+     * {@code %a} without the {@code 0x} prefix: a hexadecimal mantissa and a binary exponent. Without
+     * a precision all significant digits are printed, otherwise the mantissa is rounded to even.
+     */
+    static String formatHex(double abs, int precision, boolean alternate, boolean upper) {
+        long bits = Double.doubleToRawLongBits(abs);
+        int biased = (int) (bits >>> 52);
+        long mantissa = bits & 0xFFFFFFFFFFFFFL;
+        int lead = biased == 0 ? 0 : 1;
+        int exponent = biased == 0 ? (mantissa == 0 ? 0 : -1022) : biased - 1023;
+        int digitCount;
+        if (precision < 0) {
+            // drop trailing zero digits
+            digitCount = 13;
+            while (digitCount > 0 && (mantissa & 0xF) == 0) {
+                mantissa >>>= 4;
+                digitCount--;
+            }
+        } else if (precision < 13) {
+            int shift = (13 - precision) * 4;
+            long remainder = mantissa & ((1L << shift) - 1);
+            long half = 1L << (shift - 1);
+            mantissa >>>= shift;
+            // with no digits after the point, the lead digit decides the tie
+            long last = precision == 0 ? lead : mantissa;
+            if (remainder > half || (remainder == half && (last & 1) != 0)) {
+                mantissa++;
+                if (mantissa >>> (precision * 4) != 0) {
+                    mantissa &= (1L << (precision * 4)) - 1;
+                    lead++;
+                }
+            }
+            digitCount = precision;
+        } else {
+            digitCount = precision;
+        }
+        StringBuilder sb = new StringBuilder(digitCount + 8);
+        sb.append(lead);
+        if (digitCount > 0 || alternate) {
+            sb.append('.');
+        }
+        if (digitCount > 0) {
+            String hex = Long.toHexString(mantissa);
+            int significantDigits = Math.min(digitCount, 13);
+            appendChars(sb, '0', significantDigits - hex.length());
+            sb.append(upper ? hex.toUpperCase() : hex);
+            appendChars(sb, '0', digitCount - significantDigits);
+        }
+        sb.append(upper ? 'P' : 'p').append(exponent < 0 ? '-' : '+').append(Math.abs(exponent));
+        return sb.toString();
+    }
+
+    //@formatter:off
+    /**
+     * Parses a format string. The grammar of a conversion (after the leading {@code %}) is as
+     * follows, flags, width and precision may come in any order:
+     *
+     * conversion        = '%'
+     *                   | arg? (width | '.' precision | '-' | '+' | ' ' | '0' | '#')* type
+     * arg               = number '$'
+     * width             = number | argWidth
+     * precision         = number | argWidth | < empty >
+     * argWidth          = '*' arg?
+     * type              = < one of aAdifeEgGosxX >
+     */
+    //@formatter:on
+    private static final class Parser {
+        private final RBaseNode node;
+        private final String format;
+        private int pos;
+        /**
+         * The 1-based index of the next argument consumed implicitly.
+         */
+        private int nextArg = 1;
+        private int argCount;
+
+        Parser(RBaseNode node, String format) {
+            this.node = node;
+            this.format = format;
+        }
+
+        SprintfPlan parse() {
+            ArrayList<String> literals = new ArrayList<>();
+            ArrayList<Conversion> conversions = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int length = format.length();
+            while (pos < length) {
+                char c = format.charAt(pos++);
+                if (c != '%') {
+                    literal.append(c);
+                } else if (pos < length && format.charAt(pos) == '%') {
+                    literal.append('%');
+                    pos++;
+                } else {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    conversions.add(parseConversion(pos - 1));
+                }
+            }
+            literals.add(literal.toString());
+            return new SprintfPlan(format, literals.toArray(new String[literals.size()]), conversions.toArray(new Conversion[conversions.size()]), argCount);
+        }
+
+        private Conversion parseConversion(int start) {
+            int argIndex = 0;
+            if (isDigit(current(start)) && dollarFollows()) {
+                argIndex = number();
+                pos++; // skip '$'
+            }
+            int width = -1;
+            int widthArg = -1;
+            int precision = -1;
+            int precisionArg = -1;
+            boolean adjustLeft = false;
+            boolean alwaysSign = false;
+            boolean spacePrefix = false;
+            boolean padZero = false;
+            boolean alternate = false;
+            char c = current(start);
+            while (!isConversion(c)) {
+                switch (c) {
+                    case '-':
+                        adjustLeft = true;
+                        pos++;
+                        break;
+                    case '+':
+                        alwaysSign = true;
+                        pos++;
+                        break;
+                    case ' ':
+                        spacePrefix = true;
+                        pos++;
+                        break;
+                    case '0':
+                        padZero = true;
+                        pos++;
+                        break;
+                    case '#':
+                        alternate = true;
+                        pos++;
+                        break;
+                    case '*':
+                        pos++;
+                        widthArg = argWidth(start);
+                        break;
+                    case '.':
+                        pos++;
+                        if (isDigit(current(start))) {
+                            precision = number();
+                        } else if (current(start) == '*') {
+                            pos++;
+                            precisionArg = argWidth(start);
+                        } else {
+                            precision = 0;
+                        }
+                        break;
+                    default:
+                        if (!isDigit(c)) {
+                            throw unrecognized(start);
+                        }
+                        width = number();
+                        break;
+                }
+                c = current(start);
+            }
+            pos++;
+            if (argIndex == 0) {
+                argIndex = nextArg++;
+            }
+            argCount = Math.max(argCount, argIndex);
+            return new Conversion(c == 'i' ? 'd' : c, format.substring(start, pos), argIndex - 1, width, widthArg, precision, precisionArg, adjustLeft, alwaysSign, spacePrefix, padZero,
+                            alternate);
+        }
+
+        /**
+         * Parses the optional argument number after a {@code '*'} and returns the 0-based index of
+         * the argument giving the width or precision.
+         */
+        private int argWidth(int start) {
+            int index;
+            if (isDigit(current(start))) {
+                index = number();
+                if (current(start) != '$') {
+                    throw unrecognized(start);
+                }
+                pos++;
+            } else {
+                index = nextArg++;
+            }
+            argCount = Math.max(argCount, index);
+            return index - 1;
+        }
+
+        private char current(int start) {
+            if (pos >= format.length()) {
+                throw unrecognized(start);
+            }
+            return format.charAt(pos);
+        }
+
+        private boolean dollarFollows() {
+            int i = pos;
+            while (i < format.length() && isDigit(format.charAt(i))) {
+                i++;
+            }
+            return i < format.length() && format.charAt(i) == '$';
+        }
+
+        private int number() {
+            int result = 0;
+            while (pos < format.length() && isDigit(format.charAt(pos))) {
+                result = 10 * result + (format.charAt(pos++) - '0');
+            }
+            return result;
+        }
+
+        private RError unrecognized(int start) {
+            return node.error(Message.UNRECOGNIZED_FORMAT, format.substring(start));
+        }
+
+        private static boolean isConversion(char c) {
+            return "aAdifeEgGosxX".indexOf(c) != -1;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
@@ -22,35 +22,29 @@
  */
 package com.oracle.truffle.r.nodes.builtin.base;
 
-import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.api.nodes.Node;
-import com.oracle.truffle.api.profiles.ConditionProfile;
-import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
-import com.oracle.truffle.r.nodes.profile.VectorLengthProfile;
 import com.oracle.truffle.r.nodes.unary.UnaryArithmeticReduceNode;
 import com.oracle.truffle.r.nodes.unary.UnaryArithmeticReduceNode.ReduceSemantics;
 import com.oracle.truffle.r.nodes.unary.UnaryArithmeticReduceNodeGen;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
-import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
+import com.oracle.truffle.r.runtime.data.RDoubleArrayVectorData;
+import com.oracle.truffle.r.runtime.data.RDoubleNativeVectorData;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.altrep.AltrepUtilities;
 import com.oracle.truffle.r.runtime.data.nodes.GetReadonlyData;
 import com.oracle.truffle.r.runtime.ffi.AltrepRFFI;
-import com.oracle.truffle.r.runtime.ffi.MiscRFFI;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 import static com.oracle.truffle.r.runtime.RDispatch.SUMMARY_GROUP_GENERIC;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE_SUMMARY;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
-import static com.oracle.truffle.r.runtime.context.FastROptions.FullPrecisionSum;
 
 /**
  * Sum has combine semantics (TBD: exactly?) and uses a reduce operation on the resulting array.
@@ -73,49 +67,23 @@ public abstract class Sum extends RBuiltinNode.Arg2 {
         return new Object[]{RArgsValuesAndNames.EMPTY, RRuntime.LOGICAL_FALSE};
     }
 
-    protected static boolean isRDoubleVector(Object value) {
-        return value instanceof RDoubleVector;
-    }
-
-    protected boolean fullPrecision() {
-        return RContext.getInstance().getOption(FullPrecisionSum);
+    protected static boolean isDoubleArrayVector(Object value) {
+        if (value instanceof RDoubleVector) {
+            Object data = ((RDoubleVector) value).getData();
+            return data instanceof RDoubleArrayVectorData || data instanceof RDoubleNativeVectorData;
+        }
+        return false;
     }
 
-    @Child private MiscRFFI.ExactSumNode exactSumNode;
-
-    @Specialization(guards = {"fullPrecision()", "args.getLength() == 1", "isRDoubleVector(args.getArgument(0))", "naRm == cachedNaRm"})
+    /**
+     * Sums a double vector directly on its array, which allows to split long vectors across threads.
+     * Like in GNU R, the sum is accumulated with extended precision, see {@link AccurateSum}.
+     */
+    @Specialization(guards = {"args.getLength() == 1", "isDoubleArrayVector(args.getArgument(0))", "naRm == cachedNaRm"})
     protected double sumLengthOneRDoubleVector(RArgsValuesAndNames args, @SuppressWarnings("unused") boolean naRm,
                     @Cached("create()") GetReadonlyData.Double vectorToArrayNode,
-                    @Cached("naRm") boolean cachedNaRm,
-                    @Cached("create()") VectorLengthProfile lengthProfile,
-                    @Cached("createCountingProfile()") LoopConditionProfile loopProfile,
-                    @Cached("create()") NACheck na,
-                    @Cached("createBinaryProfile()") ConditionProfile needsExactSumProfile) {
-        RDoubleVector vector = (RDoubleVector) args.getArgument(0);
-        int length = lengthProfile.profile(vector.getLength());
-
-        if (needsExactSumProfile.profile(length >= 3)) {
-            if (exactSumNode == null) {
-                CompilerDirectives.transferToInterpreterAndInvalidate();
-                exactSumNode = (MiscRFFI.ExactSumNode) insert((Node) MiscRFFI.ExactSumNode.create());
-            }
-            return exactSumNode.execute(vectorToArrayNode.execute(vector), !vector.isComplete(), cachedNaRm);
-        } else {
-            na.enable(vector);
-            loopProfile.profileCounted(length);
-            double sum = 0;
-            for (int i = 0; loopProfile.inject(i < length); i++) {
-                double value = vector.getDataAt(i);
-                if (na.check(value)) {
-                    if (!cachedNaRm) {
-                        return RRuntime.DOUBLE_NA;
-                    }
-                } else {
-                    sum += value;
-                }
-            }
-            return sum;
-        }
+                    @Cached("naRm") boolean cachedNaRm) {
+        return AccurateSum.sum(vectorToArrayNode.execute((RDoubleVector) args.getArgument(0)), cachedNaRm);
     }
 
     /**
@@ -26,11 +26,13 @@ import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.GroupIndex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 
@@ -38,6 +40,7 @@ import com.oracle.truffle.r.runtime.data.RIntVector;
 public abstract class Tabulate extends RBuiltinNode.Arg2 {
 
     private final LoopConditionProfile loopProfile = LoopConditionProfile.createCountingProfile();
+    private final ConditionProfile cachedProfile = ConditionProfile.createBinaryProfile();
 
     static {
         Casts casts = new Casts(Tabulate.class);
@@ -47,6 +50,11 @@ public abstract class Tabulate extends RBuiltinNode.Arg2 {
 
     @Specialization
     protected RIntVector tabulate(RIntVector bin, int nBins) {
+        // the counts of a factor that has already been grouped by .fastr.grouped are known
+        GroupIndex index = GroupIndex.getCached(bin, nBins);
+        if (cachedProfile.profile(index != null)) {
+            return RDataFactory.createIntVector(index.getSizes().clone(), RDataFactory.COMPLETE_VECTOR);
+        }
         int[] ans = new int[nBins];
         loopProfile.profileCounted(bin.getLength());
         for (int i = 0; loopProfile.inject(i < bin.getLength()); i++) {
@@ -40,7 +40,9 @@ import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSet;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetCharacter;
 import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetInt;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
@@ -57,6 +59,9 @@ import com.oracle.truffle.r.runtime.data.RRawVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
+import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.nodes.DuplicationHelper;
 
 @RBuiltin(name = "unique", kind = INTERNAL, parameterNames = {"x", "incomparables", "fromLast", "nmax"}, behavior = PURE)
 // TODO A more efficient implementation is in order; GNU R uses hash tables so perhaps we should
@@ -66,6 +71,12 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
 
     private static final long BIG_THRESHOLD = 100;
 
+    /**
+     * The int set grows as needed, vectors with many duplicates would waste memory if it was sized
+     * by their length.
+     */
+    private static final int INITIAL_SET_CAPACITY = 64;
+
     private final ConditionProfile bigProfile = ConditionProfile.createBinaryProfile();
 
     static {
@@ -89,15 +100,46 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
         return vec;
     }
 
+    protected static boolean isFromLast(byte fromLast) {
+        return fromLast == RRuntime.LOGICAL_TRUE;
+    }
+
+    /**
+     * With {@code fromLast = TRUE} the last occurrences of the elements are kept, which is simply
+     * the elements not marked by {@code duplicated(x, fromLast = TRUE)}.
+     */
     @SuppressWarnings("unused")
-    @Specialization(limit = "getTypedVectorDataLibraryCacheSize()")
+    @Specialization(guards = "isFromLast(fromLast)")
+    @TruffleBoundary
+    protected RAbstractVector doUniqueFromLast(RAbstractAtomicVector vec, byte incomparables, byte fromLast, int nmax) {
+        int length = vec.getLength();
+        reportWork(length);
+        byte[] dupVec = DuplicationHelper.analyze(vec, null, false, true).getDupVec();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (dupVec[i] != RRuntime.LOGICAL_TRUE) {
+                count++;
+            }
+        }
+        RAbstractVector result = vec.createEmptySameType(count, vec.isComplete());
+        int ind = 0;
+        for (int i = 0; i < length; i++) {
+            if (dupVec[i] != RRuntime.LOGICAL_TRUE) {
+                result.transferElementSameType(ind++, vec, i);
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unused")
+    @Specialization(guards = "!isFromLast(fromLast)", limit = "getTypedVectorDataLibraryCacheSize()")
     protected RStringVector doUniqueCachedString(RStringVector vec, byte incomparables, byte fromLast, int nmax,
                     @CachedLibrary("vec.getData()") VectorDataLibrary vecLib) {
         Object vecData = vec.getData();
         int vecLength = vecLib.getLength(vecData);
         reportWork(vecLength);
         if (bigProfile.profile(vecLength * (long) vecLength > BIG_THRESHOLD)) {
-            NonRecursiveHashSet<String> set = new NonRecursiveHashSet<>(vecLength);
+            NonRecursiveHashSetCharacter set = new NonRecursiveHashSetCharacter(vecLength);
             String[] data = new String[vecLength];
             int ind = 0;
             SeqIterator it = vecLib.iterator(vecData);
@@ -254,14 +296,14 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     }
 
     @SuppressWarnings("unused")
-    @Specialization(limit = "getTypedVectorDataLibraryCacheSize()")
+    @Specialization(guards = "!isFromLast(fromLast)", limit = "getTypedVectorDataLibraryCacheSize()")
     protected RIntVector doUniqueCached(RIntVector vec, byte incomparables, byte fromLast, int nmax,
                     @CachedLibrary("vec.getData()") VectorDataLibrary vecLib) {
         Object vecData = vec.getData();
         int vecLength = vecLib.getLength(vecData);
         reportWork(vecLength);
         if (bigProfile.profile(vecLength * (long) vecLength > BIG_THRESHOLD)) {
-            NonRecursiveHashSetInt set = new NonRecursiveHashSetInt();
+            NonRecursiveHashSetInt set = new NonRecursiveHashSetInt(INITIAL_SET_CAPACITY);
             int[] data = new int[16];
             int ind = 0;
             SeqIterator it = vecLib.iterator(vecData);
@@ -336,57 +378,8 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
         return list.getLength() == 1;
     }
 
-    private static final class NonRecursiveHashSetInt {
-
-        private int[] keys;
-        private int size;
-        private boolean containsZero;
-
-        NonRecursiveHashSetInt() {
-            keys = new int[64];
-        }
-
-        public boolean add(int key) {
-            if (key == 0) {
-                if (containsZero) {
-                    return true;
-                } else {
-                    containsZero = true;
-                    return false;
-                }
-            }
-            int ind = Math.abs(Integer.hashCode(key)) & (keys.length - 1);
-            while (true) {
-                if (keys[ind] == 0) {
-                    keys[ind] = key;
-                    size++;
-                    if (size << 1 == keys.length) {
-                        int[] newKeys = new int[keys.length << 1];
-                        for (int rehashKey : keys) {
-                            if (rehashKey != 0) {
-                                int tmpInd = Math.abs(Integer.hashCode(rehashKey)) & (newKeys.length - 1);
-                                while (newKeys[tmpInd] != 0) {
-                                    assert newKeys[tmpInd] != rehashKey;
-                                    tmpInd = (tmpInd + 1) & (newKeys.length - 1);
-                                }
-                                newKeys[tmpInd] = rehashKey;
-                            }
-                        }
-
-                        keys = newKeys;
-                    }
-                    return false;
-                } else if (key == keys[ind]) {
-                    return true;
-                } else {
-                    ind = (ind + 1) & (keys.length - 1);
-                }
-            }
-        }
-    }
-
     @SuppressWarnings("unused")
-    @Specialization
+    @Specialization(guards = "!isFromLast(fromLast)")
     protected RDoubleVector doUnique(RDoubleVector vec, byte incomparables, byte fromLast, int nmax) {
         reportWork(vec.getLength());
         if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
@@ -413,7 +406,7 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     }
 
     @SuppressWarnings("unused")
-    @Specialization
+    @Specialization(guards = "!isFromLast(fromLast)")
     protected RLogicalVector doUnique(RLogicalVector vec, byte incomparables, byte fromLast, int nmax) {
         reportWork(vec.getLength());
         ByteArray dataList = new ByteArray(vec.getLength());
@@ -427,7 +420,7 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     }
 
     @SuppressWarnings("unused")
-    @Specialization
+    @Specialization(guards = "!isFromLast(fromLast)")
     protected RComplexVector doUnique(RComplexVector vec, byte incomparables, byte fromLast, int nmax) {
         reportWork(vec.getLength());
         if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
@@ -455,7 +448,7 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     }
 
     @SuppressWarnings("unused")
-    @Specialization
+    @Specialization(guards = "!isFromLast(fromLast)")
     protected RRawVector doUnique(RRawVector vec, byte incomparables, byte fromLast, int nmax,
                     @Cached("createBinaryProfile()") ConditionProfile needsCopyProfile) {
         reportWork(vec.getLength());
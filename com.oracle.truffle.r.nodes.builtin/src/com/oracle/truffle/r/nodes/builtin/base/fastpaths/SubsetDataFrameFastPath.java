@@ -22,45 +22,550 @@
  */
 package com.oracle.truffle.r.nodes.builtin.base.fastpaths;
 
-import com.oracle.truffle.api.dsl.Cached;
-import com.oracle.truffle.api.dsl.Fallback;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
-import com.oracle.truffle.r.nodes.access.vector.ElementAccessMode;
-import com.oracle.truffle.r.nodes.access.vector.ExtractVectorNode;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.r.nodes.function.PromiseHelperNode;
+import com.oracle.truffle.r.nodes.function.RMissingHelper;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RVisibility;
 import com.oracle.truffle.r.runtime.builtins.FastPathFactory;
-import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
-import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
+import com.oracle.truffle.r.runtime.data.RAttributesLayout;
+import com.oracle.truffle.r.runtime.data.RComplexVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.REmpty;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.RPromise;
+import com.oracle.truffle.r.runtime.data.RRawVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.data.nodes.ShareObjectNode;
 import com.oracle.truffle.r.runtime.nodes.RFastPathNode;
-import java.util.function.Supplier;
 
+/**
+ * Fast path for {@code x[i, j, drop]} on data frames, the arguments being those of
+ * {@code `[.data.frame`}. The rows are resolved to positions once and every selected column is
+ * gathered from them directly instead of going through the per column dispatch and the row name
+ * handling of the R implementation. Automatic (compact) row names are not materialized, the
+ * positions become the new row names, which is what {@code attr(x, "row.names")[i]} gives.
+ *
+ * Only the common shapes are handled: positive or negative numeric row indices without duplicates
+ * or logical row indices of full length, numeric, logical or character column indices (or none)
+ * selecting distinct columns, and plain atomic, factor, {@code Date} and {@code POSIXct} columns.
+ * Anything else, including {@code x[j]} list-style indexing, makes the fast path return
+ * {@code null}, which reverts the call site to the R implementation.
+ */
 public abstract class SubsetDataFrameFastPath extends RFastPathNode {
 
-    @Child private ExtractVectorNode extractNode = ExtractVectorNode.create(ElementAccessMode.SUBSCRIPT, false);
+    /**
+     * Frames with at least this many cells are gathered column-parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    @Child private PromiseHelperNode promiseHelper;
+
+    @Specialization
+    protected Object subset(VirtualFrame frame, Object x, Object i, Object j, Object drop) {
+        Object df = force(frame, x);
+        if (!(df instanceof RList)) {
+            return null;
+        }
+        // i and j are forced in the same order as by the R implementation
+        Object rows = force(frame, i);
+        if (rows == null || rows == RMissing.instance || rows == REmpty.instance) {
+            return null;
+        }
+        Object cols = force(frame, j);
+        if (cols == null || cols == RMissing.instance) {
+            // x[i] is list-style indexing
+            return null;
+        }
+        Object dropValue = force(frame, drop);
+        if (dropValue == null) {
+            return null;
+        }
+        return subsetDataFrame((RList) df, rows, cols, dropValue);
+    }
+
+    /**
+     * Returns the value of the argument or {@code null} if it is a promise of a missing argument,
+     * which the R implementation would treat as missing.
+     */
+    private Object force(VirtualFrame frame, Object arg) {
+        if (arg instanceof RPromise) {
+            RPromise promise = (RPromise) arg;
+            if (!promise.isEvaluated() && RMissingHelper.isMissingName(promise)) {
+                return null;
+            }
+            if (promiseHelper == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                promiseHelper = insert(new PromiseHelperNode());
+            }
+            return promiseHelper.evaluate(frame, promise);
+        }
+        return arg;
+    }
 
-    @Specialization(guards = {"positions.getLength() == 2", "positions.getSignature().getNonNullCount() == 0"})
-    protected Object subset2(RAbstractListVector df, RArgsValuesAndNames positions, Object exact,
-                    @Cached("create()") AsScalarNode asScalar1,
-                    @Cached("create()") AsScalarNode asScalar2) {
-        Object pos2 = asScalar2.execute(positions.getArgument(1));
-        if (pos2 == null) {
+    @TruffleBoundary
+    private static Object subsetDataFrame(RList df, Object i, Object j, Object drop) {
+        if (df.getAttributes() == null) {
+            return null;
+        }
+        RStringVector names = null;
+        Object rowNames = null;
+        RStringVector classAttr = null;
+        for (RAttributesLayout.RAttribute attr : RAttributesLayout.asIterable(df.getAttributes())) {
+            String name = attr.getName();
+            if (name.equals(RRuntime.NAMES_ATTR_KEY)) {
+                names = (RStringVector) attr.getValue();
+            } else if (name.equals(RRuntime.ROWNAMES_ATTR_KEY)) {
+                rowNames = attr.getValue();
+            } else if (name.equals(RRuntime.CLASS_ATTR_KEY)) {
+                classAttr = (RStringVector) attr.getValue();
+            } else {
+                return null;
+            }
+        }
+        if (names == null || rowNames == null || classAttr == null || hasNA(names)) {
+            return null;
+        }
+        int nrow = getRowCount(rowNames);
+        if (nrow < 0) {
+            return null;
+        }
+        int[] positions = getRowPositions(i, nrow);
+        int[] columns = getColumnIndices(j, names);
+        if (positions == null || columns == null || columns.length == 0) {
+            return null;
+        }
+        if (j != REmpty.instance && columns.length > 1 && hasDuplicateNames(names, columns)) {
+            // the R implementation makes the names of the selected columns unique
             return null;
         }
-        Object extracted = extractNode.apply(df, new Object[]{pos2}, exact, RRuntime.LOGICAL_TRUE);
-        Object pos1 = asScalar1.execute(positions.getArgument(0));
-        if (pos1 == null) {
+        boolean dropResult;
+        if (drop == RMissing.instance) {
+            dropResult = columns.length == 1;
+        } else if (drop instanceof Byte || (drop instanceof RLogicalVector && ((RLogicalVector) drop).getLength() == 1)) {
+            byte value = drop instanceof Byte ? (byte) drop : ((RLogicalVector) drop).getDataAt(0);
+            if (RRuntime.isNA(value)) {
+                return null;
+            }
+            dropResult = RRuntime.fromLogical(value);
+            if (dropResult && columns.length > 1 && positions.length == 1) {
+                // the R implementation returns a plain list in this case
+                return null;
+            }
+        } else {
             return null;
         }
-        return extractNode.apply(extracted, new Object[]{pos1}, exact, RRuntime.LOGICAL_TRUE);
+
+        RAbstractVector[] selected = new RAbstractVector[columns.length];
+        Object[] sources = new Object[columns.length];
+        for (int k = 0; k < columns.length; k++) {
+            Object column = df.getDataAt(columns[k]);
+            if (!isSupportedColumn(column, nrow)) {
+                return null;
+            }
+            selected[k] = (RAbstractVector) column;
+            sources[k] = getData(selected[k]);
+        }
+
+        Object[] gathered = new Object[columns.length];
+        long cells = (long) positions.length * columns.length;
+        int threads = cells >= PARALLEL_THRESHOLD && columns.length > 1 ? RParallel.getThreads() : 1;
+        RParallel.forRange(columns.length, threads, 1, (from, to) -> {
+            for (int k = from; k < to; k++) {
+                gathered[k] = gather(sources[k], positions);
+            }
+        });
+
+        Object[] data = new Object[columns.length];
+        for (int k = 0; k < columns.length; k++) {
+            data[k] = createColumn(selected[k], gathered[k]);
+        }
+        if (dropResult && columns.length == 1) {
+            return data[0];
+        }
+        String[] resultNames = new String[columns.length];
+        for (int k = 0; k < columns.length; k++) {
+            resultNames[k] = names.getDataAt(columns[k]);
+        }
+        RList result = RDataFactory.createList(data, RDataFactory.createStringVector(resultNames, RDataFactory.COMPLETE_VECTOR));
+        result.setRowNames(getRowNames(rowNames, positions));
+        result.setClassAttr(ShareObjectNode.share(classAttr));
+        return result;
+    }
+
+    /**
+     * Returns the number of rows given by the row names, which may be in the compact form
+     * {@code c(NA, n)}, or -1 if they are of an unexpected type.
+     */
+    private static int getRowCount(Object rowNames) {
+        if (rowNames instanceof RIntVector) {
+            RIntVector vec = (RIntVector) rowNames;
+            if (vec.getLength() == 2 && RRuntime.isNA(vec.getDataAt(0))) {
+                return Math.abs(vec.getDataAt(1));
+            }
+            return vec.getLength();
+        } else if (rowNames instanceof RDoubleVector) {
+            RDoubleVector vec = (RDoubleVector) rowNames;
+            if (vec.getLength() == 2 && RRuntime.isNA(vec.getDataAt(0))) {
+                return Math.abs((int) vec.getDataAt(1));
+            }
+        } else if (rowNames instanceof RStringVector) {
+            return ((RStringVector) rowNames).getLength();
+        }
+        return -1;
+    }
+
+    private static RAbstractVector getRowNames(Object rowNames, int[] positions) {
+        if (rowNames instanceof RStringVector) {
+            String[] names = ((RStringVector) rowNames).getReadonlyStringData();
+            String[] result = new String[positions.length];
+            for (int k = 0; k < positions.length; k++) {
+                result[k] = names[positions[k] - 1];
+            }
+            return RDataFactory.createStringVector(result, RDataFactory.COMPLETE_VECTOR);
+        }
+        RIntVector vec = rowNames instanceof RIntVector ? (RIntVector) rowNames : null;
+        if (vec == null || (vec.getLength() == 2 && RRuntime.isNA(vec.getDataAt(0)))) {
+            // automatic row names 1..n, the selected ones are the positions themselves
+            return RDataFactory.createIntVector(positions, RDataFactory.COMPLETE_VECTOR);
+        }
+        int[] names = vec.getReadonlyData();
+        int[] result = new int[positions.length];
+        for (int k = 0; k < positions.length; k++) {
+            result[k] = names[positions[k] - 1];
+        }
+        return RDataFactory.createIntVector(result, vec.isComplete());
+    }
+
+    /**
+     * Returns the 1-based positions of the selected rows or {@code null} if the index is not
+     * handled. Duplicate rows would need unique row names to be made up and are not handled.
+     */
+    private static int[] getRowPositions(Object i, int nrow) {
+        if (i instanceof RLogicalVector) {
+            RLogicalVector vec = (RLogicalVector) i;
+            if (vec.getAttributes() != null || vec.getLength() != nrow) {
+                return null;
+            }
+            byte[] data = vec.getReadonlyData();
+            int count = 0;
+            for (int k = 0; k < nrow; k++) {
+                if (RRuntime.isNA(data[k])) {
+                    return null;
+                }
+                count += data[k];
+            }
+            int[] positions = new int[count];
+            for (int k = 0, p = 0; k < nrow; k++) {
+                if (data[k] == RRuntime.LOGICAL_TRUE) {
+                    positions[p++] = k + 1;
+                }
+            }
+            return positions;
+        }
+        int[] index = getNumericIndex(i);
+        return index == null ? null : resolveIndex(index, nrow);
     }
 
-    @Fallback
-    @SuppressWarnings("unused")
-    protected Object fallback(Object df, Object positions, Object exact) {
+    /**
+     * Returns the 0-based indices of the selected columns or {@code null} if the index is not
+     * handled.
+     */
+    private static int[] getColumnIndices(Object j, RStringVector names) {
+        int ncol = names.getLength();
+        if (j == REmpty.instance) {
+            int[] columns = new int[ncol];
+            for (int k = 0; k < ncol; k++) {
+                columns[k] = k;
+            }
+            return columns;
+        }
+        int[] positions;
+        if (j instanceof String || j instanceof RStringVector) {
+            String[] selected = j instanceof String ? new String[]{(String) j} : ((RStringVector) j).getReadonlyStringData();
+            if (j instanceof RStringVector && ((RStringVector) j).getAttributes() != null) {
+                return null;
+            }
+            HashMap<String, Integer> lookup = new HashMap<>();
+            for (int k = ncol - 1; k >= 0; k--) {
+                // the first of duplicate names wins
+                lookup.put(names.getDataAt(k), k + 1);
+            }
+            positions = new int[selected.length];
+            for (int k = 0; k < selected.length; k++) {
+                Integer column = RRuntime.isNA(selected[k]) ? null : lookup.get(selected[k]);
+                if (column == null) {
+                    return null;
+                }
+                positions[k] = column;
+            }
+            positions = resolveIndex(positions, ncol);
+        } else if (j instanceof RLogicalVector) {
+            positions = getRowPositions(j, ncol);
+        } else {
+            int[] index = getNumericIndex(j);
+            positions = index == null ? null : resolveIndex(index, ncol);
+        }
+        if (positions == null) {
+            return null;
+        }
+        for (int k = 0; k < positions.length; k++) {
+            positions[k]--;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the numeric index as integers, truncated like R does, or {@code null} if it is not a
+     * numeric vector without attributes or contains values that do not fit into an integer.
+     */
+    private static int[] getNumericIndex(Object index) {
+        if (index instanceof Integer) {
+            return new int[]{(int) index};
+        } else if (index instanceof Double) {
+            double value = (double) index;
+            return value > Integer.MIN_VALUE && value < Integer.MAX_VALUE ? new int[]{(int) value} : null;
+        } else if (index instanceof RIntVector) {
+            RIntVector vec = (RIntVector) index;
+            return vec.getAttributes() == null ? vec.getReadonlyData() : null;
+        } else if (index instanceof RDoubleVector) {
+            RDoubleVector vec = (RDoubleVector) index;
+            if (vec.getAttributes() != null) {
+                return null;
+            }
+            double[] data = vec.getReadonlyData();
+            int[] result = new int[data.length];
+            for (int k = 0; k < data.length; k++) {
+                double value = data[k];
+                if (!(value > Integer.MIN_VALUE && value < Integer.MAX_VALUE)) {
+                    // also NA and NaN
+                    return null;
+                }
+                result[k] = (int) value;
+            }
+            return result;
+        }
         return null;
     }
 
+    /**
+     * Resolves an all positive or all negative index against {@code n} elements into distinct
+     * 1-based positions. Returns {@code null} for {@code NA}, zero, out of range, mixed or
+     * duplicate indices.
+     */
+    private static int[] resolveIndex(int[] index, int n) {
+        if (index.length == 0) {
+            return null;
+        }
+        boolean[] seen = new boolean[n];
+        if (index[0] > 0) {
+            for (int k = 0; k < index.length; k++) {
+                int value = index[k];
+                if (value <= 0 || value > n || seen[value - 1]) {
+                    return null;
+                }
+                seen[value - 1] = true;
+            }
+            return index.clone();
+        }
+        int excluded = 0;
+        for (int k = 0; k < index.length; k++) {
+            int value = index[k];
+            if (value >= 0 || RRuntime.isNA(value)) {
+                return null;
+            }
+            if (-value <= n && !seen[-value - 1]) {
+                seen[-value - 1] = true;
+                excluded++;
+            }
+        }
+        int[] positions = new int[n - excluded];
+        for (int k = 0, p = 0; k < n; k++) {
+            if (!seen[k]) {
+                positions[p++] = k + 1;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Atomic columns are supported if they have no attributes (in particular no names or
+     * dimensions), or they are factors, {@code Date} or {@code POSIXct} columns, whose attributes
+     * are kept by the respective {@code [} methods.
+     */
+    private static boolean isSupportedColumn(Object column, int nrow) {
+        if (!(column instanceof RIntVector || column instanceof RDoubleVector || column instanceof RLogicalVector || column instanceof RStringVector || column instanceof RComplexVector ||
+                        column instanceof RRawVector)) {
+            return false;
+        }
+        RAbstractVector vec = (RAbstractVector) column;
+        if (vec.getLength() != nrow) {
+            return false;
+        }
+        if (vec.getAttributes() == null || vec.getAttributes().getShape().getPropertyCount() == 0) {
+            return true;
+        }
+        RStringVector classAttr = vec.getClassAttr();
+        boolean factor = column instanceof RIntVector && (hasClass(classAttr, "factor") || hasClass(classAttr, "ordered", "factor"));
+        boolean date = (column instanceof RDoubleVector || column instanceof RIntVector) && hasClass(classAttr, "Date");
+        boolean posixct = (column instanceof RDoubleVector || column instanceof RIntVector) && hasClass(classAttr, "POSIXct", "POSIXt");
+        if (!factor && !date && !posixct) {
+            return false;
+        }
+        for (RAttributesLayout.RAttribute attr : RAttributesLayout.asIterable(vec.getAttributes())) {
+            String name = attr.getName();
+            if (!(name.equals(RRuntime.CLASS_ATTR_KEY) || (factor && (name.equals(RRuntime.LEVELS_ATTR_KEY) || name.equals("contrasts"))) || (posixct && name.equals("tzone")))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasClass(RStringVector classAttr, String... expected) {
+        if (classAttr == null || classAttr.getLength() != expected.length) {
+            return false;
+        }
+        for (int k = 0; k < expected.length; k++) {
+            if (!expected[k].equals(classAttr.getDataAt(k))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasNA(RStringVector names) {
+        for (int k = 0; k < names.getLength(); k++) {
+            if (RRuntime.isNA(names.getDataAt(k))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasDuplicateNames(RStringVector names, int[] columns) {
+        HashSet<String> seen = new HashSet<>();
+        for (int column : columns) {
+            if (!seen.add(names.getDataAt(column))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object getData(RAbstractVector column) {
+        if (column instanceof RIntVector) {
+            return ((RIntVector) column).getReadonlyData();
+        } else if (column instanceof RDoubleVector) {
+            return ((RDoubleVector) column).getReadonlyData();
+        } else if (column instanceof RLogicalVector) {
+            return ((RLogicalVector) column).getReadonlyData();
+        } else if (column instanceof RStringVector) {
+            return ((RStringVector) column).getReadonlyStringData();
+        } else if (column instanceof RComplexVector) {
+            return new ComplexData(((RComplexVector) column).getReadonlyData());
+        } else {
+            return ((RRawVector) column).getReadonlyData();
+        }
+    }
+
+    /**
+     * Distinguishes the interleaved complex data from double data.
+     */
+    private static final class ComplexData {
+        private final double[] data;
+
+        ComplexData(double[] data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * Gathers the elements at {@code positions}. Runs on worker threads, so it only touches Java
+     * arrays.
+     */
+    private static Object gather(Object source, int[] positions) {
+        int n = positions.length;
+        if (source instanceof int[]) {
+            int[] src = (int[]) source;
+            int[] dst = new int[n];
+            for (int k = 0; k < n; k++) {
+                dst[k] = src[positions[k] - 1];
+            }
+            return dst;
+        } else if (source instanceof double[]) {
+            double[] src = (double[]) source;
+            double[] dst = new double[n];
+            for (int k = 0; k < n; k++) {
+                dst[k] = src[positions[k] - 1];
+            }
+            return dst;
+        } else if (source instanceof byte[]) {
+            byte[] src = (byte[]) source;
+            byte[] dst = new byte[n];
+            for (int k = 0; k < n; k++) {
+                dst[k] = src[positions[k] - 1];
+            }
+            return dst;
+        } else if (source instanceof String[]) {
+            String[] src = (String[]) source;
+            String[] dst = new String[n];
+            for (int k = 0; k < n; k++) {
+                dst[k] = src[positions[k] - 1];
+            }
+            return dst;
+        } else {
+            double[] src = ((ComplexData) source).data;
+            double[] dst = new double[n * 2];
+            for (int k = 0; k < n; k++) {
+                int from = (positions[k] - 1) * 2;
+                dst[k * 2] = src[from];
+                dst[k * 2 + 1] = src[from + 1];
+            }
+            return dst;
+        }
+    }
+
+    private static RAbstractVector createColumn(RAbstractVector column, Object data) {
+        boolean complete = column.isComplete();
+        RAbstractVector result;
+        if (column instanceof RIntVector) {
+            result = RDataFactory.createIntVector((int[]) data, complete);
+        } else if (column instanceof RDoubleVector) {
+            result = RDataFactory.createDoubleVector((double[]) data, complete);
+        } else if (column instanceof RLogicalVector) {
+            result = RDataFactory.createLogicalVector((byte[]) data, complete);
+        } else if (column instanceof RStringVector) {
+            result = RDataFactory.createStringVector((String[]) data, complete);
+        } else if (column instanceof RComplexVector) {
+            result = RDataFactory.createComplexVector((double[]) data, complete);
+        } else {
+            result = RDataFactory.createRawVector((byte[]) data);
+        }
+        if (column.getAttributes() != null) {
+            for (RAttributesLayout.RAttribute attr : RAttributesLayout.asIterable(column.getAttributes())) {
+                if (attr.getName().equals(RRuntime.CLASS_ATTR_KEY)) {
+                    result.setClassAttr(ShareObjectNode.share((RStringVector) attr.getValue()));
+                } else {
+                    result.setAttr(attr.getName(), ShareObjectNode.share(attr.getValue()));
+                }
+            }
+        }
+        return result;
+    }
+
     public static FastPathFactory createFastPathFactory(Supplier<RFastPathNode> factory) {
         return new FastPathFactory() {
             @Override
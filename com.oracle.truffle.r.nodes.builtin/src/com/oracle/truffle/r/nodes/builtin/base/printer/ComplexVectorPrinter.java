@@ -419,8 +419,11 @@ public final class ComplexVectorPrinter extends VectorPrinter<RComplexVector> {
             int g = cvm.maxWidth - cvm.wr - cvm.wi - 2;
             if (g > 0) {
                 // fill the remaining space by blanks to fit the maxWidth
-                String blanks = String.format("%" + g + "s", "");
-                s = blanks + s;
+                StringBuilder str = new StringBuilder(g + s.length());
+                for (int i = 0; i < g; i++) {
+                    str.append(' ');
+                }
+                s = str.append(s).toString();
             }
             return s;
         }
@@ -22,6 +22,7 @@ package com.oracle.truffle.r.nodes.builtin.base.printer;
 import java.io.IOException;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.DoubleFormatter;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -117,6 +118,7 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
         rgt = mxl = mxsl = mxns = RRuntime.INT_MIN_VALUE;
         mnl = RRuntime.INT_MAX_VALUE;
 
+        DoubleFormatter fmt = DoubleFormatter.getInstance();
         for (int i = 0; i < n; i++) {
             double xi = access.getDouble(iter, offs + i);
             if (!RRuntime.isFinite(xi)) {
@@ -130,11 +132,18 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
                     neginf = true;
                 }
             } else {
-                ScientificDouble sd = scientific(xi, digits);
-                sgn = sd.sgn;
-                nsig = sd.nsig;
-                kpower = sd.kpower;
-                roundingwidens = sd.roundingwidens;
+                if (digits >= 1 && digits <= DoubleFormatter.DBL_DIG && fmt.significant(Math.abs(xi), digits)) {
+                    sgn = xi < 0 ? 1 : 0;
+                    nsig = fmt.getSignificantDigits();
+                    kpower = fmt.getExponent();
+                    roundingwidens = DoubleFormatter.roundingWidens(Math.abs(xi), kpower, digits);
+                } else {
+                    ScientificDouble sd = scientific(xi, digits);
+                    sgn = sd.sgn;
+                    nsig = sd.nsig;
+                    kpower = sd.kpower;
+                    roundingwidens = sd.roundingwidens;
+                }
 
                 left = kpower + 1;
                 if (roundingwidens) {
@@ -267,6 +276,14 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
          *
          * where |x| = alpha * 10^kpower and 1 <= alpha < 10
          */
+        if (digits >= 1 && digits <= DoubleFormatter.DBL_DIG && RRuntime.isFinite(x)) {
+            DoubleFormatter fmt = DoubleFormatter.getInstance();
+            double abs = Math.abs(x);
+            if (fmt.significant(abs, digits)) {
+                int exponent = fmt.getExponent();
+                return new ScientificDouble(x < 0 ? 1 : 0, exponent, fmt.getSignificantDigits(), DoubleFormatter.roundingWidens(abs, exponent, digits));
+            }
+        }
         double alpha;
         double r;
         int kp;
@@ -379,6 +396,10 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
 
     @TruffleBoundary
     public static String encodeReal(double x, int digits, char cdec, int sciPen, String naString) {
+        String result = DoubleFormatter.encode(x, digits, sciPen, cdec, naString);
+        if (result != null) {
+            return result;
+        }
         RDoubleVector value = RDataFactory.createDoubleVectorFromScalar(x);
         VectorAccess access = value.slowPathAccess();
         try (RandomIterator iter = access.randomAccess(value)) {
@@ -421,7 +442,31 @@ public final class DoubleVectorPrinter extends VectorPrinter<RDoubleVector> {
     static String encodeReal(double initialX, int w, int d, int e, char cdec, String naString) {
         /* IEEE allows signed zeros (yuck!) */
         double x = RRuntime.normalizeZero(initialX);
+        if (RRuntime.isFinite(x)) {
+            DoubleFormatter fmt = DoubleFormatter.getInstance();
+            double abs = Math.abs(x);
+            if (e != 0 ? fmt.significant(abs, d + 1) : fmt.fixed(abs, d)) {
+                fmt.clear();
+                if (x < 0) {
+                    fmt.append('-');
+                }
+                if (e != 0) {
+                    fmt.appendScientific(d, cdec, 'e');
+                } else {
+                    fmt.appendFixed(d, cdec);
+                }
+                return fmt.padLeft(w).toString();
+            }
+        }
+        return encodeRealByScaling(x, w, d, e, cdec, naString);
+    }
 
+    /**
+     * Fallback of {@link #encodeReal(double, int, int, int, char, String)} for non-finite values
+     * and for values that need more digits than {@link DoubleFormatter} produces exactly.
+     */
+    private static String encodeRealByScaling(double initialX, int w, int d, int e, char cdec, String naString) {
+        double x = initialX;
         StringBuilder str = new StringBuilder(w);
         if (!RRuntime.isFinite(x)) {
             String id;
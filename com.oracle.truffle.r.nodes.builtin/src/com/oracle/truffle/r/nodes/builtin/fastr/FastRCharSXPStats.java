@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.CharSXPWrapper;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+
+/**
+ * Reports the state of the process-wide {@code CHARSXP} interning table used by the native
+ * interface: its current size and the number of lookups that found ({@code hits}) or had to create
+ * ({@code misses}) a wrapper.
+ */
+@RBuiltin(name = ".fastr.charsxp.stats", kind = PRIMITIVE, parameterNames = {}, behavior = COMPLEX)
+public abstract class FastRCharSXPStats extends RBuiltinNode.Arg0 {
+
+    static {
+        Casts.noCasts(FastRCharSXPStats.class);
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RList stats() {
+        Object[] data = new Object[]{CharSXPWrapper.getInstancesCount(), (double) CharSXPWrapper.getHits(), (double) CharSXPWrapper.getMisses()};
+        return RDataFactory.createList(data, RDataFactory.createStringVector(new String[]{"size", "hits", "misses"}, RDataFactory.COMPLETE_VECTOR));
+    }
+}
@@ -35,6 +35,8 @@ import static com.oracle.truffle.r.runtime.builtins.RBehavior.READS_STATE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
 import static com.oracle.truffle.r.runtime.context.FastROptions.SharedContexts;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import org.graalvm.polyglot.Context;
 
@@ -53,6 +55,7 @@ import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RSource;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.context.ChildContextInfo;
+import com.oracle.truffle.r.runtime.context.ContextPool;
 import com.oracle.truffle.r.runtime.context.EvalThread;
 import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.context.RContext;
@@ -83,6 +86,10 @@ public class FastRContext {
                                             equalTo(RContext.ContextKind.SHARE_PARENT_RO.name()).or(equalTo(RContext.ContextKind.SHARE_ALL.name())))));
         }
 
+        private static void pooled(Casts casts) {
+            casts.arg("pooled").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
+        }
+
         private static void key(Casts casts) {
             casts.arg("key").asIntegerVector().mustBe(notEmpty()).findFirst();
         }
@@ -182,23 +189,27 @@ public class FastRContext {
      * which is done by {@code .fastr.context.join}. The result is a vector that should be passed to
      * {@code .fastr.context.join}.
      *
+     * If {@code pooled} is {@code TRUE}, the expressions are evaluated in warm contexts taken from
+     * the {@link ContextPool} and the contexts are returned to the pool by
+     * {@code .fastr.context.join}.
      */
-    @RBuiltin(name = ".fastr.context.spawn", kind = PRIMITIVE, parameterNames = {"exprs", "kind"}, behavior = COMPLEX)
-    public abstract static class Spawn extends RBuiltinNode.Arg2 {
+    @RBuiltin(name = ".fastr.context.spawn", kind = PRIMITIVE, parameterNames = {"exprs", "kind", "pooled"}, behavior = COMPLEX)
+    public abstract static class Spawn extends RBuiltinNode.Arg3 {
         @Override
         public Object[] getDefaultParameterValues() {
-            return new Object[]{RMissing.instance, FastROptions.sharedContextsOptionValue ? "SHARE_ALL" : "SHARE_NOTHING"};
+            return new Object[]{RMissing.instance, FastROptions.sharedContextsOptionValue ? "SHARE_ALL" : "SHARE_NOTHING", RRuntime.LOGICAL_FALSE};
         }
 
         static {
             Casts casts = new Casts(Spawn.class);
             CastsHelper.exprs(casts);
             CastsHelper.kind(casts);
+            CastsHelper.pooled(casts);
         }
 
         @Specialization
         @TruffleBoundary
-        protected RIntVector spawn(RStringVector exprs, String kind) {
+        protected RIntVector spawn(RStringVector exprs, String kind, boolean pooled) {
             RContext.ContextKind contextKind = RContext.ContextKind.valueOf(kind);
             if (RContext.getInstance().getOption(SharedContexts) && contextKind != ContextKind.SHARE_ALL) {
                 throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "Only shared contexts are allowed");
@@ -206,6 +217,14 @@ public class FastRContext {
             handleSharedContexts(contextKind);
 
             int length = exprs.getLength();
+            if (pooled) {
+                ContextPool.Worker[] workers = submitPooled(exprs, contextKind);
+                int[] data = new int[length];
+                for (int i = 0; i < length; i++) {
+                    data[i] = workers[i].getContextId();
+                }
+                return RDataFactory.createIntVector(data, RDataFactory.COMPLETE_VECTOR);
+            }
             EvalThread[] threads = new EvalThread[length];
             int[] data = new int[length];
             int[] multiSlotIndices = new int[length];
@@ -250,12 +269,18 @@ public class FastRContext {
         @TruffleBoundary
         protected RNull eval(RIntVector handle) {
             try {
+                ContextPool pool = RContext.getInstance().contextPool;
                 int[] multiSlotIndices = new int[handle.getLength()];
+                int multiSlotCount = 0;
                 for (int i = 0; i < handle.getLength(); i++) {
                     int id = handle.getDataAt(i);
+                    if (pool.join(id) != null) {
+                        // the context stays alive in the pool, its multi slots must be kept
+                        continue;
+                    }
                     Thread thread = RContext.getInstance().threads.get(id);
                     if (EvalThread.idToMultiSlotTable.containsKey(id)) {
-                        multiSlotIndices[i] = EvalThread.idToMultiSlotTable.remove(id);
+                        multiSlotIndices[multiSlotCount++] = EvalThread.idToMultiSlotTable.remove(id);
                     }
                     if (thread == null) {
                         // already done
@@ -267,8 +292,8 @@ public class FastRContext {
                 // If all eval threads died, completely remove multi slot data.
                 if (EvalThread.threadCnt.get() == 0) {
                     REnvironment.cleanupSearchpathFromMultiSlot();
-                } else {
-                    REnvironment.cleanupSearchpathFromMultiSlot(multiSlotIndices);
+                } else if (multiSlotCount > 0) {
+                    REnvironment.cleanupSearchpathFromMultiSlot(Arrays.copyOf(multiSlotIndices, multiSlotCount));
                 }
             } catch (InterruptedException ex) {
                 throw error(RError.Message.GENERIC, "error finishing eval thread");
@@ -313,23 +338,27 @@ public class FastRContext {
      * level list has the same number of entries as the number of contexts. The sublist contains the
      * result of the evaluation with name "result". It may also have an attribute "error" if the
      * evaluation threw an exception, in which case the result will be NA.
+     *
+     * If {@code pooled} is {@code TRUE}, the evaluations run in warm contexts taken from the
+     * {@link ContextPool}, which are returned to the pool afterwards instead of being closed.
      */
-    @RBuiltin(name = ".fastr.context.eval", kind = PRIMITIVE, parameterNames = {"exprs", "kind"}, behavior = COMPLEX)
-    public abstract static class Eval extends RBuiltinNode.Arg2 {
+    @RBuiltin(name = ".fastr.context.eval", kind = PRIMITIVE, parameterNames = {"exprs", "kind", "pooled"}, behavior = COMPLEX)
+    public abstract static class Eval extends RBuiltinNode.Arg3 {
         @Override
         public Object[] getDefaultParameterValues() {
-            return new Object[]{RMissing.instance, RContext.getInstance().getOption(SharedContexts) ? "SHARE_ALL" : "SHARE_NOTHING"};
+            return new Object[]{RMissing.instance, RContext.getInstance().getOption(SharedContexts) ? "SHARE_ALL" : "SHARE_NOTHING", RRuntime.LOGICAL_FALSE};
         }
 
         static {
             Casts casts = new Casts(Eval.class);
             CastsHelper.exprs(casts);
             CastsHelper.kind(casts);
+            CastsHelper.pooled(casts);
         }
 
         @Specialization
         @TruffleBoundary
-        protected Object eval(RStringVector exprs, String kind) {
+        protected Object eval(RStringVector exprs, String kind, boolean pooled) {
             RContext.ContextKind contextKind = RContext.ContextKind.valueOf(kind);
             if (RContext.getInstance().getOption(SharedContexts) && contextKind != ContextKind.SHARE_ALL) {
                 throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "Only shared contexts are allowed");
@@ -338,7 +367,16 @@ public class FastRContext {
 
             int length = exprs.getLength();
             Object[] results = new Object[length];
-            if (length == 1) {
+            if (pooled) {
+                ContextPool.Worker[] workers = submitPooled(exprs, contextKind);
+                try {
+                    for (int i = 0; i < length; i++) {
+                        results[i] = RContext.getInstance().contextPool.join(workers[i].getContextId());
+                    }
+                } catch (InterruptedException ex) {
+                    throw error(RError.Message.GENERIC, "error finishing eval thread");
+                }
+            } else if (length == 1) {
                 ChildContextInfo info = createContextInfo(contextKind);
                 TruffleContext truffleContext = info.createTruffleContext();
                 results[0] = EvalThread.run(truffleContext, info, RSource.fromTextInternalInvisible(exprs.getDataAt(0), RSource.Internal.CONTEXT_EVAL));
@@ -453,6 +491,38 @@ public class FastRContext {
         return result;
     }
 
+    /**
+     * Hands the expressions to pooled contexts, reusing idle ones and creating the missing ones.
+     */
+    private static ContextPool.Worker[] submitPooled(RStringVector exprs, ContextKind contextKind) {
+        RContext context = RContext.getInstance();
+        int length = exprs.getLength();
+        ContextPool.Worker[] workers = new ContextPool.Worker[length];
+        ChildContextInfo[] childContextInfos = new ChildContextInfo[length];
+        int[] multiSlotIndices = new int[length];
+        int created = 0;
+        for (int i = 0; i < length; i++) {
+            workers[i] = context.contextPool.acquire(contextKind);
+            if (workers[i] == null) {
+                childContextInfos[i] = createContextInfo(contextKind);
+                multiSlotIndices[created++] = childContextInfos[i].getMultiSlotInd();
+            }
+        }
+        // only the new contexts need their shared slots converted, the reused ones already have
+        if (created > 0 && contextKind == ContextKind.SHARE_ALL) {
+            REnvironment.convertSearchpathToMultiSlot(Arrays.copyOf(multiSlotIndices, created));
+        }
+        for (int i = 0; i < length; i++) {
+            if (workers[i] == null) {
+                workers[i] = context.contextPool.create(context.threads, childContextInfos[i]);
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            workers[i].submit(RSource.fromTextInternalInvisible(exprs.getDataAt(i), RSource.Internal.CONTEXT_EVAL));
+        }
+        return workers;
+    }
+
     private static ChildContextInfo createContextInfo(RContext.ContextKind contextKind) {
         RContext context = RContext.getInstance();
         ConsoleIO console = context.getConsole();
@@ -567,33 +637,51 @@ public class FastRContext {
         }
     }
 
-    @RBuiltin(name = ".fastr.channel.select", kind = PRIMITIVE, parameterNames = {"ids"}, behavior = COMPLEX)
-    public abstract static class ChannelSelect extends RBuiltinNode.Arg1 {
+    /**
+     * Waits until one of the channels in {@code ids} has a message and returns a list of the
+     * channel id and the message. If {@code timeout} (in seconds) is given and elapses first, the
+     * result is {@code NULL}.
+     */
+    @RBuiltin(name = ".fastr.channel.select", kind = PRIMITIVE, parameterNames = {"ids", "timeout"}, behavior = COMPLEX)
+    public abstract static class ChannelSelect extends RBuiltinNode.Arg2 {
+
+        @Override
+        public Object[] getDefaultParameterValues() {
+            return new Object[]{RMissing.instance, -1d};
+        }
 
         static {
             Casts casts = new Casts(ChannelSelect.class);
             casts.arg("ids").mustBe(instanceOf(RList.class));
+            casts.arg("timeout").asDoubleVector().findFirst().mustNotBeNA();
         }
 
         @Specialization
         @TruffleBoundary
-        protected RList select(RList nodes) {
-            int ind = 0;
+        protected Object select(RList nodes, double timeout) {
             int length = nodes.getLength();
-            while (true) {
-                Object o = nodes.getDataAt(ind);
-                ind = (ind + 1) % length;
-                int id;
+            int[] ids = new int[length];
+            for (int i = 0; i < length; i++) {
+                Object o = nodes.getDataAt(i);
                 if (o instanceof Integer) {
-                    id = (int) o;
+                    ids[i] = (int) o;
                 } else {
-                    id = ((RIntVector) o).getDataAt(0);
+                    ids[i] = ((RIntVector) o).getDataAt(0);
                 }
-                Object res = RChannel.poll(id);
-                if (res != null) {
-                    return RDataFactory.createList(new Object[]{id, res});
+            }
+            if (timeout < 0) {
+                int receiveTimeout = RContext.getInstance().getNonNegativeIntOption(FastROptions.ChannelReceiveTimeout);
+                if (receiveTimeout > 0) {
+                    // timeout for testing, same as in .fastr.channel.receive
+                    Object[] res = RChannel.select(ids, receiveTimeout);
+                    if (res == null) {
+                        throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "timeout while receiving from the channel");
+                    }
+                    return RDataFactory.createList(res);
                 }
             }
+            Object[] res = RChannel.select(ids, timeout);
+            return res == null ? RNull.instance : RDataFactory.createList(res);
         }
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.eq;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.numericValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.singleElement;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.helpers.InheritsCheckNode;
+import com.oracle.truffle.r.nodes.helpers.RFactorNodes;
+import com.oracle.truffle.r.nodes.unary.CastStringNode;
+import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.GroupIndex;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Computes the per group sum, mean or count of the numeric vector {@code x} in a single pass over a
+ * {@link GroupIndex}, i.e., a fast version of {@code tapply(x, g, sum)} and friends without the
+ * {@code split} and {@code lapply} in between. If {@code g} is a factor, the groups are its levels
+ * (including empty ones) and rows with {@code NA} codes are ignored. Otherwise the groups are the
+ * distinct values of {@code g} in the order of their first occurrence, {@code NA} included, like in
+ * {@code rowsum(x, g, reorder = FALSE)}. The result is named by the groups. Sums and means are
+ * doubles, counts are integers and with {@code na.rm = TRUE} only count the non-{@code NA} values
+ * of {@code x}.
+ */
+@RBuiltin(name = ".fastr.grouped", kind = PRIMITIVE, parameterNames = {"x", "g", "fun", "na.rm"}, behavior = PURE)
+public abstract class FastRGroupedAggregate extends RBuiltinNode.Arg4 {
+
+    @Child private InheritsCheckNode factorCheck = InheritsCheckNode.createFactor();
+    @Child private RFactorNodes.GetLevels getLevels = RFactorNodes.GetLevels.create();
+    @Child private CastStringNode castString = CastStringNode.createNonPreserving();
+
+    private final ConditionProfile factorProfile = ConditionProfile.createBinaryProfile();
+
+    static {
+        Casts casts = new Casts(FastRGroupedAggregate.class);
+        casts.arg("x").mustBe(numericValue(), Message.INVALID_ARGUMENT, "x").asDoubleVector();
+        casts.arg("g").mustBe(numericValue().or(stringValue()), Message.INVALID_ARGUMENT, "g").asVector();
+        casts.arg("fun").defaultError(Message.INVALID_ARGUMENT, "fun").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst().mustBe(
+                        eq("sum").or(eq("mean")).or(eq("count")));
+        casts.arg("na.rm").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
+    }
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, RMissing.instance, "sum", RRuntime.LOGICAL_FALSE};
+    }
+
+    @Specialization
+    protected RAbstractVector grouped(RDoubleVector x, RAbstractVector g, String fun, boolean naRm) {
+        if (x.getLength() != g.getLength()) {
+            throw error(Message.ARGUMENT_LENGTHS_DIFFER);
+        }
+        GroupIndex index;
+        RStringVector names;
+        if (factorProfile.profile(g instanceof RIntVector && factorCheck.execute(g))) {
+            names = getLevels.execute((RIntVector) g);
+            index = GroupIndex.ofFactor((RIntVector) g, names == null ? 0 : names.getLength());
+        } else {
+            index = GroupIndex.ofKeys(g);
+            names = (RStringVector) castString.doCast(firstOccurrences(g, index));
+        }
+        return aggregate(x, index, fun, naRm, names);
+    }
+
+    @TruffleBoundary
+    private static RAbstractVector firstOccurrences(RAbstractVector g, GroupIndex index) {
+        int[] first = index.getFirst();
+        RAbstractVector result = g.createEmptySameType(first.length, g.isComplete());
+        for (int i = 0; i < first.length; i++) {
+            result.transferElementSameType(i, g, first[i]);
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    private static RAbstractVector aggregate(RDoubleVector x, GroupIndex index, String fun, boolean naRm, RStringVector names) {
+        double[] values = x.getReadonlyData();
+        int[] groups = index.getGroups();
+        int groupCount = index.getGroupCount();
+        if (fun.equals("count") && !naRm) {
+            return RDataFactory.createIntVector(index.getSizes().clone(), RDataFactory.COMPLETE_VECTOR, names);
+        }
+        double[] sums = new double[groupCount];
+        int[] counts = new int[groupCount];
+        for (int i = 0; i < values.length; i++) {
+            int group = groups[i];
+            if (group >= 0) {
+                double value = values[i];
+                if (!naRm || !Double.isNaN(value)) {
+                    sums[group] += value;
+                    counts[group]++;
+                }
+            }
+        }
+        switch (fun) {
+            case "sum":
+                return RDataFactory.createDoubleVector(sums, x.isComplete() || naRm, names);
+            case "mean":
+                for (int i = 0; i < groupCount; i++) {
+                    sums[i] /= counts[i];
+                }
+                // empty groups have NaN mean
+                return RDataFactory.createDoubleVector(sums, RDataFactory.INCOMPLETE_VECTOR, names);
+            default:
+                assert fun.equals("count");
+                return RDataFactory.createIntVector(counts, RDataFactory.COMPLETE_VECTOR, names);
+        }
+    }
+}
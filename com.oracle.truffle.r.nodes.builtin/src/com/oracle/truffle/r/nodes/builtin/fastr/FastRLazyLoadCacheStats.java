@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.LazyDBCache;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+
+/**
+ * Reports the state of the {@link LazyDBCache} shared by the current context and its parent and
+ * child contexts: the hits, misses and evictions of the decompressed payload cache since the last
+ * reset, the number and total size of the cached payloads, the capacity in bytes and the number and
+ * total size of the open lazy-load database files. With {@code reset = TRUE} the payload cache is
+ * emptied afterwards.
+ */
+@RBuiltin(name = ".fastr.lazyload.stats", kind = PRIMITIVE, parameterNames = {"reset"}, behavior = COMPLEX)
+public abstract class FastRLazyLoadCacheStats extends RBuiltinNode.Arg1 {
+
+    static {
+        Casts casts = new Casts(FastRLazyLoadCacheStats.class);
+        casts.arg("reset").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
+    }
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RRuntime.LOGICAL_FALSE};
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RList stats(boolean reset) {
+        LazyDBCache cache = RContext.getInstance().stateLazyDBCache.getCache();
+        long[] stats = cache.getStatistics();
+        Object[] data = new Object[stats.length];
+        for (int i = 0; i < stats.length; i++) {
+            data[i] = (double) stats[i];
+        }
+        if (reset) {
+            cache.clear();
+        }
+        return RDataFactory.createList(data, RDataFactory.createStringVector(LazyDBCache.STATISTICS_NAMES, RDataFactory.COMPLETE_VECTOR));
+    }
+}
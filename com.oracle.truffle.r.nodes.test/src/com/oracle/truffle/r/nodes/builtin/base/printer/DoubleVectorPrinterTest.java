@@ -31,5 +31,25 @@ public class DoubleVectorPrinterTest {
     @Test
     public void testEncodeReal() {
         assertEquals("3.14159265358979e-06", DoubleVectorPrinter.encodeReal(Math.PI / 1000000));
+        assertEquals("0.333333333333333", DoubleVectorPrinter.encodeReal(1.0 / 3));
+        assertEquals("0.3333333", DoubleVectorPrinter.encodeReal(1.0 / 3, 7));
+        assertEquals("-1.5", DoubleVectorPrinter.encodeReal(-1.5));
+        assertEquals("0", DoubleVectorPrinter.encodeReal(-0.0));
+        assertEquals("1e+05", DoubleVectorPrinter.encodeReal(100000));
+        assertEquals("123456", DoubleVectorPrinter.encodeReal(123456));
+        assertEquals("1e+15", DoubleVectorPrinter.encodeReal(1e15));
+        assertEquals("1.79769313486232e+308", DoubleVectorPrinter.encodeReal(Double.MAX_VALUE));
+        assertEquals("123456789", DoubleVectorPrinter.encodeReal(123456789, 7));
+        assertEquals("99999", DoubleVectorPrinter.encodeReal(99999.2, 3));
+    }
+
+    @Test
+    public void testEncodeRealTies() {
+        // the exact binary value decides, exact ties round to even
+        assertEquals("0.1", DoubleVectorPrinter.encodeReal(0.15, 1));
+        assertEquals("0.12", DoubleVectorPrinter.encodeReal(0.125, 2));
+        assertEquals("2", DoubleVectorPrinter.encodeReal(2.5, 1));
+        assertEquals("4", DoubleVectorPrinter.encodeReal(3.5, 1));
+        assertEquals("0.3", DoubleVectorPrinter.encodeReal(0.25000000000000006, 1));
     }
 }
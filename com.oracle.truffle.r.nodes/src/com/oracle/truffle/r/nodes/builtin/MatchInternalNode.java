@@ -32,6 +32,14 @@ import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.unary.CastStringNode;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapComplex;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetComplex;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetInt;
 import com.oracle.truffle.r.runtime.DSLConfig;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
@@ -51,6 +59,7 @@ import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
+import com.oracle.truffle.r.runtime.data.VectorDataWithCachedIndex;
 import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.RBaseNode;
@@ -115,6 +124,11 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         Object tableData = table.getData();
         SeqIterator it = tableDataLib.iterator(tableData);
         int element = xDataLib.getIntAt(x.getData(), 0);
+        NonRecursiveHashMapInt index = getCachedIndex(table, NonRecursiveHashMapInt.class);
+        if (index != null) {
+            int i = index.get(element);
+            return i == -1 ? nomatch : i + 1;
+        }
         if (naProfile.isNA(element)) {
             while (tableDataLib.nextLoopCondition(tableData, it)) {
                 if (tableDataLib.isNextNA(tableData, it)) {
@@ -154,24 +168,30 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         int[] result = initResult(xLength, nomatch);
         boolean matchAll = true;
         RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-        NonRecursiveHashMapDouble hashTable;
-        if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR))) {
-            hashTable = new NonRecursiveHashMapDouble(xLength);
-            NonRecursiveHashSetDouble hashSet = new NonRecursiveHashSetDouble(xLength);
-            SeqIterator it = xDataLib.iterator(xData);
-            while (xDataLib.nextLoopCondition(xData, it)) {
-                hashSet.add(xDataLib.getNextDouble(xData, it));
-            }
-            for (int i = tableLength - 1; i >= 0; i--) {
-                double val = tableDataLib.getDouble(tableData, rit, i);
-                if (hashSet.contains(val)) {
-                    hashTable.put(val, i);
+        NonRecursiveHashMapDouble hashTable = getCachedIndex(table, NonRecursiveHashMapDouble.class);
+        if (hashTable == null) {
+            boolean cacheIndex = canCacheIndex(table, tableLength, xLength, NonRecursiveHashMapDouble.class);
+            if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR) && !cacheIndex)) {
+                hashTable = new NonRecursiveHashMapDouble(xLength);
+                NonRecursiveHashSetDouble hashSet = new NonRecursiveHashSetDouble(xLength);
+                SeqIterator it = xDataLib.iterator(xData);
+                while (xDataLib.nextLoopCondition(xData, it)) {
+                    hashSet.add(xDataLib.getNextDouble(xData, it));
+                }
+                for (int i = tableLength - 1; i >= 0; i--) {
+                    double val = tableDataLib.getDouble(tableData, rit, i);
+                    if (hashSet.contains(val)) {
+                        hashTable.put(val, i);
+                    }
+                }
+            } else {
+                hashTable = new NonRecursiveHashMapDouble(tableLength);
+                for (int i = tableLength - 1; i >= 0; i--) {
+                    hashTable.put(RRuntime.int2double(tableDataLib.getInt(tableData, rit, i)), i);
+                }
+                if (cacheIndex) {
+                    cacheIndex(table, hashTable);
                 }
-            }
-        } else {
-            hashTable = new NonRecursiveHashMapDouble(tableLength);
-            for (int i = tableLength - 1; i >= 0; i--) {
-                hashTable.put(RRuntime.int2double(tableDataLib.getInt(tableData, rit, i)), i);
             }
         }
         SeqIterator it = xDataLib.iterator(xData);
@@ -199,30 +219,36 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         int[] result = initResult(xLength, nomatch);
         boolean matchAll = true;
         RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-        NonRecursiveHashMapInt hashTable;
-        if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR))) {
-            hashTable = new NonRecursiveHashMapInt(xLength);
-            NonRecursiveHashSetInt hashSet = new NonRecursiveHashSetInt(xLength);
-            SeqIterator it = xDataLib.iterator(xData);
-            while (xDataLib.nextLoopCondition(xData, it)) {
-                hashSet.add(xDataLib.getNextInt(xData, it));
-            }
-            for (int i = tableLength - 1; i >= 0; i--) {
-                double val = tableDataLib.getDouble(tableData, rit, i);
-                if (RRuntime.isNA(val) && hashSet.contains(RRuntime.INT_NA)) {
-                    hashTable.put(RRuntime.INT_NA, i);
-                } else if (val == (int) val && hashSet.contains((int) val)) {
-                    hashTable.put((int) val, i);
+        NonRecursiveHashMapInt hashTable = getCachedIndex(table, NonRecursiveHashMapInt.class);
+        if (hashTable == null) {
+            boolean cacheIndex = canCacheIndex(table, tableLength, xLength, NonRecursiveHashMapInt.class);
+            if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR) && !cacheIndex)) {
+                hashTable = new NonRecursiveHashMapInt(xLength);
+                NonRecursiveHashSetInt hashSet = new NonRecursiveHashSetInt(xLength);
+                SeqIterator it = xDataLib.iterator(xData);
+                while (xDataLib.nextLoopCondition(xData, it)) {
+                    hashSet.add(xDataLib.getNextInt(xData, it));
                 }
-            }
-        } else {
-            hashTable = new NonRecursiveHashMapInt(tableLength);
-            for (int i = tableLength - 1; i >= 0; i--) {
-                double xx = tableDataLib.getDouble(tableData, rit, i);
-                if (RRuntime.isNA(xx)) {
-                    hashTable.put(RRuntime.INT_NA, i);
-                } else if (xx == (int) xx && !RRuntime.isNA((int) xx)) {
-                    hashTable.put((int) xx, i);
+                for (int i = tableLength - 1; i >= 0; i--) {
+                    double val = tableDataLib.getDouble(tableData, rit, i);
+                    if (RRuntime.isNA(val) && hashSet.contains(RRuntime.INT_NA)) {
+                        hashTable.put(RRuntime.INT_NA, i);
+                    } else if (val == (int) val && hashSet.contains((int) val)) {
+                        hashTable.put((int) val, i);
+                    }
+                }
+            } else {
+                hashTable = new NonRecursiveHashMapInt(tableLength);
+                for (int i = tableLength - 1; i >= 0; i--) {
+                    double xx = tableDataLib.getDouble(tableData, rit, i);
+                    if (RRuntime.isNA(xx)) {
+                        hashTable.put(RRuntime.INT_NA, i);
+                    } else if (xx == (int) xx && !RRuntime.isNA((int) xx)) {
+                        hashTable.put((int) xx, i);
+                    }
+                }
+                if (cacheIndex) {
+                    cacheIndex(table, hashTable);
                 }
             }
         }
@@ -249,6 +275,11 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
                     @Cached("create()") BranchProfile notFoundProfile) {
         double element = xDataLib.getDoubleAt(x.getData(), 0);
         Object tableData = table.getData();
+        NonRecursiveHashMapDouble index = getCachedIndex(table, NonRecursiveHashMapDouble.class);
+        if (index != null) {
+            int i = index.get(element);
+            return i == -1 ? nomatch : i + 1;
+        }
         if (naProfile.isNA(element)) {
             SeqIterator it = tableDataLib.iterator(tableData);
             while (tableDataLib.nextLoopCondition(tableData, it)) {
@@ -707,6 +738,11 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
                     @Cached("create()") BranchProfile foundProfile,
                     @Cached("create()") BranchProfile notFoundProfile) {
         String element = xDataLib.getStringAt(x.getData(), 0);
+        NonRecursiveHashMapCharacter index = getCachedIndex(table, NonRecursiveHashMapCharacter.class);
+        if (index != null) {
+            int i = index.get(element);
+            return i == -1 ? nomatch : i + 1;
+        }
         Object tableData = table.getData();
         SeqIterator it = tableDataLib.iterator(tableData);
         if (naProfile.isNA(element)) {
@@ -736,6 +772,66 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         return match.execute(x, table, nomatch);
     }
 
+    /**
+     * Tables at least this long get their hash index cached on their data object (see
+     * {@link VectorDataWithCachedIndex}) so that repeated lookups into the same table, e.g.,
+     * {@code x %in% lookup} in a loop, do not re-hash it on every call.
+     */
+    private static final int MIN_CACHED_INDEX_LENGTH = 256;
+
+    /**
+     * Marks a table that has been looked up with the partial index built from a short {@code x}.
+     */
+    private static final Object PARTIAL_LOOKUP = new Object();
+
+    /**
+     * Returns the index cached on the table's data if it is of the requested kind, which is also
+     * the key it is cached under. The index is dropped by the data object on any write, so it
+     * always reflects the current contents.
+     */
+    private static <T> T getCachedIndex(RAbstractVector table, Class<T> kind) {
+        Object data = table.getData();
+        if (data instanceof VectorDataWithCachedIndex) {
+            Object index = ((VectorDataWithCachedIndex) data).getCachedIndex(kind);
+            if (kind.isInstance(index)) {
+                return kind.cast(index);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Temporary vectors cannot be looked up again, so there is no point in caching their index.
+     */
+    private static boolean canCacheIndex(RAbstractVector table, int tableLength) {
+        return tableLength >= MIN_CACHED_INDEX_LENGTH && !table.isTemporary() && table.getData() instanceof VectorDataWithCachedIndex;
+    }
+
+    /**
+     * Like {@link #canCacheIndex(RAbstractVector, int)}, but if the table is much longer than
+     * {@code x}, only the values of {@code x} would be hashed without the cache. The index of the
+     * whole table is then only built on the second such lookup into the same table, the first one
+     * takes the cheaper path and leaves a marker.
+     */
+    private static boolean canCacheIndex(RAbstractVector table, int tableLength, int xLength, Class<?> kind) {
+        if (!canCacheIndex(table, tableLength)) {
+            return false;
+        }
+        if (tableLength <= xLength * TABLE_SIZE_FACTOR) {
+            return true;
+        }
+        VectorDataWithCachedIndex data = (VectorDataWithCachedIndex) table.getData();
+        if (data.getCachedIndex(kind) == PARTIAL_LOOKUP) {
+            return true;
+        }
+        data.setCachedIndex(kind, PARTIAL_LOOKUP);
+        return false;
+    }
+
+    private static void cacheIndex(RAbstractVector table, Object index) {
+        ((VectorDataWithCachedIndex) table.getData()).setCachedIndex(index.getClass(), index);
+    }
+
     private static int[] initResult(int length, int nomatch) {
         int[] result = new int[length];
         Arrays.fill(result, nomatch);
@@ -808,10 +904,16 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         int tableLength = tableDataLib.getLength(tableData);
         int[] result = initResult(xLength, nomatch);
         boolean matchAll = true;
-        NonRecursiveHashMapCharacter hashTable = new NonRecursiveHashMapCharacter(tableLength);
-        RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-        for (int i = tableLength - 1; i >= 0; i--) {
-            hashTable.put(tableDataLib.getString(tableData, rit, i), i);
+        NonRecursiveHashMapCharacter hashTable = getCachedIndex(table, NonRecursiveHashMapCharacter.class);
+        if (hashTable == null) {
+            hashTable = new NonRecursiveHashMapCharacter(tableLength);
+            RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
+            for (int i = tableLength - 1; i >= 0; i--) {
+                hashTable.put(tableDataLib.getString(tableData, rit, i), i);
+            }
+            if (canCacheIndex(table, tableLength)) {
+                cacheIndex(table, hashTable);
+            }
         }
         SeqIterator it = xDataLib.iterator(xData);
         while (xDataLib.nextLoopCondition(xData, it)) {
@@ -844,24 +946,30 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
             boolean matchAll = true;
 
             RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-            NonRecursiveHashMapInt hashTable;
-            if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR))) {
-                hashTable = new NonRecursiveHashMapInt(xLength);
-                NonRecursiveHashSetInt hashSet = new NonRecursiveHashSetInt(xLength);
-                SeqIterator it = xDataLib.iterator(xData);
-                while (xDataLib.nextLoopCondition(xData, it)) {
-                    hashSet.add(xDataLib.getNextInt(xData, it));
-                }
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    int val = tableDataLib.getInt(tableData, rit, i);
-                    if (hashSet.contains(val)) {
-                        hashTable.put(val, i);
+            NonRecursiveHashMapInt hashTable = getCachedIndex(table, NonRecursiveHashMapInt.class);
+            if (hashTable == null) {
+                boolean cacheIndex = canCacheIndex(table, tableLength, xLength, NonRecursiveHashMapInt.class);
+                if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR) && !cacheIndex)) {
+                    hashTable = new NonRecursiveHashMapInt(xLength);
+                    NonRecursiveHashSetInt hashSet = new NonRecursiveHashSetInt(xLength);
+                    SeqIterator it = xDataLib.iterator(xData);
+                    while (xDataLib.nextLoopCondition(xData, it)) {
+                        hashSet.add(xDataLib.getNextInt(xData, it));
+                    }
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        int val = tableDataLib.getInt(tableData, rit, i);
+                        if (hashSet.contains(val)) {
+                            hashTable.put(val, i);
+                        }
+                    }
+                } else {
+                    hashTable = new NonRecursiveHashMapInt(tableLength);
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        hashTable.put(tableDataLib.getInt(tableData, rit, i), i);
+                    }
+                    if (cacheIndex) {
+                        cacheIndex(table, hashTable);
                     }
-                }
-            } else {
-                hashTable = new NonRecursiveHashMapInt(tableLength);
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    hashTable.put(tableDataLib.getInt(tableData, rit, i), i);
                 }
             }
             SeqIterator it = xDataLib.iterator(xData);
@@ -891,24 +999,30 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
             int[] result = initResult(xLength, nomatch);
             boolean matchAll = true;
             RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-            NonRecursiveHashMapDouble hashTable;
-            if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR))) {
-                hashTable = new NonRecursiveHashMapDouble(xLength);
-                NonRecursiveHashSetDouble hashSet = new NonRecursiveHashSetDouble(xLength);
-                SeqIterator it = xDataLib.iterator(xData);
-                while (xDataLib.nextLoopCondition(xData, it)) {
-                    hashSet.add(xDataLib.getNextDouble(xData, it));
-                }
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    double val = tableDataLib.getDouble(tableData, rit, i);
-                    if (hashSet.contains(val)) {
-                        hashTable.put(val, i);
+            NonRecursiveHashMapDouble hashTable = getCachedIndex(table, NonRecursiveHashMapDouble.class);
+            if (hashTable == null) {
+                boolean cacheIndex = canCacheIndex(table, tableLength, xLength, NonRecursiveHashMapDouble.class);
+                if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR) && !cacheIndex)) {
+                    hashTable = new NonRecursiveHashMapDouble(xLength);
+                    NonRecursiveHashSetDouble hashSet = new NonRecursiveHashSetDouble(xLength);
+                    SeqIterator it = xDataLib.iterator(xData);
+                    while (xDataLib.nextLoopCondition(xData, it)) {
+                        hashSet.add(xDataLib.getNextDouble(xData, it));
+                    }
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        double val = tableDataLib.getDouble(tableData, rit, i);
+                        if (hashSet.contains(val)) {
+                            hashTable.put(val, i);
+                        }
+                    }
+                } else {
+                    hashTable = new NonRecursiveHashMapDouble(tableLength);
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        hashTable.put(tableDataLib.getDouble(tableData, rit, i), i);
+                    }
+                    if (cacheIndex) {
+                        cacheIndex(table, hashTable);
                     }
-                }
-            } else {
-                hashTable = new NonRecursiveHashMapDouble(tableLength);
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    hashTable.put(tableDataLib.getDouble(tableData, rit, i), i);
                 }
             }
             SeqIterator it = xDataLib.iterator(xData);
@@ -985,25 +1099,31 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
             int tableLength = tableDataLib.getLength(tableData);
             int[] result = initResult(xLength, nomatch);
             boolean matchAll = true;
-            NonRecursiveHashMapCharacter hashTable;
             RandomAccessIterator rit = tableDataLib.randomAccessIterator(tableData);
-            if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR))) {
-                hashTable = new NonRecursiveHashMapCharacter(xLength);
-                NonRecursiveHashSetCharacter hashSet = new NonRecursiveHashSetCharacter(xLength);
-                SeqIterator it = xDataLib.iterator(xData);
-                while (xDataLib.nextLoopCondition(xData, it)) {
-                    hashSet.add(xDataLib.getNextString(xData, it));
-                }
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    String val = tableDataLib.getString(tableData, rit, i);
-                    if (hashSet.contains(val)) {
-                        hashTable.put(val, i);
+            NonRecursiveHashMapCharacter hashTable = getCachedIndex(table, NonRecursiveHashMapCharacter.class);
+            if (hashTable == null) {
+                boolean cacheIndex = canCacheIndex(table, tableLength, xLength, NonRecursiveHashMapCharacter.class);
+                if (bigTableProfile.profile(tableLength > (xLength * TABLE_SIZE_FACTOR) && !cacheIndex)) {
+                    hashTable = new NonRecursiveHashMapCharacter(xLength);
+                    NonRecursiveHashSetCharacter hashSet = new NonRecursiveHashSetCharacter(xLength);
+                    SeqIterator it = xDataLib.iterator(xData);
+                    while (xDataLib.nextLoopCondition(xData, it)) {
+                        hashSet.add(xDataLib.getNextString(xData, it));
+                    }
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        String val = tableDataLib.getString(tableData, rit, i);
+                        if (hashSet.contains(val)) {
+                            hashTable.put(val, i);
+                        }
+                    }
+                } else {
+                    hashTable = new NonRecursiveHashMapCharacter(tableLength);
+                    for (int i = tableLength - 1; i >= 0; i--) {
+                        hashTable.put(tableDataLib.getString(tableData, rit, i), i);
+                    }
+                    if (cacheIndex) {
+                        cacheIndex(table, hashTable);
                     }
-                }
-            } else {
-                hashTable = new NonRecursiveHashMapCharacter(tableLength);
-                for (int i = tableLength - 1; i >= 0; i--) {
-                    hashTable.put(tableDataLib.getString(tableData, rit, i), i);
                 }
             }
             SeqIterator it = xDataLib.iterator(xData);
@@ -1020,284 +1140,8 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         }
     }
 
-    // simple implementations of non-recursive hash-maps to enable compilation
-    // TODO: consider replacing with a more efficient library implementation
-
-    private abstract static class NonRecursiveHashMap {
-
-        protected final int[] values;
-        protected int naValue;
-
-        protected NonRecursiveHashMap(int entryCount) {
-            int capacity = Math.max(entryCount * 3 / 2, 1);
-            values = new int[Integer.highestOneBit(capacity) << 2];
-        }
-
-        protected int index(int hash) {
-            // Multiply by -127
-            return ((hash << 1) - (hash << 8)) & (values.length - 1);
-        }
-    }
-
-    private static final class NonRecursiveHashMapCharacter extends NonRecursiveHashMap {
-
-        private final String[] keys;
-
-        NonRecursiveHashMapCharacter(int approxCapacity) {
-            super(approxCapacity);
-            keys = new String[values.length];
-        }
-
-        public boolean put(String key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(key.hashCode());
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key.equals(keys[ind])) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(String key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static final class NonRecursiveHashMapComplex extends NonRecursiveHashMap {
-
-        private final RComplex[] keys;
-        private final int m;
-        private final int k;
-
-        NonRecursiveHashMapComplex(int entryCount) {
-            super(entryCount);
-            keys = new RComplex[values.length];
-
-            int m1 = 2;
-            int k1 = 1;
-            int n = 2 * entryCount;
-            while (m1 < n) {
-                m1 *= 2;
-                k1++;
-            }
-            m = m1;
-            k = k1;
-        }
-
-        public boolean put(RComplex key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(key.hashCode());
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key.equals(keys[ind])) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind = (ind + 1) % m;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(RComplex key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind = (ind + 1) % m;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-
-        private static final int u = new Long(3141592653L).intValue();
-
-        @Override
-        protected int index(int key) {
-            return u * key >>> (32 - k);
-        }
-    }
-
-    private static final class NonRecursiveHashMapDouble extends NonRecursiveHashMap {
-
-        private final double[] keys;
-        private int nanValue;
-
-        NonRecursiveHashMapDouble(int approxCapacity) {
-            super(approxCapacity);
-            keys = new double[values.length];
-            Arrays.fill(keys, RRuntime.DOUBLE_NA);
-        }
-
-        public boolean put(double key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else if (Double.isNaN(key)) {
-                boolean ret = nanValue == 0;
-                nanValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Double.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(double key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else if (Double.isNaN(key)) {
-                return nanValue - 1;
-            } else {
-                int ind = index(Double.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static final class NonRecursiveHashMapInt extends NonRecursiveHashMap {
-
-        private final int[] keys;
-
-        NonRecursiveHashMapInt(int approxCapacity) {
-            super(approxCapacity);
-            keys = new int[values.length];
-            Arrays.fill(keys, RRuntime.INT_NA);
-        }
-
-        public boolean put(int key, int value) {
-            assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
-                        values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                    }
-                }
-            }
-        }
-
-        public int get(int key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
-                    }
-                }
-            }
-        }
-    }
+    // raw values index a 256 element table directly, the other types use the hash maps shared
+    // with duplicated, unique and rowsum from Collections
 
     private static final class NonRecursiveHashMapRaw {
 
@@ -1339,22 +1183,6 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
         }
     }
 
-    private static class NonRecursiveHashSetInt {
-        private final NonRecursiveHashMapInt map;
-
-        NonRecursiveHashSetInt(int approxCapacity) {
-            map = new NonRecursiveHashMapInt(approxCapacity);
-        }
-
-        public boolean add(int value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(int value) {
-            return map.get(value) == 1;
-        }
-    }
-
     private static class NonRecursiveHashSetRaw {
         private final NonRecursiveHashMapRaw map;
 
@@ -1370,52 +1198,4 @@ public abstract class MatchInternalNode extends AbstractMatchNode {
             return map.get(value) == 1;
         }
     }
-
-    private static class NonRecursiveHashSetDouble {
-        private final NonRecursiveHashMapDouble map;
-
-        NonRecursiveHashSetDouble(int approxCapacity) {
-            map = new NonRecursiveHashMapDouble(approxCapacity);
-        }
-
-        public boolean add(double value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(double value) {
-            return map.get(value) == 1;
-        }
-    }
-
-    private static class NonRecursiveHashSetCharacter {
-        private final NonRecursiveHashMapCharacter map;
-
-        NonRecursiveHashSetCharacter(int approxCapacity) {
-            map = new NonRecursiveHashMapCharacter(approxCapacity);
-        }
-
-        public boolean add(String value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(String value) {
-            return map.get(value) == 1;
-        }
-    }
-
-    private static class NonRecursiveHashSetComplex {
-        private final NonRecursiveHashMapComplex map;
-
-        NonRecursiveHashSetComplex(int approxCapacity) {
-            map = new NonRecursiveHashMapComplex(approxCapacity);
-        }
-
-        public boolean add(RComplex value) {
-            return map.put(value, 1);
-        }
-
-        public boolean contains(RComplex value) {
-            return map.get(value) == 1;
-        }
-    }
 }
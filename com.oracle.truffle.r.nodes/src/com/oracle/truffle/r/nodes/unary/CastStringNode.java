@@ -40,6 +40,7 @@ import com.oracle.truffle.r.runtime.data.RIntSeqVectorData;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RPairList;
+import com.oracle.truffle.r.runtime.data.RStringDeferredVectorData;
 import com.oracle.truffle.r.runtime.data.RSymbol;
 import com.oracle.truffle.r.runtime.data.closures.RClosures;
 import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
@@ -93,6 +94,28 @@ public abstract class CastStringNode extends CastStringBaseNode {
         return factory().createStringSequence("", "", seq.getStart(), seq.getStride(), vector.getLength());
     }
 
+    /*
+     * Longer integer and double vectors are converted lazily, element by element, see
+     * RStringDeferredVectorData.
+     */
+    @Specialization(guards = "isDeferrable(vector)")
+    protected RStringVector doIntVectorDeferred(RIntVector vector) {
+        RStringVector ret = factory().createDeferredStringVector(vector.getDataCopy(), vector.isComplete(), getPreservedDimensions(vector), getPreservedNames(vector), getPreservedDimNames(vector));
+        if (preserveRegAttributes()) {
+            ret.copyRegAttributesFrom(vector);
+        }
+        return ret;
+    }
+
+    @Specialization(guards = "isDeferrable(vector)")
+    protected RStringVector doDoubleVectorDeferred(RDoubleVector vector) {
+        RStringVector ret = factory().createDeferredStringVector(vector.getDataCopy(), vector.isComplete(), getPreservedDimensions(vector), getPreservedNames(vector), getPreservedDimNames(vector));
+        if (preserveRegAttributes()) {
+            ret.copyRegAttributesFrom(vector);
+        }
+        return ret;
+    }
+
     @Specialization(guards = {"uAccess.supports(operandIn)", "handleAsAtomic(operandIn)", "!isForeignVector(operandIn)"}, limit = "getGenericVectorAccessCacheSize()")
     protected RStringVector doAbstractAtomicVector(RAbstractAtomicVector operandIn,
                     @Cached("createClassProfile()") ValueProfile operandProfile,
@@ -200,6 +223,10 @@ public abstract class CastStringNode extends CastStringBaseNode {
         return !isForeignWrapper(x) && !(isIntSequence(x) || x instanceof RStringVector);
     }
 
+    protected static boolean isDeferrable(RAbstractVector x) {
+        return x.getLength() >= RStringDeferredVectorData.MIN_LENGTH && !x.isSequence() && !x.isForeignWrapper() && !x.isAltRep();
+    }
+
     protected boolean handleAsNonAtomic(RAbstractContainer x) {
         return !isForeignWrapper(x) && !(x instanceof RAbstractAtomicVector);
     }
@@ -50,6 +50,7 @@ import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
 import com.oracle.truffle.r.runtime.interop.ConvertForeignObjectNode;
 import com.oracle.truffle.r.runtime.nodes.RBaseNode;
 import com.oracle.truffle.r.runtime.nodes.RBaseNodeWithWarnings;
+import com.oracle.truffle.r.runtime.ops.AccurateSum;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmeticFactory;
 import com.oracle.truffle.r.runtime.ops.na.NACheck;
@@ -77,6 +78,11 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNodeWithWarnings {
     protected final boolean supportString;
     protected final boolean supportComplex;
 
+    /**
+     * Double sums are accumulated with extended precision like in GNU R, see {@link AccurateSum}.
+     */
+    private final boolean accurateSum;
+
     private final NACheck na = NACheck.create();
     private final ConditionProfile naRmProfile = ConditionProfile.createBinaryProfile();
     private final BranchProfile emptyProfile = BranchProfile.create();
@@ -89,6 +95,7 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNodeWithWarnings {
         this.arithmetic = factory.createOperation();
         this.supportString = semantics.supportString;
         this.supportComplex = semantics.supportComplex;
+        this.accurateSum = factory == BinaryArithmetic.ADD;
     }
 
     private void emptyWarning() {
@@ -288,6 +295,7 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNodeWithWarnings {
         boolean profiledNaRm = naRmProfile.profile(naRm);
         boolean profiledFinite = finiteProfile.profile(finite);
         double result = semantics.getDoubleStart();
+        double error = 0;
         boolean empty = true;
         try (VectorAccess.SequentialIterator iter = access.access(vector)) {
             while (access.next(iter)) {
@@ -306,14 +314,20 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNodeWithWarnings {
                     // ignore -/+Inf if 'infinite == TRUE'
                     continue;
                 }
-                result = arithmetic.op(result, d);
+                if (accurateSum) {
+                    double sum = result + d;
+                    error += AccurateSum.error(result, d, sum);
+                    result = sum;
+                } else {
+                    result = arithmetic.op(result, d);
+                }
                 empty = false;
             }
         }
         if (empty) {
             emptyWarning();
         }
-        return result;
+        return accurateSum ? AccurateSum.round(result, error) : result;
     }
 
     @Specialization(guards = "access.supports(vector)", limit = "getVectorAccessCacheSize()")
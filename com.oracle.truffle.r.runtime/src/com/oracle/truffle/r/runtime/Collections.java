@@ -95,185 +95,258 @@ public final class Collections {
         }
     }
 
-    public static class NonRecursiveHashSetDouble {
-
-        private double[] keys;
+    /**
+     * Set of doubles backed by a {@link NonRecursiveHashMapDouble}, so it distinguishes
+     * {@code NA} from {@code NaN} and considers {@code 0} and {@code -0} equal, like R does.
+     */
+    public static final class NonRecursiveHashSetDouble {
+        private final NonRecursiveHashMapDouble map;
 
         public NonRecursiveHashSetDouble(int approxCapacity) {
-            keys = new double[Math.max(approxCapacity, 1)];
-            Arrays.fill(keys, RRuntime.DOUBLE_NA);
+            map = new NonRecursiveHashMapDouble(approxCapacity);
         }
 
+        /**
+         * Adds {@code key} and returns {@code true} if it was already present.
+         */
         public boolean add(double key) {
-            int ind = getInd(key, keys.length);
-            int firstInd = ind;
-            while (true) {
-                if (RRuntime.isNAorNaN(keys[ind])) {
-                    keys[ind] = key;
-                    return false;
-                } else if (key == keys[ind]) {
-                    return true;
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd) {
-                        // resize
-                        double[] newKeys = new double[keys.length + keys.length / 2];
-                        Arrays.fill(newKeys, RRuntime.DOUBLE_NA);
-                        for (int i = 0; i < keys.length; i++) {
-                            if (!RRuntime.isNAorNaN(keys[i])) {
-                                int tmpInd = getInd(keys[i], newKeys.length);
-                                while (true) {
-                                    if (RRuntime.isNAorNaN(newKeys[tmpInd])) {
-                                        newKeys[tmpInd] = keys[i];
-                                        break;
-                                    } else {
-                                        assert keys[i] != newKeys[tmpInd];
-                                        tmpInd = (tmpInd + 1) % newKeys.length;
-                                    }
-                                }
-                            }
-                        }
-
-                        keys = newKeys;
+            return map.put(key, 1);
+        }
 
-                        // start hashing from the beginning
-                        ind = getInd(key, keys.length);
-                    }
-                }
-            }
+        public boolean contains(double key) {
+            return map.get(key) != -1;
         }
 
-        private static int getInd(double key, int keyLength) {
-            int h = Double.hashCode(key);
-            if (h == Integer.MIN_VALUE) {
-                // HOTFIX:
-                // Double.hashCode(-0.0) is Integer.MIN_VALUE
-                // Maths.abs(Integer.MIN_VALUE) is Integer.MIN_VALUE
-                return 0;
-            }
-            return Math.abs(h) % keyLength;
+        public int size() {
+            return map.size();
         }
     }
 
-    public static class NonRecursiveHashSetInt {
-
-        private int[] keys;
+    public static final class NonRecursiveHashSetInt {
+        private final NonRecursiveHashMapInt map;
 
         public NonRecursiveHashSetInt(int approxCapacity) {
-            keys = new int[Math.max(approxCapacity, 1)];
-            Arrays.fill(keys, RRuntime.INT_NA);
+            map = new NonRecursiveHashMapInt(approxCapacity);
         }
 
+        /**
+         * Adds {@code key} and returns {@code true} if it was already present.
+         */
         public boolean add(int key) {
-            int ind = Math.abs(Integer.hashCode(key)) % keys.length;
-            int firstInd = ind;
-            while (true) {
-                if (RRuntime.isNA(keys[ind])) {
-                    keys[ind] = key;
-                    return false;
-                } else if (key == keys[ind]) {
-                    return true;
-                } else {
-                    ind = (ind + 1) % keys.length;
-                    if (ind == firstInd) {
-                        // resize
-                        int[] newKeys = new int[keys.length + keys.length / 2];
-                        Arrays.fill(newKeys, RRuntime.INT_NA);
-                        for (int i = 0; i < keys.length; i++) {
-                            if (!RRuntime.isNA(keys[i])) {
-                                int tmpInd = Math.abs(Integer.hashCode(keys[i])) % newKeys.length;
-                                while (true) {
-                                    if (RRuntime.isNA(newKeys[tmpInd])) {
-                                        newKeys[tmpInd] = keys[i];
-                                        break;
-                                    } else {
-                                        assert keys[i] != newKeys[tmpInd];
-                                        tmpInd = (tmpInd + 1) % newKeys.length;
-                                    }
-                                }
-                            }
-                        }
+            return map.put(key, 1);
+        }
 
-                        keys = newKeys;
+        public boolean contains(int key) {
+            return map.get(key) != -1;
+        }
 
-                        // start hashing from the beginning
-                        ind = Math.abs(Integer.hashCode(key)) % keys.length;
-                    }
-                }
-            }
+        public int size() {
+            return map.size();
         }
     }
 
+    /**
+     * Set of strings backed by a {@link NonRecursiveHashMapCharacter}, {@code NA} is distinct from
+     * the string {@code "NA"}.
+     */
+    public static final class NonRecursiveHashSetCharacter {
+        private final NonRecursiveHashMapCharacter map;
+
+        public NonRecursiveHashSetCharacter(int approxCapacity) {
+            map = new NonRecursiveHashMapCharacter(approxCapacity);
+        }
+
+        /**
+         * Adds {@code key} and returns {@code true} if it was already present.
+         */
+        public boolean add(String key) {
+            return map.put(key, 1);
+        }
+
+        public boolean contains(String key) {
+            return map.get(key) != -1;
+        }
+
+        public int size() {
+            return map.size();
+        }
+    }
+
+    public static final class NonRecursiveHashSetComplex {
+        private final NonRecursiveHashMapComplex map;
+
+        public NonRecursiveHashSetComplex(int approxCapacity) {
+            map = new NonRecursiveHashMapComplex(approxCapacity);
+        }
+
+        /**
+         * Adds {@code key} and returns {@code true} if it was already present.
+         */
+        public boolean add(RComplex key) {
+            return map.put(key, 1);
+        }
+
+        public boolean contains(RComplex key) {
+            return map.get(key) != -1;
+        }
+    }
+
+    /**
+     * Open addressing hash maps from unboxed keys to non-negative {@code int} values, used by
+     * {@code match}, {@code duplicated}, {@code unique} and friends. The keys and values are kept
+     * in parallel primitive arrays with linear probing; a value of {@code 0} in {@link #values}
+     * marks an empty slot (values are stored incremented by one). The capacity is a power of two,
+     * slots are chosen by Fibonacci hashing and the table doubles when it is three quarters full, so
+     * the capacity passed to the constructor is only a hint. {@code NA} keys are kept outside of
+     * the table.
+     */
     private abstract static class NonRecursiveHashMap {
 
-        protected final int[] values;
+        private static final int MIN_LENGTH = 16;
+        private static final int MAX_LENGTH = 1 << 30;
+
+        protected int[] values;
         protected int naValue;
+        private int size;
+        private int shift;
 
         protected NonRecursiveHashMap(int entryCount) {
-            int capacity = Math.max(entryCount * 3 / 2, 1);
-            values = new int[Integer.highestOneBit(capacity) << 1];
+            long capacity = Math.max(entryCount * 3L / 2, MIN_LENGTH / 2);
+            values = new int[(int) Math.min(Long.highestOneBit(capacity) << 1, MAX_LENGTH)];
+            shift = 32 - Integer.numberOfTrailingZeros(values.length);
+        }
+
+        protected final int index(int hash) {
+            return (hash * 0x9E3779B9) >>> shift;
+        }
+
+        protected final int next(int ind) {
+            return (ind + 1) & (values.length - 1);
+        }
+
+        protected static int hashLong(long bits) {
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        /**
+         * Number of distinct keys, including {@code NA} and {@code NaN} keys.
+         */
+        public final int size() {
+            return size;
+        }
+
+        /**
+         * Called after a new key was added to the table (not for the keys kept outside of it),
+         * returns {@code true} if the table should be rehashed to twice its capacity.
+         */
+        protected final boolean added() {
+            size++;
+            return size > values.length - (values.length >>> 2) && values.length < MAX_LENGTH;
+        }
+
+        protected final void addedOutside() {
+            size++;
         }
 
-        protected int index(int hash) {
-            // Multiply by -127
-            return ((hash << 1) - (hash << 8)) & (values.length - 1);
+        /**
+         * Replaces {@link #values} with an empty array of twice the length and returns the old one.
+         */
+        protected final int[] resize() {
+            int[] oldValues = values;
+            values = new int[oldValues.length << 1];
+            shift--;
+            return oldValues;
+        }
+
+        protected final int putOutside(int oldValue, int value, boolean overwrite) {
+            if (oldValue == 0) {
+                addedOutside();
+                return value + 1;
+            }
+            return overwrite ? value + 1 : oldValue;
         }
     }
 
     public static final class NonRecursiveHashMapCharacter extends NonRecursiveHashMap {
 
-        private final String[] keys;
+        private String[] keys;
 
         public NonRecursiveHashMapCharacter(int approxCapacity) {
             super(approxCapacity);
             keys = new String[values.length];
         }
 
+        /**
+         * Maps {@code key} to {@code value} and returns {@code true} if the key was already
+         * present.
+         */
         public boolean put(String key, int value) {
+            return put(key, value, true) != -1;
+        }
+
+        /**
+         * Maps {@code key} to {@code value} unless it is already present, returns the existing
+         * value or {@code -1} if the key was added.
+         */
+        public int putIfAbsent(String key, int value) {
+            return put(key, value, false);
+        }
+
+        private int put(String key, int value, boolean overwrite) {
             assert value >= 0;
             if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int keyHash = key.hashCode();
-                int ind = index(keyHash);
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (keys[ind].hashCode() == keyHash && key.equals(keys[ind])) {
+                int old = naValue;
+                naValue = putOutside(old, value, overwrite);
+                return old - 1;
+            }
+            int keyHash = key.hashCode();
+            int ind = index(keyHash);
+            while (true) {
+                int old = values[ind];
+                if (old == 0) {
+                    keys[ind] = key;
+                    values[ind] = value + 1;
+                    if (added()) {
+                        rehash();
+                    }
+                    return -1;
+                } else if (keys[ind].hashCode() == keyHash && key.equals(keys[ind])) {
+                    if (overwrite) {
                         values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
                     }
+                    return old - 1;
                 }
+                ind = next(ind);
             }
         }
 
         public int get(String key) {
             if (RRuntime.isNA(key)) {
                 return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
+            }
+            int keyHash = key.hashCode();
+            int ind = index(keyHash);
+            while (values[ind] != 0) {
+                if (keys[ind].hashCode() == keyHash && key.equals(keys[ind])) {
+                    return values[ind] - 1;
+                }
+                ind = next(ind);
+            }
+            return -1;
+        }
+
+        private void rehash() {
+            String[] oldKeys = keys;
+            int[] oldValues = resize();
+            keys = new String[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = index(oldKeys[i].hashCode());
+                    while (values[ind] != 0) {
+                        ind = next(ind);
                     }
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
                 }
             }
         }
@@ -281,123 +354,182 @@ public final class Collections {
 
     public static final class NonRecursiveHashMapComplex extends NonRecursiveHashMap {
 
-        private final RComplex[] keys;
+        private RComplex[] keys;
 
         public NonRecursiveHashMapComplex(int approxCapacity) {
             super(approxCapacity);
             keys = new RComplex[values.length];
         }
 
+        /**
+         * Maps {@code key} to {@code value} and returns {@code true} if the key was already
+         * present.
+         */
         public boolean put(RComplex key, int value) {
+            return put(key, value, true) != -1;
+        }
+
+        /**
+         * Maps {@code key} to {@code value} unless it is already present, returns the existing
+         * value or {@code -1} if the key was added.
+         */
+        public int putIfAbsent(RComplex key, int value) {
+            return put(key, value, false);
+        }
+
+        private int put(RComplex key, int value, boolean overwrite) {
             assert value >= 0;
             if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(key.hashCode());
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key.equals(keys[ind])) {
+                int old = naValue;
+                naValue = putOutside(old, value, overwrite);
+                return old - 1;
+            }
+            int ind = index(key.hashCode());
+            while (true) {
+                int old = values[ind];
+                if (old == 0) {
+                    keys[ind] = key;
+                    values[ind] = value + 1;
+                    if (added()) {
+                        rehash();
+                    }
+                    return -1;
+                } else if (key.equals(keys[ind])) {
+                    if (overwrite) {
                         values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
                     }
+                    return old - 1;
                 }
+                ind = next(ind);
             }
         }
 
         public int get(RComplex key) {
             if (RRuntime.isNA(key)) {
                 return naValue - 1;
-            } else {
-                int ind = index(key.hashCode());
-                int firstInd = ind;
-                while (true) {
-                    if (key.equals(keys[ind])) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
+            }
+            int ind = index(key.hashCode());
+            while (values[ind] != 0) {
+                if (key.equals(keys[ind])) {
+                    return values[ind] - 1;
+                }
+                ind = next(ind);
+            }
+            return -1;
+        }
+
+        private void rehash() {
+            RComplex[] oldKeys = keys;
+            int[] oldValues = resize();
+            keys = new RComplex[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = index(oldKeys[i].hashCode());
+                    while (values[ind] != 0) {
+                        ind = next(ind);
                     }
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
                 }
             }
         }
     }
 
+    /**
+     * Map from doubles that follows R's notion of equality: {@code NA} and {@code NaN} are
+     * distinct keys (all {@code NaN} payloads other than {@code NA} are the same key) and
+     * {@code 0} and {@code -0} are the same key.
+     */
     public static final class NonRecursiveHashMapDouble extends NonRecursiveHashMap {
 
-        private final double[] keys;
+        private double[] keys;
         private int nanValue;
 
         public NonRecursiveHashMapDouble(int approxCapacity) {
             super(approxCapacity);
             keys = new double[values.length];
-            Arrays.fill(keys, RRuntime.DOUBLE_NA);
         }
 
+        /**
+         * Maps {@code key} to {@code value} and returns {@code true} if the key was already
+         * present.
+         */
         public boolean put(double key, int value) {
+            return put(key, value, true) != -1;
+        }
+
+        /**
+         * Maps {@code key} to {@code value} unless it is already present, returns the existing
+         * value or {@code -1} if the key was added.
+         */
+        public int putIfAbsent(double key, int value) {
+            return put(key, value, false);
+        }
+
+        private int put(double key, int value, boolean overwrite) {
             assert value >= 0;
-            if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else if (Double.isNaN(key)) {
-                boolean ret = nanValue == 0;
-                nanValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Double.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
+            if (Double.isNaN(key)) {
+                if (RRuntime.isNA(key)) {
+                    int old = naValue;
+                    naValue = putOutside(old, value, overwrite);
+                    return old - 1;
+                } else {
+                    int old = nanValue;
+                    nanValue = putOutside(old, value, overwrite);
+                    return old - 1;
+                }
+            }
+            int ind = index(hash(key));
+            while (true) {
+                int old = values[ind];
+                if (old == 0) {
+                    keys[ind] = key;
+                    values[ind] = value + 1;
+                    if (added()) {
+                        rehash();
+                    }
+                    return -1;
+                } else if (key == keys[ind]) {
+                    if (overwrite) {
                         values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
                     }
+                    return old - 1;
                 }
+                ind = next(ind);
             }
         }
 
         public int get(double key) {
-            if (RRuntime.isNA(key)) {
-                return naValue - 1;
-            } else if (Double.isNaN(key)) {
-                return nanValue - 1;
-            } else {
-                int ind = index(Double.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
+            if (Double.isNaN(key)) {
+                return RRuntime.isNA(key) ? naValue - 1 : nanValue - 1;
+            }
+            int ind = index(hash(key));
+            while (values[ind] != 0) {
+                if (key == keys[ind]) {
+                    return values[ind] - 1;
+                }
+                ind = next(ind);
+            }
+            return -1;
+        }
+
+        private static int hash(double key) {
+            // adding 0.0 turns -0.0 into 0.0
+            return hashLong(Double.doubleToRawLongBits(key + 0.0));
+        }
+
+        private void rehash() {
+            double[] oldKeys = keys;
+            int[] oldValues = resize();
+            keys = new double[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = index(hash(oldKeys[i]));
+                    while (values[ind] != 0) {
+                        ind = next(ind);
                     }
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
                 }
             }
         }
@@ -405,58 +537,82 @@ public final class Collections {
 
     public static final class NonRecursiveHashMapInt extends NonRecursiveHashMap {
 
-        private final int[] keys;
+        private int[] keys;
 
         public NonRecursiveHashMapInt(int approxCapacity) {
             super(approxCapacity);
             keys = new int[values.length];
-            Arrays.fill(keys, RRuntime.INT_NA);
         }
 
+        /**
+         * Maps {@code key} to {@code value} and returns {@code true} if the key was already
+         * present.
+         */
         public boolean put(int key, int value) {
+            return put(key, value, true) != -1;
+        }
+
+        /**
+         * Maps {@code key} to {@code value} unless it is already present, returns the existing
+         * value or {@code -1} if the key was added.
+         */
+        public int putIfAbsent(int key, int value) {
+            return put(key, value, false);
+        }
+
+        private int put(int key, int value, boolean overwrite) {
             assert value >= 0;
             if (RRuntime.isNA(key)) {
-                boolean ret = naValue == 0;
-                naValue = value + 1;
-                return ret;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                while (true) {
-                    if (values[ind] == 0) {
-                        keys[ind] = key;
-                        values[ind] = value + 1;
-                        return false;
-                    } else if (key == keys[ind]) {
+                int old = naValue;
+                naValue = putOutside(old, value, overwrite);
+                return old - 1;
+            }
+            int ind = index(key);
+            while (true) {
+                int old = values[ind];
+                if (old == 0) {
+                    keys[ind] = key;
+                    values[ind] = value + 1;
+                    if (added()) {
+                        rehash();
+                    }
+                    return -1;
+                } else if (key == keys[ind]) {
+                    if (overwrite) {
                         values[ind] = value + 1;
-                        return true;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
                     }
+                    return old - 1;
                 }
+                ind = next(ind);
             }
         }
 
         public int get(int key) {
             if (RRuntime.isNA(key)) {
                 return naValue - 1;
-            } else {
-                int ind = index(Integer.hashCode(key));
-                int firstInd = ind;
-                while (true) {
-                    if (key == keys[ind]) {
-                        return values[ind] - 1;
-                    } else {
-                        ind++;
-                        if (ind == values.length) {
-                            ind = 0;
-                        }
-                        if (ind == firstInd || values[ind] == 0) {
-                            return -1;
-                        }
+            }
+            int ind = index(key);
+            while (values[ind] != 0) {
+                if (key == keys[ind]) {
+                    return values[ind] - 1;
+                }
+                ind = next(ind);
+            }
+            return -1;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldValues = resize();
+            keys = new int[values.length];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != 0) {
+                    int ind = index(oldKeys[i]);
+                    while (values[ind] != 0) {
+                        ind = next(ind);
                     }
+                    keys[ind] = oldKeys[i];
+                    values[ind] = oldValues[i];
                 }
             }
         }
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * Converts doubles to decimal strings without going through {@link BigDecimal} or
+ * {@link String#format}.
+ *
+ * A value is first converted to the shortest decimal that rounds back to it, using the Schubfach
+ * algorithm by Raffaello Giulietti (as in {@code jdk.internal.math.DoubleToDecimal}). Rounding
+ * that decimal to fewer digits gives the same result as rounding the exact binary value, except
+ * when the dropped digits are exactly a half, which is then decided on the exact value with ties
+ * to even. Rounding to more digits than the shortest decimal has is only exact up to
+ * {@link #DBL_DIG} significant digits of a normal value or if the decimal is the exact value; the
+ * methods that round return {@code false} otherwise and the caller has to use an arbitrary
+ * precision fallback. This covers R's default of 7 digits for printing and the 15 digits used by
+ * {@code as.character}.
+ *
+ * The digits are written into a reusable char buffer of the formatter. An instance is not thread
+ * safe, {@link #getInstance()} returns one for the current thread.
+ */
+public final class DoubleFormatter {
+
+    /** The number of significant decimal digits a double always represents exactly. */
+    public static final int DBL_DIG = 15;
+
+    private static final ThreadLocal<DoubleFormatter> INSTANCE = ThreadLocal.withInitial(DoubleFormatter::new);
+
+    private static final long[] POW10 = new long[19];
+    private static final double[] POW10D = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+        for (int i = 0; i < POW10D.length; i++) {
+            // exact, the powers of ten up to 1e22 are representable
+            POW10D[i] = i < POW10.length ? POW10[i] : POW10D[i - 1] * 10;
+        }
+    }
+
+    /** The value: {@code mantissa * 10^(exponent - digitCount + 1)}, without trailing zeros. */
+    private long mantissa;
+    private int digitCount;
+    private int exponent;
+
+    /** Whether the decimal is exactly the binary value it was computed from. */
+    private boolean exact;
+    /** Subnormal values have less than {@link #DBL_DIG} significant digits of precision. */
+    private boolean subnormal;
+    private double value;
+
+    private final char[] digits = new char[19];
+    private char[] buffer = new char[32];
+    private int length;
+
+    public static DoubleFormatter getInstance() {
+        return INSTANCE.get();
+    }
+
+    /**
+     * Sets the formatter to {@code abs} rounded to {@code significant} significant digits. Returns
+     * {@code false} if that cannot be done exactly.
+     */
+    public boolean significant(double abs, int significant) {
+        assert abs >= 0 && Double.isFinite(abs);
+        decompose(abs);
+        return round(significant);
+    }
+
+    /**
+     * Sets the formatter to {@code abs} rounded to {@code decimals} digits after the decimal point.
+     * Returns {@code false} if that cannot be done exactly.
+     */
+    public boolean fixed(double abs, int decimals) {
+        assert abs >= 0 && Double.isFinite(abs);
+        decompose(abs);
+        return round(exponent + 1 + decimals);
+    }
+
+    /**
+     * The decimal exponent of the leading digit of the current value, i.e. {@code kpower} in
+     * GnuR's {@code scientific}.
+     */
+    public int getExponent() {
+        return exponent;
+    }
+
+    /**
+     * The number of significant digits of the current value without trailing zeros, i.e.
+     * {@code nsig} in GnuR's {@code scientific}.
+     */
+    public int getSignificantDigits() {
+        return digitCount;
+    }
+
+    public DoubleFormatter clear() {
+        length = 0;
+        return this;
+    }
+
+    public DoubleFormatter append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    /**
+     * Appends the current value with {@code decimals} digits after {@code cdec}, like
+     * {@code %.*f}.
+     */
+    public DoubleFormatter appendFixed(int decimals, char cdec) {
+        fillDigits();
+        ensureCapacity(Math.max(exponent, 0) + decimals + 2);
+        for (int k = Math.max(exponent, 0); k >= -decimals; k--) {
+            if (k == -1) {
+                buffer[length++] = cdec;
+            }
+            int index = exponent - k;
+            buffer[length++] = index >= 0 && index < digitCount ? digits[index] : '0';
+        }
+        return this;
+    }
+
+    /**
+     * Appends the current value with one digit before {@code cdec}, {@code decimals} after it and
+     * an exponent of at least two digits, like {@code %.*e}.
+     */
+    public DoubleFormatter appendScientific(int decimals, char cdec, char expChar) {
+        fillDigits();
+        ensureCapacity(decimals + 7);
+        buffer[length++] = digits[0];
+        if (decimals > 0) {
+            buffer[length++] = cdec;
+            for (int i = 1; i <= decimals; i++) {
+                buffer[length++] = i < digitCount ? digits[i] : '0';
+            }
+        }
+        buffer[length++] = expChar;
+        int exp = exponent;
+        if (exp < 0) {
+            buffer[length++] = '-';
+            exp = -exp;
+        } else {
+            buffer[length++] = '+';
+        }
+        if (exp >= 100) {
+            buffer[length++] = (char) ('0' + exp / 100);
+            exp %= 100;
+        }
+        buffer[length++] = (char) ('0' + exp / 10);
+        buffer[length++] = (char) ('0' + exp % 10);
+        return this;
+    }
+
+    /**
+     * Right-aligns the contents of the buffer in {@code width} characters.
+     */
+    public DoubleFormatter padLeft(int width) {
+        int blanks = width - length;
+        if (blanks > 0) {
+            ensureCapacity(blanks);
+            System.arraycopy(buffer, 0, buffer, blanks, length);
+            for (int i = 0; i < blanks; i++) {
+                buffer[i] = ' ';
+            }
+            length = width;
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Formats a single value the way {@code formatReal} followed by {@code encodeReal} does in
+     * GnuR, i.e. with the minimal number of significant digits up to {@code digits} and fixed
+     * notation unless the scientific one is narrower by more than {@code sciPen}. Returns
+     * {@code null} if {@code digits} is not between 1 and {@link #DBL_DIG} or if the value needs
+     * more digits than can be produced exactly.
+     */
+    @TruffleBoundary
+    public static String encode(double x, int digits, int sciPen, char cdec, String naString) {
+        if (!RRuntime.isFinite(x)) {
+            return RRuntime.isNA(x) ? naString : Double.isNaN(x) ? "NaN" : x > 0 ? "Inf" : "-Inf";
+        }
+        if (digits < 1 || digits > DBL_DIG) {
+            return null;
+        }
+        DoubleFormatter fmt = getInstance();
+        double abs = Math.abs(x);
+        int sgn = x < 0 ? 1 : 0;
+        if (!fmt.significant(abs, digits)) {
+            return null;
+        }
+        int nsig = fmt.digitCount;
+        int kpower = fmt.exponent;
+        int left = roundingWidens(abs, kpower, digits) ? kpower : kpower + 1;
+        int sleft = sgn + (left <= 0 ? 1 : left);
+        int rgt = Math.max(nsig - left, 0);
+        int wF = sleft + rgt + (rgt != 0 ? 1 : 0);
+        int e = (left > 100 || left <= -99) ? 2 : 1;
+        int d = nsig - 1;
+        int wE = sgn + (d > 0 ? 1 : 0) + d + 4 + e;
+        fmt.clear();
+        if (sgn != 0) {
+            fmt.append('-');
+        }
+        if (wF <= wE + sciPen) {
+            if (!fmt.fixed(abs, rgt)) {
+                return null;
+            }
+            fmt.appendFixed(rgt, cdec);
+        } else {
+            fmt.appendScientific(d, cdec, 'e');
+        }
+        return fmt.toString();
+    }
+
+    /**
+     * Scientific format may do more rounding than fixed format, e.g. 9996 with 3 digits is 1e+04
+     * in scientific, but 9996 in fixed. This happens when the true value {@code abs} is less than
+     * {@code 10^kpower}, {@code kpower} being the exponent after rounding to {@code digits}, and
+     * would not round up to it in fixed format.
+     */
+    public static boolean roundingWidens(double abs, int kpower, int digits) {
+        if (kpower <= 0 || kpower >= POW10D.length) {
+            return false;
+        }
+        int rgt = Math.min(Math.max(digits - kpower, 0), POW10D.length - 1);
+        return abs < POW10D[kpower] - 0.5 / POW10D[rgt];
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            char[] newBuffer = new char[Math.max(buffer.length * 2, length + additional)];
+            System.arraycopy(buffer, 0, newBuffer, 0, length);
+            buffer = newBuffer;
+        }
+    }
+
+    private void fillDigits() {
+        long m = mantissa;
+        for (int i = digitCount - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + m % 10);
+            m /= 10;
+        }
+    }
+
+    private void setDecimal(long f, int e, boolean isExact) {
+        long m = f;
+        int exp = e;
+        while (m % 10 == 0) {
+            m /= 10;
+            exp++;
+        }
+        mantissa = m;
+        digitCount = digitCount(m);
+        exponent = exp + digitCount - 1;
+        exact = isExact;
+    }
+
+    private void setZero() {
+        mantissa = 0;
+        digitCount = 1;
+        exponent = 0;
+    }
+
+    private static int digitCount(long m) {
+        int count = 1;
+        while (count < POW10.length && m >= POW10[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    private boolean round(int significant) {
+        if (significant >= digitCount) {
+            return exact || (significant <= DBL_DIG && !subnormal);
+        }
+        if (significant < 0) {
+            setZero();
+            return true;
+        }
+        long pow = POW10[digitCount - significant];
+        long q = mantissa / pow;
+        long rem = mantissa - q * pow;
+        long half = pow >> 1;
+        if (rem > half || (rem == half && roundsUpOnTie(q))) {
+            q++;
+        }
+        if (q == 0) {
+            setZero();
+        } else {
+            setDecimal(q, exponent - significant + 1, false);
+        }
+        return true;
+    }
+
+    private boolean roundsUpOnTie(long q) {
+        int cmp = exact ? 0 : new BigDecimal(value).compareTo(BigDecimal.valueOf(mantissa, digitCount - 1 - exponent));
+        return cmp > 0 || (cmp == 0 && (q & 1) != 0);
+    }
+
+    //
+    // Schubfach, see R. Giulietti, "The Schubfach way to render doubles", 2020
+    //
+
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final long T_MASK = C_MIN - 1;
+    private static final int C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+
+    /**
+     * For each {@code k} the 126 bit value {@code g = floor(10^-k * 2^-r) + 1}, with {@code r}
+     * chosen so that {@code 2^125 <= g < 2^126}, split into the upper and the lower 63 bits.
+     */
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static {
+        BigInteger ten = BigInteger.TEN;
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger g;
+            if (k <= 0) {
+                BigInteger pow = ten.pow(-k);
+                int r = pow.bitLength() - 126;
+                g = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+            } else {
+                BigInteger pow = ten.pow(k);
+                g = BigInteger.ONE.shiftLeft(125 + pow.bitLength()).divide(pow);
+            }
+            g = g.add(BigInteger.ONE);
+            G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+            G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    private void decompose(double abs) {
+        value = abs;
+        subnormal = abs < Double.MIN_NORMAL;
+        if (abs == 0) {
+            setZero();
+            exact = true;
+            return;
+        }
+        long bits = Double.doubleToRawLongBits(abs);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1));
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            if (0 < mq && mq < P) {
+                // integers are their own shortest decimal
+                long f = c >> mq;
+                if (f << mq == c) {
+                    setDecimal(f, 0, true);
+                    return;
+                }
+            }
+            toDecimal(-mq, c, 0);
+        } else if (t < C_TINY) {
+            toDecimal(Q_MIN, 10 * t, -1);
+        } else {
+            toDecimal(Q_MIN, t, 0);
+        }
+    }
+
+    private void toDecimal(int q, long c, int dk) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G[2 * (k - K_MIN)];
+        long g0 = G[2 * (k - K_MIN) + 1];
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+        long s = vb >> 2;
+        if (s >= 100) {
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                setDecimal(upin ? sp10 : tp10, k + dk, false);
+                return;
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            setDecimal(uin ? s : t, k + dk, false);
+            return;
+        }
+        long cmp = vb - ((s + t) << 1);
+        setDecimal(cmp < 0 || (cmp == 0 && (s & 0x1) == 0) ? s : t, k + dk, false);
+    }
+
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (((z & MASK_63) + MASK_63) >>> 63);
+    }
+
+    private static long multiplyHigh(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + (-274_743_187_321L) >> 41);
+    }
+
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
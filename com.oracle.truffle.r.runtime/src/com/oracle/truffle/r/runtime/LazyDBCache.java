@@ -23,37 +23,277 @@
 package com.oracle.truffle.r.runtime;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RNull;
 
+/**
+ * Caches the lazy-load databases ({@code .rdb} files) of packages.
+ *
+ * One instance is created by the outermost context and shared by all the contexts it spawns. A
+ * database file is read once per instance, keyed by its path and invalidated when the size or the
+ * modification time of the file changes. Each context remembers the databases it has already
+ * looked up, until {@code lazyLoadDBflush} removes them.
+ *
+ * In addition, the decompressed payloads of recently fetched objects are kept in an LRU cache
+ * bounded by their total size, so that objects fetched repeatedly (e.g. by several contexts
+ * loading the same package) are decompressed only once. The bound in bytes is given by the R
+ * option {@code fastr.lazyload.cache.size} (defaults to 64MB, zero disables the cache).
+ */
 public class LazyDBCache {
 
+    public static final String CACHE_SIZE_OPTION = "fastr.lazyload.cache.size";
+
+    private static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * The names of the values returned by {@link #getStatistics()}.
+     */
+    public static final String[] STATISTICS_NAMES = {"hits", "misses", "evictions", "entries", "bytes", "capacity", "files", "fileBytes"};
+
+    private final ConcurrentHashMap<String, DB> databases = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<PayloadKey, byte[]> payloads = new LinkedHashMap<>(64, 0.75f, true);
+    private long payloadBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * The contents of one database file. The buffer is shared between threads and must only be
+     * accessed with absolute reads or through a {@link ByteBuffer#duplicate() duplicate}.
+     */
+    public static final class DB {
+        private final LazyDBCache cache;
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final ByteBuffer buffer;
+
+        private DB(LazyDBCache cache, String path, long size, long lastModified, ByteBuffer buffer) {
+            this.cache = cache;
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.buffer = buffer;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Returns the big-endian integer at {@code offset}.
+         */
+        public int getInt(int offset) {
+            return buffer.getInt(offset);
+        }
+
+        public byte getByte(int offset) {
+            return buffer.get(offset);
+        }
+
+        /**
+         * Copies {@code length} bytes starting at {@code offset}.
+         */
+        public byte[] getBytes(int offset, int length) {
+            byte[] result = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(result);
+            return result;
+        }
+
+        /**
+         * Returns the decompressed payload of the object at {@code offset}, or {@code null} if it
+         * is not cached.
+         */
+        @TruffleBoundary
+        public byte[] getPayload(int offset) {
+            synchronized (cache.payloads) {
+                byte[] result = cache.payloads.get(new PayloadKey(this, offset));
+                if (result != null) {
+                    cache.hits++;
+                } else {
+                    cache.misses++;
+                }
+                return result;
+            }
+        }
+
+        /**
+         * Caches the decompressed payload of the object at {@code offset}. The array must not be
+         * modified afterwards.
+         */
+        @TruffleBoundary
+        public void putPayload(int offset, byte[] payload) {
+            long capacity = getCapacity();
+            if (payload.length > capacity / 4) {
+                // do not let single large objects flush the cache
+                return;
+            }
+            synchronized (cache.payloads) {
+                byte[] old = cache.payloads.put(new PayloadKey(this, offset), payload);
+                cache.payloadBytes += payload.length - (old == null ? 0 : old.length);
+                Iterator<byte[]> iterator = cache.payloads.values().iterator();
+                while (cache.payloadBytes > capacity && iterator.hasNext()) {
+                    cache.payloadBytes -= iterator.next().length;
+                    iterator.remove();
+                    cache.evictions++;
+                }
+            }
+        }
+    }
+
+    private static final class PayloadKey {
+        private final DB db;
+        private final int offset;
+
+        PayloadKey(DB db, int offset) {
+            this.db = db;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PayloadKey)) {
+                return false;
+            }
+            PayloadKey other = (PayloadKey) obj;
+            return db == other.db && offset == other.offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(db) * 31 + offset;
+        }
+    }
+
+    @TruffleBoundary
+    private DB open(TruffleFile file) throws IOException {
+        String path = file.getPath();
+        long size = file.size();
+        long lastModified = file.getLastModifiedTime().toMillis();
+        DB db = databases.get(path);
+        if (db != null && db.size == size && db.lastModified == lastModified) {
+            return db;
+        }
+        DB result = new DB(this, path, size, lastModified, ByteBuffer.wrap(file.readAllBytes()));
+        // if several contexts race here, the file is just read more than once
+        databases.put(path, result);
+        if (db != null) {
+            removePayloads(db);
+        }
+        return result;
+    }
+
+    private void removePayloads(DB db) {
+        synchronized (payloads) {
+            Iterator<Map.Entry<PayloadKey, byte[]>> iterator = payloads.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<PayloadKey, byte[]> entry = iterator.next();
+                if (entry.getKey().db == db) {
+                    payloadBytes -= entry.getValue().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static long getCapacity() {
+        Object value = RContext.getInstance().stateROptions.getValue(CACHE_SIZE_OPTION);
+        if (value == null || value == RNull.instance) {
+            return DEFAULT_CACHE_SIZE;
+        }
+        int result = RRuntime.asInteger(value);
+        return RRuntime.isNA(result) || result < 0 ? DEFAULT_CACHE_SIZE : result;
+    }
+
+    /**
+     * Returns the statistics of the payload cache: hits, misses, evictions, the number of cached
+     * payloads and their size, the capacity and the number and total size of open database files.
+     */
+    @TruffleBoundary
+    public long[] getStatistics() {
+        long files = 0;
+        long fileBytes = 0;
+        for (DB db : databases.values()) {
+            files++;
+            fileBytes += db.size;
+        }
+        synchronized (payloads) {
+            return new long[]{hits, misses, evictions, payloads.size(), payloadBytes, getCapacity(), files, fileBytes};
+        }
+    }
+
+    /**
+     * Empties the payload cache and resets the counters. Open database files are kept.
+     */
+    @TruffleBoundary
+    public void clear() {
+        synchronized (payloads) {
+            payloads.clear();
+            payloadBytes = 0;
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        }
+    }
+
     public static final class ContextStateImpl implements RContext.ContextState {
-        private final Map<String, byte[]> dbCache = new HashMap<>();
+        private final LazyDBCache cache;
+        private final Map<String, DB> dbCache = new HashMap<>();
+
+        private ContextStateImpl(LazyDBCache cache) {
+            this.cache = cache;
+        }
 
-        public byte[] getData(RContext context, String dbPath) {
-            byte[] dbData = dbCache.get(dbPath);
-            if (dbData == null) {
+        /**
+         * Returns the cache shared with the parent and the child contexts.
+         */
+        public LazyDBCache getCache() {
+            return cache;
+        }
+
+        @TruffleBoundary
+        public DB getData(RContext context, String dbPath) {
+            DB db = dbCache.get(dbPath);
+            if (db == null) {
                 try {
-                    dbData = context.getSafeTruffleFile(dbPath).readAllBytes();
+                    db = cache.open(context.getSafeTruffleFile(dbPath));
                 } catch (IOException ex) {
                     // unexpected
                     throw RInternalError.shouldNotReachHere(ex);
                 }
-                dbCache.put(dbPath, dbData);
+                dbCache.put(dbPath, db);
             }
-            return dbData;
+            return db;
         }
 
+        @TruffleBoundary
         public void remove(String dbPath) {
             // no an error if missing
-            dbCache.remove(dbPath);
+            DB db = dbCache.remove(dbPath);
+            if (db != null && cache.databases.remove(db.path, db)) {
+                // the file may be replaced, e.g. by a reinstallation of the package
+                cache.removePayloads(db);
+            }
         }
 
-        public static ContextStateImpl newContextState() {
-            return new ContextStateImpl();
+        /**
+         * Creates the state of a context, which shares the cache of {@code parent} unless it is
+         * {@code null}.
+         */
+        public static ContextStateImpl newContextState(RContext parent) {
+            return new ContextStateImpl(parent == null ? new LazyDBCache() : parent.stateLazyDBCache.cache);
         }
     }
 }
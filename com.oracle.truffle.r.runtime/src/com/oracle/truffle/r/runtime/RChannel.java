@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.runtime;
 
+import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelQueueCapacity;
 import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelReceiveTimeout;
 import static com.oracle.truffle.r.runtime.env.frame.REnvTruffleFrameAccess.getStringIdentifiersAndValues;
 
@@ -29,7 +30,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -45,18 +46,32 @@ import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.Closure;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout;
+import com.oracle.truffle.r.runtime.data.RComplexVector;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RPairList;
 import com.oracle.truffle.r.runtime.data.RPromise;
 import com.oracle.truffle.r.runtime.data.RPromise.PromiseState;
+import com.oracle.truffle.r.runtime.data.RRawVector;
+import com.oracle.truffle.r.runtime.data.RScalar;
 import com.oracle.truffle.r.runtime.data.RSharingAttributeStorage;
+import com.oracle.truffle.r.runtime.data.RSymbol;
 import com.oracle.truffle.r.runtime.data.RUnboundValue;
+import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxCall;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxConstant;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxFunction;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxLookup;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxVisitor;
 
 /**
  * Implementation of a channel abstraction used for communication between parallel contexts in
@@ -64,43 +79,100 @@ import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
  */
 public class RChannel {
 
-    // TODO: cheaper way of serializing data (re-usable buffer?)
+    // TODO: cheaper way of serializing data (re-usable buffer?); environments that cannot be
+    // transferred by reference, connections and language objects with non-shareable constants are
+    // still serialized
 
     private static final int INITIAL_CHANNEL_NUM = 4;
     private static final int CHANNEL_NUM_GROW_FACTOR = 2;
-    private static final int QUEUE_CAPACITY = 1;
 
+    /*
+     * Creating and closing channels is rare and synchronized on registryLock. Looking up a channel
+     * by its id, which happens on every send and receive, only reads the volatile channels array.
+     * Every update of an element is followed by a write of the array reference to publish it.
+     */
+    private static final Object registryLock = new Object();
     private static int[] keys = new int[INITIAL_CHANNEL_NUM];
-    private static RChannel[] channels = new RChannel[INITIAL_CHANNEL_NUM];
+    private static volatile RChannel[] channels = new RChannel[INITIAL_CHANNEL_NUM];
 
     private static final int CLOSED_CHANNEL_KEY = -1;
 
-    /*
-     * Used to mediate access to the semaphore instances
+    private final MessageQueue masterToClient;
+    private final MessageQueue clientToMaster;
+    private volatile boolean closed;
+
+    private RChannel(int capacity) {
+        masterToClient = new MessageQueue(capacity);
+        clientToMaster = new MessageQueue(capacity);
+    }
+
+    /**
+     * One direction of a channel. Besides the messages it keeps the selectors of the threads
+     * waiting in {@link RChannel#select} for a message to arrive.
+     */
+    private static final class MessageQueue {
+        private final ArrayBlockingQueue<Object> messages;
+        private final CopyOnWriteArrayList<Selector> selectors = new CopyOnWriteArrayList<>();
+
+        MessageQueue(int capacity) {
+            this.messages = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(Object msg) throws InterruptedException {
+            messages.put(msg);
+            signalSelectors();
+        }
+
+        void signalSelectors() {
+            for (Selector selector : selectors) {
+                selector.signal();
+            }
+        }
+    }
+
+    /**
+     * Parks a selecting thread until one of the queues it is registered with changes.
      */
-    private static final Semaphore create = new Semaphore(1, true);
+    private static final class Selector {
+        private boolean signalled;
+
+        synchronized void signal() {
+            signalled = true;
+            notifyAll();
+        }
 
-    private final ArrayBlockingQueue<Object> masterToClient = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
-    private final ArrayBlockingQueue<Object> clientToMaster = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        /**
+         * Returns {@code false} if the deadline passed without a signal, a negative
+         * {@code deadline} means no limit.
+         */
+        synchronized boolean await(long deadline) throws InterruptedException {
+            while (!signalled) {
+                if (deadline < 0) {
+                    wait();
+                } else {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            signalled = false;
+            return true;
+        }
+    }
 
     public static int createChannel(int key) {
         if (key <= 0) {
             throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel's key must be positive");
         }
-        try {
-            create.acquire();
+        synchronized (registryLock) {
             return createChannelInternal(key)[0];
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error creating a channel");
-        } finally {
-            create.release();
         }
     }
 
     public static int[] createForkChannel(int portBaseNumber) {
-        try {
-            create.acquire();
-
+        synchronized (registryLock) {
             int firstUnused = 0;
             int port = -1;
             while (true) {
@@ -114,14 +186,11 @@ public class RChannel {
             }
             assert port > 0;
             return createChannelInternal(port);
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error creating a channel");
-        } finally {
-            create.release();
         }
     }
 
     private static int[] createChannelInternal(int key) throws RError {
+        int capacity = Math.max(1, RContext.getInstance().getNonNegativeIntOption(ChannelQueueCapacity));
         while (true) {
             int freeSlot = -1;
             // start from one as we need slots that have distinguishable positive and negative
@@ -135,8 +204,10 @@ public class RChannel {
                 }
             }
             if (freeSlot != -1) {
+                RChannel[] channelsTmp = channels;
                 keys[freeSlot] = key;
-                channels[freeSlot] = new RChannel();
+                channelsTmp[freeSlot] = new RChannel(capacity);
+                channels = channelsTmp;
                 return new int[]{freeSlot, key};
             } else {
                 int[] keysTmp = new int[keys.length * CHANNEL_NUM_GROW_FACTOR];
@@ -152,16 +223,11 @@ public class RChannel {
     }
 
     public static int getChannel(int key) {
-        try {
-            create.acquire();
+        synchronized (registryLock) {
             Integer res = getChannelInternal(key);
             if (res != null) {
                 return res;
             }
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error accessing channel");
-        } finally {
-            create.release();
         }
         throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel does not exist");
     }
@@ -177,38 +243,36 @@ public class RChannel {
 
     public static void closeChannel(int id) {
         int actualId = Math.abs(id);
-        try {
-            create.acquire();
-            if (actualId == 0 || actualId >= channels.length || channels[actualId] == null) {
+        RChannel channel;
+        synchronized (registryLock) {
+            RChannel[] channelsTmp = channels;
+            if (actualId == 0 || actualId >= channelsTmp.length || channelsTmp[actualId] == null) {
                 // closing an already closed channel does not necessarily have to be an error (and
                 // makes parallell package's worker script work unchanged)
                 if (keys[actualId] != CLOSED_CHANNEL_KEY) {
                     throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
                 }
             }
+            channel = channelsTmp[actualId];
             keys[actualId] = CLOSED_CHANNEL_KEY;
-            channels[actualId] = null;
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error closing channel");
-        } finally {
-            create.release();
+            channelsTmp[actualId] = null;
+            channels = channelsTmp;
+        }
+        if (channel != null) {
+            // wake up the threads selecting on the channel so that they notice it is gone
+            channel.closed = true;
+            channel.masterToClient.signalSelectors();
+            channel.clientToMaster.signalSelectors();
         }
     }
 
     private static RChannel getChannelFromId(int id) {
         int actualId = Math.abs(id);
-        try {
-            create.acquire();
-            if (actualId == 0 || actualId >= channels.length || channels[actualId] == null) {
-                throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
-            }
-            RChannel channel = channels[actualId];
-            return channel;
-        } catch (InterruptedException x) {
-            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error transmitting through channel");
-        } finally {
-            create.release();
+        RChannel[] channelsTmp = channels;
+        if (actualId == 0 || actualId >= channelsTmp.length || channelsTmp[actualId] == null) {
+            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
         }
+        return channelsTmp[actualId];
     }
 
     public static void send(int id, Object data) {
@@ -225,7 +289,7 @@ public class RChannel {
     public static Object receive(int id) {
         RChannel channel = getChannelFromId(id);
         try {
-            ArrayBlockingQueue<Object> queue = id < 0 ? channel.masterToClient : channel.clientToMaster;
+            ArrayBlockingQueue<Object> queue = (id < 0 ? channel.masterToClient : channel.clientToMaster).messages;
             int timeout = RContext.getInstance().getNonNegativeIntOption(ChannelReceiveTimeout);
             Object msg;
             if (timeout > 0) {
@@ -247,7 +311,7 @@ public class RChannel {
 
     public static Object poll(int id) {
         RChannel channel = getChannelFromId(id);
-        Object msg = (id < 0 ? channel.masterToClient : channel.clientToMaster).poll();
+        Object msg = (id < 0 ? channel.masterToClient : channel.clientToMaster).messages.poll();
         if (msg != null) {
             Input in = new Input();
             return in.processedReceivedMessage(msg);
@@ -255,6 +319,50 @@ public class RChannel {
         return null;
     }
 
+    /**
+     * Receives a message from whichever of the channels identified by {@code ids} has one first,
+     * parking the calling thread while none of them has. Returns the id of the channel and the
+     * message, or {@code null} if {@code timeout} seconds elapsed first. A negative
+     * {@code timeout} means waiting without a limit.
+     */
+    public static Object[] select(int[] ids, double timeout) {
+        MessageQueue[] queues = new MessageQueue[ids.length];
+        RChannel[] selected = new RChannel[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            selected[i] = getChannelFromId(ids[i]);
+            queues[i] = ids[i] < 0 ? selected[i].masterToClient : selected[i].clientToMaster;
+        }
+        long deadline = timeout < 0 ? -1 : System.nanoTime() + (long) (timeout * 1e9);
+        Selector selector = new Selector();
+        // register before polling so that a message arriving in between is not missed
+        for (MessageQueue queue : queues) {
+            queue.selectors.add(selector);
+        }
+        try {
+            while (true) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (selected[i].closed) {
+                        throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "channel with specified id does not exist");
+                    }
+                    Object msg = queues[i].messages.poll();
+                    if (msg != null) {
+                        Input in = new Input();
+                        return new Object[]{ids[i], in.processedReceivedMessage(msg)};
+                    }
+                }
+                if (!selector.await(deadline)) {
+                    return null;
+                }
+            }
+        } catch (InterruptedException x) {
+            throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error receiving from the channel");
+        } finally {
+            for (MessageQueue queue : queues) {
+                queue.selectors.remove(selector);
+            }
+        }
+    }
+
     private static class TransmitterCommon extends RSerialize.RefCounter {
 
         protected static class SerializedRef {
@@ -401,6 +509,24 @@ public class RChannel {
             }
         }
 
+        protected static class SerializedLanguage {
+            private final DynamicObject attributes;
+            private final RSyntaxElement expr;
+
+            public SerializedLanguage(DynamicObject attributes, RSyntaxElement expr) {
+                this.attributes = attributes;
+                this.expr = expr;
+            }
+
+            public DynamicObject getAttributes() {
+                return attributes;
+            }
+
+            public RSyntaxElement getExpr() {
+                return expr;
+            }
+        }
+
         protected static class SerializedAttributable {
 
             private final DynamicObject attributes;
@@ -457,13 +583,40 @@ public class RChannel {
             }
         }
 
+        /**
+         * Creates a new vector over the data of {@code vector} so that the data do not have to be
+         * copied when only the attributes differ between the sending and the receiving context.
+         * Both vectors are permanently shared, copy-on-write then protects the data in either
+         * context. Returns {@code null} if the data cannot be shared this way.
+         */
+        private static RAbstractVector shareData(RAbstractVector vector) {
+            RAbstractVector result;
+            if (vector instanceof RIntVector) {
+                result = RDataFactory.createIntVector(((RIntVector) vector).getReadonlyData(), vector.isComplete());
+            } else if (vector instanceof RDoubleVector) {
+                result = RDataFactory.createDoubleVector(((RDoubleVector) vector).getReadonlyData(), vector.isComplete());
+            } else if (vector instanceof RLogicalVector) {
+                result = RDataFactory.createLogicalVector(((RLogicalVector) vector).getReadonlyData(), vector.isComplete());
+            } else if (vector instanceof RComplexVector) {
+                result = RDataFactory.createComplexVector(((RComplexVector) vector).getReadonlyData(), vector.isComplete());
+            } else if (vector instanceof RRawVector) {
+                result = RDataFactory.createRawVector(((RRawVector) vector).getReadonlyData());
+            } else {
+                return null;
+            }
+            makeShared(vector);
+            makeShared(result);
+            return result;
+        }
+
         @TruffleBoundary
         private Object convertObjectAttributesToPrivate(Object msg) throws IOException {
             RAttributable attributable = (RAttributable) msg;
             DynamicObject attr = attributable.getAttributes();
             DynamicObject newAttr = createShareableSlow(attr, false);
             if (newAttr != attr && RSharingAttributeStorage.isShareable(attributable)) {
-                attributable = ((RSharingAttributeStorage) msg).copy();
+                RAbstractVector shared = msg instanceof RAbstractVector && ((RAbstractVector) msg).isMaterialized() ? shareData((RAbstractVector) msg) : null;
+                attributable = shared != null ? shared : ((RSharingAttributeStorage) msg).copy();
             }
             // see convertListAttributesToPrivate() why it is OK to use initAttributes() here
             attributable.initAttributes(newAttr);
@@ -515,6 +668,78 @@ public class RChannel {
             return new SerializedFunction(attributes == null ? null : createShareableSlow(attributes, true), env, fn.getName(), fn.getPackageName(), fn.getRBuiltin(), fn.getTarget());
         }
 
+        /**
+         * Checks that the AST of a language object can be used by the receiving context, i.e. that
+         * its constants are only symbols, missing values and atomic vectors without attributes.
+         * Other constants (e.g. environments, functions or lists inserted with {@code bquote})
+         * would be shared between the contexts.
+         */
+        private static final class ShareableConstantsVisitor extends RSyntaxVisitor<Boolean> {
+
+            private boolean acceptAll(RSyntaxElement[] elements) {
+                for (RSyntaxElement element : elements) {
+                    if (element != null && !accept(element)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxCall element) {
+                return accept(element.getSyntaxLHS()) && acceptAll(element.getSyntaxArguments());
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxConstant element) {
+                Object value = element.getValue();
+                if (value instanceof RAbstractAtomicVector) {
+                    if (((RAbstractAtomicVector) value).getAttributes() != null) {
+                        return false;
+                    }
+                    // same as for atomic vectors sent directly, avoids updates to ref count by
+                    // different threads
+                    makeShared(value);
+                    return true;
+                }
+                return value instanceof String || value instanceof Integer || value instanceof Double || value instanceof Byte || value instanceof RScalar || value instanceof RSymbol ||
+                                value == RNull.instance;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxLookup element) {
+                return true;
+            }
+
+            @Override
+            protected Boolean visit(RSyntaxFunction element) {
+                return acceptAll(element.getSyntaxArgumentDefaults()) && accept(element.getSyntaxBody());
+            }
+        }
+
+        /**
+         * Language objects are transferred as their AST, which the receiving context turns into a
+         * new language object, instead of being serialized. This is only done if the AST contains
+         * no constants that would be shared with the sending context, other language objects are
+         * serialized.
+         */
+        @TruffleBoundary
+        private Object convertPrivateLanguage(Object msg) throws IOException {
+            RPairList lang = (RPairList) msg;
+            RSyntaxElement expr;
+            try {
+                expr = lang.getSyntaxElement();
+            } catch (RError e) {
+                // not a valid expression (e.g. a malformed function definition), serialize it
+                return convertPrivateAttributable(msg);
+            }
+            if (!new ShareableConstantsVisitor().accept(expr)) {
+                return convertPrivateAttributable(msg);
+            }
+            DynamicObject attributes = lang.getAttributes();
+            return new SerializedLanguage(attributes == null ? null : createShareableSlow(attributes, true), expr);
+        }
+
         private Object convertPrivateAttributable(Object msg) throws IOException {
             // do full serialization but handle attributes separately (no reason to serialize them
             // unconditionally)
@@ -548,7 +773,7 @@ public class RChannel {
         }
 
         private static boolean serializeObject(Object o) {
-            return o instanceof REnvironment || o instanceof RConnection || (o instanceof RPairList && ((RPairList) o).isLanguage());
+            return o instanceof REnvironment || o instanceof RConnection;
         }
 
         private Object convertPrivate(Object o) throws IOException {
@@ -560,6 +785,8 @@ public class RChannel {
                 return convertPrivatePromise(o);
             } else if (o instanceof RFunction) {
                 return convertPrivateFunction(o);
+            } else if (o instanceof RPairList && ((RPairList) o).isLanguage()) {
+                return convertPrivateLanguage(o);
             } else if (!serializeObject(o)) {
                 // we need to make internal values (permanently) shared to avoid updates to ref
                 // count by different threads
@@ -669,6 +896,8 @@ public class RChannel {
                     ret = unserializePromise((SerializedPromise) el);
                 } else if (el instanceof SerializedFunction) {
                     ret = unserializeFunction((SerializedFunction) el);
+                } else if (el instanceof SerializedLanguage) {
+                    ret = unserializeLanguage((SerializedLanguage) el);
                 } else if (el instanceof SerializedAttributable) {
                     ret = unserializeAttributable((SerializedAttributable) el);
                 }
@@ -747,6 +976,17 @@ public class RChannel {
             return fn;
         }
 
+        @TruffleBoundary
+        private static RPairList unserializeLanguage(SerializedLanguage l) {
+            RPairList lang = RDataFactory.createLanguage(Closure.createLanguageClosure(RContext.getASTBuilder().process(l.getExpr()).asRNode()));
+            DynamicObject attributes = l.getAttributes();
+            if (attributes != null) {
+                // attributes unserialized in caller methods
+                lang.initAttributes(attributes);
+            }
+            return lang;
+        }
+
         @TruffleBoundary
         private static RAttributable unserializeAttributable(SerializedAttributable a) throws IOException {
             DynamicObject attributes = a.getAttributes();
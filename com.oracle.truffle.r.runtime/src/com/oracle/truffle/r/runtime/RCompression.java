@@ -40,7 +40,8 @@ import com.oracle.truffle.r.runtime.ffi.ZipRFFI;
 
 /**
  * Abstracts the implementation of the various forms of compression used in R. Since the C API for
- * LZMA is very complex (as used by GnuR), we use an 'xz' subprocess to do the work.
+ * LZMA is very complex (as used by GnuR), we use an 'xz' subprocess to do the work. Likewise, bzip2
+ * is delegated to a 'bzip2' subprocess.
  */
 public class RCompression {
     public enum Type {
@@ -111,7 +112,7 @@ public class RCompression {
             case GZIP:
                 return gzipUncompress(udata, cdata);
             case BZIP2:
-                throw RInternalError.unimplemented("BZIP2 compression");
+                return bzipUncompress(udata, cdata);
             case XZ:
                 return lzmaUncompress(udata, cdata);
             default:
@@ -137,7 +138,7 @@ public class RCompression {
             case GZIP:
                 return gzipCompress(udata, cdata);
             case BZIP2:
-                throw RInternalError.unimplemented("BZIP2 compression");
+                return bzipCompress(udata, cdata);
             case XZ:
                 return lzmaCompress(udata, cdata);
             default:
@@ -221,26 +222,67 @@ public class RCompression {
         throw new IOException();
     }
 
-    public static void bzipCompressToFile(byte[] data, TruffleFile path, boolean append) throws IOException {
-        String[] command = new String[]{"bzip2", "-zc"};
-        int rc;
+    /**
+     * Compresses {@code data} with the given bzip2 block size level ({@code 1} to {@code 9}, other
+     * values are clamped) and writes or appends the result to {@code path}.
+     */
+    public static void bzipCompressToFile(byte[] data, TruffleFile path, boolean append, int level) throws IOException {
+        byte[] cData = bzipFilter(new String[]{"bzip2", "-zc", "-" + Math.max(1, Math.min(9, level))}, data);
+        OpenOption[] openOptions = append ? new OpenOption[]{StandardOpenOption.APPEND} : new OpenOption[0];
+        try (OutputStream os = path.newOutputStream(openOptions)) {
+            os.write(cData);
+        }
+    }
+
+    /**
+     * Compresses {@code udata} like {@code BZ2_bzBuffToBuffCompress} in GnuR's {@code memCompress},
+     * i.e., with the largest block size.
+     */
+    private static boolean bzipCompress(byte[] udata, byte[] cdata) {
+        try {
+            byte[] result = bzipFilter(new String[]{"bzip2", "-zc", "-9"}, udata);
+            if (result.length > cdata.length) {
+                return false;
+            }
+            System.arraycopy(result, 0, cdata, 0, result.length);
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static boolean bzipUncompress(byte[] udata, byte[] cdata) {
+        try {
+            byte[] result = bzipFilter(new String[]{"bzip2", "-dc"}, cdata);
+            if (result.length != udata.length) {
+                return false;
+            }
+            System.arraycopy(result, 0, udata, 0, result.length);
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs the bzip2 {@code command} with {@code input} as its standard input and returns its
+     * standard output.
+     */
+    private static byte[] bzipFilter(String[] command, byte[] input) throws IOException {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.redirectError(Redirect.INHERIT);
         Process p = pb.start();
         InputStream is = p.getInputStream();
-        OutputStream os = p.getOutputStream();
         ProcessOutputManager.OutputThreadVariable readThread = new ProcessOutputManager.OutputThreadVariable(command[0], is);
         readThread.start();
-        os.write(data);
-        os.close();
+        try (OutputStream os = p.getOutputStream()) {
+            os.write(input);
+        }
         try {
-            rc = p.waitFor();
+            int rc = p.waitFor();
             if (rc == 0) {
                 readThread.join();
-                byte[] cData = Arrays.copyOf(readThread.getData(), readThread.getTotalRead());
-                OpenOption[] openOptions = append ? new OpenOption[]{StandardOpenOption.APPEND} : new OpenOption[0];
-                path.newOutputStream(openOptions).write(cData);
-                return;
+                return Arrays.copyOf(readThread.getData(), readThread.getTotalRead());
             } else {
                 throw new IOException("bzip2 error code: " + rc);
             }
@@ -928,6 +928,7 @@ public final class RError extends RuntimeException implements TruffleException {
         ENVIRONMENTS_COERCE("environments cannot be coerced to other types"),
         ROWSUM_NAMES_NOT_CHAR("row names are not character"),
         ROWSUM_NON_NUMERIC("non-numeric matrix in rowsum(): this should not happen"),
+        ROWSUM_UNKNOWN_GROUP("group not in 'uniqueg' in rowsum(): this should not happen"),
         ARGUMENTS_REQUIRED_COUNT("%d arguments to '%s' which requires %d"),
         ARG_IS_NOT_OF_MODE("argument is not of mode %s"),
         ARGUMENT_LENGTH_0("argument of length 0"),
@@ -111,6 +111,25 @@ public class ROptions {
             return previous;
         }
 
+        /**
+         * Returns a copy of all the option values, which can be reinstated by
+         * {@link #restoreValues}.
+         */
+        @TruffleBoundary
+        public Map<String, Object> copyValues() {
+            return new HashMap<>(map);
+        }
+
+        /**
+         * Replaces all the option values by {@code values} as returned by {@link #copyValues()}.
+         */
+        @TruffleBoundary
+        public void restoreValues(Map<String, Object> values) {
+            map.clear();
+            map.putAll(values);
+            updateDotOptions();
+        }
+
         @TruffleBoundary
         public static ContextStateImpl newContextState(REnvVars envVars) {
             HashMap<String, Object> map = new HashMap<>();
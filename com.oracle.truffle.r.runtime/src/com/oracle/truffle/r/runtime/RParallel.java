@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RNull;
+
+/**
+ * Fork-join support for the data parallel kernels of builtins such as the matrix products. A
+ * kernel is split into index ranges that run on a shared pool of daemon threads, the calling thread
+ * processes the first range itself. The kernels must not touch the R context or evaluate any R
+ * code, they may only work on the Java data handed to them.
+ *
+ * The number of threads used by one call is given by the {@code fastr.parallel.threads} R option,
+ * which defaults to the number of available processors. Setting it to {@code 1} disables the
+ * parallel kernels.
+ */
+public final class RParallel {
+
+    public static final String THREADS_OPTION = "fastr.parallel.threads";
+
+    @FunctionalInterface
+    public interface RangeTask {
+        /**
+         * Processes the indices from {@code from} (inclusive) to {@code to} (exclusive).
+         */
+        void run(int from, int to);
+    }
+
+    private static volatile ForkJoinPool pool;
+
+    private RParallel() {
+        // no instances
+    }
+
+    /**
+     * Returns the number of threads a parallel kernel should use, as configured by the
+     * {@value #THREADS_OPTION} option of the current context.
+     */
+    @TruffleBoundary
+    public static int getThreads() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        Object value = RContext.getInstance().stateROptions.getValue(THREADS_OPTION);
+        if (value == null || value == RNull.instance) {
+            return processors;
+        }
+        int result = RRuntime.asInteger(value);
+        return RRuntime.isNA(result) || result < 1 ? processors : result;
+    }
+
+    /**
+     * Runs {@code task} over the range {@code [0, length)} split into at most {@code threads}
+     * parts of at least {@code grain} indices each, and waits for all of them to finish.
+     * Exceptions thrown by the task are rethrown on the calling thread.
+     */
+    @TruffleBoundary
+    public static void forRange(int length, int threads, int grain, RangeTask task) {
+        int parts = Math.min(threads, (int) ((length + (long) grain - 1) / Math.max(grain, 1)));
+        if (parts <= 1) {
+            task.run(0, length);
+            return;
+        }
+        ForkJoinPool forkJoinPool = getPool();
+        ForkJoinTask<?>[] forks = new ForkJoinTask<?>[parts - 1];
+        for (int i = 1; i < parts; i++) {
+            int from = partStart(length, parts, i);
+            int to = partStart(length, parts, i + 1);
+            forks[i - 1] = forkJoinPool.submit(() -> task.run(from, to));
+        }
+        try {
+            task.run(0, partStart(length, parts, 1));
+        } finally {
+            for (ForkJoinTask<?> fork : forks) {
+                fork.join();
+            }
+        }
+    }
+
+    /**
+     * Starts {@code task} on the shared pool without waiting for it. The result, or the exception
+     * thrown by the task, is obtained by joining the returned task. Like the range tasks, it must
+     * not touch the R context.
+     */
+    @TruffleBoundary
+    public static <T> ForkJoinTask<T> submit(Callable<T> task) {
+        return getPool().submit(task);
+    }
+
+    private static int partStart(int length, int parts, int part) {
+        return (int) ((long) length * part / parts);
+    }
+
+    private static ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (RParallel.class) {
+                result = pool;
+                if (result == null) {
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+}
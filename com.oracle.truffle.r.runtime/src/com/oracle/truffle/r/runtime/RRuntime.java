@@ -22,7 +22,6 @@ package com.oracle.truffle.r.runtime;
 import java.math.BigInteger;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
-import java.util.Locale;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
@@ -455,6 +454,21 @@ public class RRuntime {
 
     @TruffleBoundary
     public static double string2doubleNoCheck(String v, boolean exceptionOnFail, boolean useLocale) {
+        NumberFormat format = null;
+        if (useLocale) {
+            format = NumberFormat.getInstance(RContext.getInstance().stateRLocale.getLocale(RLocale.NUMERIC));
+        }
+        return string2doubleNoCheck(v, exceptionOnFail, format);
+    }
+
+    /**
+     * Like {@link #string2doubleNoCheck(String, boolean, boolean)}, but parses with the given
+     * {@code format} instead of looking up the numeric locale of the current context, which allows
+     * the conversion to run on threads other than the R thread. A {@code null} format means that
+     * the locale is not used. {@link NumberFormat} is not thread safe, each thread needs its own.
+     */
+    @TruffleBoundary
+    public static double string2doubleNoCheck(String v, boolean exceptionOnFail, NumberFormat format) {
         // FIXME use R rules
         String trimmed = v.trim();
         if ("Inf".equals(trimmed) || "+Inf".equals(trimmed)) {
@@ -467,13 +481,12 @@ public class RRuntime {
             return DOUBLE_NA;
         }
         try {
-            if (useLocale) {
+            if (format != null) {
                 ParsePosition ppos = new ParsePosition(0);
                 if (trimmed.startsWith("+")) {
                     trimmed = trimmed.substring(1);
                 }
-                Locale numLocale = RContext.getInstance().stateRLocale.getLocale(RLocale.NUMERIC);
-                Number val = NumberFormat.getInstance(numLocale).parse(trimmed, ppos);
+                Number val = format.parse(trimmed, ppos);
                 if (ppos.getIndex() < trimmed.length()) {
                     throw new NumberFormatException("Unparseable number: \"" + trimmed + "\". Failed at index " + ppos.getErrorIndex());
                 }
@@ -27,6 +27,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
@@ -256,6 +258,62 @@ public class RSerialize {
         }
     }
 
+    /**
+     * Gives access to the underlying byte array, avoiding the copy of {@code toByteArray} if the
+     * initial size was exact.
+     */
+    private static final class PByteArrayOutputStream extends ByteArrayOutputStream {
+
+        PByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] getData() {
+            return count == buf.length ? buf : Arrays.copyOf(buf, count);
+        }
+    }
+
+    /**
+     * Upper bound of the pre-sized output buffer, larger outputs grow the buffer as needed. This
+     * keeps a wrong estimate from reserving huge amounts of memory up front.
+     */
+    private static final int MAX_ESTIMATED_SIZE = 1 << 22;
+
+    /**
+     * Estimates the size of the XDR serialization of {@code obj} from the payload of its atomic
+     * vectors, which usually dominate it, to pre-size the output buffer. Compact sequences and
+     * ALTREP vectors are not counted, their serialized form may be much smaller than their length
+     * suggests.
+     */
+    private static int estimateSize(Object obj) {
+        return (int) Math.min(MAX_ESTIMATED_SIZE, 64 + estimatePayload(obj, 0));
+    }
+
+    private static long estimatePayload(Object obj, int depth) {
+        if (obj instanceof RAbstractVector && (((RAbstractVector) obj).isSequence() || ((RAbstractVector) obj).isAltRep())) {
+            return 0;
+        } else if (obj instanceof RDoubleVector) {
+            return 8L * ((RDoubleVector) obj).getLength();
+        } else if (obj instanceof RIntVector || obj instanceof RLogicalVector) {
+            return 4L * ((RAbstractVector) obj).getLength();
+        } else if (obj instanceof RComplexVector) {
+            return 16L * ((RComplexVector) obj).getLength();
+        } else if (obj instanceof RRawVector) {
+            return ((RRawVector) obj).getLength();
+        } else if (obj instanceof RStringVector) {
+            // flags, length and a few characters per element
+            return 16L * ((RStringVector) obj).getLength();
+        } else if (obj instanceof RAbstractListBaseVector && depth < 2) {
+            RAbstractListBaseVector list = (RAbstractListBaseVector) obj;
+            long result = 8L * list.getLength();
+            for (int i = 0; i < list.getLength() && result < MAX_ESTIMATED_SIZE; i++) {
+                result += estimatePayload(list.getDataAt(i), depth + 1);
+            }
+            return result;
+        }
+        return 0;
+    }
+
     public interface CallHook {
         Object eval(Object arg);
 
@@ -415,6 +473,8 @@ public class RSerialize {
 
     private static class Input extends Common {
 
+        private static final int LOGICAL_CHUNK_SIZE = 8192;
+
         protected final PInputStream stream;
         /**
          * Only set when called from lazyLoadDBFetch. Helps to identify the package of the deparsed
@@ -464,6 +524,27 @@ public class RSerialize {
             }
         }
 
+        /**
+         * Reads the length of a vector. Long vectors are written by GnuR as {@code -1} followed by
+         * the upper and lower 32 bits of the length; they cannot be represented in FastR.
+         */
+        private int readLength() throws IOException {
+            int len = stream.readInt();
+            if (len >= 0) {
+                return len;
+            } else if (len == -1) {
+                long upper = stream.readInt();
+                long lower = stream.readInt() & 0xFFFFFFFFL;
+                long xlen = (upper << 32) + lower;
+                if (xlen >= 0 && xlen <= Integer.MAX_VALUE) {
+                    return (int) xlen;
+                }
+                // TODO long vector support, needs vector storage with long lengths and indices
+                throw RError.error(RError.NO_CALLER, Message.LONG_VECTORS_NOT_SUPPORTED);
+            }
+            throw RError.error(RError.NO_CALLER, Message.GENERIC, "negative serialized length for vector");
+        }
+
         private int inRefIndex(int flags) throws IOException {
             int i = unpackRefIndex(flags);
             if (i == 0) {
@@ -828,9 +909,7 @@ public class RSerialize {
 
                 case EXPRSXP:
                 case VECSXP: {
-                    int len = stream.readInt();
-                    // TODO long vector support?
-                    assert len >= 0;
+                    int len = readLength();
                     Object[] data = new Object[len];
                     for (int i = 0; i < len; i++) {
                         Object elem = readItem();
@@ -851,31 +930,37 @@ public class RSerialize {
                 }
 
                 case INTSXP: {
-                    int len = stream.readInt();
+                    int len = readLength();
                     int[] data = new int[len];
+                    stream.readInts(data, 0, len);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
+                        if (data[i] == RRuntime.INT_NA) {
                             complete = false;
+                            break;
                         }
-                        data[i] = intVal;
                     }
                     result = RDataFactory.createIntVector(data, complete);
                     break;
                 }
 
                 case LGLSXP: {
-                    int len = stream.readInt();
+                    int len = readLength();
                     byte[] data = new byte[len];
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
-                            complete = false;
-                            data[i] = RRuntime.LOGICAL_NA;
-                        } else {
-                            data[i] = (byte) intVal;
+                    // logicals are stored as ints, decode them in chunks
+                    int[] chunk = new int[Math.min(len, LOGICAL_CHUNK_SIZE)];
+                    for (int from = 0; from < len; from += chunk.length) {
+                        int n = Math.min(chunk.length, len - from);
+                        stream.readInts(chunk, 0, n);
+                        for (int i = 0; i < n; i++) {
+                            int intVal = chunk[i];
+                            if (intVal == RRuntime.INT_NA) {
+                                complete = false;
+                                data[from + i] = RRuntime.LOGICAL_NA;
+                            } else {
+                                data[from + i] = (byte) intVal;
+                            }
                         }
                     }
                     result = RDataFactory.createLogicalVector(data, complete);
@@ -883,40 +968,38 @@ public class RSerialize {
                 }
 
                 case REALSXP: {
-                    int len = stream.readInt();
+                    int len = readLength();
                     double[] data = new double[len];
+                    stream.readDoubles(data, 0, len);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
-                        double doubleVal = stream.readDouble();
-                        if (RRuntime.isNA(doubleVal)) {
+                        if (RRuntime.isNA(data[i])) {
                             complete = false;
+                            break;
                         }
-                        data[i] = doubleVal;
                     }
                     result = RDataFactory.createDoubleVector(data, complete);
                     break;
                 }
 
                 case CPLXSXP: {
-                    int len = stream.readInt();
+                    int len = readLength();
+                    if (len > Integer.MAX_VALUE / 2) {
+                        throw RError.error(RError.NO_CALLER, Message.LONG_VECTORS_NOT_SUPPORTED);
+                    }
                     double[] data = new double[2 * len];
+                    stream.readDoubles(data, 0, 2 * len);
                     boolean complete = RDataFactory.COMPLETE_VECTOR;
                     for (int i = 0; i < len; i++) {
                         int ix = 2 * i;
-                        double reVal = stream.readDouble();
-                        if (RRuntime.isNA(reVal)) {
-                            complete = false;
-                        }
-                        double imVal = stream.readDouble();
-                        if (RRuntime.isNA(imVal)) {
+                        double reVal = data[ix];
+                        double imVal = data[ix + 1];
+                        if (RRuntime.isNA(reVal) || RRuntime.isNA(imVal)) {
                             complete = false;
-                        }
-                        if (RRuntime.isNA(reVal) && RRuntime.isNA(imVal)) {
-                            data[ix] = RRuntime.COMPLEX_NA_REAL_PART;
-                            data[ix + 1] = RRuntime.COMPLEX_NA_IMAGINARY_PART;
-                        } else {
-                            data[ix] = reVal;
-                            data[ix + 1] = imVal;
+                            if (RRuntime.isNA(reVal) && RRuntime.isNA(imVal)) {
+                                data[ix] = RRuntime.COMPLEX_NA_REAL_PART;
+                                data[ix + 1] = RRuntime.COMPLEX_NA_IMAGINARY_PART;
+                            }
                         }
                     }
                     result = RDataFactory.createComplexVector(data, complete);
@@ -969,7 +1052,7 @@ public class RSerialize {
                 }
 
                 case RAWSXP: {
-                    int len = stream.readInt();
+                    int len = readLength();
                     byte[] data = new byte[len];
                     stream.readRaw(data);
                     result = RDataFactory.createRawVector(data);
@@ -1098,7 +1181,7 @@ public class RSerialize {
                     throw RError.nyi(null, "names in persistent strings");
                 }
             }
-            int len = stream.readInt();
+            int len = readLength();
             String[] data = new String[len];
             boolean complete = RDataFactory.COMPLETE_VECTOR; // optimistic
             for (int i = 0; i < len; i++) {
@@ -1226,6 +1309,16 @@ public class RSerialize {
 
         abstract double readDouble() throws IOException;
 
+        /**
+         * Reads {@code count} ints into {@code data} starting at index {@code from}.
+         */
+        abstract void readInts(int[] data, int from, int count) throws IOException;
+
+        /**
+         * Reads {@code count} doubles into {@code data} starting at index {@code from}.
+         */
+        abstract void readDoubles(double[] data, int from, int count) throws IOException;
+
         abstract void readRaw(byte[] data) throws IOException;
 
     }
@@ -1246,7 +1339,7 @@ public class RSerialize {
 
     private static final class XdrInputFormat extends PInputStream {
 
-        private static final int READ_BUFFER_SIZE = 32 * 1024;
+        private static final int READ_BUFFER_SIZE = 64 * 1024;
 
         private final class Buffer {
             private final byte[] buf;
@@ -1267,6 +1360,17 @@ public class RSerialize {
                 return Double.longBitsToDouble(val);
             }
 
+            void readInts(int[] data, int from, int count) {
+                // a big endian view decodes the whole range at once
+                ByteBuffer.wrap(buf, offset, count * 4).asIntBuffer().get(data, from, count);
+                offset += count * 4;
+            }
+
+            void readDoubles(double[] data, int from, int count) {
+                ByteBuffer.wrap(buf, offset, count * 8).asDoubleBuffer().get(data, from, count);
+                offset += count * 8;
+            }
+
             @SuppressWarnings("deprecation")
             String readString(int len) {
                 /*
@@ -1358,6 +1462,28 @@ public class RSerialize {
             return ensureData(8).readDouble();
         }
 
+        @Override
+        void readInts(int[] data, int from, int count) throws IOException {
+            int pos = from;
+            int end = from + count;
+            while (pos < end) {
+                int n = Math.min(end - pos, defaultBuffer.buf.length / 4);
+                ensureData(n * 4).readInts(data, pos, n);
+                pos += n;
+            }
+        }
+
+        @Override
+        void readDoubles(double[] data, int from, int count) throws IOException {
+            int pos = from;
+            int end = from + count;
+            while (pos < end) {
+                int n = Math.min(end - pos, defaultBuffer.buf.length / 8);
+                ensureData(n * 8).readDoubles(data, pos, n);
+                pos += n;
+            }
+        }
+
         @Override
         String readString(int len) throws IOException {
             return ensureData(len).readString(len);
@@ -1365,6 +1491,21 @@ public class RSerialize {
 
         @Override
         void readRaw(byte[] data) throws IOException {
+            if (data.length > defaultBuffer.buf.length && !(is instanceof PByteArrayInputStream)) {
+                // take what is buffered and read the rest directly into the result
+                int buffered = defaultBuffer.size - defaultBuffer.offset;
+                System.arraycopy(defaultBuffer.buf, defaultBuffer.offset, data, 0, buffered);
+                defaultBuffer.offset = defaultBuffer.size = 0;
+                int pos = buffered;
+                while (pos < data.length) {
+                    int nread = is.read(data, pos, data.length - pos);
+                    if (nread <= 0) {
+                        throw RInternalError.unimplemented("handle unexpected eof");
+                    }
+                    pos += nread;
+                }
+                return;
+            }
             ensureData(data.length).readRaw(data);
         }
 
@@ -1463,17 +1604,39 @@ public class RSerialize {
 
         abstract void writeRaw(byte value) throws IOException;
 
+        /**
+         * Writes the first {@code length} elements of {@code data}.
+         */
+        abstract void writeInts(int[] data, int length) throws IOException;
+
+        /**
+         * Writes the first {@code length} elements of {@code data} as ints.
+         */
+        abstract void writeLogicals(byte[] data, int length) throws IOException;
+
+        /**
+         * Writes the first {@code length} elements of {@code data}.
+         */
+        abstract void writeDoubles(double[] data, int length) throws IOException;
+
+        /**
+         * Writes the first {@code length} elements of {@code data}.
+         */
+        abstract void writeRaw(byte[] data, int length) throws IOException;
+
         abstract void flush() throws IOException;
 
     }
 
     private static class XdrOutputFormat extends POutputStream {
+        private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
         private final byte[] buf;
         private int offset;
 
         XdrOutputFormat(OutputStream os) {
             super(os);
-            buf = new byte[8192];
+            buf = new byte[WRITE_BUFFER_SIZE];
             buf[offset++] = 'X';
             buf[offset++] = '\n';
         }
@@ -1541,6 +1704,61 @@ public class RSerialize {
             buf[offset++] = (byte) (valueBits & 0xff);
         }
 
+        @Override
+        void writeInts(int[] data, int length) throws IOException {
+            int pos = 0;
+            while (pos < length) {
+                ensureSpace(4);
+                int n = Math.min(length - pos, (buf.length - offset) / 4);
+                // a big endian view encodes the whole range at once
+                ByteBuffer.wrap(buf, offset, n * 4).asIntBuffer().put(data, pos, n);
+                offset += n * 4;
+                pos += n;
+            }
+        }
+
+        @Override
+        void writeLogicals(byte[] data, int length) throws IOException {
+            int pos = 0;
+            while (pos < length) {
+                ensureSpace(4);
+                int n = Math.min(length - pos, (buf.length - offset) / 4);
+                IntBuffer view = ByteBuffer.wrap(buf, offset, n * 4).asIntBuffer();
+                for (int i = 0; i < n; i++) {
+                    byte value = data[pos + i];
+                    view.put(RRuntime.isNA(value) ? RRuntime.INT_NA : value);
+                }
+                offset += n * 4;
+                pos += n;
+            }
+        }
+
+        @Override
+        void writeDoubles(double[] data, int length) throws IOException {
+            int pos = 0;
+            while (pos < length) {
+                ensureSpace(8);
+                int n = Math.min(length - pos, (buf.length - offset) / 8);
+                ByteBuffer.wrap(buf, offset, n * 8).asDoubleBuffer().put(data, pos, n);
+                offset += n * 8;
+                pos += n;
+            }
+        }
+
+        @Override
+        void writeRaw(byte[] data, int length) throws IOException {
+            if (length > buf.length - offset) {
+                flushBuffer();
+                if (length >= buf.length) {
+                    // no need to copy large chunks into the buffer
+                    os.write(data, 0, length);
+                    return;
+                }
+            }
+            System.arraycopy(data, 0, buf, offset, length);
+            offset += length;
+        }
+
         private void ensureSpace(int n) throws IOException {
             if (offset + n > buf.length) {
                 flushBuffer();
@@ -1776,6 +1994,15 @@ public class RSerialize {
                             case LGLSXP: {
                                 // logicals are written as ints
                                 RAbstractVector vector = (RAbstractVector) obj;
+                                if (vector.isMaterialized() && vector instanceof RIntVector) {
+                                    stream.writeInt(vector.getLength());
+                                    stream.writeInts(((RIntVector) vector).getReadonlyData(), vector.getLength());
+                                    break;
+                                } else if (vector.isMaterialized() && vector instanceof RLogicalVector) {
+                                    stream.writeInt(vector.getLength());
+                                    stream.writeLogicals(((RLogicalVector) vector).getReadonlyData(), vector.getLength());
+                                    break;
+                                }
                                 VectorAccess access = vector.slowPathAccess();
                                 try (SequentialIterator iter = access.access(vector)) {
                                     stream.writeInt(access.getLength(iter));
@@ -1788,6 +2015,11 @@ public class RSerialize {
 
                             case REALSXP: {
                                 RDoubleVector vector = (RDoubleVector) obj;
+                                if (vector.isMaterialized()) {
+                                    stream.writeInt(vector.getLength());
+                                    stream.writeDoubles(vector.getReadonlyData(), vector.getLength());
+                                    break;
+                                }
                                 VectorAccess access = vector.slowPathAccess();
                                 try (SequentialIterator iter = access.access(vector)) {
                                     stream.writeInt(access.getLength(iter));
@@ -1800,6 +2032,12 @@ public class RSerialize {
 
                             case CPLXSXP: {
                                 RComplexVector vector = (RComplexVector) obj;
+                                if (vector.isMaterialized() && vector.isComplete()) {
+                                    // without NAs there is nothing to normalize
+                                    stream.writeInt(vector.getLength());
+                                    stream.writeDoubles(vector.getReadonlyData(), 2 * vector.getLength());
+                                    break;
+                                }
                                 VectorAccess access = vector.slowPathAccess();
                                 try (SequentialIterator iter = access.access(vector)) {
                                     stream.writeInt(access.getLength(iter));
@@ -1831,6 +2069,11 @@ public class RSerialize {
 
                             case RAWSXP: {
                                 RRawVector vector = (RRawVector) obj;
+                                if (vector.isMaterialized()) {
+                                    stream.writeInt(vector.getLength());
+                                    stream.writeRaw(vector.getReadonlyData(), vector.getLength());
+                                    break;
+                                }
                                 VectorAccess access = vector.slowPathAccess();
                                 try (SequentialIterator iter = access.access(vector)) {
                                     stream.writeInt(access.getLength(iter));
@@ -2445,11 +2688,11 @@ public class RSerialize {
      */
     @TruffleBoundary
     public static byte[] serialize(RContext context, Object obj, int type, int version, Object refhook) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PByteArrayOutputStream out = new PByteArrayOutputStream(estimateSize(obj));
         try {
             Output output = new Output(context, type, version, (CallHook) refhook, out);
             output.serialize(obj);
-            return out.toByteArray();
+            return out.getData();
         } catch (IOException ex) {
             throw RInternalError.shouldNotReachHere(ex);
         }
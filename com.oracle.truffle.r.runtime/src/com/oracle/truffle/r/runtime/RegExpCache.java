@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.ffi.PCRERFFI;
+
+/**
+ * A bounded LRU cache of compiled regular expressions shared by all call sites of {@code grep},
+ * {@code sub}, {@code regexpr}, {@code strsplit} and friends in one context. Java patterns and PCRE
+ * patterns are kept in the same cache, keyed by the pattern, the compile flags and the engine.
+ *
+ * PCRE has no way to release a compiled pattern in our FFI, so an evicted PCRE pattern is simply
+ * forgotten (which is what happened to every compiled pattern before this cache existed). The
+ * character tables produced by {@code pcre_maketables} are created once per context.
+ */
+public final class RegExpCache {
+
+    public static final int MAX_SIZE = 256;
+
+    private static final class Key {
+        private final String pattern;
+        private final int flags;
+        private final boolean perl;
+
+        Key(String pattern, int flags, boolean perl) {
+            this.pattern = pattern;
+            this.flags = flags;
+            this.perl = perl;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return flags == other.flags && perl == other.perl && pattern.equals(other.pattern);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pattern, flags, perl);
+        }
+    }
+
+    private final LinkedHashMap<Key, Object> entries = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long pcreTables;
+
+    /**
+     * Returns the compiled Java pattern for {@code pattern} and {@code flags}, compiling it on a
+     * miss. Throws {@link java.util.regex.PatternSyntaxException} for an invalid pattern.
+     */
+    @TruffleBoundary
+    public Pattern getPattern(String pattern, int flags) {
+        Key key = new Key(pattern, flags, false);
+        synchronized (this) {
+            Object cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return (Pattern) cached;
+            }
+        }
+        misses.incrementAndGet();
+        Pattern result = Pattern.compile(pattern, flags);
+        synchronized (this) {
+            entries.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the compiled PCRE pattern for {@code pattern} and {@code flags} or {@code null} if it
+     * is not in the cache, in which case the caller compiles it and {@link #putPerl registers} it.
+     */
+    @TruffleBoundary
+    public synchronized PCRERFFI.Result getPerl(String pattern, int flags) {
+        Object cached = entries.get(new Key(pattern, flags, true));
+        (cached != null ? hits : misses).incrementAndGet();
+        return (PCRERFFI.Result) cached;
+    }
+
+    @TruffleBoundary
+    public synchronized void putPerl(String pattern, int flags, PCRERFFI.Result pcre) {
+        entries.put(new Key(pattern, flags, true), pcre);
+    }
+
+    /**
+     * Returns the PCRE character tables or {@code 0} if they were not created yet.
+     */
+    public synchronized long getPCRETables() {
+        return pcreTables;
+    }
+
+    public synchronized void setPCRETables(long tables) {
+        pcreTables = tables;
+    }
+
+    /**
+     * Records a hit of a per call site cache in front of this cache.
+     */
+    public void countHit() {
+        hits.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all compiled patterns and resets the counters.
+     */
+    @TruffleBoundary
+    public synchronized void clear() {
+        entries.clear();
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -81,12 +81,37 @@ public class ConnectionSupport {
          */
         private int hwm = 2;
 
+        /**
+         * The number of windows and chunks processed by the parallel reader of {@code scan}, see
+         * {@code .fastr.scan.stats}.
+         */
+        private long parallelScanWindows;
+        private long parallelScanChunks;
+
         private ContextStateImpl() {
             for (int i = 0; i < MAX_CONNECTIONS; i++) {
                 allConnections.add(i, null);
             }
         }
 
+        public void recordParallelScan(int chunks) {
+            parallelScanWindows++;
+            parallelScanChunks += chunks;
+        }
+
+        public long getParallelScanWindows() {
+            return parallelScanWindows;
+        }
+
+        public long getParallelScanChunks() {
+            return parallelScanChunks;
+        }
+
+        public void resetParallelScanStatistics() {
+            parallelScanWindows = 0;
+            parallelScanChunks = 0;
+        }
+
         @TruffleBoundary
         public BaseRConnection getConnection(int index, boolean throwError) {
             BaseRConnection conn = null;
@@ -842,6 +867,14 @@ public class ConnectionSupport {
             return theConnection.readBinChars();
         }
 
+        /**
+         * See {@link DelegateRConnection#readAhead(int)}.
+         */
+        public ByteBuffer readAhead(int size) throws IOException {
+            checkOpen();
+            return theConnection.readAhead(size);
+        }
+
         @Override
         public void flush() throws IOException {
             checkOpen();
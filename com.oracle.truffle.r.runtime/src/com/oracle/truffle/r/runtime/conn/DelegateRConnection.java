@@ -36,18 +36,22 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Objects;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.conn.ConnectionSupport.BaseRConnection;
 import com.oracle.truffle.r.runtime.data.RBaseObject;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RStringVector;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -133,7 +137,10 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     /**
      * {@code readLines} from the connection. It would be convenient to use a {@link BufferedReader}
      * but mixing binary and text operations, which is a requirement, would then be difficult.
-     * 
+     *
+     * If the read cache is used, runs of bytes that are neither line terminators nor NULs are
+     * copied from the cache in bulk and only the terminators go through {@link #readInternal()}.
+     *
      * @param warn Specifies which warnings should be output.
      * @param skipNul Specifies if the null character should be ignored.
      */
@@ -142,9 +149,8 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     public String[] readLines(int n, EnumSet<ReadLineWarning> warn, boolean skipNul) throws IOException {
         base.setIncomplete(false);
         ArrayList<String> lines = new ArrayList<>();
-        int totalRead = 0;
         int nBytesConsumed = 0;
-        byte[] buffer = new byte[64];
+        LineBuffer buffer = new LineBuffer(base.getEncoding());
         int pushBack = 0;
         boolean nullRead = false;
         while (true) {
@@ -153,17 +159,25 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
                 ch = pushBack;
                 pushBack = 0;
             } else {
+                if (readCache && cache != null) {
+                    if (!cache.hasRemaining()) {
+                        ensureDataAvailable(1);
+                    }
+                    // bytes following an embedded NUL are dropped, see below
+                    int run = buffer.appendRun(cache.array(), cache.arrayOffset() + cache.position(), cache.arrayOffset() + cache.limit(), !nullRead);
+                    cache.position(cache.position() + run);
+                }
                 ch = readInternal();
             }
             boolean lineEnd = false;
             if (ch < 0) {
-                if (totalRead > 0) {
+                if (buffer.length > 0) {
                     /*
                      * GnuR says if non-blocking and in text mode, silently push back incomplete
                      * lines, otherwise keep data and output warning.
                      */
-                    final String incompleteFinalLine = new String(buffer, 0, totalRead, base.getEncoding());
-                    nBytesConsumed += totalRead;
+                    final String incompleteFinalLine = buffer.decode();
+                    nBytesConsumed += buffer.length;
                     if (!base.isBlocking() && base.isTextMode()) {
                         base.pushBack(RDataFactory.createStringVector(incompleteFinalLine), false);
                         base.setIncomplete(true);
@@ -193,17 +207,16 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
                 }
             }
             if (lineEnd) {
-                lines.add(new String(buffer, 0, totalRead, base.getEncoding()));
-                nBytesConsumed += totalRead;
+                lines.add(buffer.decode());
+                nBytesConsumed += buffer.length;
                 if (n > 0 && lines.size() == n) {
                     break;
                 }
-                totalRead = 0;
+                buffer.reset();
                 nullRead = false;
             } else {
                 if (!nullRead) {
-                    buffer = DelegateRConnection.checkBuffer(buffer, totalRead);
-                    buffer[totalRead++] = (byte) (ch & 0xFF);
+                    buffer.append((byte) (ch & 0xFF));
                 }
                 if (skipNul) {
                     nullRead = false;
@@ -216,6 +229,71 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         return result;
     }
 
+    /**
+     * Accumulates the bytes of one line for {@link DelegateRConnection#readLines}. Lines that
+     * consist of ASCII characters only are decoded without going through the charset decoder if the
+     * encoding is ASCII compatible.
+     */
+    private static final class LineBuffer {
+        private final Charset encoding;
+        private final boolean asciiCompatible;
+        private byte[] bytes = new byte[64];
+        private int length;
+        private int nonAscii;
+
+        LineBuffer(Charset encoding) {
+            this.encoding = encoding;
+            this.asciiCompatible = encoding == StandardCharsets.UTF_8 || encoding == StandardCharsets.US_ASCII || encoding == StandardCharsets.ISO_8859_1;
+        }
+
+        void append(byte b) {
+            bytes = DelegateRConnection.checkBuffer(bytes, length);
+            bytes[length++] = b;
+            nonAscii |= b;
+        }
+
+        /**
+         * Scans {@code src} from {@code from} up to the first line terminator or NUL (or
+         * {@code to}) and appends the scanned bytes if {@code store} is set. Returns the number of
+         * bytes scanned.
+         */
+        int appendRun(byte[] src, int from, int to, boolean store) {
+            int i = from;
+            int bits = 0;
+            while (i < to) {
+                byte b = src[i];
+                if (b == '\n' || b == '\r' || b == 0) {
+                    break;
+                }
+                bits |= b;
+                i++;
+            }
+            int run = i - from;
+            if (store && run > 0) {
+                if (length + run > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(length + run, bytes.length + bytes.length / 2));
+                }
+                System.arraycopy(src, from, bytes, length, run);
+                length += run;
+                nonAscii |= bits;
+            }
+            return run;
+        }
+
+        String decode() {
+            if (asciiCompatible && nonAscii >= 0) {
+                // the sign bit is set only if some byte was outside of the ASCII range
+                return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            return new String(bytes, 0, length, encoding);
+        }
+
+        void reset() {
+            length = 0;
+            nonAscii = 0;
+        }
+    }
+
     /**
      * Updates the read cursor.<br>
      * <p>
@@ -563,6 +641,17 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         return read < 0 ? 0 : read;
     }
 
+    /**
+     * Reads at most {@code size} bytes starting at the current position of a text connection
+     * without consuming them, the caller seeks past the bytes it has processed. Returns
+     * {@code null} if the connection cannot read ahead or is at its end, the caller must then read
+     * through the connection as usual.
+     */
+    @SuppressWarnings("unused")
+    public ByteBuffer readAhead(int size) throws IOException {
+        return null;
+    }
+
     /**
      * Reads null-terminated character strings from a {@link ReadableByteChannel}.
      */
@@ -640,8 +729,25 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     private static final int GZIP_BUFFER_SIZE = (2 << 20);
 
     static DelegateRConnection createGZIPDelegateOutputConnection(BaseRConnection base, OutputStream os) throws IOException {
+        return createGZIPDelegateOutputConnection(base, os, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a gzip writer compressing with the given deflate {@code level}. When more than one
+     * thread is allowed by {@link RParallel#getThreads()}, the data is compressed in parallel
+     * blocks, see {@link ParallelCompressedOutputStream}.
+     */
+    static DelegateRConnection createGZIPDelegateOutputConnection(BaseRConnection base, OutputStream os, int level) throws IOException {
         assert base.getOpenMode().canWrite();
-        return new CompressedOutputRConnection(base, new GZIPOutputStream(os, GZIP_BUFFER_SIZE), true);
+        int threads = RParallel.getThreads();
+        if (threads > 1) {
+            return new CompressedOutputRConnection(base, ParallelCompressedOutputStream.createGZIP(os, level, threads), true);
+        }
+        return new CompressedOutputRConnection(base, new GZIPOutputStream(os, GZIP_BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        }, true);
     }
 
     static DelegateRConnection createGZIPDelegateInputConnection(BaseRConnection base, InputStream is) throws IOException {
@@ -25,6 +25,7 @@ package com.oracle.truffle.r.runtime.conn;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
@@ -43,6 +44,7 @@ import com.oracle.truffle.r.runtime.RCompression;
 import com.oracle.truffle.r.runtime.RCompression.Type;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.conn.ConnectionSupport.AbstractOpenMode;
 import static com.oracle.truffle.r.runtime.conn.ConnectionSupport.AbstractOpenMode.Lazy;
 import com.oracle.truffle.r.runtime.conn.ConnectionSupport.BasePathRConnection;
@@ -57,6 +59,12 @@ import java.util.Set;
 
 public class FileConnections {
 
+    /**
+     * The compression level of {@code file} connections that turn out to be compressed, the default
+     * of {@code gzfile} and {@code xzfile}.
+     */
+    private static final int DEFAULT_COMPRESSION = 6;
+
     /**
      * Base class for all modes of file connections.
      */
@@ -84,7 +92,7 @@ public class FileConnections {
         }
 
         private DelegateRConnection createDelegateConnectionImpl() throws IOException {
-            return FileConnections.createDelegateConnection(this, cType, raw);
+            return FileConnections.createDelegateConnection(this, cType, raw, DEFAULT_COMPRESSION);
         }
 
         @TruffleBoundary
@@ -145,7 +153,7 @@ public class FileConnections {
      */
     public static class CompressedRConnection extends BasePathRConnection {
         private final RCompression.Type cType;
-        @SuppressWarnings("unused") private final int compression; // TODO
+        private final int compression;
 
         public CompressedRConnection(TruffleFile path, String modeString, Type cType, String encoding, int compression) throws IOException {
             super(path.getPath(), path, mapConnectionClass(cType), modeString, AbstractOpenMode.ReadBinary, encoding);
@@ -157,7 +165,7 @@ public class FileConnections {
         @Override
         @TruffleBoundary
         protected void createDelegateConnection() throws IOException {
-            setDelegate(FileConnections.createDelegateConnection(this, cType, false));
+            setDelegate(FileConnections.createDelegateConnection(this, cType, false, compression));
 
         }
 
@@ -208,7 +216,38 @@ public class FileConnections {
         return delegate;
     }
 
-    private static DelegateRConnection createXZDelegateConnection(BasePathRConnection base) throws IOException {
+    /**
+     * Creates the xz options for the {@code compression} level of {@code xzfile}, where negative
+     * values select the 'extreme' variant of the preset.
+     */
+    private static LZMA2Options createXZOptions(int compression) throws IOException {
+        int preset = Math.abs(compression);
+        LZMA2Options options = new LZMA2Options(preset);
+        if (compression < 0) {
+            // as in liblzma's lzma_lzma_preset
+            options.setMode(LZMA2Options.MODE_NORMAL);
+            options.setMatchFinder(LZMA2Options.MF_BT4);
+            if (preset == 3 || preset == 5) {
+                options.setNiceLen(192);
+                options.setDepthLimit(0);
+            } else {
+                options.setNiceLen(LZMA2Options.NICE_LEN_MAX);
+                options.setDepthLimit(512);
+            }
+        }
+        return options;
+    }
+
+    private static OutputStream createXZOutputStream(OutputStream os, int compression) throws IOException {
+        LZMA2Options options = createXZOptions(compression);
+        int threads = ParallelCompressedOutputStream.limitXZThreads(options, RParallel.getThreads());
+        if (threads > 1) {
+            return ParallelCompressedOutputStream.createXZ(os, options, threads);
+        }
+        return new XZOutputStream(os, options, XZ.CHECK_CRC32);
+    }
+
+    private static DelegateRConnection createXZDelegateConnection(BasePathRConnection base, int compression) throws IOException {
 
         switch (base.getOpenMode().abstractOpenMode) {
             case Read:
@@ -217,17 +256,17 @@ public class FileConnections {
             case Append:
             case AppendBinary:
                 TruffleFile afile = base.path;
-                return new CompressedOutputRConnection(base, new XZOutputStream(afile.newOutputStream(StandardOpenOption.APPEND), new LZMA2Options(), XZ.CHECK_CRC32), false);
+                return new CompressedOutputRConnection(base, createXZOutputStream(afile.newOutputStream(StandardOpenOption.APPEND), compression), false);
             case Write:
             case WriteBinary:
                 TruffleFile wfile = base.path;
-                return new CompressedOutputRConnection(base, new XZOutputStream(wfile.newOutputStream(), new LZMA2Options(), XZ.CHECK_CRC32), false);
+                return new CompressedOutputRConnection(base, createXZOutputStream(wfile.newOutputStream(), compression), false);
             default:
                 throw RError.nyi(RError.SHOW_CALLER2, "open mode: " + base.getOpenMode());
         }
     }
 
-    private static DelegateRConnection createBZIP2DelegateConnection(BasePathRConnection base) throws IOException {
+    private static DelegateRConnection createBZIP2DelegateConnection(BasePathRConnection base, int compression) throws IOException {
 
         switch (base.getOpenMode().abstractOpenMode) {
             case Read:
@@ -236,17 +275,17 @@ public class FileConnections {
                 return new ByteStreamCompressedInputRConnection(base, new ByteArrayInputStream(bzipUdata));
             case Append:
             case AppendBinary:
-                return new BZip2OutputRConnection(base, new ByteArrayOutputStream(), true);
+                return new BZip2OutputRConnection(base, new ByteArrayOutputStream(), true, compression);
             case Write:
             case WriteBinary:
-                return new BZip2OutputRConnection(base, new ByteArrayOutputStream(), false);
+                return new BZip2OutputRConnection(base, new ByteArrayOutputStream(), false, compression);
             default:
                 throw RError.nyi(RError.SHOW_CALLER2, "open mode: " + base.getOpenMode());
         }
     }
 
     @TruffleBoundary
-    private static DelegateRConnection createDelegateConnection(BasePathRConnection base, RCompression.Type cType, boolean raw) throws IOException {
+    private static DelegateRConnection createDelegateConnection(BasePathRConnection base, RCompression.Type cType, boolean raw, int compression) throws IOException {
         AbstractOpenMode openMode = base.getOpenMode().abstractOpenMode;
 
         /*
@@ -278,17 +317,17 @@ public class FileConnections {
                         return DelegateRConnection.createGZIPDelegateInputConnection(base, base.path.newInputStream());
                     case Append:
                     case AppendBinary:
-                        return DelegateRConnection.createGZIPDelegateOutputConnection(base, base.path.newOutputStream(StandardOpenOption.APPEND));
+                        return DelegateRConnection.createGZIPDelegateOutputConnection(base, base.path.newOutputStream(StandardOpenOption.APPEND), compression);
                     case Write:
                     case WriteBinary:
-                        return DelegateRConnection.createGZIPDelegateOutputConnection(base, base.path.newOutputStream());
+                        return DelegateRConnection.createGZIPDelegateOutputConnection(base, base.path.newOutputStream(), compression);
                     default:
                         throw RError.nyi(RError.SHOW_CALLER2, "open mode: " + base.getOpenMode());
                 }
             case XZ:
-                return createXZDelegateConnection(base);
+                return createXZDelegateConnection(base, compression);
             case BZIP2:
-                return createBZIP2DelegateConnection(base);
+                return createBZIP2DelegateConnection(base, compression);
         }
         throw RInternalError.shouldNotReachHere("unsupported compression type");
     }
@@ -327,6 +366,34 @@ public class FileConnections {
             return DelegateRConnection.seek(channel, offset, seekMode, seekRWMode, bytesInCache());
         }
 
+        /**
+         * Reads from the logical position, the read cache may already hold data past it. The
+         * position of the channel is restored afterwards, so that the cache stays valid.
+         */
+        @Override
+        public ByteBuffer readAhead(int size) throws IOException {
+            if (!(base instanceof FileRConnection)) {
+                return null;
+            }
+            long channelPosition = channel.position();
+            long position = channelPosition - bytesInCache();
+            long length = Math.min(size, channel.size() - position);
+            if (length <= 0) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            try {
+                channel.position(position);
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // read until the buffer is full or the end of the file
+                }
+            } finally {
+                channel.position(channelPosition);
+            }
+            buffer.flip();
+            return buffer;
+        }
+
         @Override
         public ByteChannel getChannel() {
             return channel;
@@ -765,11 +832,13 @@ public class FileConnections {
     private static class BZip2OutputRConnection extends CompressedOutputRConnection {
         private final ByteArrayOutputStream bos;
         private final boolean append;
+        private final int compression;
 
-        BZip2OutputRConnection(BasePathRConnection base, ByteArrayOutputStream os, boolean append) {
+        BZip2OutputRConnection(BasePathRConnection base, ByteArrayOutputStream os, boolean append, int compression) {
             super(base, os, false);
             this.bos = os;
             this.append = append;
+            this.compression = compression;
         }
 
         @Override
@@ -777,7 +846,7 @@ public class FileConnections {
             flush();
             // Now actually do the compression using sub-process
             byte[] data = bos.toByteArray();
-            RCompression.bzipCompressToFile(data, ((BasePathRConnection) base).path, append);
+            RCompression.bzipCompressToFile(data, ((BasePathRConnection) base).path, append, compression);
         }
     }
 }
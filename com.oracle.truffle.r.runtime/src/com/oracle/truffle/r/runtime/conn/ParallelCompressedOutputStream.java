@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.conn;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZOutputStream;
+
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
+
+/**
+ * A compressing output stream that splits the data into blocks which are compressed concurrently
+ * on the {@link RParallel} pool, in the style of {@code pigz}. The compressed blocks are written in
+ * order by the thread that writes to the stream, so the output does not depend on the number of
+ * threads and can be read by any gzip or xz decoder.
+ *
+ * For gzip, every block is a raw deflate segment ending with a sync flush, primed with the last 32K
+ * of the previous block as dictionary, so the compression ratio is almost that of a single
+ * stream. For xz, every block is an independent xz stream; a sequence of those is a valid xz file.
+ *
+ * At most a fixed number of blocks per thread is in flight, which bounds the memory used.
+ * {@link #flush()} only writes the blocks compressed so far, like {@link java.util.zip.GZIPOutputStream}
+ * it does not force out the data buffered in the current block.
+ */
+abstract class ParallelCompressedOutputStream extends OutputStream {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int threads;
+    private final int maxPending;
+    private final ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] buffer;
+    private int count;
+    private byte[] previous;
+    private int previousLength;
+    private boolean closed;
+
+    private ParallelCompressedOutputStream(OutputStream out, int blockSize, int threads, int maxPending) {
+        this.out = out;
+        this.blockSize = blockSize;
+        this.threads = threads;
+        this.maxPending = maxPending;
+        // the first block grows on demand, small outputs should not allocate a whole block
+        this.buffer = new byte[Math.min(blockSize, INITIAL_BUFFER_SIZE)];
+    }
+
+    /**
+     * Creates a gzip stream compressing with the given deflate {@code level} using {@code threads}
+     * threads.
+     */
+    static OutputStream createGZIP(OutputStream out, int level, int threads) throws IOException {
+        return new GZIP(out, level, threads);
+    }
+
+    /**
+     * Creates an xz stream compressing with the given {@code options} using {@code threads}
+     * threads.
+     */
+    static OutputStream createXZ(OutputStream out, LZMA2Options options, int threads) {
+        return new XZBlocks(out, options, threads);
+    }
+
+    /**
+     * Limits {@code threads} so that the encoders and the blocks in flight of an xz stream with the
+     * given {@code options} fit into a quarter of the maximum heap, like the default memory limit
+     * of 'xz --threads'. Returns 1 if the stream should not be compressed in parallel.
+     */
+    static int limitXZThreads(LZMA2Options options, int threads) {
+        // every thread needs an encoder, an input block and roughly as much compressed output
+        long perThread = options.getEncoderMemoryUsage() * 1024L + 2L * XZBlocks.blockSize(options);
+        long budget = Runtime.getRuntime().maxMemory() / 4;
+        return (int) Math.max(1, Math.min(threads, budget / perThread));
+    }
+
+    /**
+     * Compresses {@code length} bytes of {@code data}. The previous block, which is {@code null}
+     * for the first one, may be used as a dictionary. Called on a pool thread, must not modify
+     * shared state.
+     */
+    protected abstract byte[] compress(byte[] data, int length, byte[] prev, int prevLength, boolean last);
+
+    /**
+     * Called on the writing thread for every block in order, before it is compressed.
+     */
+    @SuppressWarnings("unused")
+    protected void blockSubmitted(byte[] data, int length) {
+    }
+
+    /**
+     * Writes what follows the last compressed block.
+     */
+    @SuppressWarnings("unused")
+    protected void writeTrailer(OutputStream os) throws IOException {
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        ensureSpace();
+        buffer[count++] = (byte) b;
+        if (count == blockSize) {
+            submit(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        int pos = off;
+        int remaining = len;
+        while (remaining > 0) {
+            ensureSpace();
+            int n = Math.min(remaining, buffer.length - count);
+            System.arraycopy(b, pos, buffer, count, n);
+            count += n;
+            pos += n;
+            remaining -= n;
+            if (count == blockSize) {
+                submit(false);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submit(true);
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeTrailer(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void ensureSpace() {
+        if (count == buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(blockSize, 2 * buffer.length));
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] data = buffer;
+        int length = count;
+        byte[] prev = previous;
+        int prevLength = previousLength;
+        blockSubmitted(data, length);
+        if (threads <= 1) {
+            out.write(compress(data, length, prev, prevLength, last));
+        } else {
+            pending.addLast(RParallel.submit(() -> compress(data, length, prev, prevLength, last)));
+            while (pending.size() > maxPending) {
+                writeNext();
+            }
+        }
+        previous = data;
+        previousLength = length;
+        if (!last) {
+            buffer = new byte[blockSize];
+            count = 0;
+        }
+    }
+
+    private void writeNext() throws IOException {
+        out.write(pending.removeFirst().join());
+    }
+
+    private static final class GZIP extends ParallelCompressedOutputStream {
+
+        private static final int BLOCK_SIZE = 128 * 1024;
+        private static final int DICTIONARY_SIZE = 32 * 1024;
+
+        private final int level;
+        private final CRC32 crc = new CRC32();
+        private long totalLength;
+
+        GZIP(OutputStream out, int level, int threads) throws IOException {
+            super(out, BLOCK_SIZE, threads, 2 * threads);
+            this.level = level;
+            // magic, deflate, no flags, no time stamp, no extra flags, unknown OS
+            out.write(new byte[]{(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff});
+        }
+
+        @Override
+        protected void blockSubmitted(byte[] data, int length) {
+            crc.update(data, 0, length);
+            totalLength += length;
+        }
+
+        @Override
+        protected byte[] compress(byte[] data, int length, byte[] prev, int prevLength, boolean last) {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if (prev != null) {
+                    int dictLength = Math.min(prevLength, DICTIONARY_SIZE);
+                    deflater.setDictionary(prev, prevLength - dictLength, dictLength);
+                }
+                deflater.setInput(data, 0, length);
+                byte[] result = new byte[length / 2 + 64];
+                int n = 0;
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        if (n == result.length) {
+                            result = Arrays.copyOf(result, result.length * 2);
+                        }
+                        n += deflater.deflate(result, n, result.length - n);
+                    }
+                } else {
+                    // a sync flush is complete once it leaves space in the output buffer
+                    while (true) {
+                        if (n == result.length) {
+                            result = Arrays.copyOf(result, result.length * 2);
+                        }
+                        int space = result.length - n;
+                        int written = deflater.deflate(result, n, space, Deflater.SYNC_FLUSH);
+                        n += written;
+                        if (written < space) {
+                            break;
+                        }
+                    }
+                }
+                return Arrays.copyOf(result, n);
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        protected void writeTrailer(OutputStream os) throws IOException {
+            writeIntLE(os, (int) crc.getValue());
+            writeIntLE(os, (int) totalLength);
+        }
+
+        private static void writeIntLE(OutputStream os, int value) throws IOException {
+            os.write(value & 0xff);
+            os.write((value >>> 8) & 0xff);
+            os.write((value >>> 16) & 0xff);
+            os.write((value >>> 24) & 0xff);
+        }
+    }
+
+    private static final class XZBlocks extends ParallelCompressedOutputStream {
+
+        private static final int MIN_BLOCK_SIZE = 1 << 20;
+
+        private final LZMA2Options options;
+
+        XZBlocks(OutputStream out, LZMA2Options options, int threads) {
+            super(out, blockSize(options), threads, threads);
+            this.options = options;
+        }
+
+        static int blockSize(LZMA2Options options) {
+            // like 'xz --threads', use blocks of three times the dictionary size
+            return Math.max(MIN_BLOCK_SIZE, 3 * options.getDictSize());
+        }
+
+        @Override
+        protected byte[] compress(byte[] data, int length, byte[] prev, int prevLength, boolean last) {
+            if (length == 0 && prev != null) {
+                return new byte[0];
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 4 + 64);
+            try (XZOutputStream xz = new XZOutputStream(bos, (LZMA2Options) options.clone(), XZ.CHECK_CRC32)) {
+                xz.write(data, 0, length);
+            } catch (IOException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            }
+            return bos.toByteArray();
+        }
+    }
+}
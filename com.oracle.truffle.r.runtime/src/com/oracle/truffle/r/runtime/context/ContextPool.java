@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.context;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleContext;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.env.REnvironment;
+import com.oracle.truffle.r.runtime.env.REnvironment.DetachException;
+import com.oracle.truffle.r.runtime.env.REnvironment.PutException;
+import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
+import com.oracle.truffle.r.runtime.rng.RRNG;
+
+/**
+ * A lazily grown pool of warm child contexts used by {@code .fastr.context.spawn} and
+ * {@code .fastr.context.eval} when called with {@code pooled = TRUE} (which is what the
+ * {@code SHARED} cluster implementation behind {@code mclapply} and {@code parLapply} does).
+ *
+ * Creating a child context means creating a new {@link TruffleContext}, initializing an R session
+ * in it and loading the namespaces the evaluated code needs. For short tasks this dominates the
+ * run time. A pooled context is not closed when its evaluation finishes; once joined it is parked
+ * on its own thread and handed to the next pooled request of the same {@link ContextKind}, so the
+ * loaded namespaces and compiled call targets are reused. Jobs are still isolated from each other:
+ * after every job the options and RNG kinds are restored to those of the fresh context (see
+ * {@link Snapshot}) and its global environment is cleared, including {@code .Random.seed}. A
+ * {@code SHARE_ALL} context shares the environments on the search path with the parent and keeps
+ * its own bindings in multi slots, which the parent resets when the context is returned to the
+ * pool. Other kinds of contexts also detach the packages attached by the job. A context whose reset
+ * fails, or that shares its global environment with the parent ({@code SHARE_PARENT_RW}), is
+ * closed instead of being reused.
+ *
+ * The pool is configured by two R options read when a context is returned to it:
+ * {@code fastr.context.pool.size} is the maximum number of idle contexts kept per kind (defaults to
+ * the number of available processors, zero disables pooling) and {@code fastr.context.pool.idle}
+ * is the number of seconds after which an idle context is closed (defaults to 60).
+ */
+public final class ContextPool {
+
+    public static final String POOL_SIZE_OPTION = "fastr.context.pool.size";
+    public static final String POOL_IDLE_OPTION = "fastr.context.pool.idle";
+
+    private static final int DEFAULT_IDLE_SECONDS = 60;
+
+    /** Sent to an idle worker to make it close its context and terminate. */
+    private static final Object STOP = new Object();
+
+    private final Map<ContextKind, ArrayDeque<Worker>> idle = new ConcurrentHashMap<>();
+    private final Map<Integer, Worker> busy = new ConcurrentHashMap<>();
+
+    /**
+     * Multi slot indices of evicted contexts. The search path cleanup must not run concurrently
+     * with the parent, so it is deferred until the parent touches the pool again.
+     */
+    private final List<Integer> evictedMultiSlots = new ArrayList<>();
+
+    /**
+     * Returns an idle context of the given kind, or {@code null} if there is none. The returned
+     * worker is already marked busy and must be given a job via {@link Worker#submit}.
+     */
+    @TruffleBoundary
+    public Worker acquire(ContextKind kind) {
+        cleanupEvicted();
+        Worker worker;
+        synchronized (this) {
+            ArrayDeque<Worker> queue = idle.get(kind);
+            worker = queue == null ? null : queue.pollLast();
+        }
+        if (worker != null) {
+            busy.put(worker.getContextId(), worker);
+        }
+        return worker;
+    }
+
+    /**
+     * Creates a new pooled context for {@code info}. Like with {@link EvalThread}, the caller is
+     * responsible for converting the search path to multi slots before the worker gets its first
+     * job.
+     */
+    @TruffleBoundary
+    public Worker create(Map<Integer, Thread> threadMap, ChildContextInfo info) {
+        Worker worker = new Worker(this, threadMap, info);
+        busy.put(worker.getContextId(), worker);
+        return worker;
+    }
+
+    /**
+     * Returns {@code true} if {@code id} identifies a busy pooled context.
+     */
+    public boolean isPooled(int id) {
+        return busy.containsKey(id);
+    }
+
+    /**
+     * Waits for the job of the pooled context {@code id} to finish and returns the context to the
+     * pool. Returns {@code null} if {@code id} is not a busy pooled context.
+     */
+    @TruffleBoundary
+    public RList join(int id) throws InterruptedException {
+        Worker worker = busy.get(id);
+        if (worker == null) {
+            return null;
+        }
+        RList result = worker.awaitResult();
+        busy.remove(id);
+        release(worker);
+        cleanupEvicted();
+        return result;
+    }
+
+    private void release(Worker worker) {
+        int maxIdle = getIntOption(POOL_SIZE_OPTION, Runtime.getRuntime().availableProcessors());
+        int idleSeconds = getIntOption(POOL_IDLE_OPTION, DEFAULT_IDLE_SECONDS);
+        // a context closed by the evaluation, e.g. by quit(), cannot be reused
+        boolean reusable = !worker.broken && maxIdle > 0 && idleSeconds > 0;
+        if (reusable && worker.info.getKind() == ContextKind.SHARE_ALL) {
+            resetMultiSlots(worker.info.getMultiSlotInd());
+        }
+        synchronized (this) {
+            ArrayDeque<Worker> queue = idle.computeIfAbsent(worker.info.getKind(), k -> new ArrayDeque<>());
+            if (reusable && queue.size() < maxIdle) {
+                worker.idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+                queue.addLast(worker);
+                return;
+            }
+        }
+        worker.jobs.add(STOP);
+        addEvicted(worker);
+    }
+
+    /**
+     * Drops the bindings a {@code SHARE_ALL} context made in the environments it shares with this
+     * context: the values of multi slot {@code multiSlotInd} are replicated again from this context
+     * and the ones in the global environment are removed. Runs in the parent, because replicating
+     * the namespaces requires the parent's view of them and must not race with the parent's own
+     * updates of the slots.
+     */
+    private static void resetMultiSlots(int multiSlotInd) {
+        int[] indices = {multiSlotInd};
+        REnvironment.convertSearchpathToMultiSlot(indices);
+        FrameSlotChangeMonitor.cleanMultiSlots(REnvironment.globalEnv().getFrame(), indices);
+    }
+
+    /**
+     * Called by an idle worker whose idle time expired. Returns {@code true} if the worker was
+     * removed from the pool and should terminate, {@code false} if it was acquired in the meantime.
+     */
+    private boolean evict(Worker worker) {
+        synchronized (this) {
+            ArrayDeque<Worker> queue = idle.get(worker.info.getKind());
+            if (queue == null || !queue.remove(worker)) {
+                return false;
+            }
+        }
+        addEvicted(worker);
+        return true;
+    }
+
+    private void addEvicted(Worker worker) {
+        int multiSlotInd = worker.info.getMultiSlotInd();
+        if (multiSlotInd != 0) {
+            synchronized (evictedMultiSlots) {
+                evictedMultiSlots.add(multiSlotInd);
+            }
+        }
+    }
+
+    private void cleanupEvicted() {
+        int[] indices;
+        synchronized (evictedMultiSlots) {
+            if (evictedMultiSlots.isEmpty()) {
+                return;
+            }
+            indices = new int[evictedMultiSlots.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = evictedMultiSlots.get(i);
+            }
+            evictedMultiSlots.clear();
+        }
+        if (EvalThread.threadCnt.get() == 0) {
+            REnvironment.cleanupSearchpathFromMultiSlot();
+        } else {
+            REnvironment.cleanupSearchpathFromMultiSlot(indices);
+        }
+    }
+
+    /**
+     * Closes all idle contexts and waits for their threads to terminate. Contexts that are busy
+     * are not affected, they are closed when joined.
+     */
+    @TruffleBoundary
+    public void shutdown() {
+        List<Worker> workers = new ArrayList<>();
+        synchronized (this) {
+            for (ArrayDeque<Worker> queue : idle.values()) {
+                workers.addAll(queue);
+                queue.clear();
+            }
+        }
+        for (Worker worker : workers) {
+            worker.jobs.add(STOP);
+        }
+        try {
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            throw new RInternalError(e, "error waiting for pooled contexts to finish");
+        }
+        synchronized (evictedMultiSlots) {
+            evictedMultiSlots.clear();
+        }
+        if (!workers.isEmpty() && EvalThread.threadCnt.get() == 0) {
+            REnvironment.cleanupSearchpathFromMultiSlot();
+        }
+    }
+
+    /**
+     * Returns the number of idle contexts of the given kind.
+     */
+    public synchronized int getIdleCount(ContextKind kind) {
+        ArrayDeque<Worker> queue = idle.get(kind);
+        return queue == null ? 0 : queue.size();
+    }
+
+    private static int getIntOption(String name, int defaultValue) {
+        Object value = RContext.getInstance().stateROptions.getValue(name);
+        if (value == null || value == RNull.instance) {
+            return defaultValue;
+        }
+        int result = RRuntime.asInteger(value);
+        return RRuntime.isNA(result) || result < 0 ? defaultValue : result;
+    }
+
+    /**
+     * The state of a fresh pooled context that is restored after every job: its options, its RNG
+     * kinds and its search path. It is taken and restored by the worker thread with the context
+     * entered.
+     */
+    static final class Snapshot {
+        private final Map<String, Object> options;
+        private final int[] rngKinds;
+        private final List<String> searchPath;
+
+        Snapshot() {
+            options = RContext.getInstance().stateROptions.copyValues();
+            rngKinds = new int[]{RRNG.currentKindAsInt(), RRNG.currentNormKindAsInt(), RRNG.currentSampleKindAsInt()};
+            searchPath = Arrays.asList(REnvironment.searchPath());
+        }
+
+        /**
+         * Restores the state of a context of the given kind. The search path and the global
+         * environment of a {@code SHARE_ALL} context are shared with the parent, their bindings are
+         * reset by the parent in {@link ContextPool#resetMultiSlots}.
+         */
+        void restore(ContextKind kind) throws DetachException, PutException {
+            boolean shared = kind == ContextKind.SHARE_ALL;
+            if (!shared) {
+                String[] current = REnvironment.searchPath();
+                // the global environment is the first and base the last entry
+                for (int i = current.length - 2; i > 0; i--) {
+                    if (!searchPath.contains(current[i])) {
+                        REnvironment.detach(i + 1);
+                    }
+                }
+            }
+            RContext.getInstance().stateROptions.restoreValues(options);
+            // the RNG may store a new seed, so the global environment is cleared last
+            RRNG.doRNGKind(rngKinds[0], rngKinds[1], rngKinds[2]);
+            if (!shared) {
+                REnvironment global = REnvironment.globalEnv();
+                RStringVector names = global.ls(true, null, false);
+                for (int i = 0; i < names.getLength(); i++) {
+                    global.rm(names.getDataAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * The thread that owns a pooled context. It evaluates the jobs submitted to it one at a time
+     * and parks in between, closing the context when it is evicted or stopped.
+     */
+    public static final class Worker extends Thread {
+
+        private final ContextPool pool;
+        private final Map<Integer, Thread> threadMap;
+        private final ChildContextInfo info;
+        private final TruffleContext truffleContext;
+        private final LinkedBlockingQueue<Object> jobs = new LinkedBlockingQueue<>();
+        private final Semaphore finished = new Semaphore(0);
+        private volatile RList result;
+        private volatile long idleMillis;
+
+        /** Set if the evaluation closed the context, which makes it unusable for further jobs. */
+        volatile boolean broken;
+
+        /**
+         * The state of the fresh context, taken before its first job and restored after every job,
+         * see {@link EvalThread}. Only accessed by the worker thread.
+         */
+        Snapshot snapshot;
+
+        private Worker(ContextPool pool, Map<Integer, Thread> threadMap, ChildContextInfo info) {
+            this.pool = pool;
+            this.threadMap = threadMap;
+            this.info = info;
+            setDaemon(true);
+            EvalThread.threadCnt.incrementAndGet();
+            threadMap.put(info.getId(), this);
+            this.truffleContext = info.createTruffleContext();
+        }
+
+        public int getContextId() {
+            return info.getId();
+        }
+
+        public ChildContextInfo getContextInfo() {
+            return info;
+        }
+
+        /**
+         * Hands {@code source} to this context for evaluation, starting the thread on first use.
+         */
+        public void submit(Source source) {
+            jobs.add(source);
+            if (getState() == State.NEW) {
+                start();
+            }
+        }
+
+        RList awaitResult() throws InterruptedException {
+            finished.acquire();
+            return result;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Object job = idleMillis == 0 ? jobs.take() : jobs.poll(idleMillis, TimeUnit.MILLISECONDS);
+                    if (job == null) {
+                        if (pool.evict(this)) {
+                            break;
+                        }
+                        continue;
+                    }
+                    if (job == STOP) {
+                        break;
+                    }
+                    result = EvalThread.run(truffleContext, info, (Source) job, this);
+                    // an interrupt meant for the finished job must not leak into the next one
+                    Thread.interrupted();
+                    finished.release();
+                }
+            } catch (InterruptedException e) {
+                // interrupted while idle, terminate
+                pool.evict(this);
+            } finally {
+                if (!broken) {
+                    truffleContext.close();
+                }
+                threadMap.remove(info.getId());
+                EvalThread.threadCnt.decrementAndGet();
+            }
+        }
+    }
+
+}
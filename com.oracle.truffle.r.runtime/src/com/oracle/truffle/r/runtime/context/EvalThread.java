@@ -35,6 +35,7 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.context.Engine.ParseException;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RNull;
@@ -95,12 +96,25 @@ public class EvalThread extends Thread {
      * Convenience method for {@code .fastr.context.eval} in same thread.
      */
     public static RList run(TruffleContext truffleContext, ChildContextInfo info, Source source) {
+        return run(truffleContext, info, source, null);
+    }
+
+    /**
+     * Evaluates {@code source} in {@code truffleContext}. The context is closed afterwards unless
+     * it belongs to a pooled {@code worker}, which keeps it open for the next job. A worker whose
+     * evaluation terminated the R session or failed internally is marked as broken.
+     */
+    static RList run(TruffleContext truffleContext, ChildContextInfo info, Source source, ContextPool.Worker worker) {
+        boolean close = worker == null;
         RList result = null;
         Object parent = null;
         try {
             parent = truffleContext.enter();
             // this is the engine for the new child context
             Engine rEngine = RContext.getEngine();
+            if (worker != null && worker.snapshot == null) {
+                worker.snapshot = new ContextPool.Snapshot();
+            }
             // Object eval = rEngine.eval(rEngine.parse(source), rEngine.getGlobalFrame());
             Object evalResult = rEngine.parseAndEval(source, rEngine.getGlobalFrame(), false);
             result = RDataFactory.createList(new Object[]{evalResult == null ? RNull.instance : evalResult});
@@ -110,6 +124,7 @@ public class EvalThread extends Thread {
         } catch (ExitException e) {
             // termination, treat this as "success"
             result = RDataFactory.createList(new Object[]{e.getStatus()});
+            close = true;
         } catch (RError e) {
             // nothing to do
             result = RDataFactory.createList(new Object[]{RNull.instance});
@@ -117,13 +132,45 @@ public class EvalThread extends Thread {
             // some internal error
             RInternalError.reportErrorAndConsoleLog(t, info.getId());
             result = createErrorResult(t.getClass().getSimpleName());
+            close = true;
         } finally {
+            if (!close && !resetPooled(worker)) {
+                close = true;
+            }
             truffleContext.leave(parent);
-            truffleContext.close();
+            if (close) {
+                truffleContext.close();
+                if (worker != null) {
+                    worker.broken = true;
+                }
+            }
         }
         return result;
     }
 
+    /**
+     * Makes the state left behind by a job invisible to the next job of a pooled context. Returns
+     * {@code false} if that failed and the context must not be reused. {@code SHARE_PARENT_RW}
+     * contexts use the global environment of the parent, which cannot be cleared without affecting
+     * the parent, so they are never reused.
+     */
+    private static boolean resetPooled(ContextPool.Worker worker) {
+        if (worker == null) {
+            return true;
+        }
+        ContextKind kind = worker.getContextInfo().getKind();
+        if (worker.snapshot == null || kind == ContextKind.SHARE_PARENT_RW) {
+            return false;
+        }
+        try {
+            worker.snapshot.restore(kind);
+            return true;
+        } catch (Throwable t) {
+            RInternalError.reportErrorAndConsoleLog(t, worker.getContextId());
+            return false;
+        }
+    }
+
     @TruffleBoundary
     public static RList createErrorResult(String errorMsg) {
         RList list = RDataFactory.createList(new Object[]{RRuntime.LOGICAL_NA});
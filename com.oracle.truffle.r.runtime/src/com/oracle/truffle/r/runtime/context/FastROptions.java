@@ -82,7 +82,7 @@ public class FastROptions {
     public static final OptionKey<String> Rdebug = new OptionKey<>("");
     @Option(category = OptionCategory.EXPERT, help = "Load the system, site and user profile scripts.") //
     public static final OptionKey<Boolean> LoadProfiles = new OptionKey<>(!FastRConfig.ManagedMode);
-    @Option(category = OptionCategory.EXPERT, help = "Use 128 bit arithmetic in sum builtin") //
+    @Option(category = OptionCategory.EXPERT, deprecated = true, help = "Deprecated and ignored, double sums are always accumulated with extended precision") //
     public static final OptionKey<Boolean> FullPrecisionSum = new OptionKey<>(false);
     @Option(category = OptionCategory.EXPERT, help = "Argument writes do not trigger state transitions") //
     public static final OptionKey<Boolean> InvisibleArgs = new OptionKey<>(true);
@@ -123,6 +123,8 @@ public class FastROptions {
     public static final OptionKey<String> AdditionalOptions = new OptionKey<>("");
     @Option(category = OptionCategory.INTERNAL, help = "Enables timeout (in seconds) when receiving messages from a channel") //
     public static final OptionKey<Integer> ChannelReceiveTimeout = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Number of messages a channel buffers in each direction before the sender blocks") //
+    public static final OptionKey<Integer> ChannelQueueCapacity = new OptionKey<>(16);
     @Option(category = OptionCategory.EXPERT, help = "Restrict force splitting of call targets") //
     public static final OptionKey<Boolean> RestrictForceSplitting = new OptionKey<>(true);
     @Option(category = OptionCategory.INTERNAL, help = "Turn on explicit GC via the gc built-in. Otherwise calls to gc are ignored.") //
@@ -94,6 +94,7 @@ import com.oracle.truffle.r.runtime.RProfile;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RRuntimeASTAccess;
 import com.oracle.truffle.r.runtime.RSerialize;
+import com.oracle.truffle.r.runtime.RegExpCache;
 import com.oracle.truffle.r.runtime.ReturnException;
 import com.oracle.truffle.r.runtime.SuppressFBWarnings;
 import com.oracle.truffle.r.runtime.TempPathName;
@@ -385,7 +386,9 @@ public final class RContext {
     public final WeakHashMap<TruffleFile, REnvironment> srcfileEnvironments = new WeakHashMap<>();
     public final List<String> libraryPaths = new ArrayList<>(1);
     public final Map<Integer, Thread> threads = new ConcurrentHashMap<>();
+    public final ContextPool contextPool = new ContextPool();
     public final LanguageClosureCache languageClosureCache = new LanguageClosureCache();
+    public final RegExpCache regExpCache = new RegExpCache();
     public final Map<String, Source> sourceCache = new ConcurrentHashMap<>();
 
     private final AllocationReporter allocationReporter;
@@ -479,7 +482,7 @@ public final class RContext {
         this.stateRConnection = ConnectionSupport.ContextStateImpl.newContextState();
         this.stateRNG = RRNG.ContextStateImpl.newContextState();
         this.stateRSerialize = RSerialize.ContextStateImpl.newContextState();
-        this.stateLazyDBCache = LazyDBCache.ContextStateImpl.newContextState();
+        this.stateLazyDBCache = LazyDBCache.ContextStateImpl.newContextState(parentContext);
         this.stateInstrumentation = InstrumentationState.newContextState(instrumenter);
         this.stateInternalCode = ContextStateImpl.newContextState();
         this.stateDLL = DLL.ContextStateImpl.newContextState();
@@ -636,6 +639,8 @@ public final class RContext {
      */
     public synchronized void dispose() {
         if (!state.contains(State.DISPOSED)) {
+            // idle pooled children are still alive, close them before this context goes away
+            contextPool.shutdown();
             if (state.contains(State.INITIALIZED)) {
                 for (ContextState contextState : contextStates()) {
                     contextState.beforeDispose(this);
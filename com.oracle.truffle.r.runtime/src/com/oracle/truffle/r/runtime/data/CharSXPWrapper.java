@@ -23,9 +23,10 @@
 package com.oracle.truffle.r.runtime.data;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.interop.InteropLibrary;
@@ -52,7 +53,15 @@ import java.nio.charset.StandardCharsets;
  */
 @ExportLibrary(InteropLibrary.class)
 public final class CharSXPWrapper extends RBaseObject {
-    private static final Map<CharSXPWrapper, WeakReference<CharSXPWrapper>> instances = new WeakHashMap<>(2048);
+    /**
+     * The interning table shared by all contexts. It is keyed by the contents and the values are
+     * weak, entries of collected wrappers are removed via {@link #staleEntries}. Lookups do not
+     * lock, so native code running in several contexts does not contend on it.
+     */
+    private static final ConcurrentHashMap<String, InstanceRef> instances = new ConcurrentHashMap<>(2048);
+    private static final ReferenceQueue<CharSXPWrapper> staleEntries = new ReferenceQueue<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
     private static final CharSXPWrapper NA = new CharSXPWrapper(RRuntime.STRING_NA);
     private String contents;
     private byte[] bytes;
@@ -158,27 +167,82 @@ public final class CharSXPWrapper extends RBaseObject {
         return create(contents, true);
     }
 
+    @TruffleBoundary
     private static CharSXPWrapper create(String contents, boolean intern) {
         assert !intern || Utils.isInterned(contents);
         if (RRuntime.isNA(contents)) {
             return NA;
-        } else {
-            CharSXPWrapper cachedWrapper;
-            CharSXPWrapper newWrapper = new CharSXPWrapper(contents);
-            synchronized (instances) {
-                WeakReference<CharSXPWrapper> wr = instances.get(newWrapper);
-                if (wr != null) {
-                    cachedWrapper = wr.get();
-                    if (cachedWrapper != null) {
-                        if (intern) {
-                            cachedWrapper.contents = contents;
-                        }
-                        return cachedWrapper;
-                    }
-                }
-                instances.put(newWrapper, new WeakReference<>(newWrapper));
+        }
+        expungeStaleEntries();
+        InstanceRef ref = instances.get(contents);
+        CharSXPWrapper cachedWrapper = ref == null ? null : ref.get();
+        if (cachedWrapper != null) {
+            return found(cachedWrapper, contents, intern);
+        }
+        CharSXPWrapper newWrapper = new CharSXPWrapper(contents);
+        InstanceRef newRef = new InstanceRef(newWrapper, contents);
+        while (true) {
+            ref = instances.putIfAbsent(contents, newRef);
+            if (ref == null) {
+                misses.increment();
+                return newWrapper;
+            }
+            cachedWrapper = ref.get();
+            if (cachedWrapper != null) {
+                // another thread created the wrapper in the meantime
+                return found(cachedWrapper, contents, intern);
+            }
+            if (instances.replace(contents, ref, newRef)) {
+                misses.increment();
+                return newWrapper;
             }
-            return newWrapper;
+        }
+    }
+
+    private static CharSXPWrapper found(CharSXPWrapper cachedWrapper, String contents, boolean intern) {
+        hits.increment();
+        if (intern) {
+            cachedWrapper.contents = contents;
+        }
+        return cachedWrapper;
+    }
+
+    private static void expungeStaleEntries() {
+        InstanceRef ref;
+        while ((ref = (InstanceRef) staleEntries.poll()) != null) {
+            // the entry may have been replaced by a live wrapper already
+            instances.remove(ref.key, ref);
+        }
+    }
+
+    /**
+     * Returns the number of entries in the interning table, including entries of wrappers that
+     * were collected but not yet removed.
+     */
+    public static int getInstancesCount() {
+        return instances.size();
+    }
+
+    /**
+     * Returns the number of {@link #create} calls that returned an existing wrapper.
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of {@link #create} calls that had to create a new wrapper.
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class InstanceRef extends WeakReference<CharSXPWrapper> {
+        private final String key;
+
+        InstanceRef(CharSXPWrapper wrapper, String key) {
+            super(wrapper, staleEntries);
+            this.key = key;
         }
     }
 
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Assignment of the rows of a vector to groups as needed by grouped computations like
+ * {@code split}, {@code rowsum}, {@code tabulate} or {@code .fastr.grouped}: the 0-based group of
+ * every row ({@code -1} for rows that belong to no group), the number of rows in every group and the
+ * row at which every group occurs first.
+ *
+ * For factors, the groups are the levels and the index is computed by a single counting pass over
+ * the codes. {@link #ofFactor} caches it on the data of the factor (see
+ * {@link VectorDataWithCachedIndex}) if the factor is long enough and not temporary. Only
+ * {@code .fastr.grouped} builds the index this way; {@code split} and {@code tabulate} use a cached
+ * index if there is one, but count the codes themselves otherwise. For other vectors the groups are
+ * the distinct values in the order of their first occurrence, found via the primitive hash maps in
+ * {@link com.oracle.truffle.r.runtime.Collections}.
+ */
+public final class GroupIndex {
+
+    /**
+     * Factors at least this long get their index cached.
+     */
+    public static final int MIN_CACHED_LENGTH = 256;
+
+    private final int[] groups;
+    private final int[] sizes;
+    private final int[] first;
+
+    private GroupIndex(int[] groups, int groupCount) {
+        this.groups = groups;
+        this.sizes = new int[groupCount];
+        this.first = new int[groupCount];
+        Arrays.fill(first, -1);
+        for (int i = 0; i < groups.length; i++) {
+            int group = groups[i];
+            if (group >= 0) {
+                if (sizes[group]++ == 0) {
+                    first[group] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the factor codes {@code factor} with {@code nLevels} levels. Codes that
+     * are {@code NA} or outside of {@code 1..nLevels} belong to no group.
+     */
+    @TruffleBoundary
+    public static GroupIndex ofFactor(RIntVector factor, int nLevels) {
+        GroupIndex index = getCached(factor, nLevels);
+        if (index != null) {
+            return index;
+        }
+        int[] codes = factor.getReadonlyData();
+        int[] groups = new int[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            int code = codes[i];
+            // NA is Integer.MIN_VALUE and therefore out of range
+            groups[i] = code > 0 && code <= nLevels ? code - 1 : -1;
+        }
+        index = new GroupIndex(groups, nLevels);
+        if (codes.length >= MIN_CACHED_LENGTH && !factor.isTemporary() && factor.getData() instanceof VectorDataWithCachedIndex) {
+            ((VectorDataWithCachedIndex) factor.getData()).setCachedIndex(GroupIndex.class, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the factor codes {@code factor} with {@code nLevels} levels if it has
+     * been cached by an earlier {@link #ofFactor} call and the factor has not been modified since,
+     * {@code null} otherwise.
+     */
+    public static GroupIndex getCached(RIntVector factor, int nLevels) {
+        Object data = factor.getData();
+        if (data instanceof VectorDataWithCachedIndex) {
+            Object index = ((VectorDataWithCachedIndex) data).getCachedIndex(GroupIndex.class);
+            if (index instanceof GroupIndex && ((GroupIndex) index).sizes.length == nLevels) {
+                return (GroupIndex) index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index that groups the rows of {@code keys} by their distinct values, numbered in
+     * the order of their first occurrence. Like in {@code unique}, {@code NA} forms a group of its
+     * own.
+     */
+    @TruffleBoundary
+    public static GroupIndex ofKeys(RAbstractVector keys) {
+        int n = keys.getLength();
+        int[] groups = new int[n];
+        int count = 0;
+        if (keys instanceof RIntVector) {
+            int[] data = ((RIntVector) keys).getReadonlyData();
+            NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(Math.min(n, 4096));
+            for (int i = 0; i < n; i++) {
+                int group = map.putIfAbsent(data[i], count);
+                groups[i] = group == -1 ? count++ : group;
+            }
+        } else if (keys instanceof RDoubleVector) {
+            double[] data = ((RDoubleVector) keys).getReadonlyData();
+            NonRecursiveHashMapDouble map = new NonRecursiveHashMapDouble(Math.min(n, 4096));
+            for (int i = 0; i < n; i++) {
+                int group = map.putIfAbsent(data[i], count);
+                groups[i] = group == -1 ? count++ : group;
+            }
+        } else if (keys instanceof RStringVector) {
+            String[] data = ((RStringVector) keys).getReadonlyStringData();
+            NonRecursiveHashMapCharacter map = new NonRecursiveHashMapCharacter(Math.min(n, 4096));
+            for (int i = 0; i < n; i++) {
+                int group = map.putIfAbsent(data[i], count);
+                groups[i] = group == -1 ? count++ : group;
+            }
+        } else if (keys instanceof RLogicalVector) {
+            byte[] data = ((RLogicalVector) keys).getReadonlyData();
+            // FALSE, TRUE and NA
+            int[] ids = {-1, -1, -1};
+            for (int i = 0; i < n; i++) {
+                int slot = RRuntime.isNA(data[i]) ? 2 : data[i];
+                if (ids[slot] == -1) {
+                    ids[slot] = count++;
+                }
+                groups[i] = ids[slot];
+            }
+        } else {
+            HashMap<Object, Integer> map = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Integer group = map.putIfAbsent(keys.getDataAtAsObject(i), count);
+                groups[i] = group == null ? count++ : group;
+            }
+        }
+        return new GroupIndex(groups, count);
+    }
+
+    /**
+     * Returns the index that assigns every row of {@code keys} to the position of its value in
+     * {@code uniqueKeys}, which must not contain duplicates. Rows whose value is not in
+     * {@code uniqueKeys} belong to no group.
+     */
+    @TruffleBoundary
+    public static GroupIndex ofUniqueKeys(RAbstractVector keys, RAbstractVector uniqueKeys) {
+        int n = keys.getLength();
+        int ng = uniqueKeys.getLength();
+        int[] groups = new int[n];
+        if (keys instanceof RIntVector && uniqueKeys instanceof RIntVector) {
+            int[] data = ((RIntVector) keys).getReadonlyData();
+            int[] unique = ((RIntVector) uniqueKeys).getReadonlyData();
+            NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(ng);
+            for (int i = 0; i < ng; i++) {
+                map.put(unique[i], i);
+            }
+            for (int i = 0; i < n; i++) {
+                groups[i] = map.get(data[i]);
+            }
+        } else if (keys instanceof RDoubleVector && uniqueKeys instanceof RDoubleVector) {
+            double[] data = ((RDoubleVector) keys).getReadonlyData();
+            double[] unique = ((RDoubleVector) uniqueKeys).getReadonlyData();
+            NonRecursiveHashMapDouble map = new NonRecursiveHashMapDouble(ng);
+            for (int i = 0; i < ng; i++) {
+                map.put(unique[i], i);
+            }
+            for (int i = 0; i < n; i++) {
+                groups[i] = map.get(data[i]);
+            }
+        } else if (keys instanceof RStringVector && uniqueKeys instanceof RStringVector) {
+            String[] data = ((RStringVector) keys).getReadonlyStringData();
+            String[] unique = ((RStringVector) uniqueKeys).getReadonlyStringData();
+            NonRecursiveHashMapCharacter map = new NonRecursiveHashMapCharacter(ng);
+            for (int i = 0; i < ng; i++) {
+                map.put(unique[i], i);
+            }
+            for (int i = 0; i < n; i++) {
+                groups[i] = map.get(data[i]);
+            }
+        } else {
+            HashMap<Object, Integer> map = new HashMap<>();
+            for (int i = 0; i < ng; i++) {
+                map.put(uniqueKeys.getDataAtAsObject(i), i);
+            }
+            for (int i = 0; i < n; i++) {
+                Integer group = map.get(keys.getDataAtAsObject(i));
+                groups[i] = group == null ? -1 : group;
+            }
+        }
+        return new GroupIndex(groups, ng);
+    }
+
+    /**
+     * The number of rows.
+     */
+    public int getLength() {
+        return groups.length;
+    }
+
+    public int getGroupCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the 0-based group of every row, {@code -1} for rows that belong to no group. The
+     * array is shared and must not be modified.
+     */
+    public int[] getGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns the number of rows in every group. The array is shared and must not be modified.
+     */
+    public int[] getSizes() {
+        return sizes;
+    }
+
+    /**
+     * Returns the row at which every group occurs first, {@code -1} for empty groups. The array is
+     * shared and must not be modified.
+     */
+    public int[] getFirst() {
+        return first;
+    }
+
+    /**
+     * Returns the group sizes when the rows are recycled (or truncated) to {@code length} rows, as
+     * done by {@code split} when the factor is shorter than the vector.
+     */
+    @TruffleBoundary
+    public int[] getRecycledSizes(int length) {
+        int n = groups.length;
+        if (length == n) {
+            return sizes.clone();
+        }
+        int[] result = new int[sizes.length];
+        if (n == 0) {
+            return result;
+        }
+        int cycles = length / n;
+        if (cycles > 0) {
+            for (int i = 0; i < sizes.length; i++) {
+                result[i] = sizes[i] * cycles;
+            }
+        }
+        for (int i = 0; i < length % n; i++) {
+            if (groups[i] >= 0) {
+                result[groups[i]]++;
+            }
+        }
+        return result;
+    }
+}
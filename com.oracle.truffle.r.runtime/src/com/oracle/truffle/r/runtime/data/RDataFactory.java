@@ -558,6 +558,18 @@ public final class RDataFactory {
             return traceDataCreated(new RStringVector(new RStringSeqVectorData(prefix, suffix, start, stride, length), length));
         }
 
+        /**
+         * Creates a character vector whose elements are converted from {@code data} on demand, see
+         * {@link RStringDeferredVectorData}. The array must not be modified afterwards.
+         */
+        public final RStringVector createDeferredStringVector(int[] data, boolean complete, int[] dims, RStringVector names, RList dimNames) {
+            return traceDataCreated(initializeAttributes(new RStringVector(new RStringDeferredVectorData(data, complete), data.length), dims, names, dimNames));
+        }
+
+        public final RStringVector createDeferredStringVector(double[] data, boolean complete, int[] dims, RStringVector names, RList dimNames) {
+            return traceDataCreated(initializeAttributes(new RStringVector(new RStringDeferredVectorData(data, complete), data.length), dims, names, dimNames));
+        }
+
         public final RComplexVector createEmptyComplexVector() {
             return createComplexVector(new double[0], true);
         }
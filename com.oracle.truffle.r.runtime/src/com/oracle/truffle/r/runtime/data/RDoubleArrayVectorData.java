@@ -45,9 +45,10 @@ import com.oracle.truffle.r.runtime.ops.na.NACheck;
 import java.util.Arrays;
 
 @ExportLibrary(VectorDataLibrary.class)
-public class RDoubleArrayVectorData implements TruffleObject, VectorDataWithOwner {
+public class RDoubleArrayVectorData implements TruffleObject, VectorDataWithOwner, VectorDataWithCachedIndex {
     private final double[] data;
     private boolean complete;
+    private volatile Object[] cachedIndexes;
     private RDoubleVector owner;
 
     public RDoubleArrayVectorData(double[] data, boolean complete) {
@@ -61,6 +62,23 @@ public class RDoubleArrayVectorData implements TruffleObject, VectorDataWithOwne
         owner.setComplete(complete);
     }
 
+    @Override
+    public Object getCachedIndex(Object key) {
+        return VectorDataWithCachedIndex.get(cachedIndexes, key);
+    }
+
+    @Override
+    public void setCachedIndex(Object key, Object index) {
+        cachedIndexes = VectorDataWithCachedIndex.put(cachedIndexes, key, index);
+    }
+
+    @Override
+    public void invalidateCachedIndexes() {
+        if (cachedIndexes != null) {
+            cachedIndexes = null;
+        }
+    }
+
     @SuppressWarnings("static-method")
     @ExportMessage
     public NACheck getNACheck(@Shared("naCheck") @Cached() NACheck na, @Shared("nullOwner") @Cached BranchProfile ownerIsNull) {
@@ -173,11 +191,13 @@ public class RDoubleArrayVectorData implements TruffleObject, VectorDataWithOwne
 
     @ExportMessage
     public SeqWriteIterator writeIterator() {
+        invalidateCachedIndexes();
         return new SeqWriteIterator(data, data.length);
     }
 
     @ExportMessage
     public RandomAccessWriteIterator randomAccessWriteIterator() {
+        invalidateCachedIndexes();
         return new RandomAccessWriteIterator(data);
     }
 
@@ -205,6 +225,7 @@ public class RDoubleArrayVectorData implements TruffleObject, VectorDataWithOwne
 
     @ExportMessage
     public void setDoubleAt(int index, double value, @Shared("setCompleteProfile") @Cached BranchProfile setCompleteProfile) {
+        invalidateCachedIndexes();
         data[index] = value;
         if (RRuntime.isNA(value)) {
             setCompleteProfile.enter();
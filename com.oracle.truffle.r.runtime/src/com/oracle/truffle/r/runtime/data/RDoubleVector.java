@@ -183,6 +183,7 @@ public final class RDoubleVector extends RAbstractNumericVector implements RMate
         }
         // TODO: get rid of this method
         assert data instanceof RDoubleArrayVectorData : data.getClass().getName();
+        invalidateCachedIndexes();
         return ((RDoubleArrayVectorData) data).getReadonlyDoubleData();
     }
 
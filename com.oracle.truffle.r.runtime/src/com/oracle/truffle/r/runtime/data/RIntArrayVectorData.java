@@ -45,10 +45,11 @@ import java.util.Arrays;
 import static com.oracle.truffle.r.runtime.data.model.RAbstractVector.ENABLE_COMPLETE;
 
 @ExportLibrary(VectorDataLibrary.class)
-public class RIntArrayVectorData implements TruffleObject, VectorDataWithOwner {
+public class RIntArrayVectorData implements TruffleObject, VectorDataWithOwner, VectorDataWithCachedIndex {
     private final int[] data;
     private RIntVector owner;
     private boolean complete;
+    private volatile Object[] cachedIndexes;
 
     public RIntArrayVectorData(int[] data, boolean complete) {
         this.data = data;
@@ -61,6 +62,23 @@ public class RIntArrayVectorData implements TruffleObject, VectorDataWithOwner {
         owner.setComplete(complete);
     }
 
+    @Override
+    public Object getCachedIndex(Object key) {
+        return VectorDataWithCachedIndex.get(cachedIndexes, key);
+    }
+
+    @Override
+    public void setCachedIndex(Object key, Object index) {
+        cachedIndexes = VectorDataWithCachedIndex.put(cachedIndexes, key, index);
+    }
+
+    @Override
+    public void invalidateCachedIndexes() {
+        if (cachedIndexes != null) {
+            cachedIndexes = null;
+        }
+    }
+
     @SuppressWarnings("static-method")
     @ExportMessage
     public NACheck getNACheck(@Shared("naCheck") @Cached() NACheck na, @Shared("nullOwner") @Cached BranchProfile ownerIsNull) {
@@ -175,11 +193,13 @@ public class RIntArrayVectorData implements TruffleObject, VectorDataWithOwner {
 
     @ExportMessage
     public SeqWriteIterator writeIterator() {
+        invalidateCachedIndexes();
         return new SeqWriteIterator(data, data.length);
     }
 
     @ExportMessage
     public RandomAccessWriteIterator randomAccessWriteIterator() {
+        invalidateCachedIndexes();
         return new RandomAccessWriteIterator(data);
     }
 
@@ -207,6 +227,7 @@ public class RIntArrayVectorData implements TruffleObject, VectorDataWithOwner {
 
     @ExportMessage
     public void setIntAt(int index, int value, @Shared("setCompleteProfile") @Cached BranchProfile setCompleteProfile) {
+        invalidateCachedIndexes();
         data[index] = value;
         if (RRuntime.isNA(value)) {
             setCompleteProfile.enter();
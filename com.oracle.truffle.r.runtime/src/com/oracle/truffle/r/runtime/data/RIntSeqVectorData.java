@@ -59,7 +59,7 @@ public class RIntSeqVectorData implements RSeq, TruffleObject {
             case Double:
                 return new RDoubleSeqVectorData(start, stride, length);
             case Character:
-                // TODO
+                return new RStringSeqVectorData(null, null, start, stride, length);
             default:
                 return VectorDataClosure.fromData(this, RType.Integer, targetType);
         }
@@ -263,6 +263,7 @@ public final class RIntVector extends RAbstractNumericVector {
         }
         // TODO: get rid of this method
         assert data instanceof RIntArrayVectorData : data.getClass().getName();
+        invalidateCachedIndexes();
         return ((RIntArrayVectorData) data).getReadonlyIntData();
     }
 
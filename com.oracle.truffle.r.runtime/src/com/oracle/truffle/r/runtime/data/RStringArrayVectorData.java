@@ -45,10 +45,11 @@ import java.util.Arrays;
 import static com.oracle.truffle.r.runtime.data.model.RAbstractVector.ENABLE_COMPLETE;
 
 @ExportLibrary(VectorDataLibrary.class)
-class RStringArrayVectorData implements TruffleObject, VectorDataWithOwner {
+class RStringArrayVectorData implements TruffleObject, VectorDataWithOwner, VectorDataWithCachedIndex {
     private final String[] data;
     private RStringVector owner;
     private boolean complete;
+    private volatile Object[] cachedIndexes;
 
     RStringArrayVectorData(String[] data, boolean complete) {
         this.data = data;
@@ -69,6 +70,23 @@ class RStringArrayVectorData implements TruffleObject, VectorDataWithOwner {
         owner.setComplete(complete);
     }
 
+    @Override
+    public Object getCachedIndex(Object key) {
+        return VectorDataWithCachedIndex.get(cachedIndexes, key);
+    }
+
+    @Override
+    public void setCachedIndex(Object key, Object index) {
+        cachedIndexes = VectorDataWithCachedIndex.put(cachedIndexes, key, index);
+    }
+
+    @Override
+    public void invalidateCachedIndexes() {
+        if (cachedIndexes != null) {
+            cachedIndexes = null;
+        }
+    }
+
     @SuppressWarnings("static-method")
     @ExportMessage
     public NACheck getNACheck(@Shared("naCheck") @Cached() NACheck na, @Shared("nullOwner") @Cached BranchProfile ownerIsNull) {
@@ -183,11 +201,13 @@ class RStringArrayVectorData implements TruffleObject, VectorDataWithOwner {
 
     @ExportMessage
     public SeqWriteIterator writeIterator() {
+        invalidateCachedIndexes();
         return new SeqWriteIterator(data, data.length);
     }
 
     @ExportMessage
     public RandomAccessWriteIterator randomAccessWriteIterator() {
+        invalidateCachedIndexes();
         return new RandomAccessWriteIterator(data);
     }
 
@@ -215,6 +235,7 @@ class RStringArrayVectorData implements TruffleObject, VectorDataWithOwner {
 
     @ExportMessage
     public void setStringAt(int index, String value, @Shared("setCompleteProfile") @Cached BranchProfile setCompleteProfile) {
+        invalidateCachedIndexes();
         data[index] = value;
         if (RRuntime.isNA(value)) {
             setCompleteProfile.enter();
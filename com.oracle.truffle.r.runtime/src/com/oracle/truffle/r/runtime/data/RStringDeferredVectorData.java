@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import static com.oracle.truffle.r.runtime.data.model.RAbstractVector.ENABLE_COMPLETE;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.interop.TruffleObject;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.api.profiles.LoopConditionProfile;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.VectorDataLibrary.RandomAccessIterator;
+import com.oracle.truffle.r.runtime.data.VectorDataLibrary.SeqIterator;
+import com.oracle.truffle.r.runtime.ops.na.NACheck;
+
+/**
+ * Character data that is the result of {@code as.character} of an integer or double vector. The
+ * numbers are kept and each element is converted to a string only when it is read for the first
+ * time, so that code like {@code as.character(x)[i]} or {@code paste0("id", x)} does not have to
+ * allocate a string for every element up front. Converted strings are cached.
+ *
+ * The numbers are a private copy, so later updates of the original vector are not visible. The data
+ * is read-only, writing to it materializes it to {@link RStringArrayVectorData}.
+ */
+@ExportLibrary(VectorDataLibrary.class)
+public final class RStringDeferredVectorData implements TruffleObject {
+
+    /**
+     * Vectors shorter than this are converted eagerly, the savings would not outweigh the
+     * indirection.
+     */
+    public static final int MIN_LENGTH = 64;
+
+    /** Either {@code int[]} or {@code double[]}. */
+    private final Object numbers;
+    private final int length;
+    private final boolean complete;
+    /**
+     * The strings converted so far, allocated on the first access. Racing threads may convert the
+     * same element twice, which is harmless.
+     */
+    private String[] strings;
+
+    private RStringDeferredVectorData(Object numbers, int length, boolean complete) {
+        this.numbers = numbers;
+        this.length = length;
+        this.complete = complete && ENABLE_COMPLETE;
+    }
+
+    public RStringDeferredVectorData(int[] numbers, boolean complete) {
+        this(numbers, numbers.length, complete);
+    }
+
+    public RStringDeferredVectorData(double[] numbers, boolean complete) {
+        this(numbers, numbers.length, complete);
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    public NACheck getNACheck(@Shared("naCheck") @Cached() NACheck na) {
+        na.enable(!complete);
+        return na;
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    public RType getType() {
+        return RType.Character;
+    }
+
+    @ExportMessage
+    public int getLength() {
+        return length;
+    }
+
+    @ExportMessage
+    public RStringArrayVectorData materialize() {
+        return new RStringArrayVectorData(getStringDataCopy(), complete);
+    }
+
+    @ExportMessage
+    public RStringDeferredVectorData copy(@SuppressWarnings("unused") boolean deep) {
+        // the numbers are never modified and can be shared
+        return new RStringDeferredVectorData(numbers, length, complete);
+    }
+
+    @ExportMessage
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Non-negative integers with the same number of digits sort the same way as their string
+     * representations. Other data is not known to be sorted.
+     */
+    @ExportMessage
+    @TruffleBoundary
+    public boolean isSorted(boolean descending, @SuppressWarnings("unused") boolean naLast) {
+        if (length < 2) {
+            return true;
+        }
+        if (!(numbers instanceof int[])) {
+            return false;
+        }
+        int[] ints = (int[]) numbers;
+        int digits = digits(ints[0]);
+        for (int i = 0; i < length; i++) {
+            int value = ints[i];
+            if (value < 0 || digits(value) != digits) {
+                // also rejects NA, which is negative
+                return false;
+            }
+            if (i > 0 && (descending ? value > ints[i - 1] : value < ints[i - 1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int digits(int value) {
+        int result = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            result++;
+        }
+        return result;
+    }
+
+    @ExportMessage
+    @TruffleBoundary
+    public String[] getStringDataCopy() {
+        String[] result = new String[length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getStringImpl(i);
+        }
+        return result;
+    }
+
+    // Read access to the elements:
+
+    @ExportMessage
+    public SeqIterator iterator(@Shared("naCheck") @Cached() NACheck naCheck,
+                    @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
+        SeqIterator it = new SeqIterator(null, length);
+        naCheck.enable(!complete);
+        it.initLoopConditionProfile(loopProfile);
+        return it;
+    }
+
+    @ExportMessage
+    @SuppressWarnings("static-method")
+    public boolean nextImpl(SeqIterator it, boolean loopCondition,
+                    @Shared("SeqItLoopProfile") @Cached("createCountingProfile()") LoopConditionProfile loopProfile) {
+        return it.next(loopCondition, loopProfile);
+    }
+
+    @ExportMessage
+    @SuppressWarnings("static-method")
+    public void nextWithWrap(SeqIterator it,
+                    @Cached("createBinaryProfile()") ConditionProfile wrapProfile) {
+        it.nextWithWrap(wrapProfile);
+    }
+
+    @ExportMessage
+    public RandomAccessIterator randomAccessIterator(@Shared("naCheck") @Cached() NACheck naCheck) {
+        naCheck.enable(!complete);
+        return new RandomAccessIterator(null);
+    }
+
+    @ExportMessage
+    public String getStringAt(int index, @Shared("naCheck") @Cached() NACheck naCheck) {
+        String value = getStringImpl(index);
+        naCheck.check(value);
+        return value;
+    }
+
+    @ExportMessage
+    public String getNextString(SeqIterator it, @Shared("naCheck") @Cached() NACheck naCheck) {
+        String value = getStringImpl(it.getIndex());
+        naCheck.check(value);
+        return value;
+    }
+
+    @ExportMessage
+    public String getString(@SuppressWarnings("unused") RandomAccessIterator it, int index, @Shared("naCheck") @Cached() NACheck naCheck) {
+        String value = getStringImpl(index);
+        naCheck.check(value);
+        return value;
+    }
+
+    // Utility methods:
+
+    private String getStringImpl(int index) {
+        assert index >= 0 && index < length;
+        String[] cache = strings;
+        if (cache == null) {
+            cache = new String[length];
+            strings = cache;
+        }
+        String result = cache[index];
+        if (result == null) {
+            result = convert(index);
+            cache[index] = result;
+        }
+        return result;
+    }
+
+    @TruffleBoundary
+    private String convert(int index) {
+        if (numbers instanceof int[]) {
+            return RRuntime.intToString(((int[]) numbers)[index]);
+        }
+        double value = ((double[]) numbers)[index];
+        return RRuntime.isNA(value) ? RRuntime.STRING_NA : RContext.getRRuntimeASTAccess().encodeDouble(value);
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "deferred strings of " + (numbers instanceof int[] ? "integer" : "double") + "[" + length + "]";
+    }
+}
@@ -126,6 +126,22 @@ public class RStringSeqVectorData implements RSeq {
         return true;
     }
 
+    /**
+     * With a common prefix and suffix, the elements sort like the numbers if all of them are
+     * non-negative and have the same number of digits.
+     */
+    @ExportMessage
+    public boolean isSorted(boolean descending, @SuppressWarnings("unused") boolean naLast) {
+        if (length < 2) {
+            return true;
+        }
+        int end = getEnd();
+        if (start < 0 || end < 0 || RStringDeferredVectorData.digits(start) != RStringDeferredVectorData.digits(end)) {
+            return false;
+        }
+        return descending ? stride <= 0 : stride >= 0;
+    }
+
     @ExportMessage
     public String[] getStringDataCopy() {
         String[] result = new String[length];
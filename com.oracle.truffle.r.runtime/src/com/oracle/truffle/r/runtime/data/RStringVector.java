@@ -229,6 +229,7 @@ public final class RStringVector extends RAbstractAtomicVector implements RMater
             return null;
         }
         // TODO: get rid of this method
+        invalidateCachedIndexes();
         return getUncachedDataLib().getReadonlyStringData(data);
     }
 
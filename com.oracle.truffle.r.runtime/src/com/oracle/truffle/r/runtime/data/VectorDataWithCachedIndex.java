@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.util.Arrays;
+
+/**
+ * Interface for vector data objects (see {@link VectorDataLibrary}) that can hold lookup structures
+ * computed from their contents, e.g., the hash index of a {@code match} table or the
+ * {@link GroupIndex} of a factor. The indexes are cached under a key chosen by their user, so that
+ * different kinds of indexes do not evict each other, and they are reused for as long as the data
+ * object is not written to: implementations must drop them in every write message, vectors drop
+ * them whenever they hand out their backing array (see
+ * {@link com.oracle.truffle.r.runtime.data.model.RAbstractVector#getDataTemp()}), and data objects
+ * that can be modified outside of the {@link VectorDataLibrary} (e.g., native memory) must not
+ * implement this interface.
+ */
+public interface VectorDataWithCachedIndex {
+    /**
+     * Returns the index cached under {@code key} or {@code null}.
+     */
+    Object getCachedIndex(Object key);
+
+    /**
+     * Caches {@code index} under {@code key}, replacing the index cached under that key before.
+     */
+    void setCachedIndex(Object key, Object index);
+
+    /**
+     * Drops all the cached indexes.
+     */
+    void invalidateCachedIndexes();
+
+    /**
+     * Returns the value of {@code key} in {@code entries}, an array of alternating keys and values
+     * as maintained by {@link #put}, or {@code null}.
+     */
+    static Object get(Object[] entries, Object key) {
+        if (entries != null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == key) {
+                    return entries[i + 1];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of {@code entries} (which may be {@code null}) where {@code key} maps to
+     * {@code index}. The arrays are never modified, so that they can be published through a
+     * volatile field.
+     */
+    static Object[] put(Object[] entries, Object key, Object index) {
+        if (entries != null) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == key) {
+                    Object[] result = entries.clone();
+                    result[i + 1] = index;
+                    return result;
+                }
+            }
+            Object[] result = Arrays.copyOf(entries, entries.length + 2);
+            result[entries.length] = key;
+            result[entries.length + 1] = index;
+            return result;
+        }
+        return new Object[]{key, index};
+    }
+}
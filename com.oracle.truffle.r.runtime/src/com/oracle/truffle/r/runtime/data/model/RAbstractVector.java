@@ -59,6 +59,7 @@ import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.UpdateShareableChildValue;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
+import com.oracle.truffle.r.runtime.data.VectorDataWithCachedIndex;
 import com.oracle.truffle.r.runtime.data.VectorDataWithOwner;
 import com.oracle.truffle.r.runtime.data.closures.RClosure;
 import com.oracle.truffle.r.runtime.data.nodes.CopyResizedWithEmpty;
@@ -217,7 +218,11 @@ public abstract class RAbstractVector extends RAbstractContainer implements RFFI
      * @return vector data
      */
     public final Object getDataNonShared() {
-        return !isShared() ? getReadonlyData() : getDataCopy();
+        if (!isShared()) {
+            invalidateCachedIndexes();
+            return getReadonlyData();
+        }
+        return getDataCopy();
     }
 
     /**
@@ -229,7 +234,22 @@ public abstract class RAbstractVector extends RAbstractContainer implements RFFI
      * @return vector data
      */
     public Object getDataTemp() {
-        return isTemporary() ? getReadonlyData() : getDataCopy();
+        if (isTemporary()) {
+            invalidateCachedIndexes();
+            return getReadonlyData();
+        }
+        return getDataCopy();
+    }
+
+    /**
+     * Drops the indexes cached on the data (see {@link VectorDataWithCachedIndex}). Must be called
+     * before the backing array is handed out to code that may write into it.
+     */
+    protected final void invalidateCachedIndexes() {
+        Object vectorData = getData();
+        if (vectorData instanceof VectorDataWithCachedIndex) {
+            ((VectorDataWithCachedIndex) vectorData).invalidateCachedIndexes();
+        }
     }
 
     @InternalDeprecation("Some data strategies do not maintain completeness flag, " +
@@ -24,14 +24,18 @@ package com.oracle.truffle.r.runtime.env.frame;
 
 import static com.oracle.truffle.r.runtime.context.FastROptions.SearchPathForcePromises;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerAsserts;
@@ -71,6 +75,12 @@ import com.oracle.truffle.r.runtime.data.RUnboundValue;
  * This class maintains information about the current hierarchy of environments in the system. This
  * information is described as assumptions that will be invalidated if the layout changes, and thus
  * make sure that code is properly deoptimized.
+ *
+ * The hierarchy is guarded by {@link #hierarchyLock}: operations that change it (attaching,
+ * detaching, changing enclosing frames, adding frame slots) take the write lock, lookups that need
+ * to walk it take the read lock and thus run concurrently. Cached lookup results and the frame
+ * descriptor meta data are kept in concurrent maps, so a lookup that hits the cache does not take
+ * any lock. This matters with many child contexts sharing the same environments.
  */
 public final class FrameSlotChangeMonitor {
 
@@ -188,21 +198,25 @@ public final class FrameSlotChangeMonitor {
     private static final class FrameDescriptorMetaData {
         private final String name; // name for debug purposes
         private final WeakReference<MaterializedFrame> singletonFrame;
+        /**
+         * Only accessed with the write lock held.
+         */
         private final Set<FrameDescriptor> subDescriptors = Collections.newSetFromMap(new WeakHashMap<>(2));
 
         /**
          * This set contains all lookups that have been performed "across" this frame descriptor. If
          * a binding with one of these names is modified, then the lookups in this frame descriptor
-         * and all child frame descriptors need to be checked.
+         * and all child frame descriptors need to be checked. Lookups running concurrently under
+         * the read lock add to it.
          */
-        private final Set<Object> previousLookups = new HashSet<>();
+        private final Set<Object> previousLookups = ConcurrentHashMap.newKeySet();
         /**
-         * A set of all lookups that started in this frame descriptor.
+         * A set of all lookups that started in this frame descriptor. Read without any lock.
          */
-        private final WeakHashMap<Object, WeakReference<LookupResult>> lookupResults = new WeakHashMap<>(2);
+        private final ConcurrentHashMap<Object, WeakReference<LookupResult>> lookupResults = new ConcurrentHashMap<>(2);
 
-        private WeakReference<FrameDescriptor> enclosingFrameDescriptor = new WeakReference<>(null);
-        private Assumption enclosingFrameDescriptorAssumption = Truffle.getRuntime().createAssumption("enclosing frame descriptor");
+        private volatile WeakReference<FrameDescriptor> enclosingFrameDescriptor = new WeakReference<>(null);
+        private volatile Assumption enclosingFrameDescriptorAssumption = Truffle.getRuntime().createAssumption("enclosing frame descriptor");
         private final Assumption containsNoActiveBindingAssumption = Truffle.getRuntime().createAssumption("contains no active binding");
 
         private FrameDescriptorMetaData(String name, MaterializedFrame singletonFrame) {
@@ -234,14 +248,56 @@ public final class FrameSlotChangeMonitor {
         }
     }
 
-    private static final WeakHashMap<FrameDescriptor, FrameDescriptorMetaData> frameDescriptors = new WeakHashMap<>();
+    /**
+     * Weak identity key of {@link #frameDescriptors}, a {@link FrameDescriptor} is registered for
+     * as long as it is reachable from elsewhere.
+     */
+    private static final class DescriptorKey extends WeakReference<FrameDescriptor> {
+        private final int hash;
+
+        private DescriptorKey(FrameDescriptor descriptor, ReferenceQueue<FrameDescriptor> queue) {
+            super(descriptor, queue);
+            this.hash = System.identityHashCode(descriptor);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DescriptorKey)) {
+                return false;
+            }
+            FrameDescriptor descriptor = get();
+            return descriptor != null && descriptor == ((DescriptorKey) obj).get();
+        }
+    }
+
+    private static final ConcurrentHashMap<DescriptorKey, FrameDescriptorMetaData> frameDescriptors = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<FrameDescriptor> staleDescriptors = new ReferenceQueue<>();
+
+    private static final ReentrantReadWriteLock hierarchyLock = new ReentrantReadWriteLock();
+
+    private static void registerMetaData(FrameDescriptor descriptor, FrameDescriptorMetaData metaData) {
+        assert hierarchyLock.isWriteLockedByCurrentThread();
+        Reference<? extends FrameDescriptor> stale;
+        while ((stale = staleDescriptors.poll()) != null) {
+            frameDescriptors.remove(stale);
+        }
+        frameDescriptors.put(new DescriptorKey(descriptor, staleDescriptors), metaData);
+    }
 
     /**
      * This function tries to fulfill the lookup for the given name in the given frame based only on
      * the static knowledge about the frame descriptor hierarchy and stable bindings. Returns
      * {@code null} in case this was not possible.
      */
-    public static synchronized LookupResult lookup(Frame frame, Object identifier) {
+    public static LookupResult lookup(Frame frame, Object identifier) {
         CompilerAsserts.neverPartOfCompilation();
         FrameDescriptorMetaData metaData = getMetaData(frame);
         WeakReference<LookupResult> weakResult = metaData.lookupResults.get(identifier);
@@ -249,6 +305,16 @@ public final class FrameSlotChangeMonitor {
         if (result != null && result.isValid()) {
             return result;
         }
+        Lock lock = hierarchyLock.readLock();
+        lock.lock();
+        try {
+            return lookupSlowPath(frame, identifier, metaData);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static LookupResult lookupSlowPath(Frame frame, Object identifier, FrameDescriptorMetaData metaData) {
         Frame current = frame;
         while (true) {
             FrameSlot slot = current.getFrameDescriptor().findFrameSlot(identifier);
@@ -325,7 +391,8 @@ public final class FrameSlotChangeMonitor {
         return metaData.getEnclosingFrameDescriptor() == nextDesc;
     }
 
-    private static synchronized void invalidateNames(FrameDescriptorMetaData metaData, Collection<Object> identifiers) {
+    private static void invalidateNames(FrameDescriptorMetaData metaData, Collection<Object> identifiers) {
+        assert hierarchyLock.isWriteLockedByCurrentThread();
         if (metaData.previousLookups.removeAll(identifiers)) {
             for (Object identifier : identifiers) {
                 WeakReference<LookupResult> result = metaData.lookupResults.remove(identifier);
@@ -350,9 +417,9 @@ public final class FrameSlotChangeMonitor {
         return frame == null ? null : frame instanceof NSBaseMaterializedFrame ? ((NSBaseMaterializedFrame) frame).getMarkerFrameDescriptor() : frame.getFrameDescriptor();
     }
 
-    private static synchronized FrameDescriptorMetaData getMetaData(FrameDescriptor descriptor) {
+    private static FrameDescriptorMetaData getMetaData(FrameDescriptor descriptor) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData result = frameDescriptors.get(descriptor);
+        FrameDescriptorMetaData result = descriptor == null ? null : frameDescriptors.get(new DescriptorKey(descriptor, null));
         assert result != null : "null metadata for " + descriptor;
         return result;
     }
@@ -368,68 +435,87 @@ public final class FrameSlotChangeMonitor {
         return target;
     }
 
-    public static synchronized boolean isEnclosingFrameDescriptor(FrameDescriptor descriptor, Frame newEnclosingFrame) {
+    public static boolean isEnclosingFrameDescriptor(FrameDescriptor descriptor, Frame newEnclosingFrame) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData target = getDescriptorMetaData(descriptor);
-        FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
-        return target.getEnclosingFrameDescriptor() == newEnclosingDescriptor;
+        Lock lock = hierarchyLock.readLock();
+        lock.lock();
+        try {
+            FrameDescriptorMetaData target = getDescriptorMetaData(descriptor);
+            FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
+            return target.getEnclosingFrameDescriptor() == newEnclosingDescriptor;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized void initializeEnclosingFrame(FrameDescriptor descriptor, Frame newEnclosingFrame) {
+    public static void initializeEnclosingFrame(FrameDescriptor descriptor, Frame newEnclosingFrame) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData target = getDescriptorMetaData(descriptor);
-
-        FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
-
-        // this function can be called multiple times with the same enclosing descriptor
-        if (target.getEnclosingFrameDescriptor() != newEnclosingDescriptor) {
-            assert target.getEnclosingFrameDescriptor() == null : "existing enclosing descriptor while initializing " + target.name;
-            assert target.lookupResults.isEmpty() : "existing lookup results while initializing " + target.name;
-
-            target.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
-            if (newEnclosingDescriptor != null) {
-                FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
-                newEnclosing.subDescriptors.add(descriptor);
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            FrameDescriptorMetaData target = getDescriptorMetaData(descriptor);
+
+            FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
+
+            // this function can be called multiple times with the same enclosing descriptor
+            if (target.getEnclosingFrameDescriptor() != newEnclosingDescriptor) {
+                assert target.getEnclosingFrameDescriptor() == null : "existing enclosing descriptor while initializing " + target.name;
+                assert target.lookupResults.isEmpty() : "existing lookup results while initializing " + target.name;
+
+                target.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
+                if (newEnclosingDescriptor != null) {
+                    FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
+                    newEnclosing.subDescriptors.add(descriptor);
+                }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
-    public static synchronized void initializeEnclosingFrame(Frame frame, Frame newEnclosingFrame) {
+    public static void initializeEnclosingFrame(Frame frame, Frame newEnclosingFrame) {
         initializeEnclosingFrame(handleBaseNamespaceEnv(frame), newEnclosingFrame);
     }
 
-    private static synchronized void setEnclosingFrame(FrameDescriptor descriptor, MaterializedFrame newEnclosingFrame, MaterializedFrame oldEnclosingFrame) {
+    private static void setEnclosingFrame(FrameDescriptor descriptor, MaterializedFrame newEnclosingFrame, MaterializedFrame oldEnclosingFrame) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData target = getMetaData(descriptor);
-        assert target != null : "frame descriptor wasn't registered properly for " + descriptor;
-
-        // invalidate existing lookups
-        invalidateAllNames(target);
-
-        FrameDescriptor oldEnclosingDescriptor = target.getEnclosingFrameDescriptor();
-        FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
-        assert newEnclosingDescriptor == oldEnclosingDescriptor || (oldEnclosingDescriptor == null) == (oldEnclosingFrame == null) : "mismatch " + oldEnclosingDescriptor + " / " + oldEnclosingFrame;
-
-        if (oldEnclosingDescriptor != null) {
-            assert newEnclosingDescriptor == oldEnclosingDescriptor || oldEnclosingDescriptor == oldEnclosingFrame.getFrameDescriptor() : "mismatch " + oldEnclosingDescriptor + " / " +
-                            oldEnclosingFrame.getFrameDescriptor();
-            FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
-            oldEnclosing.subDescriptors.remove(descriptor);
-        }
-        target.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            FrameDescriptorMetaData target = getMetaData(descriptor);
+            assert target != null : "frame descriptor wasn't registered properly for " + descriptor;
+
+            // invalidate existing lookups
+            invalidateAllNames(target);
+
+            FrameDescriptor oldEnclosingDescriptor = target.getEnclosingFrameDescriptor();
+            FrameDescriptor newEnclosingDescriptor = handleBaseNamespaceEnv(newEnclosingFrame);
+            assert newEnclosingDescriptor == oldEnclosingDescriptor || (oldEnclosingDescriptor == null) == (oldEnclosingFrame == null) : "mismatch " + oldEnclosingDescriptor + " / " + oldEnclosingFrame;
+
+            if (oldEnclosingDescriptor != null) {
+                assert newEnclosingDescriptor == oldEnclosingDescriptor || oldEnclosingDescriptor == oldEnclosingFrame.getFrameDescriptor() : "mismatch " + oldEnclosingDescriptor + " / " +
+                                oldEnclosingFrame.getFrameDescriptor();
+                FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
+                oldEnclosing.subDescriptors.remove(descriptor);
+            }
+            target.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
 
-        if (newEnclosingDescriptor != null) {
-            FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
-            assert !newEnclosing.name.equals("global") || !target.name.equals("base");
-            newEnclosing.subDescriptors.add(descriptor);
+            if (newEnclosingDescriptor != null) {
+                FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
+                assert !newEnclosing.name.equals("global") || !target.name.equals("base");
+                newEnclosing.subDescriptors.add(descriptor);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    public static synchronized void setEnclosingFrame(Frame frame, MaterializedFrame newEnclosingFrame, MaterializedFrame oldEnclosingFrame) {
+    public static void setEnclosingFrame(Frame frame, MaterializedFrame newEnclosingFrame, MaterializedFrame oldEnclosingFrame) {
         setEnclosingFrame(handleBaseNamespaceEnv(frame), newEnclosingFrame, oldEnclosingFrame);
     }
 
     private static void invalidateAllNames(FrameDescriptorMetaData target) {
+        assert hierarchyLock.isWriteLockedByCurrentThread();
         for (Map.Entry<Object, WeakReference<LookupResult>> entry : target.lookupResults.entrySet()) {
             LookupResult lookup = entry.getValue().get();
             if (lookup != null) {
@@ -445,43 +531,55 @@ public final class FrameSlotChangeMonitor {
         }
     }
 
-    public static synchronized void detach(Frame frame) {
+    public static void detach(Frame frame) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData position = getMetaData(frame);
-        FrameDescriptor oldEnclosingDescriptor = position.getEnclosingFrameDescriptor();
-        FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
-        FrameDescriptor newEnclosingDescriptor = oldEnclosing.getEnclosingFrameDescriptor();
-        FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
-
-        invalidateNames(oldEnclosing, oldEnclosingDescriptor.getIdentifiers());
-
-        position.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
-        oldEnclosing.updateEnclosingFrameDescriptor(null);
-        oldEnclosing.subDescriptors.remove(frame.getFrameDescriptor());
-        newEnclosing.subDescriptors.remove(oldEnclosingDescriptor);
-        newEnclosing.subDescriptors.add(frame.getFrameDescriptor());
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            FrameDescriptorMetaData position = getMetaData(frame);
+            FrameDescriptor oldEnclosingDescriptor = position.getEnclosingFrameDescriptor();
+            FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
+            FrameDescriptor newEnclosingDescriptor = oldEnclosing.getEnclosingFrameDescriptor();
+            FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingDescriptor);
+
+            invalidateNames(oldEnclosing, oldEnclosingDescriptor.getIdentifiers());
+
+            position.updateEnclosingFrameDescriptor(newEnclosingDescriptor);
+            oldEnclosing.updateEnclosingFrameDescriptor(null);
+            oldEnclosing.subDescriptors.remove(frame.getFrameDescriptor());
+            newEnclosing.subDescriptors.remove(oldEnclosingDescriptor);
+            newEnclosing.subDescriptors.add(frame.getFrameDescriptor());
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized void attach(Frame frame, Frame newEnclosingFrame) {
+    public static void attach(Frame frame, Frame newEnclosingFrame) {
         CompilerAsserts.neverPartOfCompilation();
-        FrameDescriptorMetaData position = getMetaData(frame);
-        FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingFrame);
-        FrameDescriptor oldEnclosingDescriptor = position.getEnclosingFrameDescriptor();
-        FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
-
-        invalidateAllNames(newEnclosing);
-        invalidateNames(position, newEnclosingFrame.getFrameDescriptor().getIdentifiers());
-
-        newEnclosing.previousLookups.clear();
-        newEnclosing.previousLookups.addAll(oldEnclosing.previousLookups);
-
-        position.updateEnclosingFrameDescriptor(newEnclosingFrame.getFrameDescriptor());
-        newEnclosing.updateEnclosingFrameDescriptor(oldEnclosingDescriptor);
-        assert frame.getFrameDescriptor() == handleBaseNamespaceEnv(frame);
-        assert !newEnclosing.name.equals("global") || !position.name.equals("base");
-        newEnclosing.subDescriptors.add(frame.getFrameDescriptor());
-        oldEnclosing.subDescriptors.remove(frame.getFrameDescriptor());
-        oldEnclosing.subDescriptors.add(newEnclosingFrame.getFrameDescriptor());
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            FrameDescriptorMetaData position = getMetaData(frame);
+            FrameDescriptorMetaData newEnclosing = getMetaData(newEnclosingFrame);
+            FrameDescriptor oldEnclosingDescriptor = position.getEnclosingFrameDescriptor();
+            FrameDescriptorMetaData oldEnclosing = getMetaData(oldEnclosingDescriptor);
+
+            invalidateAllNames(newEnclosing);
+            invalidateNames(position, newEnclosingFrame.getFrameDescriptor().getIdentifiers());
+
+            newEnclosing.previousLookups.clear();
+            newEnclosing.previousLookups.addAll(oldEnclosing.previousLookups);
+
+            position.updateEnclosingFrameDescriptor(newEnclosingFrame.getFrameDescriptor());
+            newEnclosing.updateEnclosingFrameDescriptor(oldEnclosingDescriptor);
+            assert frame.getFrameDescriptor() == handleBaseNamespaceEnv(frame);
+            assert !newEnclosing.name.equals("global") || !position.name.equals("base");
+            newEnclosing.subDescriptors.add(frame.getFrameDescriptor());
+            oldEnclosing.subDescriptors.remove(frame.getFrameDescriptor());
+            oldEnclosing.subDescriptors.add(newEnclosingFrame.getFrameDescriptor());
+        } finally {
+            lock.unlock();
+        }
     }
 
     private static final int MAX_INVALIDATION_COUNT = 2;
@@ -800,17 +898,27 @@ public final class FrameSlotChangeMonitor {
         return findOrAddFrameSlot(fd, (Object) identifier, initialKind);
     }
 
-    private static synchronized FrameSlot findOrAddFrameSlot(FrameDescriptor fd, Object identifier, FrameSlotKind initialKind) {
+    private static FrameSlot findOrAddFrameSlot(FrameDescriptor fd, Object identifier, FrameSlotKind initialKind) {
         CompilerAsserts.neverPartOfCompilation();
         assert identifier instanceof String || identifier instanceof RFrameSlot;
         FrameSlot frameSlot = fd.findFrameSlot(identifier);
         if (frameSlot != null) {
             return frameSlot;
-        } else {
+        }
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            // another thread may have added the slot in the meantime
+            frameSlot = fd.findFrameSlot(identifier);
+            if (frameSlot != null) {
+                return frameSlot;
+            }
             FrameDescriptorMetaData metaData = getMetaData(fd);
             invalidateNames(metaData, Arrays.asList(identifier));
             return fd.addFrameSlot(identifier, new FrameSlotInfoImpl(metaData.singletonFrame != null, "global".equals(metaData.name), identifier, metaData.name.startsWith("<new-env-")),
                             initialKind);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -973,28 +1081,40 @@ public final class FrameSlotChangeMonitor {
      * Initializes the internal data structures for a newly created frame descriptor that is
      * intended to be used for a non-function frame (and thus will only ever be used for one frame).
      */
-    public static synchronized void initializeNonFunctionFrameDescriptor(String name, MaterializedFrame frame) {
+    public static void initializeNonFunctionFrameDescriptor(String name, MaterializedFrame frame) {
         CompilerAsserts.neverPartOfCompilation();
-        frameDescriptors.put(handleBaseNamespaceEnv(frame), new FrameDescriptorMetaData(name, frame));
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            registerMetaData(handleBaseNamespaceEnv(frame), new FrameDescriptorMetaData(name, frame));
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized FrameDescriptor initializeFunctionFrameDescriptor(String name, FrameDescriptor frameDescriptor) {
+    public static FrameDescriptor initializeFunctionFrameDescriptor(String name, FrameDescriptor frameDescriptor) {
         CompilerAsserts.neverPartOfCompilation();
-        frameDescriptors.put(frameDescriptor, new FrameDescriptorMetaData(name, null));
-        return frameDescriptor;
+        Lock lock = hierarchyLock.writeLock();
+        lock.lock();
+        try {
+            registerMetaData(frameDescriptor, new FrameDescriptorMetaData(name, null));
+            return frameDescriptor;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public static synchronized Assumption getEnclosingFrameDescriptorAssumption(FrameDescriptor descriptor) {
+    public static Assumption getEnclosingFrameDescriptorAssumption(FrameDescriptor descriptor) {
         CompilerAsserts.neverPartOfCompilation();
-        return frameDescriptors.get(descriptor).getEnclosingFrameDescriptorAssumption();
+        return getMetaData(descriptor).getEnclosingFrameDescriptorAssumption();
     }
 
-    public static synchronized Assumption getContainsNoActiveBindingAssumption(FrameDescriptor descriptor) {
+    public static Assumption getContainsNoActiveBindingAssumption(FrameDescriptor descriptor) {
         CompilerAsserts.neverPartOfCompilation();
-        return frameDescriptors.get(descriptor).getContainsNoActiveBindingAssumption();
+        return getMetaData(descriptor).getContainsNoActiveBindingAssumption();
     }
 
-    public static synchronized StableValue<Object> getStableValueAssumption(FrameDescriptor descriptor, FrameSlot frameSlot, Object value) {
+    public static StableValue<Object> getStableValueAssumption(FrameDescriptor descriptor, FrameSlot frameSlot, Object value) {
         CompilerAsserts.neverPartOfCompilation();
         StableValue<Object> stableValue = getFrameSlotInfo(frameSlot).getStableValue();
         if (stableValue != null) {
@@ -1005,7 +1125,7 @@ public final class FrameSlotChangeMonitor {
         return stableValue;
     }
 
-    public static synchronized MaterializedFrame getSingletonFrame(FrameDescriptor descriptor) {
+    public static MaterializedFrame getSingletonFrame(FrameDescriptor descriptor) {
         WeakReference<MaterializedFrame> singleton = getMetaData(descriptor).singletonFrame;
         return singleton == null ? null : singleton.get();
     }
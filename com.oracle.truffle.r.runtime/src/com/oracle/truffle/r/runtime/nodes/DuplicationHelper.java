@@ -23,7 +23,16 @@ package com.oracle.truffle.r.runtime.nodes;
 import java.util.HashSet;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetInt;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RRawVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.VectorDataLibrary;
 import com.oracle.truffle.r.runtime.data.model.RAbstractContainer;
 import com.oracle.truffle.r.runtime.data.model.RAbstractListBaseVector;
@@ -32,16 +41,35 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractListBaseVector;
  * Code sharing vehicle for the slight differences in behavior between {@code duplicated} and
  * {@code anyDuplicated} (both internal and native versions) and whether {@code fromLast} is
  * {@code TRUE/FALSE}.
+ *
+ * Integer, double, character, logical and raw vectors are hashed by their unboxed elements using
+ * the primitive sets from {@link com.oracle.truffle.r.runtime.Collections}, other vectors go
+ * through boxed {@link DupEntry} elements. Long primitive vectors are split by the hash of their
+ * elements into partitions that are processed in parallel: equal elements always fall into the
+ * same partition, so each partition can mark its duplicates independently of the others.
  */
 public class DuplicationHelper {
+
+    /**
+     * Vectors at least this long are hashed in parallel partitions.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 20;
+    private static final int MAX_PARTITIONS = 64;
+    /**
+     * The primitive sets grow as needed, vectors with many duplicates would waste memory if they
+     * were sized by their length.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1 << 12;
+
     private final RAbstractContainer x;
-    private final HashSet<DupEntry> vectorContents = new HashSet<>();
+    private final HashSet<DupEntry> vectorContents;
     private final HashSet<DupEntry> incompContents;
     private final byte[] dupVec;
     private int index;
 
     public DuplicationHelper(RAbstractContainer x, RAbstractContainer incomparables, boolean justIndex, boolean fromLast) {
         this.x = x;
+        vectorContents = new HashSet<>();
         vectorContents.add(new DupEntry(x.getDataAtAsObject(fromLast ? x.getLength() - 1 : 0)));
 
         if (incomparables != null) {
@@ -55,6 +83,14 @@ public class DuplicationHelper {
         dupVec = justIndex ? null : new byte[x.getLength()];
     }
 
+    private DuplicationHelper(byte[] dupVec, int index) {
+        this.x = null;
+        this.vectorContents = null;
+        this.incompContents = null;
+        this.dupVec = dupVec;
+        this.index = index;
+    }
+
     public boolean doIt(int i) {
         DupEntry entry = new DupEntry(x.getDataAtAsObject(i));
         if (incompContents == null || !incompContents.contains(entry)) {
@@ -84,6 +120,14 @@ public class DuplicationHelper {
 
     @TruffleBoundary
     public static DuplicationHelper analyze(RAbstractContainer x, RAbstractContainer incomparables, boolean justIndex, boolean fromLast) {
+        int length = x.getLength();
+        if (length == 0) {
+            return new DuplicationHelper(justIndex ? null : new byte[0], 0);
+        }
+        Keys keys = Keys.create(x, incomparables);
+        if (keys != null) {
+            return analyzeKeys(keys, length, justIndex, fromLast);
+        }
         DuplicationHelper ds = new DuplicationHelper(x, incomparables, justIndex, fromLast);
         if (fromLast) {
             for (int i = x.getLength() - 2; i >= 0; i--) {
@@ -101,6 +145,293 @@ public class DuplicationHelper {
         return ds;
     }
 
+    private static DuplicationHelper analyzeKeys(Keys keys, int length, boolean justIndex, boolean fromLast) {
+        byte[] dupVec = justIndex ? null : new byte[length];
+        int partitions = length >= PARALLEL_THRESHOLD && keys.canPartition() ? Math.min(RParallel.getThreads(), MAX_PARTITIONS) : 1;
+        if (partitions <= 1) {
+            int found = markDuplicates(keys, null, 0, length, dupVec, fromLast);
+            return new DuplicationHelper(dupVec, found + 1);
+        }
+        byte[] partitionOf = new byte[length];
+        RParallel.forRange(length, partitions, PARALLEL_THRESHOLD / partitions, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                partitionOf[i] = (byte) partition(keys.hash(i), partitions);
+            }
+        });
+        int[] found = new int[partitions];
+        RParallel.forRange(partitions, partitions, 1, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                found[p] = markDuplicates(keys, partitionOf, p, length / partitions, dupVec, fromLast);
+            }
+        });
+        // the first duplicate overall is the first (or with fromLast the last) one of the partitions
+        int first = -1;
+        for (int p = 0; p < partitions; p++) {
+            if (found[p] != -1 && (first == -1 || (fromLast ? found[p] > first : found[p] < first))) {
+                first = found[p];
+            }
+        }
+        return new DuplicationHelper(dupVec, first + 1);
+    }
+
+    /**
+     * Marks the duplicated elements of partition {@code partition} in {@code dupVec}, or if
+     * {@code dupVec} is {@code null} only looks for the first duplicate. Returns the index of the
+     * first duplicate found in the order of the scan, or {@code -1} if there is none.
+     */
+    private static int markDuplicates(Keys keys, byte[] partitionOf, int partition, int expectedSize, byte[] dupVec, boolean fromLast) {
+        Keys.Seen seen = keys.createSeen(Math.min(expectedSize, MAX_INITIAL_CAPACITY));
+        int length = keys.length();
+        int first = -1;
+        for (int j = 0; j < length; j++) {
+            int i = fromLast ? length - 1 - j : j;
+            if ((partitionOf != null && partitionOf[i] != partition) || keys.isIncomparable(i)) {
+                continue;
+            }
+            if (seen.add(i)) {
+                if (first == -1) {
+                    first = i;
+                }
+                if (dupVec == null) {
+                    break;
+                }
+                dupVec[i] = RRuntime.LOGICAL_TRUE;
+            }
+        }
+        return first;
+    }
+
+    private static int partition(int hash, int partitions) {
+        // a different mix than the one used to index the sets, otherwise the keys of a partition
+        // would cluster in one region of its set
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return (int) (((h & 0xFFFFFFFFL) * partitions) >>> 32);
+    }
+
+    /**
+     * Unboxed elements of a vector (and the unboxed incomparables of the same type).
+     */
+    private abstract static class Keys {
+
+        interface Seen {
+            /**
+             * Adds element {@code i} and returns {@code true} if an equal element was added
+             * before.
+             */
+            boolean add(int i);
+        }
+
+        abstract int length();
+
+        /**
+         * Returns a hash of element {@code i} that is the same for elements that are equal.
+         */
+        abstract int hash(int i);
+
+        abstract boolean isIncomparable(int i);
+
+        abstract Seen createSeen(int capacity);
+
+        boolean canPartition() {
+            return true;
+        }
+
+        static Keys create(RAbstractContainer x, RAbstractContainer incomparables) {
+            if (incomparables != null && incomparables.getRType() != x.getRType()) {
+                return null;
+            }
+            if (x instanceof RIntVector) {
+                return new IntKeys(((RIntVector) x).getReadonlyData(), incomparables == null ? null : ((RIntVector) incomparables).getReadonlyData());
+            } else if (x instanceof RDoubleVector) {
+                return new DoubleKeys(((RDoubleVector) x).getReadonlyData(), incomparables == null ? null : ((RDoubleVector) incomparables).getReadonlyData());
+            } else if (x instanceof RStringVector) {
+                return new StringKeys(((RStringVector) x).getReadonlyStringData(), incomparables == null ? null : ((RStringVector) incomparables).getReadonlyStringData());
+            } else if (x instanceof RLogicalVector) {
+                return new ByteKeys(((RLogicalVector) x).getReadonlyData(), incomparables == null ? null : ((RLogicalVector) incomparables).getReadonlyData());
+            } else if (x instanceof RRawVector) {
+                return new ByteKeys(((RRawVector) x).getReadonlyData(), incomparables == null ? null : ((RRawVector) incomparables).getReadonlyData());
+            }
+            return null;
+        }
+    }
+
+    private static final class IntKeys extends Keys {
+        private final int[] data;
+        private final NonRecursiveHashSetInt incomparables;
+
+        IntKeys(int[] data, int[] incomparablesData) {
+            this.data = data;
+            if (incomparablesData == null) {
+                incomparables = null;
+            } else {
+                incomparables = new NonRecursiveHashSetInt(incomparablesData.length);
+                for (int value : incomparablesData) {
+                    incomparables.add(value);
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        int hash(int i) {
+            return data[i];
+        }
+
+        @Override
+        boolean isIncomparable(int i) {
+            return incomparables != null && incomparables.contains(data[i]);
+        }
+
+        @Override
+        Seen createSeen(int capacity) {
+            NonRecursiveHashSetInt set = new NonRecursiveHashSetInt(capacity);
+            return i -> set.add(data[i]);
+        }
+    }
+
+    private static final class DoubleKeys extends Keys {
+        private final double[] data;
+        private final NonRecursiveHashSetDouble incomparables;
+
+        DoubleKeys(double[] data, double[] incomparablesData) {
+            this.data = data;
+            if (incomparablesData == null) {
+                incomparables = null;
+            } else {
+                incomparables = new NonRecursiveHashSetDouble(incomparablesData.length);
+                for (double value : incomparablesData) {
+                    incomparables.add(value);
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        int hash(int i) {
+            double value = data[i];
+            if (Double.isNaN(value)) {
+                // all NaN payloads other than NA are the same element
+                return RRuntime.isNA(value) ? 1 : 2;
+            }
+            // adding 0.0 turns -0.0 into 0.0
+            long bits = Double.doubleToRawLongBits(value + 0.0);
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        @Override
+        boolean isIncomparable(int i) {
+            return incomparables != null && incomparables.contains(data[i]);
+        }
+
+        @Override
+        Seen createSeen(int capacity) {
+            NonRecursiveHashSetDouble set = new NonRecursiveHashSetDouble(capacity);
+            return i -> set.add(data[i]);
+        }
+    }
+
+    private static final class StringKeys extends Keys {
+        private final String[] data;
+        private final NonRecursiveHashSetCharacter incomparables;
+
+        StringKeys(String[] data, String[] incomparablesData) {
+            this.data = data;
+            if (incomparablesData == null) {
+                incomparables = null;
+            } else {
+                incomparables = new NonRecursiveHashSetCharacter(incomparablesData.length);
+                for (String value : incomparablesData) {
+                    incomparables.add(value);
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        int hash(int i) {
+            return data[i].hashCode();
+        }
+
+        @Override
+        boolean isIncomparable(int i) {
+            return incomparables != null && incomparables.contains(data[i]);
+        }
+
+        @Override
+        Seen createSeen(int capacity) {
+            NonRecursiveHashSetCharacter set = new NonRecursiveHashSetCharacter(capacity);
+            return i -> set.add(data[i]);
+        }
+    }
+
+    /**
+     * Logical and raw elements, which have at most 256 distinct values.
+     */
+    private static final class ByteKeys extends Keys {
+        private final byte[] data;
+        private final boolean[] incomparables;
+
+        ByteKeys(byte[] data, byte[] incomparablesData) {
+            this.data = data;
+            if (incomparablesData == null) {
+                incomparables = null;
+            } else {
+                incomparables = new boolean[256];
+                for (byte value : incomparablesData) {
+                    incomparables[value & 0xFF] = true;
+                }
+            }
+        }
+
+        @Override
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        int hash(int i) {
+            return data[i];
+        }
+
+        @Override
+        boolean canPartition() {
+            return false;
+        }
+
+        @Override
+        boolean isIncomparable(int i) {
+            return incomparables != null && incomparables[data[i] & 0xFF];
+        }
+
+        @Override
+        Seen createSeen(int capacity) {
+            boolean[] set = new boolean[256];
+            return i -> {
+                int value = data[i] & 0xFF;
+                boolean present = set[value];
+                set[value] = true;
+                return present;
+            };
+        }
+    }
+
     private static final class DupEntry {
 
         private final Object element;
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.ops;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RParallel;
+import com.oracle.truffle.r.runtime.RRuntime;
+
+/**
+ * Accurate summation of doubles for {@code sum}, {@code mean}, {@code cumsum} and the row and
+ * column sums. GNU R accumulates these sums in a {@code long double}, here the accumulator is a
+ * pair of doubles {@code (hi, lo)}: every addition to {@code hi} is done with the TwoSum algorithm,
+ * which also yields the exact rounding error of the addition, and the errors are accumulated in
+ * {@code lo}. This is the "Sum2" algorithm of Ogita, Rump and Oishi, its result is as accurate as if
+ * computed in twice the double precision, which is more than the 64 bit mantissa of the x87
+ * {@code long double}.
+ *
+ * The results therefore differ from GNU R where the {@code long double} loses low order bits that
+ * the accumulator keeps, e.g. {@code sum(c(1e20, 1, -1e20))} is {@code 0} in GNU R and {@code 1}
+ * here. Rounding every addition to a 64 bit mantissa would need several more operations per element
+ * and would still not reproduce GNU R exactly on platforms where {@code long double} is a plain
+ * double or a 128 bit type. Unlike the {@code long double}, the accumulator has only the exponent
+ * range of a double, so sums overflow when the intermediate results do.
+ *
+ * A loop using the accumulator looks like this:
+ *
+ * <pre>
+ * double hi = 0;
+ * double lo = 0;
+ * for (...) {
+ *     double sum = hi + value;
+ *     lo += AccurateSum.error(hi, value, sum);
+ *     hi = sum;
+ * }
+ * return AccurateSum.round(hi, lo);
+ * </pre>
+ *
+ * Arrays longer than {@link #BLOCK_SIZE} are summed in blocks of that size whose partial sums are
+ * combined in order, the blocks are distributed over the threads of {@link RParallel}. The blocks
+ * do not depend on the number of threads, and so neither does the result. Only the small array
+ * case is partially evaluated, the blocked summation is behind a {@link TruffleBoundary}.
+ */
+public final class AccurateSum {
+
+    public static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * The minimal number of blocks given to one thread.
+     */
+    private static final int BLOCK_GRAIN = 8;
+
+    private AccurateSum() {
+        // no instances
+    }
+
+    /**
+     * Returns the rounding error of {@code sum}, which must be the result of {@code a + b}.
+     */
+    public static double error(double a, double b, double sum) {
+        double bVirtual = sum - a;
+        return (a - (sum - bVirtual)) + (b - bVirtual);
+    }
+
+    /**
+     * Rounds the accumulator {@code (hi, lo)} to a double. Once {@code hi} is infinite or NaN the
+     * errors are meaningless (typically NaN) and {@code hi} is the result.
+     */
+    public static double round(double hi, double lo) {
+        return Double.isFinite(hi) ? hi + lo : hi;
+    }
+
+    /**
+     * Sums {@code data} with the NA semantics of the {@code sum} builtin: with {@code naRm} all NA
+     * and NaN values are skipped, otherwise the result is NA as soon as there is an NA and NaN
+     * values propagate.
+     */
+    public static double sum(double[] data, boolean naRm) {
+        if (data.length <= BLOCK_SIZE) {
+            return sumRange(data, 0, data.length, 0, naRm);
+        }
+        return sumBlocks(data, 0, naRm);
+    }
+
+    /**
+     * Returns the sum of {@code data[i] - center}, which is used to correct an approximate mean.
+     * There must be no NA or NaN values in {@code data}.
+     */
+    public static double sumDeviations(double[] data, double center) {
+        if (data.length <= BLOCK_SIZE) {
+            return sumRange(data, 0, data.length, center, false);
+        }
+        return sumBlocks(data, center, false);
+    }
+
+    private static double sumRange(double[] data, int from, int to, double center, boolean naRm) {
+        double hi = 0;
+        double lo = 0;
+        for (int i = from; i < to; i++) {
+            double value = data[i];
+            if (Double.isNaN(value)) {
+                if (naRm) {
+                    continue;
+                } else if (RRuntime.isNA(value)) {
+                    return RRuntime.DOUBLE_NA;
+                }
+            }
+            value -= center;
+            double sum = hi + value;
+            lo += error(hi, value, sum);
+            hi = sum;
+        }
+        return round(hi, lo);
+    }
+
+    @TruffleBoundary
+    private static double sumBlocks(double[] data, double center, boolean naRm) {
+        int length = data.length;
+        int blocks = (length - 1) / BLOCK_SIZE + 1;
+        double[] partials = new double[blocks * 2];
+        RParallel.forRange(blocks, RParallel.getThreads(), BLOCK_GRAIN, (fromBlock, toBlock) -> {
+            for (int b = fromBlock; b < toBlock; b++) {
+                double hi = 0;
+                double lo = 0;
+                int end = Math.min(length, (b + 1) * BLOCK_SIZE);
+                for (int i = b * BLOCK_SIZE; i < end; i++) {
+                    double value = data[i];
+                    if (Double.isNaN(value)) {
+                        if (naRm) {
+                            continue;
+                        } else if (RRuntime.isNA(value)) {
+                            hi = RRuntime.DOUBLE_NA;
+                            lo = 0;
+                            break;
+                        }
+                    }
+                    value -= center;
+                    double sum = hi + value;
+                    lo += error(hi, value, sum);
+                    hi = sum;
+                }
+                partials[b * 2] = hi;
+                partials[b * 2 + 1] = lo;
+            }
+        });
+        double hi = 0;
+        double lo = 0;
+        for (int b = 0; b < blocks; b++) {
+            double value = partials[b * 2];
+            if (RRuntime.isNA(value)) {
+                return RRuntime.DOUBLE_NA;
+            }
+            double sum = hi + value;
+            lo += error(hi, value, sum) + partials[b * 2 + 1];
+            hi = sum;
+        }
+        return round(hi, lo);
+    }
+}
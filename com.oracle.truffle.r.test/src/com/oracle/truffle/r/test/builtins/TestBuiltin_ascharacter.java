@@ -285,6 +285,28 @@ public class TestBuiltin_ascharacter extends TestBase {
         assertEval("nchar(as.character(stats:::C_df['address'])) > 5");
     }
 
+    @Test
+    public void testLongVectors() {
+        // vectors long enough to be converted on demand
+        assertEval("{ x <- as.character(c(1:99, NA, -5L)); c(x[1], x[100], x[101], length(x)) }");
+        assertEval("{ x <- as.character(c(1:99 / 7, NA, NaN, Inf, -Inf, 1e300, 1e-300)); x[c(1, 7, 99:106)] }");
+        assertEval("{ y <- c(101:300); x <- as.character(y); y[1] <- 0L; x[1:3] }");
+        assertEval("{ x <- as.character(101:300 + 0L); x[2] <- 'a'; x[1:3] }");
+        assertEval("{ y <- matrix(1:200 * 1.5, 20, dimnames = list(letters[1:20], NULL)); x <- as.character(y); attributes(x) }");
+        assertEval("{ y <- matrix(1:200 * 1.5, 20, dimnames = list(letters[1:20], NULL)); storage.mode(y) <- 'character'; y[1:3, 1:2] }");
+        assertEval("{ x <- as.character(rev(100:999 * 1L)); c(is.unsorted(x), is.unsorted(sort(x)), identical(sort(x), as.character(100:999))) }");
+        assertEval("{ x <- as.character(c(99:200) * 1L); c(is.unsorted(x), identical(x, paste0('', 99:200)), x[1:2]) }");
+        assertEval("{ x <- paste0('id', as.numeric(1:1000)); c(x[1], x[1000], match('id500', x)) }");
+    }
+
+    @Test
+    public void testDoubles() {
+        assertEval("{ as.character(c(0.1, 1/3, 2/3, 1e15, 1e16, 123456.7, -2.5e-8, 0.15, 100000, 123456789012)) }");
+        assertEval("{ as.character(c(.Machine$double.xmax, .Machine$double.xmin, 5e-324, 1e-310, 2^53, 2^60)) }");
+        assertEval("{ x <- data.frame(a = c(0.1, 1/3, 1e-20), b = c(-1.5, 1e5, 99999.2)); write.csv(x, row.names = FALSE) }");
+        assertEval("{ sprintf('%.1f %.2e %g', c(0.25, 0.35, 2.5, 1e-5), c(0.125, 1234.5, 1, 1), c(1e6, 123456.5, 0.0001, 1e-5)) }");
+    }
+
     @Test
     public void noCopyCheck() {
         assertEvalFastR("{ x <- c('a', 'abc'); .fastr.identity(x) == .fastr.identity(as.character(x)); }", "[1] TRUE");
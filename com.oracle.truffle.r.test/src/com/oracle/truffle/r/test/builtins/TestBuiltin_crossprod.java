@@ -77,6 +77,8 @@ public class TestBuiltin_crossprod extends TestBase {
         assertEval("{ crossprod(1:3, matrix(1:6, ncol=2)) }");
         assertEval("{ crossprod(t(1:2), 5) }");
         assertEval("{ crossprod(c(1,NA,2), matrix(1:6, ncol=2)) }");
+        assertEval("{ x <- matrix(as.double((1:60000) %% 11), 200); options(fastr.parallel.threads = 1L); a <- crossprod(x); options(fastr.parallel.threads = 4L); b <- crossprod(x); options(fastr.parallel.threads = NULL); c(identical(a, b), isSymmetric(b), b[3, 250], sum(b)) }");
+        assertEval("{ x <- matrix(as.double((1:60000) %% 11), 200); options(matprod = 'blas'); r <- tcrossprod(x); options(matprod = 'default'); c(isSymmetric(r), r[3, 150], sum(r)) }");
         // The following test works if options(matprod = 'blas')
         assertEval(Ignored.ImplementationError, "{ x <- matrix(c(NaN,2,3,4,5,NA), nrow=3); crossprod(x) }");
 
@@ -148,4 +148,17 @@ public class TestBuiltin_duplicated extends TestBase {
         assertEval("{ duplicated(list(list(1,\"aaa\"),list(1,\"aaa\"))) }");
 
     }
+
+    @Test
+    public void testDuplicatedPrimitive() {
+        assertEval("{ duplicated(c(NA, NaN, 0, -0, NA, NaN, 1)) }");
+        assertEval("{ duplicated(c(NA, 'NA', NA, 'NA')) }");
+        assertEval("{ duplicated(c(NA, 1L, NA, 2L, 1L), incomparables = NA) }");
+        assertEval("{ duplicated(c(3, 1, NaN, 3, NaN), incomparables = NaN, fromLast = TRUE) }");
+        assertEval("{ duplicated(as.raw(c(1, 255, 1, 0, 255))) }");
+        // long enough to be hashed in parallel partitions
+        assertEval("{ x <- c(1:2000000, 5L, 17L); c(which(duplicated(x)), anyDuplicated(x), anyDuplicated(x, fromLast = TRUE)) }");
+        assertEval("{ x <- c(3, 1:2000000 + 0.5, 1.5); which(duplicated(x, fromLast = TRUE)) }");
+        assertEval("{ x <- as.character(c(1:1500000, 42L)); c(anyDuplicated(x), anyDuplicated(x, fromLast = TRUE), sum(duplicated(x))) }");
+    }
 }
@@ -34,8 +34,7 @@ public class TestBuiltin_formatC extends TestBase {
 
     @Test
     public void testformatC2() {
-        // FIXME FastR: "1" is output like "1.0000" IMHO mode='g' should output just "1"
-        assertEval(Ignored.ImplementationError, "argv <- list(1, 'double', 8, 5, 'g', '-', 13); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
+        assertEval("argv <- list(1, 'double', 8, 5, 'g', '-', 13); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
     }
 
     @Test
@@ -70,9 +69,7 @@ public class TestBuiltin_formatC extends TestBase {
 
     @Test
     public void testformatC9() {
-        // FIXME java.util.FormatFlagsConversionMismatchException: Conversion = g, Flags = #
-        assertEval(Ignored.ImplementationError,
-                        "argv <- list(c(0.0599, 0.00599, 0.000599, 5.99e-05, 5.99e-06, 5.99e-07), 'double', 3, -2, 'fg', '#', c(10, 11, 12, 13, 14, 15)); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
+        assertEval("argv <- list(c(0.0599, 0.00599, 0.000599, 5.99e-05, 5.99e-06, 5.99e-07), 'double', 3, -2, 'fg', '#', c(10, 11, 12, 13, 14, 15)); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
     }
 
     @Test
@@ -97,9 +94,8 @@ public class TestBuiltin_formatC extends TestBase {
 
     @Test
     public void testformatC14() {
-        // GnuR does not round up xyz.5 to xyz+1 although it does e.g. xyz.75 to xyz+1
-        assertEval(Ignored.ReferenceError,
-                        "argv <- list(structure(c(1962.25, 1962.5, 1962.75, 1963, 1963.25, 1963.5, 1963.75, 1964, 1964.25, 1964.5, 1964.75, 1965, 1965.25, 1965.5, 1965.75, 1966, 1966.25, 1966.5, 1966.75, 1967, 1967.25, 1967.5, 1967.75, 1968, 1968.25, 1968.5, 1968.75, 1969, 1969.25, 1969.5, 1969.75, 1970, 1970.25, 1970.5, 1970.75, 1971, 1971.25, 1971.5, 1971.75), .Tsp = c(1962.25, 1971.75, 4), class = 'ts'), 'double', 1, 4L, 'g', '', c(12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L)); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
+        // GnuR rounds the exact binary value with ties to even, i.e. xyz.5 to the even neighbour
+        assertEval("argv <- list(structure(c(1962.25, 1962.5, 1962.75, 1963, 1963.25, 1963.5, 1963.75, 1964, 1964.25, 1964.5, 1964.75, 1965, 1965.25, 1965.5, 1965.75, 1966, 1966.25, 1966.5, 1966.75, 1967, 1967.25, 1967.5, 1967.75, 1968, 1968.25, 1968.5, 1968.75, 1969, 1969.25, 1969.5, 1969.75, 1970, 1970.25, 1970.5, 1970.75, 1971, 1971.25, 1971.5, 1971.75), .Tsp = c(1962.25, 1971.75, 4), class = 'ts'), 'double', 1, 4L, 'g', '', c(12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L, 12L)); .Internal(formatC(argv[[1]], argv[[2]], argv[[3]], argv[[4]], argv[[5]], argv[[6]], argv[[7]]))");
     }
 
     @Test
@@ -107,4 +103,16 @@ public class TestBuiltin_formatC extends TestBase {
         assertEval(".Internal(formatC(1e-15, \"double\", 1L, 6L, \"g\", \"\", 12))");
         assertEval("y <- structure(c(2, 14.1776856316985), .Dim = c(2L, 1L), .Dimnames = list(c(\"m.ship.expon.\", \"objective\"), \" \")); formatC(y, digits = 6)");
     }
+
+    @Test
+    public void testformatCFlags() {
+        assertEval("formatC(c(3.10, 0.125, 2.5, -1), format = 'f', digits = 2, width = 8)");
+        assertEval("formatC(c(3.10, 0.125, 2.5, -1), format = 'f', digits = 2, width = 8, flag = '-')");
+        assertEval("formatC(c(3.10, 0.125, 2.5, -1), format = 'e', digits = 3, flag = '+')");
+        assertEval("formatC(c(1, 10, 100, 123456789), format = 'g', width = 10, flag = '0')");
+        assertEval("formatC(c(1L, -12L, 123L), width = 6, flag = '0')");
+        assertEval("formatC(c(1L, -12L, 123L), width = 6, flag = ' ')");
+        assertEval("formatC(c(0.000012345, 123.456, 1e10), format = 'fg', digits = 3)");
+        assertEval("formatC(c(0.000012345, 123.456, 1e10), format = 'fg', digits = 3, flag = '#')");
+    }
 }
@@ -239,4 +239,12 @@ public class TestBuiltin_gsub extends TestBase {
         assertEval("gsub('b','\\\\1m','Abb')");
         assertEval("gsub('@CXX11@', '$(CXX11)', '    CPLUS=\"@CXX11@\"                           \\'', fixed=FALSE)");
     }
+
+    @Test
+    public void testCompiledPatternCache() {
+        // the same call site sees alternating patterns and engines
+        assertEval("{ f <- function(p, perl) gsub(p, '<\\\\1>', c('ab1', 'cd22', NA), perl=perl); lapply(1:6, function(i) f(c('([0-9]+)', '([a-z])')[i %% 2 + 1], i %% 3 == 0)) }");
+        assertEval("{ f <- function(p) regexpr(p, 'xaAy', ignore.case=TRUE, perl=TRUE); list(f('a+'), f('A+'), f('a+')) }");
+        assertEvalFastR("{ invisible(.fastr.regex.stats(TRUE)); for (i in 1:5) gsub('a+', 'b', c('aa', 'ca')); s <- .fastr.regex.stats(); c(s$hits >= 4, s$misses >= 1, s$size >= 1) }", "c(TRUE, TRUE, TRUE)");
+    }
 }
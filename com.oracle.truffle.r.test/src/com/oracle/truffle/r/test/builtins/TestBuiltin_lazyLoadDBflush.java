@@ -42,4 +42,13 @@ public class TestBuiltin_lazyLoadDBflush extends TestBase {
         // "argv <- list('/home/lzhao/hg/r-instrumented/library/stats4/R/stats4.rdb');
         // .Internal(lazyLoadDBflush(argv[[1]]))");
     }
+
+    @Test
+    public void testCacheStats() {
+        assertEvalFastR("{ s <- .fastr.lazyload.stats(); names(s) }",
+                        "c('hits', 'misses', 'evictions', 'entries', 'bytes', 'capacity', 'files', 'fileBytes')");
+        assertEvalFastR("{ options(fastr.lazyload.cache.size = 1000); s <- .fastr.lazyload.stats(); options(fastr.lazyload.cache.size = NULL); c(s$capacity, s$files >= 1, s$fileBytes > 0) }",
+                        "c(1000, 1, 1)");
+        assertEvalFastR("{ invisible(.fastr.lazyload.stats(TRUE)); s <- .fastr.lazyload.stats(); c(s$hits, s$misses, s$evictions, s$entries, s$bytes) }", "c(0, 0, 0, 0, 0)");
+    }
 }
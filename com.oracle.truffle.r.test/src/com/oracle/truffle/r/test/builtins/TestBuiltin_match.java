@@ -459,6 +459,18 @@ public class TestBuiltin_match extends TestBase {
         assertEval("match(1:3, numeric(0))");
     }
 
+    @Test
+    public void testMatchCachedTableIndex() {
+        // the table's hash index is cached and must be dropped when the table is modified
+        assertEval("{ t <- (1000:1) + 0L; r1 <- match(c(5L, 7L), t); t[[996L]] <- 42L; list(r1, match(c(5L, 7L, 42L), t), match(5L, t)) }");
+        assertEval("{ t <- (1000:1) + 0; r1 <- match(c(5, 7), t); t[996L] <- 42; list(r1, match(c(5, 7, 42), t), 42 %in% t) }");
+        assertEval("{ t <- paste0('k', 1:1000); r1 <- match(c('k5', 'k7'), t); t[5L] <- 'x'; list(r1, match(c('k5', 'k7', 'x'), t), 'k5' %in% t) }");
+        assertEval("{ t <- (1000:1) + 0L; r <- integer(); for (i in 1:3) { r <- c(r, match(c(i, NA), t)); t[1000L - i + 1L] <- -i }; r }");
+        // a short x hashes only its own values, the whole table is indexed from the second lookup on
+        assertEval("{ t <- (1000:1) + 0L; r <- list(match(5:6, t), match(5:6, t), match(5:6, t)); t[996L] <- 42L; c(r, list(match(c(5L, 42L), t))) }");
+        assertEval("{ t <- paste0('k', 1:1000); r <- list(match(c('k5', 'k9'), t), match(c('k5', 'k9'), t)); t[9L] <- 'x'; c(r, list(match(c('k9', 'x'), t))) }");
+    }
+
     private void testMatchStringSequence(String preffix, String suffix) {
         String x = String.format("c('%1$s-2%2$s', '%1$s-1%2$s', '%1$s0%2$s', '%1$s1%2$s', '%1$s10%2$s', '%1$s11%2$s')", preffix, suffix);
         String table = String.format("paste('%1$s', -1:10, '%2$s', sep='')", preffix, suffix);
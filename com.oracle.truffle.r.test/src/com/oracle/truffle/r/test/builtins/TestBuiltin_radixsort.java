@@ -64,4 +64,26 @@ public class TestBuiltin_radixsort extends TestBase {
         // at InternalNode$InternalCallWrapNode.prepareArgs(InternalNode.java:309)
         assertEval(Ignored.ImplementationError, "argv <- list(structure(integer(0), .Label = character(0), class = 'factor'), TRUE, FALSE); .Internal(radixsort(argv[[1]], argv[[2]], argv[[3]]))");
     }
+
+    @Test
+    public void testradixsortKeys() {
+        assertEval(".Internal(radixsort(TRUE, FALSE, FALSE, TRUE, c(3L, NA, 1L, 2L, 1L)))");
+        assertEval(".Internal(radixsort(FALSE, TRUE, FALSE, TRUE, c(3L, NA, 1L, 2L, 1L)))");
+        assertEval(".Internal(radixsort(NA, FALSE, FALSE, TRUE, c(3, NaN, -0, 0, -Inf, NA, Inf, 1e300)))");
+        assertEval(".Internal(radixsort(TRUE, c(FALSE, TRUE), FALSE, TRUE, c(2L, 1L, 2L, 1L), c(1, 2, 3, 4)))");
+        assertEval(".Internal(radixsort(TRUE, c(TRUE, FALSE), FALSE, TRUE, c('b', 'a', NA, 'B', 'a'), c(TRUE, NA, FALSE, TRUE, FALSE)))");
+        assertEval(".Internal(radixsort(TRUE, FALSE, TRUE, TRUE, c(3, 1, 3, 2, 1, 3)))");
+        assertEval(".Internal(radixsort(TRUE, FALSE, TRUE, FALSE, c('b', 'a', 'b', 'c', 'a')))");
+        assertEval("order(c(5L, 3L, NA, 3L), c(2, 1, 1, 0), method = 'radix', decreasing = c(TRUE, FALSE))");
+        assertEval("sort(c(2.5, -1, NA, 10, 2.5), method = 'radix', na.last = TRUE)");
+        assertEval("rank(c(10, 20, 10, NA, 30, 20), ties.method = 'average')");
+        assertEval("rank(c(TRUE, FALSE, TRUE), ties.method = 'min')");
+        // sparse ranges are sorted by digits rather than counted
+        assertEval("order(c(1000000L, 0L, 999999L), method = 'radix')");
+        assertEval("order(c(5L, 2000000000L, -3L, 2000000000L, 7L), method = 'radix')");
+        // NA is ordered before NaN
+        assertEval("order(c(NaN, NA, 1), method = 'radix')");
+        assertEval("order(c(NaN, NA, 1), method = 'radix', decreasing = TRUE)");
+        assertEval("order(c(1, NaN, 2, NA), method = 'radix', na.last = FALSE)");
+    }
 }
@@ -49,4 +49,20 @@ public class TestBuiltin_readBin extends TestBase {
 
         assertEval("readBin(as.raw(as.raw(c(1, 2, 3))), 'tralala', 5)");
     }
+
+    @Test
+    public void testReadBinLargeN() {
+        // 'n' is only an upper bound and may exceed the int range
+        assertEval("{ f <- tempfile(); writeBin(c(1.5, NA, -2), f); x <- readBin(f, 'double', 1e10); y <- readBin(f, 'raw', 3e9); unlink(f); list(x, length(y)) }");
+        assertEval("{ f <- tempfile(); writeBin(1:100000, f); x <- readBin(f, 'integer', 2^40); unlink(f); identical(x, 1:100000) }");
+        assertEval("readBin(as.raw(1:5), 'raw', 1e10)");
+    }
+
+    @Test
+    public void testUnserializeLongLength() {
+        // a length written in the long vector format, which GnuR uses beyond 2^31-1 elements
+        String longLength = "r <- serialize(c(1.5, 2.5), NULL, version=2); unserialize(c(r[1:18], as.raw(c(255, 255, 255, 255, 0, 0, 0, %s, 0, 0, 0, 2)), r[23:length(r)]))";
+        assertEval(String.format(longLength, "0"));
+        assertEval(Output.IgnoreErrorMessage, String.format(longLength, "1"));
+    }
 }
@@ -85,5 +85,15 @@ public class TestBuiltin_rowsum extends TestBase {
         assertEval(Output.IgnoreErrorMessage, "x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, g, NULL, FALSE,as.character(ug)))");
         assertEval(Output.IgnoreErrorMessage, "x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, , ug, FALSE,as.character(ug)))");
         assertEval(Output.IgnoreErrorMessage, "x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, g, , FALSE,as.character(ug)))");
+        // 3rd parm misses a group => GnuR reads out of bounds
+        assertEvalFastR("x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <- c(1,2); .Internal(rowsum_matrix(x, g, ug, FALSE, as.character(ug)))",
+                        "cat(\"Error: group not in 'uniqueg' in rowsum(): this should not happen\\n\")");
+    }
+
+    @Test
+    public void testRowsumGroups() {
+        assertEval("{ rowsum(c(1, 2, 3, 4, 5), c('b', 'a', 'b', NA, 'NA')) }");
+        assertEval("{ rowsum(matrix(1:6, ncol = 2), c(0.5, -0, 0)) }");
+        assertEval("{ rowsum(1:4, c(2L, NA, 2L, 1L)) }");
     }
 }
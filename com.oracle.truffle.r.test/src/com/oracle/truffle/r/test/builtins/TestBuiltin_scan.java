@@ -91,6 +91,29 @@ public class TestBuiltin_scan extends TestBase {
         assertEval("fileConn<-file('" + TEST_CVS_FILE + "'); writeLines(c('" + testData + "'), fileConn); m <- read.csv('" + TEST_CVS_FILE + "'); m");
     }
 
+    @Test
+    public void testScanLargeFile() {
+        // files of more than 64KB are read in parallel chunks
+        assertEval("{ f <- tempfile(); writeLines(sprintf('%d,%.2f,%s,%s', 1:20000, (1:20000) / 7, c('a', 'b', 'c'), c('TRUE', 'FALSE')), f); " +
+                        "r <- scan(f, what=list(1L, 0, '', TRUE), sep=',', quiet=TRUE); unlink(f); list(length(r[[1]]), sum(r[[1]]), sum(r[[2]]), table(r[[3]]), sum(r[[4]])) }");
+        assertEval("{ f <- tempfile(); writeLines(c('id val name', sprintf('%d %s \"n %d\" # comment', 1:10000, ifelse(1:10000 %% 100 == 0, 'NA', 1:10000 / 4), 1:10000)), f); " +
+                        "d <- read.table(f, header=TRUE, stringsAsFactors=FALSE); unlink(f); list(dim(d), sapply(d, class), sum(is.na(d$val)), d[c(1, 100, 10000), ]) }");
+        assertEval("{ f <- tempfile(); writeLines(c(rep('1 2 3', 10000), '', '4 5', rep('6 7 8', 10000)), f); " +
+                        "r <- scan(f, what=list(0L, 0L, 0L), fill=TRUE, quiet=TRUE); unlink(f); list(length(r[[1]]), sum(r[[3]], na.rm=TRUE), which(is.na(r[[3]]))) }");
+        assertEval("{ f <- tempfile(); writeLines(c(rep('1 2 3', 10000), '4 x', rep('6 7 8', 10000)), f); " +
+                        "r <- tryCatch(scan(f, what=integer(), quiet=TRUE), error=function(e) conditionMessage(e)); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(rep('1 2 3 4', 10000), f); r <- scan(f, what=list(0, 0), quiet=TRUE); unlink(f); c(length(r[[1]]), sum(r[[1]]), sum(r[[2]])) }");
+    }
+
+    @Test
+    public void testScanLargeFileParallel() {
+        // the file is read by the parallel reader, other connections are read line by line
+        assertEvalFastR("{ f <- tempfile(); writeLines(sprintf('%d,%.2f', 1:20000, (1:20000) / 7), f); invisible(.fastr.scan.stats(TRUE)); " +
+                        "r <- scan(f, what=list(1L, 0), sep=',', quiet=TRUE); s <- .fastr.scan.stats(); unlink(f); list(length(r[[1]]), s$windows > 0, s$chunks >= s$windows) }",
+                        "list(20000L, TRUE, TRUE)");
+        assertEvalFastR("{ invisible(.fastr.scan.stats(TRUE)); r <- scan(text=rep('1 2', 40000), quiet=TRUE); c(length(r), .fastr.scan.stats()$windows) }", "c(80000, 0)");
+    }
+
     @Test
     public void testArgsCasts() {
         // Empty 2nd 'what' parameter
@@ -139,4 +139,12 @@ public class TestBuiltin_split extends TestBase {
         assertEval("{ split(list(q=1, w=2L, e='x', r=T), as.factor(c('a', 'b', 'a')); }");
         assertEval(Ignored.Unimplemented, "{ tmp <- c(1,2,3); names(tmp) <- c('x','y','z'); split(tmp, as.factor(c('a','b'))); }");
     }
+
+    @Test
+    public void testSplitPresized() {
+        assertEval("{ f <- factor(rep(c('a','b','c'), length.out = 1000)); s <- split(1:1000, f); c(lengths(s), s$b[1:3], s$c[333]) }");
+        assertEval("{ f <- factor(c('x','y','y')); split(c(1.5, 2, 3, 4, 5, 6, 7), f) }");
+        assertEval("{ split(complex(real = 1:5, imaginary = 5:1), factor(c('a','b','a','b','b'), levels = c('b','a','c'))) }");
+        assertEval("{ f <- factor(rep(1:4, 100)); s1 <- split(1:400, f); f[1] <- 2L; s2 <- split(1:400, f); c(lengths(s1), lengths(s2)) }");
+    }
 }
@@ -115,9 +115,7 @@ public class TestBuiltin_sprintf extends TestBase {
 
     @Test
     public void testsprintf18() {
-        // FIXME %5g should mean 5 significant digits and padded from left to 5 characters
-        assertEval(Ignored.ImplementationError,
-                        "argv <- list('%5g', structure(c(18, 18, 0, 14, 4, 12, 12, 0, 4, 8, 26, 23, 3, 18, 5, 8, 5, 3, 0, 5, 21, 0, 21, 0, 0), .Dim = c(5L, 5L), .Dimnames = list(NULL, c('', '', '', '', '')))); .Internal(sprintf(argv[[1]], argv[[2]]))");
+        assertEval("argv <- list('%5g', structure(c(18, 18, 0, 14, 4, 12, 12, 0, 4, 8, 26, 23, 3, 18, 5, 8, 5, 3, 0, 5, 21, 0, 21, 0, 0), .Dim = c(5L, 5L), .Dimnames = list(NULL, c('', '', '', '', '')))); .Internal(sprintf(argv[[1]], argv[[2]]))");
     }
 
     @Test
@@ -180,7 +178,31 @@ public class TestBuiltin_sprintf extends TestBase {
         assertEval("{ sprintf('% g', 4.33) }");
         assertEval("{ sprintf('%g', 4.3345423) }");
 
-        assertEval(Ignored.ImplementationError, "{ sprintf('%#g', 4.0) }");
+        assertEval("{ sprintf('%#g', 4.0) }");
+    }
+
+    @Test
+    public void testNumberFormats() {
+        // ties are resolved on the exact binary value, to even
+        assertEval("{ sprintf('%.2f', c(0.125, 0.375, 2.675, 1.005)) }");
+        assertEval("{ sprintf('%.0f', c(0.5, 1.5, 2.5, -0.5)) }");
+        assertEval("{ sprintf('%5.1e|%-12.3E|%+.0e', 12345.678, -0.00012345, 5) }");
+        assertEval("{ sprintf('%g', c(1e-5, 1e-4, 123456, 1234567, 0.1 + 0.2, 100)) }");
+        assertEval("{ sprintf('%#.3g|%-8g|%08.2f', 1, 2.5, -3.14159) }");
+        assertEval("{ sprintf('%a|%.3a|%A', 1, 3.14159, 0.1) }");
+        assertEval("{ sprintf('%8.3d|%-6x|%#o|%#X|%+d|% d', 7L, 255L, 8L, 255L, 3L, 3L) }");
+        assertEval("{ sprintf('%.0d|%5.1s|%-5s|', 0L, 'abc', 'ab') }");
+        assertEval("{ sprintf('%5.2f|%+f|% f|%-6d|', c(NA, Inf, NaN), c(Inf, -Inf, 1), c(NA, Inf, NaN), NA_integer_) }");
+        assertEval("{ sprintf('%*d|%-*d|%.*f', 4, 1L, 4, 2L, 2, pi) }");
+        assertEval("{ sprintf('%2$s %1$s %2$s', 'a', 'b') }");
+        assertEval("{ sprintf('100%%') }");
+        assertEval("{ sprintf('%5.1f%%', 12.34) }");
+        assertEval("{ sprintf('%s', c(1.5, 1e-20, 123456789012, 1/3)) }");
+        assertEval("{ x <- sprintf('%s_%05d', 'id', 1:10000); c(x[1:3], x[10000], length(unique(x))) }");
+        assertEval("{ sprintf('%y', 1) }");
+        assertEval("{ sprintf('%d', 1.5) }");
+        assertEval("{ sprintf('%f', 'a') }");
+        assertEval("{ sprintf('%d %d', 1L) }");
     }
 
     @Test
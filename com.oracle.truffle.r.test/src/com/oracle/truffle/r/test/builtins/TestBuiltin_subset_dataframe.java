@@ -54,4 +54,28 @@ public class TestBuiltin_subset_dataframe extends TestBase {
         assertEval("df <- data.frame(x='a', y='b'); f <- function(df, missng) {df[,missng]}; f(df)");
         assertEval(Output.IgnoreErrorContext, "df <- data.frame(x='a', y='b'); f <- function(df, missng) {df[,,missng]}; f(df)");
     }
+
+    @Test
+    public void testsubset_rowsAndColumns() {
+        String df = "df <- data.frame(a = 1:6, b = c(1.5, NA, 3, 4, 5, 6), f = factor(c('x','y','x','z','y','x')), d = as.Date('2020-01-01') + 0:5, s = letters[1:6], stringsAsFactors = FALSE); ";
+        assertEval(df + "df[c(2L, 4L), ]");
+        assertEval(df + "df[c(5, 1), c('s', 'a')]");
+        assertEval(df + "df[df$a > 3, c(TRUE, FALSE, TRUE, TRUE, FALSE)]");
+        assertEval(df + "df[-(1:2), -1]");
+        assertEval(df + "r <- df[c(6, 2), ]; list(attributes(r), r$f, r$d)");
+        assertEval(df + "df[3, 'f']");
+        assertEval(df + "df[2:3, 'b', drop = FALSE]");
+        assertEval(df + "df[1, 2]");
+        assertEval(df + "df[df$a > 10, ]");
+        assertEval(df + "rownames(df) <- paste0('r', 1:6); df[c(4, 2), 2:3]");
+        assertEval(df + "r <- df[c(2, 4, 6), ]; r[2:3, 'a']");
+        // shapes handled by the R implementation
+        assertEval(df + "df[c(1, 1, 2), 1:2]");
+        assertEval(df + "df[c(1, NA), 1:2]");
+        assertEval(df + "df[c('1', '3'), ]");
+        assertEval(df + "df[1, c(1, 1)]");
+        assertEval(df + "names(df[, c(1, 1)])");
+        assertEval(df + "df[2:3, c('s', 's', 'a')]");
+        assertEval(df + "df[1:2, 1:2, drop = TRUE]");
+    }
 }
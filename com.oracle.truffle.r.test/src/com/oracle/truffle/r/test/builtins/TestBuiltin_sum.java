@@ -209,6 +209,30 @@ public class TestBuiltin_sum extends TestBase {
         assertEval("sum(c(-2147483647L), -1)");
     }
 
+    @Test
+    public void testAccuracy() {
+        assertEval("sum(c(1e16, 1, -1e16))");
+        assertEval("sum(c(1e16, 1, NaN, -1e16))");
+        assertEval("sum(c(1e16, 1, NA, -1e16), na.rm = TRUE)");
+        assertEval("sum(c(1e16, Inf, -1e16))");
+        assertEval("sum(c(1e16, 1), -1e16)");
+        assertEval("sum(seq(0.5, by = 1, length.out = 300000))");
+        assertEval("{ x <- (1:300000) / 7; x[c(3, 200000)] <- c(1e16, -1e16); options(fastr.parallel.threads = 1L); a <- sum(x); options(fastr.parallel.threads = 4L); b <- sum(x); options(fastr.parallel.threads = NULL); c(identical(a, b), a) }");
+        assertEval("{ x <- as.double(1:300000); x[250000] <- NA; c(sum(x), sum(x, na.rm = TRUE)) }");
+        assertEval("{ x <- as.double(1:300000); x[10] <- NaN; c(sum(x), sum(x, na.rm = TRUE)) }");
+        assertEval("mean(c(1e16, 1, -1e16))");
+        assertEval("mean(c(1e16, 1L, -1e16))");
+        assertEval("{ x <- (1:300000) / 7; x[c(3, 200000)] <- c(1e16, -1e16); options(fastr.parallel.threads = 1L); a <- mean(x); options(fastr.parallel.threads = 4L); b <- mean(x); options(fastr.parallel.threads = NULL); c(identical(a, b), a) }");
+        assertEval("{ x <- as.double(1:300000); x[250000] <- NA; mean(x) }");
+        assertEval("cumsum(c(1e16, 1, -1e16, 2))");
+        assertEval("colSums(matrix(c(1e16, 1, -1e16), 3, 2))");
+        assertEval("rowSums(matrix(rep(c(1e16, 1, -1e16), each = 10), 10))");
+        assertEval("rowMeans(matrix(rep(c(1e16, 1, -1e16), each = 10), 10))");
+        // the accumulator keeps more bits than the long double of GNU R, which gives 0 here
+        assertEvalFastR("sum(c(1e20, 1, -1e20))", "1");
+        assertEvalFastR("cumsum(c(1e20, 1, -1e20))", "c(1e20, 1e20, 1)");
+    }
+
     @Test
     public void testSideEffect() {
         assertEval("{ x <- c(1, 2, 3); f <- function() { x[1] <<- 10; 2 }; g <- function(){ x[1] <<- 100; 0 }; sum(x, f(), x, g()) }");
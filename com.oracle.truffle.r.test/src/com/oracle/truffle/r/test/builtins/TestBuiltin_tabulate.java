@@ -75,5 +75,13 @@ public class TestBuiltin_tabulate extends TestBase {
         assertEval("{ .Internal(tabulate(c(2L,3L,5L), integer())) }");
         assertEval("{ .Internal(tabulate(c(2L,3L,5L), -1)) }");
         assertEval("{ .Internal(tabulate(c(2L,3L,5L), NA)) }");
+
+        assertEval("{ f <- factor(rep(c('a','b','c','b'), 100)); invisible(split(1:400, f)); t1 <- tabulate(f); f[1:10] <- 'c'; c(t1, tabulate(f), table(f)) }");
+
+        // .fastr.grouped caches the group index on the factor, which tabulate reuses until the
+        // factor is modified
+        assertEvalFastR("{ f <- factor(rep(c('a','b','c','b'), 100)); invisible(.fastr.grouped(as.double(1:400), f)); tabulate(f) }", "c(100L, 200L, 100L)");
+        assertEvalFastR("{ f <- factor(rep(c('a','b','c','b'), 100)); invisible(.fastr.grouped(as.double(1:400), f)); t1 <- tabulate(f); f[1:10] <- 'c'; c(t1, tabulate(f)) }",
+                        "c(100L, 200L, 100L, 97L, 195L, 108L)");
     }
 }
@@ -209,4 +209,13 @@ public class TestBuiltin_unique extends TestBase {
 
         assertEval("unique(list(list(1), 1, 1L))");
     }
+
+    @Test
+    public void testUniqueFromLast() {
+        assertEval("{ unique(c(1, 2, 1, 3, 2), fromLast = TRUE) }");
+        assertEval("{ unique(c('a', NA, 'b', 'a', NA, 'NA'), fromLast = TRUE) }");
+        assertEval("{ unique(c(TRUE, NA, FALSE, TRUE), fromLast = TRUE) }");
+        assertEval("{ unique(c(NA, NaN, 0, -0, NA, NaN, 1, 2, 3, 1, 2, 3)) }");
+        assertEval("{ unique(c(NA, 'NA', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', NA, 'NA')) }");
+    }
 }
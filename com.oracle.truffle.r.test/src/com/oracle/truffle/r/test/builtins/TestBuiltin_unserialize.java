@@ -87,6 +87,15 @@ public class TestBuiltin_unserialize extends TestBase {
         assertEval(template("unserialize(serialize(%0, NULL, version=%1))", BASIC_TYPE_VALUES, VERSIONS));
     }
 
+    @Test
+    public void testLargeVectors() {
+        // larger than the serialization buffers, so the bulk transfers are done in several chunks
+        assertEval(template("{ x <- list(d=c(seq(0.5, 50000), NA, NaN, -Inf), i=c(1:70000, NA), l=rep(c(TRUE, NA, FALSE), 30000), r=as.raw(0:255)[(1:100000 %% 256) + 1], " +
+                        "c=complex(real=1:20000, imaginary=c(NA, 2:20000)), cc=complex(real=1:20000, imaginary=-1)); y <- unserialize(serialize(x, NULL, version=%0)); " +
+                        "c(identical(x, y), sapply(y, function(v) anyNA(v))) }", VERSIONS));
+        assertEval("{ f <- tempfile(); x <- list(a=rnorm(50000), b=as.raw(1:200000 %% 256)); con <- file(f, 'wb'); serialize(x, con); close(con); con <- file(f, 'rb'); y <- unserialize(con); close(con); unlink(f); identical(x, y) }");
+    }
+
     @Test
     public void testserializeAndUnserializeClosure() {
         // N.B.: FastR does not preserve code formatting like GNU R does
@@ -214,6 +214,14 @@ public class TestConnections extends TestRBase {
         assertEval(template("readLines(textConnection(\"foo%0%1\"))", endings, text));
     }
 
+    @Test
+    public void testReadLinesChunked() {
+        // lines crossing the boundaries of the connection's read buffer, mixed line endings
+        assertEval("{ lines <- c(strrep('a', 20000), 'b\\u00e9', '', strrep('c', 40000)); zz <- file('', 'w+b'); writeBin(charToRaw(paste0(lines, c('\\n', '\\r\\n', '\\r', '\\n'), collapse='')), zz); seek(zz, 0); " +
+                        "res <- list(); while (length(chunk <- readLines(zz, 3, encoding='UTF-8')) > 0) res[[length(res) + 1]] <- nchar(chunk); close(zz); res }");
+        assertEval("{ zz <- file('', 'w+b'); writeBin(charToRaw(strrep('x\\n', 10000)), zz); seek(zz, 0); first <- readLines(zz, 1); bin <- readBin(zz, raw(), 4); rest <- readLines(zz); close(zz); list(first, bin, length(rest)) }");
+    }
+
     @Test
     public void testRawReadAppendText() {
 
@@ -256,6 +264,20 @@ public class TestConnections extends TestRBase {
         assertEval(template("f <- tempfile(); unlink(f); x <- 1:10; save(x, file=f, version=%0); con <- file(f, 'rb'); dput(class(con))", SAVE_VERSIONS));
     }
 
+    @Test
+    public void testCompressedRoundTrip() {
+        // large enough to be split into several compressed blocks
+        assertEval(template("{ f <- tempfile(); x <- rep_len(c(paste('line', 1:5000), letters), 60000); zz <- %0(f, 'w', compression=%1); writeLines(x, zz); close(zz); " +
+                        "y <- readLines(%0(f)); unlink(f); identical(x, y) }", arr("gzfile", "bzfile", "xzfile"), arr("1", "6", "9")));
+        assertEval("{ f <- tempfile(); zz <- xzfile(f, 'w', compression=-2); writeLines(c('a', 'b'), zz); close(zz); y <- readLines(xzfile(f)); unlink(f); y }");
+        assertEval("{ f <- tempfile(); zz <- gzfile(f, 'w'); close(zz); y <- readLines(gzfile(f)); unlink(f); y }");
+        assertEval(template("{ f <- tempfile(); x <- list(a=runif(1e5) > 0.5, b=as.character(1:20000)); saveRDS(x, f, compress=%0); y <- readRDS(f); unlink(f); identical(x, y) }",
+                        arr("TRUE", "'bzip2'", "'xz'")));
+        // the parallel gzip output does not depend on the number of threads
+        assertEvalFastR("{ f <- tempfile(); x <- rep(1:5000, 20); op <- options(fastr.parallel.threads=2); saveRDS(x, f); a <- readBin(f, raw(), 1e6); options(fastr.parallel.threads=7); " +
+                        "saveRDS(x, f); b <- readBin(f, raw(), 1e6); options(op); y <- readRDS(f); unlink(f); identical(a, b) && identical(x, y) }", "TRUE");
+    }
+
     @Test
     public void testFifoOpenInexisting() {
         assertEval("capabilities(\"fifo\")");
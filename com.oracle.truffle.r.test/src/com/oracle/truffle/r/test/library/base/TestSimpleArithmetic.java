@@ -493,6 +493,8 @@ public class TestSimpleArithmetic extends TestBase {
         assertEval("{ c(1,2,2,3) %*% c(1,3,NA,NaN) }");
         assertEval("{ c(1,2,2,3) %*% c(1,3,NaN,NA) }");
         assertEval("{ c(NA,NaN) %*% c(1.6,3.6) }");
+        assertEval("{ m <- matrix((1:60000) %% 7, 300); options(fastr.parallel.threads = 1L); a <- m %*% t(m); options(fastr.parallel.threads = 4L); b <- m %*% t(m); options(fastr.parallel.threads = NULL); c(identical(a, b), a[17, 123], sum(a)) }");
+        assertEval("{ options(matprod = 'blas'); m <- matrix((1:60000) %% 7, 300); r <- m %*% t(m); options(matprod = 'default'); c(r[17, 123], sum(r)) }");
         assertEval("{ c(NaN,NA) %*% c(1.6,3.6) }");
         assertEval("{ c(1.1,2.2) %*% c(NA,NaN) }");
         assertEval("{ c(1.1,22.2) %*% c(NaN,NA) }");
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestGroupedAggregate extends TestBase {
+
+    @Test
+    public void testFactorGroups() {
+        assertEvalFastR("{ f <- factor(c('b','a','b','c'), levels = c('a','b','c','d')); .fastr.grouped(c(1, 2, 3, 4), f) }", "c(a = 2, b = 4, c = 4, d = 0)");
+        assertEvalFastR("{ f <- factor(c('b','a',NA,'b')); .fastr.grouped(1:4, f, 'count') }", "c(a = 1L, b = 2L)");
+        assertEvalFastR("{ f <- factor(c('b','a','b','a')); .fastr.grouped(c(1, 2, NA, 6), f, 'mean') }", "c(a = 4, b = NA)");
+        assertEvalFastR("{ f <- factor(c('b','a','b','a')); .fastr.grouped(c(1, 2, NA, 6), f, 'mean', na.rm = TRUE) }", "c(a = 4, b = 1)");
+        assertEvalFastR("{ f <- factor(rep(c('x','y'), 500)); x <- as.double(1:1000); c(.fastr.grouped(x, f), .fastr.grouped(x, f, 'count')) }", "c(x = 250000, y = 250500, x = 500, y = 500)");
+    }
+
+    @Test
+    public void testKeyGroups() {
+        assertEvalFastR("{ .fastr.grouped(c(1, 2, 3, 4, 5), c(3L, 1L, 3L, NA, 1L)) }", "structure(c(4, 7, 4), names = c('3', '1', NA))");
+        assertEvalFastR("{ .fastr.grouped(c(1, 2, 3), c('u', 'v', 'u'), 'mean') }", "c(u = 2, v = 2)");
+        assertEvalFastR("{ .fastr.grouped(c(TRUE, FALSE, TRUE), c(0.5, 1.5, 0.5), 'sum') }", "c(`0.5` = 2, `1.5` = 0)");
+        assertEvalFastR("{ .fastr.grouped(c(1, NA, 3), c(TRUE, TRUE, FALSE), 'count', na.rm = TRUE) }", "c(`TRUE` = 1L, `FALSE` = 1L)");
+        assertEvalFastR(Output.IgnoreErrorMessage, "{ .fastr.grouped(1:3, 1:2) }", "stop('argument lengths differ')");
+        assertEvalFastR(Output.IgnoreErrorMessage, "{ .fastr.grouped(1:3, 1:3, 'median') }", "stop('invalid fun argument')");
+    }
+}
@@ -34,6 +34,13 @@ public class TestExternal_covcor extends TestBase {
         assertEval(".Call(stats:::C_cov, 1:5, c(1,5,1,5,10), 4, FALSE)");
     }
 
+    @Test
+    public void testCovcorLarge() {
+        // large enough to be computed in parallel, results must not depend on the thread count
+        assertEval("{ x <- matrix(((1:120000) * 7919) %% 1009, 2000); x[c(5, 777, 4321)] <- NA; f <- function(t) { options(fastr.parallel.threads = t); r <- list(cor(x), cov(x, use = 'complete'), cor(x, use = 'pairwise'), cor(x[, 1:20], x[, 21:60], use = 'everything')); options(fastr.parallel.threads = NULL); r }; a <- f(1L); b <- f(4L); c(identical(a, b), signif(sum(a[[2]]), 8), signif(a[[3]][2, 3], 8)) }");
+        assertEval("{ x <- matrix(((1:6000) * 7919) %% 101, 200); options(fastr.parallel.threads = 1L); a <- cor(x, method = 'kendall'); options(fastr.parallel.threads = 4L); b <- cor(x, method = 'kendall'); options(fastr.parallel.threads = NULL); c(identical(a, b), signif(a[1, 2], 8)) }");
+    }
+
     @Test
     public void testCovcorArgsCasts() {
         assertEval(".Call(stats:::C_cov, c('1','2','3','4','5'), 1:5, 4, FALSE)");
@@ -56,6 +56,16 @@ public class TestTypeConvert extends TestBase {
         }
     }
 
+    @Test
+    public void testLongVectors() {
+        // long vectors are classified and converted in parallel parts
+        assertEval("{ x <- as.character(1:100000); x[c(1, 70000)] <- NA; y <- type.convert(x, as.is=TRUE); list(typeof(y), sum(y, na.rm=TRUE)) }");
+        assertEval("{ x <- as.character(1:100000); x[70000] <- '1.5'; y <- type.convert(x, as.is=TRUE); list(typeof(y), sum(y)) }");
+        assertEval("{ x <- as.character(1:100000); x[70000] <- 'TRUE'; y <- type.convert(x, as.is=TRUE); list(typeof(y), y[c(1, 70000)]) }");
+        assertEval("{ x <- rep(c('TRUE', 'F', NA, ''), 25000); y <- type.convert(x, as.is=TRUE); list(typeof(y), table(y, useNA='always')) }");
+        assertEval("{ x <- rep(c('b', 'a', NA, 'c'), 25000); y <- type.convert(x, as.is=FALSE); list(levels(y), table(y, useNA='always')) }");
+    }
+
     @Test
     public void testFirstTypeMustBeOfModeTest() {
         assertEval("type.convert('NA', 1)");
@@ -50,4 +50,17 @@ public class TestUtils extends TestBase {
     public void testOctSize() {
         assertEval(template(".Call(utils:::C_octsize, %0)", TEST_OCTSIZE_PARAMS));
     }
+
+    @Test
+    public void testRprof() {
+        assertEval("{ f <- function(n) { s <- 0; for (i in seq_len(n)) s <- s + sqrt(i); s }; tf <- tempfile(); Rprof(tf, interval = 0.001); for (k in 1:20) f(1e5); Rprof(NULL); l <- readLines(tf); unlink(tf); c(l[[1]], all(grepl('^(\\\"[^\\\"]+\\\" )+$', l[-1]))) }");
+        assertEval("{ tf <- tempfile(); Rprof(tf, interval = 0.001, memory.profiling = TRUE); x <- lapply(1:1000, function(i) rnorm(100)); Rprof(NULL); l <- readLines(tf); unlink(tf); l[[1]] }");
+        // line profiling lists the source file and the line of the executing statement
+        assertEval("{ src <- tempfile(fileext = '.R'); writeLines(c('f <- function(n) {', '  s <- 0', '  for (i in seq_len(n)) s <- s + sqrt(i)', '  s', '}'), src); source(src, keep.source = TRUE); " +
+                        "tf <- tempfile(); Rprof(tf, interval = 0.001, line.profiling = TRUE); for (k in 1:20) f(1e5); Rprof(NULL); l <- readLines(tf); unlink(c(tf, src)); " +
+                        "c(l[[1]], sum(grepl('^#File 1: ', l)), any(grepl('1#3 ', l, fixed = TRUE))) }");
+        assertEvalFastR("{ f <- function(n) { s <- 0; for (i in seq_len(n)) s <- s + sqrt(i); s }; g <- function() f(1e5); tf <- tempfile(); cf <- tempfile(); options(fastr.rprof.collapsed = cf); " +
+                        "Rprof(tf, interval = 0.001); for (k in 1:20) g(); Rprof(NULL); options(fastr.rprof.collapsed = NULL); l <- readLines(cf); unlink(c(tf, cf)); " +
+                        "c(length(l) > 0, all(grepl(' [0-9]+$', l)), any(grepl('g;f [0-9]+$', l))) }", "c(TRUE, TRUE, TRUE)");
+    }
 }
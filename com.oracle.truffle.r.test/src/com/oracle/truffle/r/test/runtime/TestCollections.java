@@ -24,6 +24,10 @@ package com.oracle.truffle.r.test.runtime;
 
 import com.oracle.truffle.r.runtime.Collections.ArrayListInt;
 import com.oracle.truffle.r.runtime.Collections.ArrayListObj;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetDouble;
+import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.ffi.AfterDownCallProfiles;
 import com.oracle.truffle.r.test.TestBase;
 import org.junit.Assert;
@@ -136,4 +140,55 @@ public class TestCollections extends TestBase {
         list.add(33);
         list.get(1);
     }
+
+    @Test
+    public void testNonRecursiveHashMapInt() {
+        NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(1);
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertFalse(map.put(i * 31, i));
+        }
+        Assert.assertEquals(100000, map.size());
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertEquals(i, map.get(i * 31));
+        }
+        Assert.assertEquals(-1, map.get(1));
+        Assert.assertEquals(-1, map.get(RRuntime.INT_NA));
+        Assert.assertEquals(-1, map.putIfAbsent(RRuntime.INT_NA, 7));
+        Assert.assertEquals(7, map.putIfAbsent(RRuntime.INT_NA, 8));
+        Assert.assertEquals(1, map.putIfAbsent(31, 42));
+        Assert.assertTrue(map.put(31, 42));
+        Assert.assertEquals(42, map.get(31));
+        Assert.assertEquals(100001, map.size());
+    }
+
+    @Test
+    public void testNonRecursiveHashSetDouble() {
+        NonRecursiveHashSetDouble set = new NonRecursiveHashSetDouble(1);
+        Assert.assertFalse(set.add(0.0));
+        Assert.assertTrue(set.add(-0.0));
+        Assert.assertFalse(set.add(RRuntime.DOUBLE_NA));
+        Assert.assertFalse(set.add(Double.NaN));
+        Assert.assertTrue(set.add(RRuntime.DOUBLE_NA));
+        Assert.assertTrue(set.add(-Double.NaN));
+        for (int i = 1; i <= 10000; i++) {
+            Assert.assertFalse(set.add(i));
+        }
+        Assert.assertTrue(set.contains(10000.0));
+        Assert.assertFalse(set.contains(0.5));
+        Assert.assertEquals(10003, set.size());
+    }
+
+    @Test
+    public void testNonRecursiveHashSetCharacter() {
+        NonRecursiveHashSetCharacter set = new NonRecursiveHashSetCharacter(1);
+        Assert.assertFalse(set.add("NA"));
+        Assert.assertFalse(set.add(RRuntime.STRING_NA));
+        Assert.assertTrue(set.add(new String("NA")));
+        Assert.assertTrue(set.add(RRuntime.STRING_NA));
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertFalse(set.add("s" + i));
+        }
+        Assert.assertTrue(set.contains("s9999"));
+        Assert.assertEquals(10002, set.size());
+    }
 }